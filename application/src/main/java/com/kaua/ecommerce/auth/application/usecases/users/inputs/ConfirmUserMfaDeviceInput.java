@@ -6,6 +6,11 @@ import java.util.UUID;
 public record ConfirmUserMfaDeviceInput(
         UUID userId,
         String code,
-        Instant validUntil
+        Instant validUntil,
+        boolean codeVerified
 ) {
+
+    public ConfirmUserMfaDeviceInput(final UUID userId, final String code, final Instant validUntil) {
+        this(userId, code, validUntil, false);
+    }
 }
@@ -62,6 +62,29 @@ class ConfirmUserMfaDeviceUseCaseTest extends UseCaseTest {
                         && cmd.getMfa().isDeviceVerified()));
     }
 
+    @Test
+    void givenACodeAlreadyVerified_whenCallConfirmUserMfaDeviceUseCase_thenShouldNotCheckTheCodeAgain() {
+        final var aUser = Fixture.Users.randomUser(new RoleId(IdentifierUtils.generateNewUUID()));
+        aUser.getMfa().createMfaOnDevice("123456", "my-device", UserMfaType.TOTP);
+
+        final var aUserId = aUser.getId().value();
+        final var aValidUntil = InstantUtils.now().plus(30, ChronoUnit.MINUTES);
+
+        final var aInput = new ConfirmUserMfaDeviceInput(aUserId, "123", aValidUntil, true);
+
+        Mockito.when(userRepository.findById(aUserId)).thenReturn(Optional.of(aUser));
+        Mockito.when(userRepository.update(aUser)).thenAnswer(returnsFirstArg());
+
+        final var aOutput = Assertions.assertDoesNotThrow(() -> this.confirmUserMfaDeviceUseCase.execute(aInput));
+
+        Assertions.assertEquals(aUserId.toString(), aOutput.userId());
+
+        Mockito.verifyNoInteractions(mfaGateway);
+        Mockito.verify(userRepository, Mockito.times(1)).update(argThat(cmd ->
+                cmd.getMfa().getValidUntil().isPresent()
+                        && cmd.getMfa().isDeviceVerified()));
+    }
+
     @Test
     void givenAInvalidCode_whenCallConfirmUserMfaDeviceUseCase_thenShouldThrowDomainException() {
         final var aUser = Fixture.Users.randomUser(new RoleId(IdentifierUtils.generateNewUUID()));
@@ -0,0 +1,33 @@
+package com.kaua.ecommerce.auth.infrastructure.gateways.qrcode;
+
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// custo do QR de cadastro do MFA, PNG 300x300 pelo ImageIO contra o SVG direto da matriz de módulos.
+// o profiler gc mostra a alocação por chamada. rodar com ./gradlew :infrastructure:jmh
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QrCodeRenderBenchmark {
+
+    private static final String CONTENTS =
+            "otpauth://totp/ecommerce:user@mail.com?secret=PD7ZUK3HXLXHVQPQDN5DO6S6TREYOCXC&issuer=ecommerce";
+
+    private final QrCodeRenderer pngRenderer = new PngQrCodeRenderer(new QRCodeWriter());
+    private final QrCodeRenderer svgRenderer = new SvgQrCodeRenderer();
+
+    @Benchmark
+    public String png() {
+        return this.pngRenderer.render(CONTENTS);
+    }
+
+    @Benchmark
+    public String svg() {
+        return this.svgRenderer.render(CONTENTS);
+    }
+}
@@ -0,0 +1,106 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// compara o toObject antigo (putAll de todos os metadata) com o lazy, rodar com ./gradlew :infrastructure:jmh
+// o profiler gc já está ligado no build.gradle, comparar o gc.alloc.rate.norm de cada benchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthorizationMaterializationBenchmark {
+
+    private final AuthorizationDataCodec codec = new AuthorizationDataCodec();
+
+    private RegisteredClient registeredClient;
+    private OAuth2AccessToken accessToken;
+    private OAuth2RefreshToken refreshToken;
+    private OidcIdToken idToken;
+    private String accessTokenMetadata;
+    private String refreshTokenMetadata;
+    private String idTokenMetadata;
+
+    @Setup
+    public void setup() {
+        final var aIssuedAt = Instant.now();
+        final var aClaims = new HashMap<String, Object>();
+        aClaims.put("sub", "user@tst.com");
+        aClaims.put("aud", List.of("ecommerce-microservices"));
+        aClaims.put("scope", List.of("openid", "profile", "email"));
+        aClaims.put("authorities", List.of("ROLE_USER", "ROLE_CUSTOMER"));
+        aClaims.put("iat", aIssuedAt.getEpochSecond());
+        aClaims.put("exp", aIssuedAt.plus(5, ChronoUnit.MINUTES).getEpochSecond());
+
+        this.registeredClient = RegisteredClient.withId("client-id")
+                .clientId("ecommerce-microservices")
+                .clientSecret("secret")
+                .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+                .authorizationGrantType(AuthorizationGrantType.REFRESH_TOKEN)
+                .scope("openid")
+                .build();
+
+        this.accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "access-token",
+                aIssuedAt, aIssuedAt.plus(5, ChronoUnit.MINUTES), Set.of("openid", "profile", "email"));
+        this.refreshToken = new OAuth2RefreshToken("refresh-token",
+                aIssuedAt, aIssuedAt.plus(1, ChronoUnit.DAYS));
+        this.idToken = new OidcIdToken("id-token",
+                aIssuedAt, aIssuedAt.plus(5, ChronoUnit.MINUTES), aClaims);
+
+        this.accessTokenMetadata = this.codec.write(newMetadata(aClaims));
+        this.refreshTokenMetadata = this.codec.write(newMetadata(null));
+        this.idTokenMetadata = this.codec.write(newMetadata(aClaims));
+    }
+
+    @Benchmark
+    public boolean eagerFindByAccessToken() {
+        final var aAuthorization = OAuth2Authorization.withRegisteredClient(this.registeredClient)
+                .id("authorization-id")
+                .principalName("user@tst.com")
+                .authorizationGrantType(AuthorizationGrantType.REFRESH_TOKEN)
+                .token(this.accessToken, metadata -> metadata.putAll(this.codec.read(this.accessTokenMetadata)))
+                .token(this.refreshToken, metadata -> metadata.putAll(this.codec.read(this.refreshTokenMetadata)))
+                .token(this.idToken, metadata -> metadata.putAll(this.codec.read(this.idTokenMetadata)))
+                .build();
+
+        return aAuthorization.getAccessToken().isActive();
+    }
+
+    @Benchmark
+    public boolean lazyFindByAccessToken() {
+        final var aBuilder = new LazyAuthorizationBuilder(this.registeredClient);
+        aBuilder.id("authorization-id")
+                .principalName("user@tst.com")
+                .authorizationGrantType(AuthorizationGrantType.REFRESH_TOKEN);
+        aBuilder.lazyToken(this.accessToken, () -> this.codec.read(this.accessTokenMetadata));
+        aBuilder.lazyToken(this.refreshToken, () -> this.codec.read(this.refreshTokenMetadata));
+        aBuilder.lazyToken(this.idToken, () -> this.codec.read(this.idTokenMetadata));
+
+        return aBuilder.build().getAccessToken().isActive();
+    }
+
+    private static Map<String, Object> newMetadata(final Map<String, Object> claims) {
+        final var aMetadata = new HashMap<String, Object>();
+        aMetadata.put(OAuth2Authorization.Token.INVALIDATED_METADATA_NAME, false);
+        if (claims != null) {
+            aMetadata.put(OAuth2Authorization.Token.CLAIMS_METADATA_NAME, claims);
+        }
+        return aMetadata;
+    }
+}
@@ -0,0 +1,91 @@
+package com.kaua.ecommerce.auth.infrastructure.services.local;
+
+import com.kaua.ecommerce.auth.infrastructure.gateways.totp.TotpVerifier;
+import com.kaua.ecommerce.auth.infrastructure.services.impl.MfaSecretCipher;
+import com.warrenstrange.googleauth.GoogleAuthenticator;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.Cipher;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyFactory;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+// latência do MfaGatewayImpl.accepts: antes lia e parseava a chave privada do disco a cada código,
+// agora a chave fica no KeyRing e o Cipher é reaproveitado por thread. o modo data-key troca o RSA por AES-GCM.
+// rodar com ./gradlew :infrastructure:jmh
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MfaVerifyBenchmark {
+
+    private static final String PUBLIC_KEY = "mfa-public.key";
+    private static final String PRIVATE_KEY = "mfa-private.key";
+    private static final String DATA_KEY = "mfa-data.key";
+
+    private final GoogleAuthenticator googleAuthenticator = new GoogleAuthenticator();
+    private final TotpVerifier totpVerifier = new TotpVerifier(65536);
+
+    private Path keysFolder;
+    private RSAKeyLocalGeneratorService keysService;
+    private String encryptedSecret;
+    private MfaSecretCipher mfaSecretCipher;
+    private String dataKeySecret;
+
+    @Setup
+    public void setup() throws IOException {
+        this.keysFolder = Files.createTempDirectory("mfa-verify-benchmark");
+        this.keysService = new RSAKeyLocalGeneratorService(this.keysFolder);
+        this.keysService.generateAndSaveKeys(PUBLIC_KEY, PRIVATE_KEY);
+        this.encryptedSecret = this.keysService.encrypt(
+                this.googleAuthenticator.createCredentials().getKey(), PUBLIC_KEY);
+
+        this.keysService.getDataKeyOrGenerate(DATA_KEY, PUBLIC_KEY, PRIVATE_KEY);
+        this.mfaSecretCipher = new MfaSecretCipher(this.keysService, "data-key");
+        this.dataKeySecret = this.mfaSecretCipher.reencrypt(this.encryptedSecret);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        this.keysService.close();
+        try (final var aFiles = Files.walk(this.keysFolder)) {
+            aFiles.sorted(Comparator.reverseOrder()).forEach(it -> it.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public boolean verifyReadingKeyFromDisk() throws Exception {
+        // o caminho antigo do decrypt: readAllBytes + Base64 + KeyFactory + Cipher.getInstance por chamada
+        final var aKeyBytes = Base64.getDecoder().decode(Files.readAllBytes(this.keysFolder.resolve(PRIVATE_KEY)));
+        final var aKey = KeyFactory.getInstance("RSA").generatePrivate(new PKCS8EncodedKeySpec(aKeyBytes));
+        final var aCipher = Cipher.getInstance("RSA");
+        aCipher.init(Cipher.DECRYPT_MODE, aKey);
+        final var aSecret = new String(aCipher.doFinal(Base64.getDecoder().decode(this.encryptedSecret)));
+        return this.googleAuthenticator.authorize(aSecret, 123456);
+    }
+
+    @Benchmark
+    public boolean verifyWithKeyRing() {
+        final var aSecret = this.keysService.decrypt(this.encryptedSecret, PRIVATE_KEY);
+        return this.googleAuthenticator.authorize(aSecret, 123456);
+    }
+
+    @Benchmark
+    public boolean verifyWithDataKey() {
+        final var aSecret = this.mfaSecretCipher.decrypt(this.dataKeySecret);
+        return this.googleAuthenticator.authorize(aSecret, 123456);
+    }
+
+    @Benchmark
+    public boolean verifyWithDataKeyAndTotpVerifier() {
+        final var aSecret = this.mfaSecretCipher.decrypt(this.dataKeySecret);
+        return this.totpVerifier.verify(aSecret, "123456");
+    }
+}
@@ -0,0 +1,91 @@
+package com.kaua.ecommerce.auth.infrastructure.users.persistence.cache;
+
+import com.kaua.ecommerce.auth.domain.users.mfas.UserMfaType;
+import com.kaua.ecommerce.auth.infrastructure.users.persistence.UserMfaJpaEntity;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// compara o JSON que ia para o redis (string JSON dentro do serializer do template) com o formato binário,
+// no caminho de leitura do filtro de MFA, rodar com ./gradlew :infrastructure:jmh
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserCacheEntityCodecBenchmark {
+
+    private UserCacheEntityCodec jsonCodec;
+    private UserCacheEntityCodec binaryCodec;
+    private UserCacheEntity user;
+    private byte[] jsonData;
+    private byte[] binaryData;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        final var aTextSerializer = (RedisSerializer<String>) (RedisSerializer<?>) new GenericJackson2JsonRedisSerializer();
+        this.jsonCodec = new UserCacheEntityCodec(UserCacheEntityCodec.Format.JSON, aTextSerializer);
+        this.binaryCodec = new UserCacheEntityCodec(UserCacheEntityCodec.Format.BINARY, aTextSerializer);
+
+        final var aNow = Instant.now();
+        final var aMfa = new UserMfaJpaEntity();
+        aMfa.setId(UUID.randomUUID());
+        aMfa.setMfaEnabled(true);
+        aMfa.setMfaVerified(true);
+        aMfa.setMfaSecret("v2:AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA");
+        aMfa.setDeviceName("Pixel 8");
+        aMfa.setDeviceVerified(true);
+        aMfa.setMfaType(UserMfaType.TOTP);
+        aMfa.setCreatedAt(aNow);
+        aMfa.setUpdatedAt(aNow);
+        aMfa.setValidUntil(aNow.plus(30, ChronoUnit.MINUTES));
+
+        this.user = new UserCacheEntity(
+                UUID.randomUUID(),
+                3,
+                UUID.randomUUID(),
+                "John",
+                "Doe",
+                "john.doe@tst.com",
+                "$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z3J7bYf5OAG5HVpGsiZJ3ZaG",
+                Set.of(UUID.randomUUID(), UUID.randomUUID()),
+                false,
+                true,
+                aMfa,
+                aNow,
+                aNow,
+                null
+        );
+
+        this.jsonData = this.jsonCodec.encode(this.user);
+        this.binaryData = this.binaryCodec.encode(this.user);
+    }
+
+    @Benchmark
+    public UserCacheEntity decodeJson() {
+        return this.jsonCodec.decode(this.jsonData);
+    }
+
+    @Benchmark
+    public UserCacheEntity decodeBinary() {
+        return this.binaryCodec.decode(this.binaryData);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return this.jsonCodec.encode(this.user);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return this.binaryCodec.encode(this.user);
+    }
+}
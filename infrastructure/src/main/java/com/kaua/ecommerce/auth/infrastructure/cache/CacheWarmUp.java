@@ -0,0 +1,101 @@
+package com.kaua.ecommerce.auth.infrastructure.cache;
+
+import com.kaua.ecommerce.auth.infrastructure.oauth2.clients.ClientRegisteredRepositoryImpl;
+import com.kaua.ecommerce.auth.infrastructure.users.UserRepositoryImpl;
+import com.kaua.ecommerce.lib.domain.utils.IdentifierUtils;
+import com.kaua.ecommerce.lib.domain.utils.InstantUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+// depois de um deploy ou de um failover do redis todo findByClientId e findById ia ao banco por alguns minutos.
+// no startup (os runners rodam antes do readiness) carrega todos os clients e os usuários atualizados mais
+// recentemente. cada nó deixa um marcador no redis, se ele sumiu o redis foi limpo ou trocado e o nó reaquece
+// com os clients e os usuários mais acessados por ele
+@Component
+@ConditionalOnProperty(
+        value = "auth-server.cache.warm-up.enabled",
+        havingValue = "true"
+)
+public class CacheWarmUp implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheWarmUp.class);
+
+    private static final String MARKER_KEY = "cache:warm-up:";
+    private static final Duration MARKER_EXPIRATION = Duration.ofDays(1);
+
+    private final ClientRegisteredRepositoryImpl clientRepository;
+    private final UserRepositoryImpl userRepository;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final int recentUsers;
+    private final int batchSize;
+    private final String markerKey;
+
+    public CacheWarmUp(
+            final ClientRegisteredRepositoryImpl clientRepository,
+            final UserRepositoryImpl userRepository,
+            final RedisTemplate<String, String> redisTemplate,
+            @Value("${auth-server.cache.warm-up.recent-users:1000}") final int recentUsers,
+            @Value("${auth-server.cache.warm-up.batch-size:200}") final int batchSize
+    ) {
+        this.clientRepository = Objects.requireNonNull(clientRepository);
+        this.userRepository = Objects.requireNonNull(userRepository);
+        this.redisTemplate = Objects.requireNonNull(redisTemplate);
+        this.recentUsers = recentUsers;
+        this.batchSize = batchSize;
+        this.markerKey = MARKER_KEY.concat(IdentifierUtils.generateNewId());
+    }
+
+    @Override
+    public void run(String... args) {
+        // um redis fora do ar não pode impedir o nó de subir, sem o aquecimento ele só começa frio
+        try {
+            warmUp(this.userRepository.recentlyActiveUserIds(this.recentUsers));
+        } catch (RuntimeException e) {
+            log.warn("Cache warm-up at startup failed, starting with a cold cache", e);
+        }
+    }
+
+    @Scheduled(
+            initialDelayString = "${auth-server.cache.warm-up.check-interval:30s}",
+            fixedDelayString = "${auth-server.cache.warm-up.check-interval:30s}"
+    )
+    public void checkMarker() {
+        try {
+            // o expire devolve false se a chave não existe, a checagem e a renovação do marcador numa ida só
+            if (Boolean.TRUE.equals(this.redisTemplate.expire(this.markerKey, MARKER_EXPIRATION))) {
+                return;
+            }
+
+            log.info("Cache warm-up marker {} is missing, replaying hot keys", this.markerKey);
+            warmUp(this.userRepository.hottestUserIds(this.recentUsers));
+        } catch (RuntimeException e) {
+            log.warn("Cache warm-up check failed, retrying on the next interval", e);
+        }
+    }
+
+    private void warmUp(final List<UUID> userIds) {
+        final var aStartedAt = System.nanoTime();
+        final var aClients = this.clientRepository.preloadAll();
+
+        var aUsers = 0;
+        for (int i = 0; i < userIds.size(); i += this.batchSize) {
+            aUsers += this.userRepository.preload(userIds.subList(i, Math.min(i + this.batchSize, userIds.size())));
+        }
+
+        // o marcador por último, se o aquecimento cair no meio a próxima checagem tenta de novo
+        this.redisTemplate.opsForValue().set(this.markerKey, InstantUtils.now().toString(), MARKER_EXPIRATION);
+        log.info("Cache warmed up with {} clients and {} users in {} ms",
+                aClients, aUsers, Duration.ofNanos(System.nanoTime() - aStartedAt).toMillis());
+    }
+}
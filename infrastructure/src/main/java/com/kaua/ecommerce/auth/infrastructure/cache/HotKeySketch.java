@@ -0,0 +1,36 @@
+package com.kaua.ecommerce.auth.infrastructure.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.List;
+
+// chaves mais acessadas deste nó, para reaquecer o redis depois de um failover. usa o próprio W-TinyLFU do
+// caffeine: o tamanho é fixo, a frequência é aproximada e decai sozinha, uma chave quente de ontem sai para as
+// de agora. é por nó e some no restart, no startup o aquecimento usa o banco
+public final class HotKeySketch<K> {
+
+    private final Cache<K, Boolean> keys;
+
+    public HotKeySketch(final long capacity) {
+        this.keys = Caffeine.newBuilder()
+                .maximumSize(capacity)
+                .build();
+    }
+
+    public void record(final K key) {
+        // o get conta a frequência da chave, o put só entra na primeira vez
+        this.keys.get(key, it -> Boolean.TRUE);
+    }
+
+    public List<K> hottest(final int limit) {
+        return this.keys.policy().eviction()
+                .map(it -> List.copyOf(it.hottest(limit).keySet()))
+                .orElseGet(List::of);
+    }
+
+    public long size() {
+        this.keys.cleanUp();
+        return this.keys.estimatedSize();
+    }
+}
@@ -0,0 +1,188 @@
+package com.kaua.ecommerce.auth.infrastructure.cache;
+
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// acesso ao cache dos repositórios: as escritas de várias chaves vão num único pipeline com SET EX, nenhuma
+// chave fica sem TTL se o nó cair no meio, e a leitura por referência (email -> id -> objeto) é um único EVALSHA.
+// os valores String passam pelo serializer do template, os métodos raw gravam e leem os bytes como estão
+public final class RedisCacheAccessor {
+
+    // o valor da referência é uma string JSON (serializer do template), o cjson devolve a string crua.
+    // a segunda chave não vem em KEYS, funciona no redis standalone que o serviço usa, não em cluster
+    private static final String GET_BY_REFERENCE_SCRIPT = """
+            local ref = redis.call('GET', KEYS[1])
+            if not ref then
+                return false
+            end
+            return redis.call('GET', ARGV[1] .. cjson.decode(ref))
+            """;
+    private static final RedisScript<String> GET_BY_REFERENCE = new DefaultRedisScript<>(GET_BY_REFERENCE_SCRIPT, String.class);
+    private static final RedisScript<byte[]> GET_RAW_BY_REFERENCE = new DefaultRedisScript<>(GET_BY_REFERENCE_SCRIPT, byte[].class);
+
+    // KEYS[1] guarda a última versão gravada, as demais chaves só são escritas se a versão não for mais antiga.
+    // a chave de versão vive o mesmo TTL das outras e não é apagada nas invalidações, é ela que barra a recarga
+    // de quem leu a linha antes do commit
+    private static final RedisScript<Long> SET_ALL_IF_NOT_OLDER = new DefaultRedisScript<>("""
+            local current = redis.call('GET', KEYS[1])
+            if current and tonumber(current) > tonumber(ARGV[1]) then
+                return 0
+            end
+            redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+            for i = 2, #KEYS do
+                redis.call('SET', KEYS[i], ARGV[i + 1], 'PX', ARGV[2])
+            end
+            return 1
+            """, Long.class);
+    private static final byte[] SET_ALL_IF_NOT_OLDER_SCRIPT = SET_ALL_IF_NOT_OLDER.getScriptAsString()
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final Duration ttl;
+
+    public RedisCacheAccessor(final RedisTemplate<String, String> redisTemplate, final Duration ttl) {
+        this.redisTemplate = Objects.requireNonNull(redisTemplate);
+        this.ttl = Objects.requireNonNull(ttl);
+    }
+
+    public String get(final String key) {
+        return this.redisTemplate.opsForValue().get(key);
+    }
+
+    // segue o valor de refKey como sufixo de targetKeyPrefix, null se qualquer uma das duas chaves faltar
+    public String getByReference(final String refKey, final String targetKeyPrefix) {
+        return this.redisTemplate.execute(
+                GET_BY_REFERENCE,
+                RedisSerializer.string(),
+                valueSerializer(),
+                List.of(refKey),
+                targetKeyPrefix
+        );
+    }
+
+    public byte[] getRaw(final String key) {
+        final var aKey = RedisSerializer.string().serialize(key);
+        return this.redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(aKey));
+    }
+
+    // a referência continua no formato do template, só o alvo volta cru
+    public byte[] getRawByReference(final String refKey, final String targetKeyPrefix) {
+        return this.redisTemplate.execute(
+                GET_RAW_BY_REFERENCE,
+                RedisSerializer.string(),
+                RedisSerializer.byteArray(),
+                List.of(refKey),
+                targetKeyPrefix
+        );
+    }
+
+    public void setAll(final Map<String, String> entries) {
+        final var aEntries = new LinkedHashMap<String, byte[]>(entries.size() * 2);
+        entries.forEach((key, value) -> aEntries.put(key, serialize(value)));
+        setAllRaw(aEntries);
+    }
+
+    public void setAllRaw(final Map<String, byte[]> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        final var aExpiration = Expiration.from(this.ttl);
+        this.redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            entries.forEach((key, value) -> connection.stringCommands().set(
+                    RedisSerializer.string().serialize(key),
+                    value,
+                    aExpiration,
+                    RedisStringCommands.SetOption.upsert()
+            ));
+            return null;
+        });
+    }
+
+    // false se já havia uma versão mais nova gravada, nesse caso nada é escrito
+    public boolean setAllRawIfNotOlder(final String versionKey, final long version, final Map<String, byte[]> entries) {
+        final var aKeys = new ArrayList<String>(entries.size() + 1);
+        final var aArgs = new ArrayList<byte[]>(entries.size() + 2);
+        aKeys.add(versionKey);
+        aArgs.add(ascii(version));
+        aArgs.add(ascii(this.ttl.toMillis()));
+        entries.forEach((key, value) -> {
+            aKeys.add(key);
+            aArgs.add(value);
+        });
+
+        final var aOutput = this.redisTemplate.execute(
+                SET_ALL_IF_NOT_OLDER,
+                RedisSerializer.byteArray(),
+                new GenericToStringSerializer<>(Long.class),
+                aKeys,
+                aArgs.toArray()
+        );
+        return aOutput != null && aOutput == 1L;
+    }
+
+    // o mesmo script para muitos objetos num único pipeline, usado no aquecimento. vai como EVAL e não EVALSHA,
+    // um NOSCRIPT no meio do pipeline não teria como ser refeito
+    public void setAllRawIfNotOlder(final List<VersionedEntries> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        final var aTtl = ascii(this.ttl.toMillis());
+        this.redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (final var aItem : batch) {
+                final var aKeysAndArgs = new byte[(aItem.entries().size() + 1) * 2 + 1][];
+                final var aKeysCount = aItem.entries().size() + 1;
+                var aKeyIndex = 0;
+                var aArgIndex = aKeysCount;
+
+                aKeysAndArgs[aKeyIndex++] = RedisSerializer.string().serialize(aItem.versionKey());
+                aKeysAndArgs[aArgIndex++] = ascii(aItem.version());
+                aKeysAndArgs[aArgIndex++] = aTtl;
+                for (final var aEntry : aItem.entries().entrySet()) {
+                    aKeysAndArgs[aKeyIndex++] = RedisSerializer.string().serialize(aEntry.getKey());
+                    aKeysAndArgs[aArgIndex++] = aEntry.getValue();
+                }
+
+                connection.scriptingCommands().eval(SET_ALL_IF_NOT_OLDER_SCRIPT, ReturnType.INTEGER, aKeysCount, aKeysAndArgs);
+            }
+            return null;
+        });
+    }
+
+    public byte[] serialize(final String value) {
+        return valueSerializer().serialize(value);
+    }
+
+    public void delete(final String... keys) {
+        this.redisTemplate.delete(Arrays.asList(keys));
+    }
+
+    private static byte[] ascii(final long value) {
+        return Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @SuppressWarnings("unchecked")
+    public RedisSerializer<String> valueSerializer() {
+        return (RedisSerializer<String>) this.redisTemplate.getValueSerializer();
+    }
+
+    public record VersionedEntries(String versionKey, long version, Map<String, byte[]> entries) {
+    }
+}
@@ -0,0 +1,55 @@
+package com.kaua.ecommerce.auth.infrastructure.cache;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// no máximo uma carga em andamento por chave neste nó. quem chega com a carga em andamento espera o mesmo
+// future em vez de repetir a consulta, é o que segura a avalanche no banco quando uma chave quente expira ou o
+// redis é limpo. o loader roda na thread de quem chegou primeiro, então o valor devolvido precisa servir para
+// qualquer thread (nada preso à sessão do hibernate de quem carregou)
+public final class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public V load(final K key, final Supplier<V> loader) {
+        final var aPromise = new CompletableFuture<V>();
+        final var aExisting = this.inFlight.putIfAbsent(key, aPromise);
+
+        if (aExisting != null) {
+            return await(aExisting);
+        }
+
+        try {
+            final var aOutput = loader.get();
+            aPromise.complete(aOutput);
+            return aOutput;
+        } catch (RuntimeException | Error e) {
+            aPromise.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.inFlight.remove(key, aPromise);
+        }
+    }
+
+    int inFlight() {
+        return this.inFlight.size();
+    }
+
+    private static <V> V await(final CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // a mesma exception do loader para todos, sem o wrapper do future
+            if (e.getCause() instanceof RuntimeException aCause) {
+                throw aCause;
+            }
+            if (e.getCause() instanceof Error aCause) {
+                throw aCause;
+            }
+            throw e;
+        }
+    }
+}
@@ -2,20 +2,27 @@ package com.kaua.ecommerce.auth.infrastructure.configurations;
 
 import com.kaua.ecommerce.auth.application.gateways.MfaGateway;
 import com.kaua.ecommerce.auth.application.repositories.UserRepository;
+import com.kaua.ecommerce.auth.domain.users.User;
 import com.kaua.ecommerce.auth.infrastructure.configurations.authentication.JwtConverter;
 import com.kaua.ecommerce.auth.infrastructure.constants.Constants;
 import com.kaua.ecommerce.auth.infrastructure.oauth2.grants.mfa.MfaAuthenticationFilter;
 import com.kaua.ecommerce.auth.infrastructure.oauth2.grants.mfa.MfaAuthenticationProvider;
+import com.kaua.ecommerce.auth.infrastructure.oauth2.grants.mfa.MfaTokenClaims;
+import com.kaua.ecommerce.auth.infrastructure.oauth2.grants.mfa.OtpAttemptLimiter;
 import com.kaua.ecommerce.auth.infrastructure.oauth2.grants.password.CustomPasswordGrantAuthenticationConverter;
 import com.kaua.ecommerce.auth.infrastructure.oauth2.grants.password.CustomPasswordGrantAuthenticationProvider;
 import com.kaua.ecommerce.auth.infrastructure.oauth2.grants.utils.CustomTokenClaimsUtils;
 import com.kaua.ecommerce.auth.infrastructure.services.KeysService;
 import com.kaua.ecommerce.auth.infrastructure.userdetails.UserDetailsImpl;
+import com.kaua.ecommerce.auth.infrastructure.users.MfaSessionStore;
+import com.kaua.ecommerce.lib.domain.exceptions.NotFoundException;
+import com.kaua.ecommerce.lib.domain.utils.InstantUtils;
 import com.nimbusds.jose.jwk.JWKSet;
 import com.nimbusds.jose.jwk.RSAKey;
 import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
 import com.nimbusds.jose.jwk.source.JWKSource;
 import com.nimbusds.jose.proc.SecurityContext;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -53,6 +60,7 @@ import java.security.interfaces.RSAPublicKey;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Configuration
@@ -102,7 +110,9 @@ public class AuthorizationServerConfig {
     public SecurityFilterChain defaultSecurityFilterChain(
             final HttpSecurity http,
             final AuthenticationManager authenticationManager,
-            final UserRepository userRepository
+            final UserRepository userRepository,
+            final MfaSessionStore mfaSessionStore,
+            final OtpAttemptLimiter otpAttemptLimiter
     ) throws Exception {
         http
                 .cors(Customizer.withDefaults())
@@ -110,7 +120,9 @@ public class AuthorizationServerConfig {
                 .addFilterAfter(
                         new MfaAuthenticationFilter(
                                 authenticationManager,
-                                userRepository
+                                userRepository,
+                                mfaSessionStore,
+                                otpAttemptLimiter
                         ),
                         BasicAuthenticationFilter.class
                 )
@@ -173,7 +185,11 @@ public class AuthorizationServerConfig {
     }
 
     @Bean
-    public OAuth2TokenCustomizer<JwtEncodingContext> tokenCustomizer() {
+    public OAuth2TokenCustomizer<JwtEncodingContext> tokenCustomizer(
+            final UserRepository userRepository,
+            final MfaSessionStore mfaSessionStore,
+            @Value("${auth-server.mfa.token-claims.enabled:false}") final boolean mfaTokenClaimsEnabled
+    ) {
         return context -> {
             final var authGrantType = context.getAuthorizationGrantType();
             final var aClientCredentialsType = AuthorizationGrantType.CLIENT_CREDENTIALS.getValue();
@@ -194,14 +210,39 @@ public class AuthorizationServerConfig {
                                 .stream()
                                 .map(GrantedAuthority::getAuthority)
                                 .collect(Collectors.toSet()));
+
+                // a sessão MFA é por autorização, o filtro usa esse claim para achar a chave
+                final var aAuthorizationId = context.getAuthorization() != null
+                        ? context.getAuthorization().getId()
+                        : null;
+
+                if (aAuthorizationId != null) {
+                    context.getClaims().claim(CustomTokenClaimsUtils.AUTHORIZATION_ID, aAuthorizationId);
+                }
+
+                // o estado do MFA vai no token para o MfaAuthenticationFilter não buscar o usuário a cada request
+                if (mfaTokenClaimsEnabled) {
+                    final var aUser = userRepository.findById(UUID.fromString(aUserDetails.id()))
+                            .orElseThrow(NotFoundException.with(User.class, aUserDetails.id()));
+
+                    MfaTokenClaims.stamp(
+                            context.getClaims(),
+                            aUser.getMfa(),
+                            mfaSessionStore.findVerifiedUntil(aUser, aAuthorizationId),
+                            InstantUtils.now().plus(context.getRegisteredClient().getTokenSettings().getAccessTokenTimeToLive())
+                    );
+                }
             }
         };
     }
 
     @Bean
-    public OAuth2TokenGenerator<?> tokenGenerator(final JWKSource<SecurityContext> jwkSource) {
+    public OAuth2TokenGenerator<?> tokenGenerator(
+            final JWKSource<SecurityContext> jwkSource,
+            final OAuth2TokenCustomizer<JwtEncodingContext> tokenCustomizer
+    ) {
         final var aJwtGenerator = new JwtGenerator(new NimbusJwtEncoder(jwkSource));
-        aJwtGenerator.setJwtCustomizer(tokenCustomizer());
+        aJwtGenerator.setJwtCustomizer(tokenCustomizer);
 
         final var aAccessTokenGenerator = new OAuth2AccessTokenGenerator();
         final var aRefreshTokenGenerator = new OAuth2RefreshTokenGenerator();
@@ -216,9 +257,10 @@ public class AuthorizationServerConfig {
     public AuthenticationManager authenticationManager(
             final UserRepository userRepository,
             final UserDetailsService userDetailsService,
-            final MfaGateway mfaGateway
+            final MfaGateway mfaGateway,
+            final MfaSessionStore mfaSessionStore
     ) {
-        final var aMfaProvider = new MfaAuthenticationProvider(userRepository, mfaGateway);
+        final var aMfaProvider = new MfaAuthenticationProvider(userRepository, mfaGateway, mfaSessionStore);
         final var aDaoProvider = new DaoAuthenticationProvider();
         aDaoProvider.setUserDetailsService(userDetailsService);
         aDaoProvider.setPasswordEncoder(passwordEncoder());
@@ -0,0 +1,180 @@
+package com.kaua.ecommerce.auth.infrastructure.configurations;
+
+import com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.AuthorizationDataCodec;
+import com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.AuthorizationServiceRepositoryImpl;
+import com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.CachingAuthorizationService;
+import com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.DualWriteAuthorizationService;
+import com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.PostgresUpsertAuthorizationServiceRepositoryImpl;
+import com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.SingleTableAuthorizationServiceRepositoryImpl;
+import com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.TokenShapeClassifier;
+import com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.TransactionalAuthorizationService;
+import com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.persistence.AuthorizationHeaderJpaEntityRepository;
+import com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.persistence.AuthorizationJpaEntityRepository;
+import com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.persistence.AuthorizationTokenJpaEntityRepository;
+import com.kaua.ecommerce.auth.infrastructure.services.KeysService;
+import com.kaua.ecommerce.auth.infrastructure.users.MfaSessionStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Objects;
+
+// o spring authorization server exige um único bean de OAuth2AuthorizationService,
+// por isso o store e o cache são montados aqui e não via @Component. como nada disso passa pelo proxy
+// do spring, a cadeia inteira roda dentro do TransactionalAuthorizationService
+@Configuration
+public class AuthorizationServiceConfig {
+
+    private static final String SINGLE_TABLE_STORE = "single-table";
+
+    private final AuthorizationJpaEntityRepository authorizationRepository;
+    private final AuthorizationHeaderJpaEntityRepository authorizationHeaderRepository;
+    private final AuthorizationTokenJpaEntityRepository authorizationTokenRepository;
+    private final RegisteredClientRepository registeredClientRepository;
+    private final MfaSessionStore mfaSessionStore;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final EntityManager entityManager;
+    private final KeysService keysService;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${auth-server.authorization.store:joined}")
+    private String store;
+
+    @Value("${auth-server.authorization.cache.enabled:false}")
+    private boolean cacheEnabled;
+
+    @Value("${auth-server.authorization.upsert.enabled:false}")
+    private boolean upsertEnabled;
+
+    @Value("${auth-server.authorization.codec:json}")
+    private String codec;
+
+    @Value("${auth-server.authorization.partitioning.enabled:false}")
+    private boolean partitioningEnabled;
+
+    @Value("${auth-server.authorization.dual-write.enabled:false}")
+    private boolean dualWriteEnabled;
+
+    @Value("${auth-server.authorization.legacy-value-lookup.enabled:true}")
+    private boolean legacyValueLookup;
+
+    public AuthorizationServiceConfig(
+            final AuthorizationJpaEntityRepository authorizationRepository,
+            final AuthorizationHeaderJpaEntityRepository authorizationHeaderRepository,
+            final AuthorizationTokenJpaEntityRepository authorizationTokenRepository,
+            final RegisteredClientRepository registeredClientRepository,
+            final MfaSessionStore mfaSessionStore,
+            final RedisTemplate<String, String> redisTemplate,
+            final NamedParameterJdbcTemplate jdbcTemplate,
+            final MeterRegistry meterRegistry,
+            final EntityManager entityManager,
+            final KeysService keysService,
+            final PlatformTransactionManager transactionManager
+    ) {
+        this.authorizationRepository = Objects.requireNonNull(authorizationRepository);
+        this.authorizationHeaderRepository = Objects.requireNonNull(authorizationHeaderRepository);
+        this.authorizationTokenRepository = Objects.requireNonNull(authorizationTokenRepository);
+        this.registeredClientRepository = Objects.requireNonNull(registeredClientRepository);
+        this.mfaSessionStore = Objects.requireNonNull(mfaSessionStore);
+        this.redisTemplate = Objects.requireNonNull(redisTemplate);
+        this.jdbcTemplate = Objects.requireNonNull(jdbcTemplate);
+        this.meterRegistry = Objects.requireNonNull(meterRegistry);
+        this.entityManager = Objects.requireNonNull(entityManager);
+        this.keysService = Objects.requireNonNull(keysService);
+        this.transactionManager = Objects.requireNonNull(transactionManager);
+    }
+
+    @Bean
+    public OAuth2AuthorizationService authorizationService() {
+        return new TransactionalAuthorizationService(createCachedStore(), this.transactionManager);
+    }
+
+    private OAuth2AuthorizationService createCachedStore() {
+        final var aStore = createStore();
+
+        if (!this.cacheEnabled) {
+            return aStore;
+        }
+
+        return new CachingAuthorizationService(
+                aStore,
+                this.registeredClientRepository,
+                this.redisTemplate,
+                this.mfaSessionStore,
+                this.keysService
+        );
+    }
+
+    private OAuth2AuthorizationService createStore() {
+        final var aCodec = new AuthorizationDataCodec(AuthorizationDataCodec.Format.of(this.codec));
+        final var isSingleTable = SINGLE_TABLE_STORE.equals(this.store);
+        final var aStore = isSingleTable
+                ? createSingleTableStore(aCodec, this.mfaSessionStore)
+                : createJoinedStore(aCodec, this.mfaSessionStore);
+
+        // particionado não existe FK de authorization_tokens para authorizations, o DROP de partição deixaria
+        // as linhas do outro layout para trás
+        if (!this.dualWriteEnabled || this.partitioningEnabled) {
+            return aStore;
+        }
+
+        final var aSecondaryMfaSessionStore = DualWriteAuthorizationService.withoutTokenEvents(this.mfaSessionStore);
+        return new DualWriteAuthorizationService(
+                aStore,
+                isSingleTable
+                        ? createJoinedStore(aCodec, aSecondaryMfaSessionStore)
+                        : createSingleTableStore(aCodec, aSecondaryMfaSessionStore),
+                this.entityManager
+        );
+    }
+
+    private OAuth2AuthorizationService createSingleTableStore(
+            final AuthorizationDataCodec codec,
+            final MfaSessionStore mfaSessionStore
+    ) {
+        return new SingleTableAuthorizationServiceRepositoryImpl(
+                this.authorizationHeaderRepository,
+                this.authorizationTokenRepository,
+                this.authorizationRepository,
+                this.registeredClientRepository,
+                mfaSessionStore,
+                codec
+        );
+    }
+
+    private OAuth2AuthorizationService createJoinedStore(
+            final AuthorizationDataCodec codec,
+            final MfaSessionStore mfaSessionStore
+    ) {
+        // com as tabelas particionadas não existe mais índice único em authorization_id para o ON CONFLICT
+        if (this.upsertEnabled && !this.partitioningEnabled) {
+            return new PostgresUpsertAuthorizationServiceRepositoryImpl(
+                    this.authorizationRepository,
+                    this.registeredClientRepository,
+                    mfaSessionStore,
+                    codec,
+                    new TokenShapeClassifier(this.meterRegistry),
+                    this.legacyValueLookup,
+                    this.jdbcTemplate
+            );
+        }
+
+        return new AuthorizationServiceRepositoryImpl(
+                this.authorizationRepository,
+                this.registeredClientRepository,
+                mfaSessionStore,
+                codec,
+                new TokenShapeClassifier(this.meterRegistry),
+                this.legacyValueLookup
+        );
+    }
+}
@@ -1,6 +1,10 @@
 package com.kaua.ecommerce.auth.infrastructure.configurations;
 
 import com.google.zxing.qrcode.QRCodeWriter;
+import com.kaua.ecommerce.auth.infrastructure.gateways.qrcode.PngQrCodeRenderer;
+import com.kaua.ecommerce.auth.infrastructure.gateways.qrcode.QrCodeRenderer;
+import com.kaua.ecommerce.auth.infrastructure.gateways.qrcode.SvgQrCodeRenderer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -11,4 +15,23 @@ public class QrCodeConfig {
     public QRCodeWriter qrCodeWriter() {
         return new QRCodeWriter();
     }
+
+    @Bean
+    @ConditionalOnProperty(
+            value = "auth-server.mfa.qr-code.format",
+            havingValue = "png",
+            matchIfMissing = true
+    )
+    public QrCodeRenderer pngQrCodeRenderer(final QRCodeWriter qrCodeWriter) {
+        return new PngQrCodeRenderer(qrCodeWriter);
+    }
+
+    @Bean
+    @ConditionalOnProperty(
+            value = "auth-server.mfa.qr-code.format",
+            havingValue = "svg"
+    )
+    public QrCodeRenderer svgQrCodeRenderer() {
+        return new SvgQrCodeRenderer();
+    }
 }
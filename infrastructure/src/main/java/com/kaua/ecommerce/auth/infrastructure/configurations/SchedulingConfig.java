@@ -0,0 +1,9 @@
+package com.kaua.ecommerce.auth.infrastructure.configurations;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -29,6 +29,16 @@ public class DataKeysInitializer implements CommandLineRunner {
                 Constants.MFA_PUBLIC_KEY,
                 Constants.MFA_PRIVATE_KEY
         );
+        this.keysService.getDataKeyOrGenerate(
+                Constants.MFA_DATA_KEY,
+                Constants.MFA_PUBLIC_KEY,
+                Constants.MFA_PRIVATE_KEY
+        );
+        this.keysService.getDataKeyOrGenerate(
+                Constants.AUTHORIZATION_CACHE_DATA_KEY,
+                Constants.MFA_PUBLIC_KEY,
+                Constants.MFA_PRIVATE_KEY
+        );
         this.keysService.generateAndSaveKeys(
                 Constants.JWT_PUBLIC_KEY,
                 Constants.JWT_PRIVATE_KEY
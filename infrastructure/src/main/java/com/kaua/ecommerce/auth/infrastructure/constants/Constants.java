@@ -6,6 +6,8 @@ public final class Constants {
 
     public static final String MFA_PUBLIC_KEY = "mfa-public.key";
     public static final String MFA_PRIVATE_KEY = "mfa-private.key";
+    public static final String MFA_DATA_KEY = "mfa-data.key";
+    public static final String AUTHORIZATION_CACHE_DATA_KEY = "authorization-cache-data.key";
 
     public static final String JWT_PUBLIC_KEY = "jwt-public.key";
     public static final String JWT_PRIVATE_KEY = "jwt-private.key";
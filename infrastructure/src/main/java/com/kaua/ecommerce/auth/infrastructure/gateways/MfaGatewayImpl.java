@@ -1,20 +1,15 @@
 package com.kaua.ecommerce.auth.infrastructure.gateways;
 
-import com.google.zxing.BarcodeFormat;
-import com.google.zxing.WriterException;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
-import com.google.zxing.qrcode.QRCodeWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.kaua.ecommerce.auth.application.gateways.MfaGateway;
-import com.kaua.ecommerce.auth.domain.exceptions.InternalServerErrorException;
 import com.kaua.ecommerce.auth.domain.users.mfas.UserMfaType;
-import com.kaua.ecommerce.auth.infrastructure.constants.Constants;
-import com.kaua.ecommerce.auth.infrastructure.services.KeysService;
-import com.warrenstrange.googleauth.GoogleAuthenticator;
+import com.kaua.ecommerce.auth.infrastructure.gateways.qrcode.QrCodeRenderer;
+import com.kaua.ecommerce.auth.infrastructure.gateways.totp.TotpVerifier;
+import com.kaua.ecommerce.auth.infrastructure.services.impl.MfaSecretCipher;
 import org.springframework.stereotype.Component;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.util.Base64;
+import java.time.Duration;
 import java.util.Objects;
 
 @Component
@@ -22,34 +17,37 @@ public class MfaGatewayImpl implements MfaGateway {
 
     // In future refactor to receive others mfas
 
-    private final QRCodeWriter qrCodeWriter;
-    private final KeysService keysService;
+    // recarregar a página de cadastro pede o mesmo QR de novo, o secret só muda quando o device é recriado
+    private static final Duration QR_CODE_CACHE_TTL = Duration.ofMinutes(5);
+    private static final int QR_CODE_CACHE_SIZE = 10_000;
+
+    private final QrCodeRenderer qrCodeRenderer;
+    private final MfaSecretCipher mfaSecretCipher;
+    private final TotpVerifier totpVerifier;
+    private final Cache<ConfirmationQrCode, String> qrCodes = Caffeine.newBuilder()
+            .expireAfterWrite(QR_CODE_CACHE_TTL)
+            .maximumSize(QR_CODE_CACHE_SIZE)
+            .build();
 
     public MfaGatewayImpl(
-            final QRCodeWriter qrCodeWriter,
-            final KeysService keysService
+            final QrCodeRenderer qrCodeRenderer,
+            final MfaSecretCipher mfaSecretCipher,
+            final TotpVerifier totpVerifier
     ) {
-        this.qrCodeWriter = Objects.requireNonNull(qrCodeWriter);
-        this.keysService = Objects.requireNonNull(keysService);
+        this.qrCodeRenderer = Objects.requireNonNull(qrCodeRenderer);
+        this.mfaSecretCipher = Objects.requireNonNull(mfaSecretCipher);
+        this.totpVerifier = Objects.requireNonNull(totpVerifier);
     }
 
     @Override
     public String generateSecret(final UserMfaType type) {
-        final var aGoogleAuth = new GoogleAuthenticator();
-        return this.keysService.encrypt(
-                aGoogleAuth.createCredentials().getKey(),
-                Constants.MFA_PUBLIC_KEY
-        );
+        return this.mfaSecretCipher.encrypt(this.totpVerifier.newSecret());
     }
 
     @Override
     public boolean accepts(final UserMfaType type, final String code, final String secret) {
-        final var aGoogleAuth = new GoogleAuthenticator();
-        final var aParsedSecret = this.keysService.decrypt(
-                secret,
-                Constants.MFA_PRIVATE_KEY
-        );
-        return aGoogleAuth.authorize(aParsedSecret, Integer.parseInt(code));
+        final var aParsedSecret = this.mfaSecretCipher.decrypt(secret);
+        return this.totpVerifier.verify(aParsedSecret, code);
     }
 
     @Override
@@ -58,23 +56,15 @@ public class MfaGatewayImpl implements MfaGateway {
             final String email,
             final String issuer
     ) {
-        final var aParsedSecret = this.keysService.decrypt(
-                secret,
-                Constants.MFA_PRIVATE_KEY
-        );
-        String uri = String.format("otpauth://totp/%s:%s?secret=%s&issuer=%s",
-                issuer, email, aParsedSecret, issuer);
-
-        try {
-            final var aBitMatrix = this.qrCodeWriter
-                    .encode(uri, BarcodeFormat.QR_CODE, 300, 300);
-            ByteArrayOutputStream pngOutputStream = new ByteArrayOutputStream();
-            MatrixToImageWriter.writeToStream(aBitMatrix, "PNG", pngOutputStream);
-            byte[] pngData = pngOutputStream.toByteArray();
+        // a chave é o secret cifrado, num acerto nem o decrypt roda
+        return this.qrCodes.get(new ConfirmationQrCode(secret, email, issuer), it -> {
+            final var aParsedSecret = this.mfaSecretCipher.decrypt(it.secret());
+            final var aUri = String.format("otpauth://totp/%s:%s?secret=%s&issuer=%s",
+                    it.issuer(), it.email(), aParsedSecret, it.issuer());
+            return this.qrCodeRenderer.render(aUri);
+        });
+    }
 
-            return Base64.getEncoder().encodeToString(pngData);
-        } catch (WriterException | IOException e) {
-            throw new InternalServerErrorException("Error generating mfa QR code", e);
-        }
+    private record ConfirmationQrCode(String secret, String email, String issuer) {
     }
 }
@@ -0,0 +1,41 @@
+package com.kaua.ecommerce.auth.infrastructure.gateways.qrcode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.kaua.ecommerce.auth.domain.exceptions.InternalServerErrorException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+
+// base64 de um PNG 300x300, o formato que o front sempre recebeu. passa pelo ImageIO/AWT
+public class PngQrCodeRenderer implements QrCodeRenderer {
+
+    private static final int SIZE = 300;
+
+    private final QRCodeWriter qrCodeWriter;
+
+    public PngQrCodeRenderer(final QRCodeWriter qrCodeWriter) {
+        this.qrCodeWriter = Objects.requireNonNull(qrCodeWriter);
+    }
+
+    @Override
+    public String render(final String contents) {
+        try {
+            final var aBitMatrix = this.qrCodeWriter.encode(contents, BarcodeFormat.QR_CODE, SIZE, SIZE);
+
+            // o ImageIO escreve direto no encoder, sem o byte[] do PNG e a cópia do encodeToString
+            final var aOutput = new ByteArrayOutputStream();
+            try (final var aBase64Stream = Base64.getEncoder().wrap(aOutput)) {
+                MatrixToImageWriter.writeToStream(aBitMatrix, "PNG", aBase64Stream);
+            }
+            return aOutput.toString(StandardCharsets.US_ASCII);
+        } catch (WriterException | IOException e) {
+            throw new InternalServerErrorException("Error generating mfa QR code", e);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.kaua.ecommerce.auth.infrastructure.gateways.qrcode;
+
+public interface QrCodeRenderer {
+
+    String render(String contents);
+}
@@ -0,0 +1,56 @@
+package com.kaua.ecommerce.auth.infrastructure.gateways.qrcode;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.Encoder;
+import com.kaua.ecommerce.auth.domain.exceptions.InternalServerErrorException;
+
+// markup SVG com um único path, uma unidade do viewBox por módulo. sai direto da matriz de módulos do QR
+// (uns 33x33 para o otpauth), sem escalar para 300x300 e sem ImageIO/AWT. o front recebe o SVG, não o base64
+public class SvgQrCodeRenderer implements QrCodeRenderer {
+
+    private static final int SIZE = 300;
+    // mesma margem e correção de erro que o QRCodeWriter usa por padrão
+    private static final int QUIET_ZONE = 4;
+    private static final ErrorCorrectionLevel ERROR_CORRECTION = ErrorCorrectionLevel.L;
+
+    @Override
+    public String render(final String contents) {
+        try {
+            final var aMatrix = Encoder.encode(contents, ERROR_CORRECTION).getMatrix();
+            final var aWidth = aMatrix.getWidth();
+            final var aHeight = aMatrix.getHeight();
+            final var aViewBox = aWidth + QUIET_ZONE * 2;
+
+            final var aOutput = new StringBuilder(aWidth * aHeight * 4)
+                    .append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(SIZE)
+                    .append("\" height=\"").append(SIZE)
+                    .append("\" viewBox=\"0 0 ").append(aViewBox).append(' ').append(aViewBox)
+                    .append("\" shape-rendering=\"crispEdges\">")
+                    .append("<rect width=\"100%\" height=\"100%\" fill=\"#fff\"/>")
+                    .append("<path fill=\"#000\" d=\"");
+
+            // cada sequência de módulos escuros da linha vira um retângulo
+            for (int y = 0; y < aHeight; y++) {
+                int x = 0;
+                while (x < aWidth) {
+                    if (aMatrix.get(x, y) != 1) {
+                        x++;
+                        continue;
+                    }
+
+                    final var aStart = x;
+                    while (x < aWidth && aMatrix.get(x, y) == 1) {
+                        x++;
+                    }
+                    aOutput.append('M').append(aStart + QUIET_ZONE).append(' ').append(y + QUIET_ZONE)
+                            .append('h').append(x - aStart).append("v1h-").append(x - aStart).append('z');
+                }
+            }
+
+            return aOutput.append("\"/></svg>").toString();
+        } catch (WriterException e) {
+            throw new InternalServerErrorException("Error generating mfa QR code", e);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.kaua.ecommerce.auth.infrastructure.gateways.totp;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+// TOTP da RFC 6238 com os mesmos parâmetros do GoogleAuthenticator (HmacSHA1, 30s, 6 dígitos, janela de ±1 passo),
+// os secrets gerados antes continuam valendo. o Mac e o buffer do hash ficam por thread, a janela inteira roda
+// com um único init da chave
+final class TotpEngine {
+
+    static final long TIME_STEP_MILLIS = 30_000;
+    static final int SECRET_BYTES = 20;
+
+    // o passo atual primeiro, é o que mais acerta
+    static final int[] WINDOW_OFFSETS = {0, -1, 1};
+
+    private static final String HMAC_ALGORITHM = "HmacSHA1";
+    private static final int DIGITS = 6;
+    private static final int MODULUS = 1_000_000;
+    private static final char[] BASE32_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ234567".toCharArray();
+
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final ThreadLocal<HmacState> states = ThreadLocal.withInitial(HmacState::new);
+
+    // devolve o passo que bateu ou -1
+    long verify(final byte[] key, final int code, final long nowMillis) {
+        if (code < 0) {
+            return -1;
+        }
+
+        final var aState = this.states.get();
+        aState.init(key);
+
+        final var aStep = Math.floorDiv(nowMillis, TIME_STEP_MILLIS);
+        for (final var aOffset : WINDOW_OFFSETS) {
+            if (aState.generate(aStep + aOffset) == code) {
+                return aStep + aOffset;
+            }
+        }
+        return -1;
+    }
+
+    int generate(final byte[] key, final long step) {
+        final var aState = this.states.get();
+        aState.init(key);
+        return aState.generate(step);
+    }
+
+    String newSecret() {
+        final var aBytes = new byte[SECRET_BYTES];
+        this.secureRandom.nextBytes(aBytes);
+        return encodeBase32(aBytes);
+    }
+
+    static long currentStep(final long nowMillis) {
+        return Math.floorDiv(nowMillis, TIME_STEP_MILLIS);
+    }
+
+    // -1 para qualquer coisa que não sejam exatamente 6 dígitos ASCII, sem exception nem boxing
+    static int parseCode(final String code) {
+        if (code == null || code.length() != DIGITS) {
+            return -1;
+        }
+
+        var aOutput = 0;
+        for (int i = 0; i < DIGITS; i++) {
+            final var aDigit = code.charAt(i) - '0';
+            if (aDigit < 0 || aDigit > 9) {
+                return -1;
+            }
+            aOutput = aOutput * 10 + aDigit;
+        }
+        return aOutput;
+    }
+
+    static byte[] decodeBase32(final String secret) {
+        final var aOutput = new byte[secret.length() * 5 / 8];
+        var aBuffer = 0;
+        var aBits = 0;
+        var aIndex = 0;
+
+        for (int i = 0; i < secret.length(); i++) {
+            final var aChar = secret.charAt(i);
+            final int aValue;
+            if (aChar >= 'A' && aChar <= 'Z') {
+                aValue = aChar - 'A';
+            } else if (aChar >= 'a' && aChar <= 'z') {
+                aValue = aChar - 'a';
+            } else if (aChar >= '2' && aChar <= '7') {
+                aValue = aChar - '2' + 26;
+            } else if (aChar == '=' || aChar == ' ' || aChar == '-') {
+                continue;
+            } else {
+                throw new IllegalArgumentException("Invalid base32 character in TOTP secret");
+            }
+
+            aBuffer = (aBuffer << 5) | aValue;
+            aBits += 5;
+            if (aBits >= 8) {
+                aOutput[aIndex++] = (byte) (aBuffer >> (aBits - 8));
+                aBits -= 8;
+            }
+        }
+
+        return aIndex == aOutput.length ? aOutput : Arrays.copyOf(aOutput, aIndex);
+    }
+
+    static String encodeBase32(final byte[] bytes) {
+        final var aOutput = new StringBuilder((bytes.length * 8 + 4) / 5);
+        var aBuffer = 0;
+        var aBits = 0;
+
+        for (final var aByte : bytes) {
+            aBuffer = (aBuffer << 8) | (aByte & 0xFF);
+            aBits += 8;
+            while (aBits >= 5) {
+                aOutput.append(BASE32_ALPHABET[(aBuffer >> (aBits - 5)) & 0x1F]);
+                aBits -= 5;
+            }
+        }
+        if (aBits > 0) {
+            aOutput.append(BASE32_ALPHABET[(aBuffer << (5 - aBits)) & 0x1F]);
+        }
+        return aOutput.toString();
+    }
+
+    private static final class HmacState {
+
+        private final Mac mac;
+        private final byte[] hash;
+
+        private HmacState() {
+            try {
+                this.mac = Mac.getInstance(HMAC_ALGORITHM);
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+            this.hash = new byte[this.mac.getMacLength()];
+        }
+
+        private void init(final byte[] key) {
+            try {
+                this.mac.init(new SecretKeySpec(key, HMAC_ALGORITHM));
+            } catch (InvalidKeyException e) {
+                throw new IllegalArgumentException("Invalid TOTP secret", e);
+            }
+        }
+
+        // o Mac volta ao estado inicial depois do doFinal, dá para chamar de novo com a mesma chave
+        private int generate(final long step) {
+            for (int i = 56; i >= 0; i -= 8) {
+                this.mac.update((byte) (step >>> i));
+            }
+
+            try {
+                this.mac.doFinal(this.hash, 0);
+            } catch (ShortBufferException e) {
+                throw new IllegalStateException(e);
+            }
+
+            final var aOffset = this.hash[this.hash.length - 1] & 0x0F;
+            final var aBinary = ((this.hash[aOffset] & 0x7F) << 24)
+                    | ((this.hash[aOffset + 1] & 0xFF) << 16)
+                    | ((this.hash[aOffset + 2] & 0xFF) << 8)
+                    | (this.hash[aOffset + 3] & 0xFF);
+            return aBinary % MODULUS;
+        }
+    }
+}
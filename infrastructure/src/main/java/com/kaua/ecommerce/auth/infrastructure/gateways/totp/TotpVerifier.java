@@ -0,0 +1,55 @@
+package com.kaua.ecommerce.auth.infrastructure.gateways.totp;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.function.LongSupplier;
+
+@Component
+public class TotpVerifier {
+
+    private final TotpEngine totpEngine = new TotpEngine();
+    private final UsedCodeCache usedCodes;
+    private final LongSupplier clock;
+
+    // semente por processo, o fingerprint do secret não serve para nada fora daqui
+    private final long fingerprintSeed = new SecureRandom().nextLong();
+
+    public TotpVerifier(@Value("${auth-server.mfa.totp.replay-cache-size:65536}") final int replayCacheSize) {
+        this(replayCacheSize, System::currentTimeMillis);
+    }
+
+    TotpVerifier(final int replayCacheSize, final LongSupplier clock) {
+        this.usedCodes = new UsedCodeCache(replayCacheSize);
+        this.clock = clock;
+    }
+
+    public String newSecret() {
+        return this.totpEngine.newSecret();
+    }
+
+    public boolean verify(final String secret, final String code) {
+        final var aCode = TotpEngine.parseCode(code);
+        if (aCode < 0) {
+            return false;
+        }
+
+        final var aKey = TotpEngine.decodeBase32(secret);
+        final var aNow = this.clock.getAsLong();
+        final var aStep = this.totpEngine.verify(aKey, aCode, aNow);
+        if (aStep < 0) {
+            return false;
+        }
+
+        return this.usedCodes.markUsed(fingerprint(aKey), aStep, TotpEngine.currentStep(aNow));
+    }
+
+    private long fingerprint(final byte[] key) {
+        var aOutput = this.fingerprintSeed;
+        for (final var aByte : key) {
+            aOutput = (aOutput ^ (aByte & 0xFF)) * 0x100000001b3L;
+        }
+        return aOutput ^ (aOutput >>> 29);
+    }
+}
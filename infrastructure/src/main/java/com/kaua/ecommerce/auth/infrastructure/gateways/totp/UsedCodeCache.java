@@ -0,0 +1,76 @@
+package com.kaua.ecommerce.auth.infrastructure.gateways.totp;
+
+import com.kaua.ecommerce.auth.infrastructure.utils.HashUtils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// pares (secret, passo) já aceitos, para o mesmo código não servir duas vezes dentro da janela.
+// tabela de tamanho fixo com CAS, sem lock nem alocação: cada entrada guarda 36 bits do fingerprint e 28 do passo.
+// se as posições de uma chave estiverem todas vivas a mais antiga é sobrescrita, o limite de memória vale mais que
+// lembrar de tudo num pico. é por instância, um replay em outro nó não é pego aqui
+final class UsedCodeCache {
+
+    private static final int PROBES = 4;
+    private static final int STEP_BITS = 28;
+    private static final long STEP_MASK = (1L << STEP_BITS) - 1;
+
+    // um código aceito no passo atual ainda vale no seguinte, a entrada precisa viver esse tanto
+    private static final long LIVE_STEPS = 2;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+
+    UsedCodeCache(final int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Used code cache capacity must be a power of two");
+        }
+        this.slots = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+    }
+
+    // true se o par ainda não tinha sido usado, e a partir daqui fica marcado
+    boolean markUsed(final long fingerprint, final long step, final long currentStep) {
+        // o bit alto ligado garante que nenhuma entrada é igual ao 0 de posição vazia
+        final var aEntry = ((fingerprint | Long.MIN_VALUE) & ~STEP_MASK) | (step & STEP_MASK);
+        final var aStart = (int) HashUtils.mix64(fingerprint ^ step) & this.mask;
+
+        while (true) {
+            var aVictim = -1;
+            var aVictimEntry = 0L;
+            var aVictimAge = Long.MIN_VALUE;
+
+            for (int i = 0; i < PROBES; i++) {
+                final var aSlot = (aStart + i) & this.mask;
+                final var aCurrent = this.slots.get(aSlot);
+
+                if (aCurrent == aEntry) {
+                    return false;
+                }
+
+                final var aAge = age(aCurrent, currentStep);
+                if (aCurrent == 0 || aAge > LIVE_STEPS) {
+                    // vazia ou expirada, reaproveita a primeira que aparecer
+                    aVictim = aSlot;
+                    aVictimEntry = aCurrent;
+                    break;
+                }
+
+                if (aAge > aVictimAge) {
+                    aVictim = aSlot;
+                    aVictimEntry = aCurrent;
+                    aVictimAge = aAge;
+                }
+            }
+
+            if (this.slots.compareAndSet(aVictim, aVictimEntry, aEntry)) {
+                return true;
+            }
+            // outra thread escreveu na posição, refaz a busca, pode ter sido o mesmo par
+        }
+    }
+
+    // diferença em passos com sinal nos 28 bits, um código do passo seguinte (relógio adiantado) fica negativo
+    private static long age(final long entry, final long currentStep) {
+        return ((currentStep - entry) << (Long.SIZE - STEP_BITS)) >> (Long.SIZE - STEP_BITS);
+    }
+}
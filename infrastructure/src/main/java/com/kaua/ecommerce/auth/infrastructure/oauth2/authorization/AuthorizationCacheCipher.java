@@ -0,0 +1,39 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization;
+
+import com.kaua.ecommerce.auth.infrastructure.constants.Constants;
+import com.kaua.ecommerce.auth.infrastructure.services.KeysService;
+import com.kaua.ecommerce.auth.infrastructure.utils.AesGcmCipher;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.Optional;
+
+// a autorização em cache carrega os valores dos tokens, que no redis ficariam legíveis para quem lê o redis.
+// AES-GCM com uma chave de dados própria, embrulhada pelo par RSA do MFA como a chave dos secrets.
+// a chave do redis entra como AAD, um payload copiado para outra chave não abre
+final class AuthorizationCacheCipher {
+
+    private final KeysService keysService;
+
+    AuthorizationCacheCipher(final KeysService keysService) {
+        this.keysService = Objects.requireNonNull(keysService);
+    }
+
+    String encrypt(final String key, final String value) {
+        return AesGcmCipher.encrypt(dataKey(), value, key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // vazio quando o payload não abre com a chave atual (chave trocada ou payload em formato antigo), vira miss
+    Optional<String> decrypt(final String key, final String value) {
+        return AesGcmCipher.decrypt(dataKey(), value, key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private SecretKey dataKey() {
+        return this.keysService.getDataKeyOrGenerate(
+                Constants.AUTHORIZATION_CACHE_DATA_KEY,
+                Constants.MFA_PUBLIC_KEY,
+                Constants.MFA_PRIVATE_KEY
+        );
+    }
+}
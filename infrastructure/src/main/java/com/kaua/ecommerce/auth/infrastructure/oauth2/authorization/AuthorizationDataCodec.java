@@ -0,0 +1,111 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.springframework.security.jackson2.CoreJackson2Module;
+import org.springframework.security.jackson2.SecurityJackson2Modules;
+import org.springframework.security.oauth2.server.authorization.jackson2.OAuth2AuthorizationServerJackson2Module;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public final class AuthorizationDataCodec {
+
+    // primeiro byte da coluna _bin, permite trocar o formato sem migrar as linhas antigas
+    static final byte CBOR_VERSION = 1;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectMapper binaryMapper = new CBORMapper();
+    private final Format format;
+
+    public AuthorizationDataCodec() {
+        this(Format.JSON);
+    }
+
+    public AuthorizationDataCodec(final Format format) {
+        this.format = format;
+        registerModules(this.mapper);
+        registerModules(this.binaryMapper);
+    }
+
+    public Map<String, Object> read(final String data) {
+        try {
+            return this.mapper.readValue(data, new TypeReference<>() {
+            });
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // linhas antigas só têm o JSON na coluna TEXT, as novas só têm a coluna _bin
+    public Map<String, Object> read(final String data, final byte[] binaryData) {
+        if (binaryData == null) {
+            return read(data);
+        }
+
+        if (binaryData.length == 0 || binaryData[0] != CBOR_VERSION) {
+            throw new IllegalStateException("Unsupported authorization data version: "
+                    + (binaryData.length == 0 ? "empty" : binaryData[0]));
+        }
+
+        try {
+            return this.binaryMapper.readValue(binaryData, 1, binaryData.length - 1, new TypeReference<>() {
+            });
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public String write(final Map<String, Object> data) {
+        try {
+            return this.mapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public Encoded encode(final Map<String, Object> data) {
+        if (this.format == Format.JSON) {
+            return new Encoded(write(data), null);
+        }
+
+        try {
+            final var aPayload = this.binaryMapper.writeValueAsBytes(data);
+            final var aBinaryData = new byte[aPayload.length + 1];
+            aBinaryData[0] = CBOR_VERSION;
+            System.arraycopy(aPayload, 0, aBinaryData, 1, aPayload.length);
+            return new Encoded(null, aBinaryData);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void registerModules(final ObjectMapper mapper) {
+        ClassLoader classLoader = AuthorizationDataCodec.class.getClassLoader();
+        List<Module> securityModules = SecurityJackson2Modules.getModules(classLoader);
+        mapper.registerModules(securityModules);
+        mapper.registerModules(new OAuth2AuthorizationServerJackson2Module());
+        mapper.registerModules(new CoreJackson2Module());
+    }
+
+    public enum Format {
+        JSON,
+        CBOR;
+
+        public static Format of(final String value) {
+            return Arrays.stream(values())
+                    .filter(aFormat -> aFormat.name().equalsIgnoreCase(value))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown authorization codec: " + value));
+        }
+    }
+
+    // só um dos dois vem preenchido, o outro vai como null para limpar o formato anterior da linha
+    public record Encoded(String text, byte[] binary) {
+    }
+}
@@ -0,0 +1,176 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization;
+
+import com.kaua.ecommerce.lib.domain.utils.InstantUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Objects;
+
+// as tabelas só são particionadas pela migração opcional em classpath:db/partitioning.
+// a retenção conta a partir da emissão da autorização, então funciona como tempo máximo de sessão:
+// um refresh não estende a autorização, ela sai com a partição do dia em que foi emitida
+@Component
+@ConditionalOnProperty(
+        value = "auth-server.authorization.partitioning.enabled",
+        havingValue = "true"
+)
+public class AuthorizationPartitionMaintenanceJob {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthorizationPartitionMaintenanceJob.class);
+
+    private static final String AUTHORIZATIONS_TABLE = "authorizations";
+
+    private static final List<String> PARTITIONED_TABLES = List.of(
+            AUTHORIZATIONS_TABLE,
+            "authorization_codes",
+            "access_tokens",
+            "refresh_tokens",
+            "oidc_id_tokens",
+            "user_codes",
+            "device_codes"
+    );
+
+    // tokens rotacionados por refresh ficam na partição do dia da rotação, não na da autorização,
+    // e authorization_tokens perdeu a FK com cascade quando authorizations foi particionada
+    private static final List<String> DEPENDENT_TOKEN_TABLES = List.of(
+            "authorization_codes",
+            "access_tokens",
+            "refresh_tokens",
+            "oidc_id_tokens",
+            "user_codes",
+            "device_codes",
+            "authorization_tokens"
+    );
+
+    private static final String PARTITION_SEPARATOR = "_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private static final String FIND_PARTITIONS = "SELECT c.relname FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid " +
+            "JOIN pg_class p ON p.oid = i.inhparent " +
+            "WHERE p.relname = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter droppedCounter;
+    private final Duration retention;
+    private final int premakeDays;
+    private final Duration lockTimeout;
+
+    public AuthorizationPartitionMaintenanceJob(
+            final JdbcTemplate jdbcTemplate,
+            final PlatformTransactionManager transactionManager,
+            final MeterRegistry meterRegistry,
+            @Value("${auth-server.authorization.partitioning.retention:30d}") final Duration retention,
+            @Value("${auth-server.authorization.partitioning.premake-days:7}") final int premakeDays,
+            @Value("${auth-server.authorization.partitioning.lock-timeout:5s}") final Duration lockTimeout
+    ) {
+        this.jdbcTemplate = Objects.requireNonNull(jdbcTemplate);
+        this.retention = Objects.requireNonNull(retention);
+        this.premakeDays = premakeDays;
+        this.lockTimeout = Objects.requireNonNull(lockTimeout);
+        this.transactionTemplate = new TransactionTemplate(Objects.requireNonNull(transactionManager));
+        this.droppedCounter = Counter.builder("auth.authorizations.partitions.dropped")
+                .description("Expired authorization partitions dropped by the maintenance job")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(
+            initialDelayString = "${auth-server.authorization.partitioning.initial-delay:1m}",
+            fixedDelayString = "${auth-server.authorization.partitioning.interval:1h}"
+    )
+    public void maintain() {
+        final var aToday = LocalDate.ofInstant(InstantUtils.now(), ZoneOffset.UTC);
+        final var aOldestKeptDay = aToday.minusDays(this.retention.toDays());
+
+        PARTITIONED_TABLES.forEach(aTable -> {
+            createPartitions(aTable, aToday);
+            dropPartitions(aTable, aOldestKeptDay);
+        });
+    }
+
+    private void createPartitions(final String table, final LocalDate today) {
+        for (var aDay = today; !aDay.isAfter(today.plusDays(this.premakeDays)); aDay = aDay.plusDays(1)) {
+            final var aPartition = table + PARTITION_SEPARATOR + aDay.format(PARTITION_SUFFIX_FORMAT);
+            final var aSql = "CREATE TABLE IF NOT EXISTS " + aPartition + " PARTITION OF " + table
+                    + " FOR VALUES FROM ('" + aDay + "') TO ('" + aDay.plusDays(1) + "')";
+
+            try {
+                executeWithLockTimeout(aSql);
+            } catch (RuntimeException e) {
+                // acontece se a partição default já recebeu linhas desse dia, precisa de intervenção manual
+                log.error("Failed to create partition {}", aPartition, e);
+            }
+        }
+    }
+
+    // o DROP de uma partição inteira é O(1) e não deixa tuplas mortas para o autovacuum
+    private void dropPartitions(final String table, final LocalDate oldestKeptDay) {
+        this.jdbcTemplate.queryForList(FIND_PARTITIONS, String.class, table).forEach(aPartition -> {
+            final var aDay = parsePartitionDay(table, aPartition);
+            if (aDay == null || !aDay.isBefore(oldestKeptDay)) {
+                return;
+            }
+
+            if (AUTHORIZATIONS_TABLE.equals(table)) {
+                deleteDependentTokens(aPartition, aDay);
+            }
+
+            executeWithLockTimeout("DROP TABLE IF EXISTS " + aPartition);
+            this.droppedCounter.increment();
+            log.info("Dropped expired authorization partition {}", aPartition);
+        });
+    }
+
+    // os tokens emitidos no mesmo dia saem com o DROP da partição deles, aqui só os de partições mais novas
+    private void deleteDependentTokens(final String authorizationsPartition, final LocalDate day) {
+        DEPENDENT_TOKEN_TABLES.forEach(aTokenTable -> {
+            final var aNewerOnly = PARTITIONED_TABLES.contains(aTokenTable)
+                    ? " AND issued_at >= '" + day.plusDays(1) + "'"
+                    : "";
+            final var aDeleted = Objects.requireNonNullElse(this.transactionTemplate.execute(status ->
+                    this.jdbcTemplate.update("DELETE FROM " + aTokenTable + " WHERE authorization_id IN "
+                            + "(SELECT id FROM " + authorizationsPartition + ")" + aNewerOnly)), 0);
+
+            if (aDeleted > 0) {
+                log.info("Deleted {} rows from {} belonging to partition {}",
+                        aDeleted, aTokenTable, authorizationsPartition);
+            }
+        });
+    }
+
+    private void executeWithLockTimeout(final String sql) {
+        this.transactionTemplate.executeWithoutResult(status -> {
+            this.jdbcTemplate.execute("SET LOCAL lock_timeout = '" + this.lockTimeout.toMillis() + "ms'");
+            this.jdbcTemplate.execute(sql);
+        });
+    }
+
+    private static LocalDate parsePartitionDay(final String table, final String partition) {
+        final var aPrefix = table + PARTITION_SEPARATOR;
+        if (!partition.startsWith(aPrefix)) {
+            return null;
+        }
+
+        try {
+            return LocalDate.parse(partition.substring(aPrefix.length()), PARTITION_SUFFIX_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization;
+
+import com.kaua.ecommerce.lib.domain.utils.InstantUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Objects;
+
+@Component
+@ConditionalOnProperty(
+        value = "auth-server.authorization.purge.enabled",
+        havingValue = "true"
+)
+public class AuthorizationPurgeJob {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthorizationPurgeJob.class);
+
+    // SKIP LOCKED deixa cada nó pegar um lote diferente, as tabelas de tokens caem junto pelo ON DELETE CASCADE
+    private static final String DELETE_EXPIRED_AUTHORIZATIONS = "DELETE FROM authorizations WHERE id IN (" +
+            "SELECT id FROM authorizations WHERE expires_at < ? " +
+            "ORDER BY expires_at LIMIT ? FOR UPDATE SKIP LOCKED)";
+
+    // expires_at nulo: linhas gravadas por nós anteriores à coluna, ou autorizações sem nenhum token.
+    // o vencimento sai dos tokens como no V10 e, sem token nenhum, conta da criação
+    private static final String DELETE_EXPIRED_AUTHORIZATIONS_WITHOUT_EXPIRES_AT = "DELETE FROM authorizations WHERE id IN (" +
+            "SELECT a.id FROM authorizations a WHERE a.expires_at IS NULL AND COALESCE(GREATEST(" +
+            "(SELECT MAX(expires_at) FROM authorization_codes WHERE authorization_id = a.id), " +
+            "(SELECT MAX(expires_at) FROM access_tokens WHERE authorization_id = a.id), " +
+            "(SELECT MAX(expires_at) FROM refresh_tokens WHERE authorization_id = a.id), " +
+            "(SELECT MAX(expires_at) FROM oidc_id_tokens WHERE authorization_id = a.id), " +
+            "(SELECT MAX(expires_at) FROM user_codes WHERE authorization_id = a.id), " +
+            "(SELECT MAX(expires_at) FROM device_codes WHERE authorization_id = a.id), " +
+            "(SELECT MAX(expires_at) FROM authorization_tokens WHERE authorization_id = a.id)" +
+            "), a.created_at) < ? LIMIT ? FOR UPDATE SKIP LOCKED)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter purgedCounter;
+    private final Timer purgeTimer;
+    private final int batchSize;
+    private final Duration pause;
+    private final Duration retention;
+
+    public AuthorizationPurgeJob(
+            final JdbcTemplate jdbcTemplate,
+            final PlatformTransactionManager transactionManager,
+            final MeterRegistry meterRegistry,
+            @Value("${auth-server.authorization.purge.batch-size:500}") final int batchSize,
+            @Value("${auth-server.authorization.purge.pause:100ms}") final Duration pause,
+            @Value("${auth-server.authorization.purge.retention:1d}") final Duration retention
+    ) {
+        this.jdbcTemplate = Objects.requireNonNull(jdbcTemplate);
+        this.batchSize = batchSize;
+        this.pause = Objects.requireNonNull(pause);
+        this.retention = Objects.requireNonNull(retention);
+        this.transactionTemplate = new TransactionTemplate(Objects.requireNonNull(transactionManager));
+        this.purgedCounter = Counter.builder("auth.authorizations.purged")
+                .description("Expired authorizations deleted by the purge job")
+                .register(meterRegistry);
+        this.purgeTimer = Timer.builder("auth.authorizations.purge")
+                .description("Duration of each purge run")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(
+            initialDelayString = "${auth-server.authorization.purge.interval:5m}",
+            fixedDelayString = "${auth-server.authorization.purge.interval:5m}"
+    )
+    public void purge() {
+        final var aCutoff = Timestamp.from(InstantUtils.now().minus(this.retention));
+        final var aSample = Timer.start();
+
+        final var aTotalDeleted = purgeInBatches(DELETE_EXPIRED_AUTHORIZATIONS, aCutoff)
+                + purgeInBatches(DELETE_EXPIRED_AUTHORIZATIONS_WITHOUT_EXPIRES_AT, aCutoff);
+
+        aSample.stop(this.purgeTimer);
+        log.info("Purged {} expired authorizations older than {}", aTotalDeleted, aCutoff);
+    }
+
+    private long purgeInBatches(final String deleteSql, final Timestamp cutoff) {
+        var aTotalDeleted = 0L;
+        var aDeleted = 0;
+
+        do {
+            aDeleted = Objects.requireNonNullElse(this.transactionTemplate.execute(status ->
+                    this.jdbcTemplate.update(deleteSql, cutoff, this.batchSize)), 0);
+
+            aTotalDeleted += aDeleted;
+            this.purgedCounter.increment(aDeleted);
+        } while (aDeleted == this.batchSize && pauseBetweenBatches());
+
+        return aTotalDeleted;
+    }
+
+    private boolean pauseBetweenBatches() {
+        try {
+            Thread.sleep(this.pause.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
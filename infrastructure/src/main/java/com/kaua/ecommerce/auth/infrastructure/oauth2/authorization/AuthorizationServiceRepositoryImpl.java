@@ -1,17 +1,10 @@
 package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.Module;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.persistence.*;
-import com.kaua.ecommerce.auth.infrastructure.users.persistence.UserJpaEntity;
-import com.kaua.ecommerce.auth.infrastructure.users.persistence.UserJpaEntityRepository;
+import com.kaua.ecommerce.auth.infrastructure.users.MfaSessionStore;
+import com.kaua.ecommerce.auth.infrastructure.utils.TokenDigestUtils;
 import com.kaua.ecommerce.lib.domain.utils.IdentifierUtils;
-import com.kaua.ecommerce.lib.domain.utils.InstantUtils;
 import org.springframework.dao.DataRetrievalFailureException;
-import org.springframework.security.jackson2.CoreJackson2Module;
-import org.springframework.security.jackson2.SecurityJackson2Modules;
 import org.springframework.security.oauth2.core.*;
 import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
 import org.springframework.security.oauth2.core.oidc.OidcIdToken;
@@ -22,39 +15,39 @@ import org.springframework.security.oauth2.server.authorization.OAuth2Authorizat
 import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
 import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
 import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
-import org.springframework.security.oauth2.server.authorization.jackson2.OAuth2AuthorizationServerJackson2Module;
-import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
-import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.function.Supplier;
 
-@Component
 public class AuthorizationServiceRepositoryImpl implements OAuth2AuthorizationService {
 
     private final AuthorizationJpaEntityRepository authorizationRepository;
     private final RegisteredClientRepository registeredClientRepository;
-    private final UserJpaEntityRepository userJpaEntityRepository;
-    private final ObjectMapper mapper = new ObjectMapper();
+    private final MfaSessionStore mfaSessionStore;
+    private final AuthorizationDataCodec codec;
+    private final TokenShapeClassifier tokenShapeClassifier;
+    private final boolean legacyValueLookup;
 
+    // legacyValueLookup: enquanto existirem nós sem o token_digest, as linhas gravadas por eles só são achadas
+    // pelo valor. o digest é preenchido quando a linha é achada assim
     public AuthorizationServiceRepositoryImpl(
             final AuthorizationJpaEntityRepository authorizationRepository,
             final RegisteredClientRepository registeredClientRepository,
-            final UserJpaEntityRepository userJpaEntityRepository
+            final MfaSessionStore mfaSessionStore,
+            final AuthorizationDataCodec codec,
+            final TokenShapeClassifier tokenShapeClassifier,
+            final boolean legacyValueLookup
     ) {
         this.authorizationRepository = Objects.requireNonNull(authorizationRepository);
         this.registeredClientRepository = Objects.requireNonNull(registeredClientRepository);
-        this.userJpaEntityRepository = Objects.requireNonNull(userJpaEntityRepository);
-        ClassLoader classLoader = AuthorizationServiceRepositoryImpl.class.getClassLoader();
-        List<Module> securityModules = SecurityJackson2Modules.getModules(classLoader);
-        this.mapper.registerModules(securityModules);
-        this.mapper.registerModules(new OAuth2AuthorizationServerJackson2Module());
-        this.mapper.registerModules(new CoreJackson2Module());
+        this.mfaSessionStore = Objects.requireNonNull(mfaSessionStore);
+        this.codec = Objects.requireNonNull(codec);
+        this.tokenShapeClassifier = Objects.requireNonNull(tokenShapeClassifier);
+        this.legacyValueLookup = legacyValueLookup;
     }
 
     // cuidado quando for usar o BFF, precisamos ver se não vai querer salvar 2x o auth_code ou alguma outra informação
-    @Transactional
     @Override
     public void save(final OAuth2Authorization authorization) {
         var aAuthEntity = this.authorizationRepository
@@ -73,8 +66,11 @@ public class AuthorizationServiceRepositoryImpl implements OAuth2AuthorizationSe
             aAuthEntityCreate.setAuthorizedScopes(StringUtils.collectionToDelimitedString(
                     authorization.getAuthorizedScopes(), ","));
 
-            aAuthEntityCreate.setAttributes(writeString(authorization.getAttributes()));
+            final var aAttributes = encode(authorization.getAttributes());
+            aAuthEntityCreate.setAttributes(aAttributes.text());
+            aAuthEntityCreate.setAttributesBin(aAttributes.binary());
             aAuthEntityCreate.setState(authorization.getAttribute(OAuth2ParameterNames.STATE));
+            aAuthEntityCreate.setExpiresAt(AuthorizationTokenTypes.resolveExpiresAt(authorization));
 
             final OAuth2Authorization.Token<OAuth2AuthorizationCode> aAuthCode = authorization.getToken(OAuth2AuthorizationCode.class);
             if (aAuthCode != null) {
@@ -119,13 +115,11 @@ public class AuthorizationServiceRepositoryImpl implements OAuth2AuthorizationSe
         this.authorizationRepository.save(update(aAuthEntity, authorization));
     }
 
-    @Transactional
     @Override
     public void remove(final OAuth2Authorization authorization) {
         this.authorizationRepository.deleteById(authorization.getId());
     }
 
-    @Transactional(readOnly = true)
     @Override
     public OAuth2Authorization findById(final String id) {
         return this.authorizationRepository.findById(id)
@@ -133,18 +127,82 @@ public class AuthorizationServiceRepositoryImpl implements OAuth2AuthorizationSe
                 .orElse(null);
     }
 
-    @Transactional
     @Override
     public OAuth2Authorization findByToken(final String token, final OAuth2TokenType tokenType) {
+        final var aTokenDigest = TokenDigestUtils.sha256(token);
+
         if (tokenType == null) {
-            return this.authorizationRepository
-                    .findByStateOrAuthorizationCodeValueOrAccessTokenValueOrRefreshTokenValueOrOidcIdTokenValueOrUserCodeValueOrDeviceCodeValue(token).map(this::toObject).orElse(null);
+            return findByUntypedToken(token, aTokenDigest).map(this::toObject).orElse(null);
         }
 
         // talvez fazer o renew do mfa aqui no find by refresh token
         // caso não seja feito o findby refresh token ele vai expirar o MFA
-        Optional<AuthorizationEntity> result = switch (tokenType.getValue()) {
+        Optional<AuthorizationEntity> result = findByTokenType(tokenType.getValue(), token, aTokenDigest);
+
+        if (result.isEmpty() && this.legacyValueLookup) {
+            result = findByTokenValue(tokenType.getValue(), token);
+        }
+
+        if (tokenType.getValue().equals(OAuth2ParameterNames.REFRESH_TOKEN)) {
+            result.ifPresent(entity -> this.mfaSessionStore.onRefreshTokenLookup(
+                    entity.getPrincipalName(),
+                    entity.getId(),
+                    entity.getRefreshToken().getExpiresAt()
+            ));
+        }
+
+        return result.map(this::toObject).orElse(null);
+    }
+
+    private Optional<AuthorizationEntity> findByUntypedToken(final String token, final byte[] tokenDigest) {
+        final var aShape = this.tokenShapeClassifier.classify(token);
+        final var aCandidates = aShape.candidates();
+
+        for (int i = 0; i < aCandidates.size(); i++) {
+            final var aResult = findByTokenType(aCandidates.get(i), token, tokenDigest);
+            if (aResult.isPresent()) {
+                this.tokenShapeClassifier.record(aShape, i == 0
+                        ? TokenShapeClassifier.Result.FIRST_GUESS
+                        : TokenShapeClassifier.Result.OTHER_GUESS);
+                return aResult;
+            }
+        }
+
+        var aResult = this.authorizationRepository.findByStateOrTokenDigest(token, tokenDigest)
+                .filter(aEntity -> containsToken(aEntity, token));
+
+        if (aResult.isEmpty() && this.legacyValueLookup) {
+            aResult = this.authorizationRepository.findByStateOrTokenValue(token)
+                    .map(this::backfillTokenDigests);
+        }
+
+        this.tokenShapeClassifier.record(aShape, aResult.isPresent()
+                ? TokenShapeClassifier.Result.FALLBACK
+                : TokenShapeClassifier.Result.MISS);
+        return aResult;
+    }
+
+    // um nó sem o digest que trocou o token deixa o digest do token anterior na linha, por isso o valor é conferido
+    private Optional<AuthorizationEntity> findByTokenType(
+            final String tokenType,
+            final String token,
+            final byte[] tokenDigest
+    ) {
+        final Optional<AuthorizationEntity> aResult = switch (tokenType) {
             case OAuth2ParameterNames.STATE -> this.authorizationRepository.findByState(token);
+            case OAuth2ParameterNames.CODE -> this.authorizationRepository.findByAuthorizationCodeDigest(tokenDigest);
+            case OAuth2ParameterNames.ACCESS_TOKEN -> this.authorizationRepository.findByAccessTokenDigest(tokenDigest);
+            case OAuth2ParameterNames.REFRESH_TOKEN -> this.authorizationRepository.findByRefreshTokenDigest(tokenDigest);
+            case OidcParameterNames.ID_TOKEN -> this.authorizationRepository.findByOidcIdTokenDigest(tokenDigest);
+            case OAuth2ParameterNames.USER_CODE -> this.authorizationRepository.findByUserCodeDigest(tokenDigest);
+            case OAuth2ParameterNames.DEVICE_CODE -> this.authorizationRepository.findByDeviceCodeDigest(tokenDigest);
+            default -> Optional.empty();
+        };
+        return aResult.filter(aEntity -> containsToken(aEntity, token));
+    }
+
+    private Optional<AuthorizationEntity> findByTokenValue(final String tokenType, final String token) {
+        final Optional<AuthorizationEntity> aResult = switch (tokenType) {
             case OAuth2ParameterNames.CODE -> this.authorizationRepository.findByAuthorizationCodeValue(token);
             case OAuth2ParameterNames.ACCESS_TOKEN -> this.authorizationRepository.findByAccessTokenValue(token);
             case OAuth2ParameterNames.REFRESH_TOKEN -> this.authorizationRepository.findByRefreshTokenValue(token);
@@ -153,30 +211,58 @@ public class AuthorizationServiceRepositoryImpl implements OAuth2AuthorizationSe
             case OAuth2ParameterNames.DEVICE_CODE -> this.authorizationRepository.findByDeviceCodeValue(token);
             default -> Optional.empty();
         };
+        return aResult.map(this::backfillTokenDigests);
+    }
 
-        if (tokenType.getValue().equals(OAuth2ParameterNames.REFRESH_TOKEN)) {
-            result.ifPresent(entity -> {
-                final var aUser = this.userJpaEntityRepository
-                        .findById(UUID.fromString(entity.getPrincipalName())).get();
-
-                if (!aUser.getMfa().isMfaEnabled()) {
-                    return;
-                }
-
-                if (entity.getRefreshToken().getExpiresAt().isBefore(InstantUtils.now())) {
-                    aUser.getMfa().setMfaVerified(false);
-                    this.userJpaEntityRepository.save(aUser);
-                } else {
-                    // adicionamos ao expires at uma margem de 30 minutos
-                    final var aValidUntil = entity.getRefreshToken().getExpiresAt()
-                            .plus(30, ChronoUnit.MINUTES);
-                    aUser.getMfa().setValidUntil(aValidUntil);
-                    this.userJpaEntityRepository.save(aUser);
-                }
-            });
+    private static boolean containsToken(final AuthorizationEntity entity, final String token) {
+        return token.equals(entity.getState())
+                || entity.getAuthorizationCode() != null && token.equals(entity.getAuthorizationCode().getValue())
+                || entity.getAccessToken() != null && token.equals(entity.getAccessToken().getValue())
+                || entity.getRefreshToken() != null && token.equals(entity.getRefreshToken().getValue())
+                || entity.getOidcIdToken() != null && token.equals(entity.getOidcIdToken().getValue())
+                || entity.getUserCode() != null && token.equals(entity.getUserCode().getValue())
+                || entity.getDeviceCode() != null && token.equals(entity.getDeviceCode().getValue());
+    }
+
+    // grava o digest das linhas que vieram de um nó antigo, o UPDATE sai no commit do findByToken
+    private AuthorizationEntity backfillTokenDigests(final AuthorizationEntity entity) {
+        final var aCode = entity.getAuthorizationCode();
+        if (aCode != null && aCode.getValue() != null) {
+            aCode.setTokenDigest(currentDigest(aCode.getTokenDigest(), aCode.getValue()));
         }
 
-        return result.map(this::toObject).orElse(null);
+        final var aAccessToken = entity.getAccessToken();
+        if (aAccessToken != null && aAccessToken.getValue() != null) {
+            aAccessToken.setTokenDigest(currentDigest(aAccessToken.getTokenDigest(), aAccessToken.getValue()));
+        }
+
+        final var aRefreshToken = entity.getRefreshToken();
+        if (aRefreshToken != null && aRefreshToken.getValue() != null) {
+            aRefreshToken.setTokenDigest(currentDigest(aRefreshToken.getTokenDigest(), aRefreshToken.getValue()));
+        }
+
+        final var aOidcIdToken = entity.getOidcIdToken();
+        if (aOidcIdToken != null && aOidcIdToken.getValue() != null) {
+            aOidcIdToken.setTokenDigest(currentDigest(aOidcIdToken.getTokenDigest(), aOidcIdToken.getValue()));
+        }
+
+        final var aUserCode = entity.getUserCode();
+        if (aUserCode != null && aUserCode.getValue() != null) {
+            aUserCode.setTokenDigest(currentDigest(aUserCode.getTokenDigest(), aUserCode.getValue()));
+        }
+
+        final var aDeviceCode = entity.getDeviceCode();
+        if (aDeviceCode != null && aDeviceCode.getValue() != null) {
+            aDeviceCode.setTokenDigest(currentDigest(aDeviceCode.getTokenDigest(), aDeviceCode.getValue()));
+        }
+
+        return entity;
+    }
+
+    // devolve o mesmo array quando o digest já confere, assim o dirty checking não gera UPDATE
+    private static byte[] currentDigest(final byte[] digest, final String value) {
+        final var aDigest = TokenDigestUtils.sha256(value);
+        return Arrays.equals(digest, aDigest) ? digest : aDigest;
     }
 
     private AuthorizationEntity update(final AuthorizationEntity entity, final OAuth2Authorization authorization) {
@@ -190,16 +276,22 @@ public class AuthorizationServiceRepositoryImpl implements OAuth2AuthorizationSe
         entity.setAuthorizedScopes(StringUtils.collectionToDelimitedString(
                 authorization.getAuthorizedScopes(), ","));
 
-        entity.setAttributes(writeString(authorization.getAttributes()));
+        final var aAttributes = encode(authorization.getAttributes());
+        entity.setAttributes(aAttributes.text());
+        entity.setAttributesBin(aAttributes.binary());
         entity.setState(authorization.getAttribute(OAuth2ParameterNames.STATE));
+        entity.setExpiresAt(AuthorizationTokenTypes.resolveExpiresAt(authorization));
 
         final OAuth2Authorization.Token<OAuth2AuthorizationCode> aAuthCode = authorization.getToken(OAuth2AuthorizationCode.class);
         if (aAuthCode != null) {
             if (entity.getAuthorizationCode() != null) {
                 entity.getAuthorizationCode().setValue(aAuthCode.getToken().getTokenValue());
+                entity.getAuthorizationCode().setTokenDigest(TokenDigestUtils.sha256(aAuthCode.getToken().getTokenValue()));
                 entity.getAuthorizationCode().setIssuedAt(aAuthCode.getToken().getIssuedAt());
                 entity.getAuthorizationCode().setExpiresAt(aAuthCode.getToken().getExpiresAt());
-                entity.getAuthorizationCode().setMetadata(writeString(aAuthCode.getMetadata()));
+                final var aAuthorizationCodeMetadata = encode(aAuthCode.getMetadata());
+                entity.getAuthorizationCode().setMetadata(aAuthorizationCodeMetadata.text());
+                entity.getAuthorizationCode().setMetadataBin(aAuthorizationCodeMetadata.binary());
             } else {
                 final var aAuthCodeEntity = createAuthorizationCodeEntity(entity, aAuthCode);
                 entity.setAuthorizationCode(aAuthCodeEntity);
@@ -210,9 +302,12 @@ public class AuthorizationServiceRepositoryImpl implements OAuth2AuthorizationSe
         if (aAccessToken != null) {
             if (entity.getAccessToken() != null) {
                 entity.getAccessToken().setValue(aAccessToken.getToken().getTokenValue());
+                entity.getAccessToken().setTokenDigest(TokenDigestUtils.sha256(aAccessToken.getToken().getTokenValue()));
                 entity.getAccessToken().setIssuedAt(aAccessToken.getToken().getIssuedAt());
                 entity.getAccessToken().setExpiresAt(aAccessToken.getToken().getExpiresAt());
-                entity.getAccessToken().setMetadata(writeString(aAccessToken.getMetadata()));
+                final var aAccessTokenMetadata = encode(aAccessToken.getMetadata());
+                entity.getAccessToken().setMetadata(aAccessTokenMetadata.text());
+                entity.getAccessToken().setMetadataBin(aAccessTokenMetadata.binary());
                 entity.getAccessToken().setType(aAccessToken.getToken().getTokenType().getValue());
                 entity.getAccessToken().setScopes(StringUtils.collectionToDelimitedString(
                         aAccessToken.getToken().getScopes(), ","));
@@ -226,9 +321,12 @@ public class AuthorizationServiceRepositoryImpl implements OAuth2AuthorizationSe
         if (aRefreshToken != null) {
             if (entity.getRefreshToken() != null) {
                 entity.getRefreshToken().setValue(aRefreshToken.getToken().getTokenValue());
+                entity.getRefreshToken().setTokenDigest(TokenDigestUtils.sha256(aRefreshToken.getToken().getTokenValue()));
                 entity.getRefreshToken().setIssuedAt(aRefreshToken.getToken().getIssuedAt());
                 entity.getRefreshToken().setExpiresAt(aRefreshToken.getToken().getExpiresAt());
-                entity.getRefreshToken().setMetadata(writeString(aRefreshToken.getMetadata()));
+                final var aRefreshTokenMetadata = encode(aRefreshToken.getMetadata());
+                entity.getRefreshToken().setMetadata(aRefreshTokenMetadata.text());
+                entity.getRefreshToken().setMetadataBin(aRefreshTokenMetadata.binary());
             } else {
                 final var aRefreshTokenEntity = createRefreshTokenEntity(entity, aRefreshToken);
                 entity.setRefreshToken(aRefreshTokenEntity);
@@ -239,10 +337,15 @@ public class AuthorizationServiceRepositoryImpl implements OAuth2AuthorizationSe
         if (aOidcToken != null) {
             if (entity.getOidcIdToken() != null) {
                 entity.getOidcIdToken().setValue(aOidcToken.getToken().getTokenValue());
+                entity.getOidcIdToken().setTokenDigest(TokenDigestUtils.sha256(aOidcToken.getToken().getTokenValue()));
                 entity.getOidcIdToken().setIssuedAt(aOidcToken.getToken().getIssuedAt());
                 entity.getOidcIdToken().setExpiresAt(aOidcToken.getToken().getExpiresAt());
-                entity.getOidcIdToken().setMetadata(writeString(aOidcToken.getMetadata()));
-                entity.getOidcIdToken().setClaims(writeString(aOidcToken.getClaims()));
+                final var aOidcIdTokenMetadata = encode(aOidcToken.getMetadata());
+                entity.getOidcIdToken().setMetadata(aOidcIdTokenMetadata.text());
+                entity.getOidcIdToken().setMetadataBin(aOidcIdTokenMetadata.binary());
+                final var aOidcIdTokenClaims = encode(aOidcToken.getClaims());
+                entity.getOidcIdToken().setClaims(aOidcIdTokenClaims.text());
+                entity.getOidcIdToken().setClaimsBin(aOidcIdTokenClaims.binary());
             } else {
                 final var aOidcTokenEntity = createOidcTokenEntity(entity, aOidcToken);
                 entity.setOidcIdToken(aOidcTokenEntity);
@@ -253,9 +356,12 @@ public class AuthorizationServiceRepositoryImpl implements OAuth2AuthorizationSe
         if (aUserCode != null) {
             if (entity.getUserCode() != null) {
                 entity.getUserCode().setValue(aUserCode.getToken().getTokenValue());
+                entity.getUserCode().setTokenDigest(TokenDigestUtils.sha256(aUserCode.getToken().getTokenValue()));
                 entity.getUserCode().setIssuedAt(aUserCode.getToken().getIssuedAt());
                 entity.getUserCode().setExpiresAt(aUserCode.getToken().getExpiresAt());
-                entity.getUserCode().setMetadata(writeString(aUserCode.getMetadata()));
+                final var aUserCodeMetadata = encode(aUserCode.getMetadata());
+                entity.getUserCode().setMetadata(aUserCodeMetadata.text());
+                entity.getUserCode().setMetadataBin(aUserCodeMetadata.binary());
             } else {
                 final var aUserCodeEntity = createUserCodeEntity(entity, aUserCode);
                 entity.setUserCode(aUserCodeEntity);
@@ -266,9 +372,12 @@ public class AuthorizationServiceRepositoryImpl implements OAuth2AuthorizationSe
         if (aDeviceCode != null) {
             if (entity.getDeviceCode() != null) {
                 entity.getDeviceCode().setValue(aDeviceCode.getToken().getTokenValue());
+                entity.getDeviceCode().setTokenDigest(TokenDigestUtils.sha256(aDeviceCode.getToken().getTokenValue()));
                 entity.getDeviceCode().setIssuedAt(aDeviceCode.getToken().getIssuedAt());
                 entity.getDeviceCode().setExpiresAt(aDeviceCode.getToken().getExpiresAt());
-                entity.getDeviceCode().setMetadata(writeString(aDeviceCode.getMetadata()));
+                final var aDeviceCodeMetadata = encode(aDeviceCode.getMetadata());
+                entity.getDeviceCode().setMetadata(aDeviceCodeMetadata.text());
+                entity.getDeviceCode().setMetadataBin(aDeviceCodeMetadata.binary());
             } else {
                 final var aDeviceCodeEntity = createDeviceCodeEntity(entity, aDeviceCode);
                 entity.setDeviceCode(aDeviceCodeEntity);
@@ -279,24 +388,30 @@ public class AuthorizationServiceRepositoryImpl implements OAuth2AuthorizationSe
     }
 
     private AuthorizationCodeEntity createAuthorizationCodeEntity(AuthorizationEntity entity, OAuth2Authorization.Token<OAuth2AuthorizationCode> aAuthCode) {
+        final var aMetadata = encode(aAuthCode.getMetadata());
         return new AuthorizationCodeEntity(
                 IdentifierUtils.generateNewId(),
                 entity,
                 aAuthCode.getToken().getTokenValue(),
+                TokenDigestUtils.sha256(aAuthCode.getToken().getTokenValue()),
                 aAuthCode.getToken().getIssuedAt(),
                 aAuthCode.getToken().getExpiresAt(),
-                writeString(aAuthCode.getMetadata())
+                aMetadata.text(),
+                aMetadata.binary()
         );
     }
 
     private AccessTokenEntity createAccessTokenEntity(AuthorizationEntity entity, OAuth2Authorization.Token<OAuth2AccessToken> aAccessToken) {
+        final var aMetadata = encode(aAccessToken.getMetadata());
         return new AccessTokenEntity(
                 IdentifierUtils.generateNewId(),
                 entity,
                 aAccessToken.getToken().getTokenValue(),
+                TokenDigestUtils.sha256(aAccessToken.getToken().getTokenValue()),
                 aAccessToken.getToken().getIssuedAt(),
                 aAccessToken.getToken().getExpiresAt(),
-                writeString(aAccessToken.getMetadata()),
+                aMetadata.text(),
+                aMetadata.binary(),
                 aAccessToken.getToken().getTokenType().getValue(),
                 aAccessToken.getToken().getScopes() != null ? StringUtils.collectionToDelimitedString(
                         aAccessToken.getToken().getScopes(), ",") : null
@@ -304,64 +419,67 @@ public class AuthorizationServiceRepositoryImpl implements OAuth2AuthorizationSe
     }
 
     private RefreshTokenEntity createRefreshTokenEntity(AuthorizationEntity entity, OAuth2Authorization.Token<OAuth2RefreshToken> aRefreshToken) {
-        refreshValidUntilMfa(entity, aRefreshToken);
+        this.mfaSessionStore.onRefreshTokenIssued(
+                entity.getPrincipalName(), entity.getId(), aRefreshToken.getToken().getExpiresAt());
+        final var aMetadata = encode(aRefreshToken.getMetadata());
         return new RefreshTokenEntity(
                 IdentifierUtils.generateNewId(),
                 entity,
                 aRefreshToken.getToken().getTokenValue(),
+                TokenDigestUtils.sha256(aRefreshToken.getToken().getTokenValue()),
                 aRefreshToken.getToken().getIssuedAt(),
                 aRefreshToken.getToken().getExpiresAt(),
-                writeString(aRefreshToken.getMetadata())
+                aMetadata.text(),
+                aMetadata.binary()
         );
     }
 
-    private void refreshValidUntilMfa(AuthorizationEntity entity, OAuth2Authorization.Token<OAuth2RefreshToken> aRefreshToken) {
-        final var aUser = this.userJpaEntityRepository
-                .findById(UUID.fromString(entity.getPrincipalName())).get()
-                .toDomain();
-
-        if (aUser.getMfa().isMfaEnabled()) {
-            aUser.getMfa().updateValidUntil(aRefreshToken.getToken().getExpiresAt());
-
-            this.userJpaEntityRepository.save(UserJpaEntity.toEntity(aUser));
-        }
-    }
-
     private OidcIdTokenEntity createOidcTokenEntity(AuthorizationEntity entity, OAuth2Authorization.Token<OidcIdToken> aOidcToken) {
+        final var aMetadata = encode(aOidcToken.getMetadata());
+        final var aClaims = encode(aOidcToken.getClaims());
         return new OidcIdTokenEntity(
                 IdentifierUtils.generateNewId(),
                 entity,
                 aOidcToken.getToken().getTokenValue(),
+                TokenDigestUtils.sha256(aOidcToken.getToken().getTokenValue()),
                 aOidcToken.getToken().getIssuedAt(),
                 aOidcToken.getToken().getExpiresAt(),
-                writeString(aOidcToken.getMetadata()),
-                writeString(aOidcToken.getClaims())
+                aMetadata.text(),
+                aMetadata.binary(),
+                aClaims.text(),
+                aClaims.binary()
         );
     }
 
     private UserCodeEntity createUserCodeEntity(AuthorizationEntity entity, OAuth2Authorization.Token<OAuth2UserCode> aUserCode) {
+        final var aMetadata = encode(aUserCode.getMetadata());
         return new UserCodeEntity(
                 IdentifierUtils.generateNewId(),
                 entity,
                 aUserCode.getToken().getTokenValue(),
+                TokenDigestUtils.sha256(aUserCode.getToken().getTokenValue()),
                 aUserCode.getToken().getIssuedAt(),
                 aUserCode.getToken().getExpiresAt(),
-                writeString(aUserCode.getMetadata())
+                aMetadata.text(),
+                aMetadata.binary()
         );
     }
 
     private DeviceCodeEntity createDeviceCodeEntity(AuthorizationEntity entity, OAuth2Authorization.Token<OAuth2DeviceCode> aDeviceCode) {
+        final var aMetadata = encode(aDeviceCode.getMetadata());
         return new DeviceCodeEntity(
                 IdentifierUtils.generateNewId(),
                 entity,
                 aDeviceCode.getToken().getTokenValue(),
+                TokenDigestUtils.sha256(aDeviceCode.getToken().getTokenValue()),
                 aDeviceCode.getToken().getIssuedAt(),
                 aDeviceCode.getToken().getExpiresAt(),
-                writeString(aDeviceCode.getMetadata())
+                aMetadata.text(),
+                aMetadata.binary()
         );
     }
 
-    private static AuthorizationGrantType resolveAuthorizationGrantType(String authorizationGrantType) {
+    static AuthorizationGrantType resolveAuthorizationGrantType(String authorizationGrantType) {
         if (AuthorizationGrantType.AUTHORIZATION_CODE.getValue().equals(authorizationGrantType)) {
             return AuthorizationGrantType.AUTHORIZATION_CODE;
         } else if (AuthorizationGrantType.CLIENT_CREDENTIALS.getValue().equals(authorizationGrantType)) {
@@ -379,12 +497,12 @@ public class AuthorizationServiceRepositoryImpl implements OAuth2AuthorizationSe
                     "The RegisteredClient with id '" + entity.getRegisteredClientId() + "' was not found in the RegisteredClientRepository.");
         }
 
-        OAuth2Authorization.Builder builder = OAuth2Authorization.withRegisteredClient(registeredClient)
-                .id(entity.getId())
+        final var builder = new LazyAuthorizationBuilder(registeredClient);
+        builder.id(entity.getId())
                 .principalName(entity.getPrincipalName())
                 .authorizationGrantType(resolveAuthorizationGrantType(entity.getAuthorizationGrantType()))
                 .authorizedScopes(StringUtils.commaDelimitedListToSet(entity.getAuthorizedScopes()))
-                .attributes(attributes -> attributes.putAll(parseMap(entity.getAttributes())));
+                .attributes(attributes -> attributes.putAll(parseMap(entity.getAttributes(), entity.getAttributesBin())));
         if (entity.getState() != null) {
             builder.attribute(OAuth2ParameterNames.STATE, entity.getState());
         }
@@ -394,7 +512,7 @@ public class AuthorizationServiceRepositoryImpl implements OAuth2AuthorizationSe
                     entity.getAuthorizationCode().getValue(),
                     entity.getAuthorizationCode().getIssuedAt(),
                     entity.getAuthorizationCode().getExpiresAt());
-            builder.token(authorizationCode, metadata -> metadata.putAll(parseMap(entity.getAuthorizationCode().getMetadata())));
+            builder.lazyToken(authorizationCode, lazyMetadata(entity.getAuthorizationCode().getMetadata(), entity.getAuthorizationCode().getMetadataBin()));
         }
 
         if (entity.getAccessToken() != null) {
@@ -404,7 +522,7 @@ public class AuthorizationServiceRepositoryImpl implements OAuth2AuthorizationSe
                     entity.getAccessToken().getIssuedAt(),
                     entity.getAccessToken().getExpiresAt(),
                     StringUtils.commaDelimitedListToSet(entity.getAccessToken().getScopes()));
-            builder.token(accessToken, metadata -> metadata.putAll(parseMap(entity.getAccessToken().getMetadata())));
+            builder.lazyToken(accessToken, lazyMetadata(entity.getAccessToken().getMetadata(), entity.getAccessToken().getMetadataBin()));
         }
 
         if (entity.getRefreshToken() != null) {
@@ -412,7 +530,7 @@ public class AuthorizationServiceRepositoryImpl implements OAuth2AuthorizationSe
                     entity.getRefreshToken().getValue(),
                     entity.getRefreshToken().getIssuedAt(),
                     entity.getRefreshToken().getExpiresAt());
-            builder.token(refreshToken, metadata -> metadata.putAll(parseMap(entity.getRefreshToken().getMetadata())));
+            builder.lazyToken(refreshToken, lazyMetadata(entity.getRefreshToken().getMetadata(), entity.getRefreshToken().getMetadataBin()));
         }
 
         if (entity.getOidcIdToken() != null) {
@@ -420,8 +538,8 @@ public class AuthorizationServiceRepositoryImpl implements OAuth2AuthorizationSe
                     entity.getOidcIdToken().getValue(),
                     entity.getOidcIdToken().getIssuedAt(),
                     entity.getOidcIdToken().getExpiresAt(),
-                    parseMap(entity.getOidcIdToken().getClaims()));
-            builder.token(idToken, metadata -> metadata.putAll(parseMap(entity.getOidcIdToken().getMetadata())));
+                    parseMap(entity.getOidcIdToken().getClaims(), entity.getOidcIdToken().getClaimsBin()));
+            builder.lazyToken(idToken, lazyMetadata(entity.getOidcIdToken().getMetadata(), entity.getOidcIdToken().getMetadataBin()));
         }
 
         if (entity.getUserCode() != null) {
@@ -429,7 +547,7 @@ public class AuthorizationServiceRepositoryImpl implements OAuth2AuthorizationSe
                     entity.getUserCode().getValue(),
                     entity.getUserCode().getIssuedAt(),
                     entity.getUserCode().getExpiresAt());
-            builder.token(userCode, metadata -> metadata.putAll(parseMap(entity.getUserCode().getMetadata())));
+            builder.lazyToken(userCode, lazyMetadata(entity.getUserCode().getMetadata(), entity.getUserCode().getMetadataBin()));
         }
 
         if (entity.getDeviceCode() != null) {
@@ -437,26 +555,22 @@ public class AuthorizationServiceRepositoryImpl implements OAuth2AuthorizationSe
                     entity.getDeviceCode().getValue(),
                     entity.getDeviceCode().getIssuedAt(),
                     entity.getDeviceCode().getExpiresAt());
-            builder.token(deviceCode, metadata -> metadata.putAll(parseMap(entity.getDeviceCode().getMetadata())));
+            builder.lazyToken(deviceCode, lazyMetadata(entity.getDeviceCode().getMetadata(), entity.getDeviceCode().getMetadataBin()));
         }
 
         return builder.build();
     }
 
-    private Map<String, Object> parseMap(final String data) {
-        try {
-            return this.mapper.readValue(data, new TypeReference<>() {
-            });
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException(e);
-        }
+    private Map<String, Object> parseMap(final String data, final byte[] binaryData) {
+        return this.codec.read(data, binaryData);
     }
 
-    private String writeString(final Map<String, Object> data) {
-        try {
-            return this.mapper.writeValueAsString(data);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException(e);
-        }
+    // os argumentos são lidos agora, só o parse fica para quando o metadata for acessado
+    private Supplier<Map<String, Object>> lazyMetadata(final String data, final byte[] binaryData) {
+        return () -> parseMap(data, binaryData);
+    }
+
+    private AuthorizationDataCodec.Encoded encode(final Map<String, Object> data) {
+        return this.codec.encode(data);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,66 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization;
+
+import org.springframework.security.oauth2.core.*;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.core.oidc.endpoint.OidcParameterNames;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationCode;
+import org.springframework.util.StringUtils;
+
+import java.time.Instant;
+import java.util.Map;
+
+final class AuthorizationTokenTypes {
+
+    static final Map<Class<? extends OAuth2Token>, String> TOKEN_TYPES = Map.of(
+            OAuth2AuthorizationCode.class, OAuth2ParameterNames.CODE,
+            OAuth2AccessToken.class, OAuth2ParameterNames.ACCESS_TOKEN,
+            OAuth2RefreshToken.class, OAuth2ParameterNames.REFRESH_TOKEN,
+            OidcIdToken.class, OidcParameterNames.ID_TOKEN,
+            OAuth2UserCode.class, OAuth2ParameterNames.USER_CODE,
+            OAuth2DeviceCode.class, OAuth2ParameterNames.DEVICE_CODE
+    );
+
+    private AuthorizationTokenTypes() {
+    }
+
+    static Instant resolveExpiresAt(final OAuth2Authorization authorization) {
+        Instant aExpiresAt = null;
+
+        for (final var aTokenClass : TOKEN_TYPES.keySet()) {
+            final OAuth2Authorization.Token<? extends OAuth2Token> aToken = authorization.getToken(aTokenClass);
+
+            if (aToken != null && aToken.getToken().getExpiresAt() != null
+                    && (aExpiresAt == null || aToken.getToken().getExpiresAt().isAfter(aExpiresAt))) {
+                aExpiresAt = aToken.getToken().getExpiresAt();
+            }
+        }
+
+        return aExpiresAt;
+    }
+
+    static OAuth2Token toToken(
+            final String tokenType,
+            final String value,
+            final Instant issuedAt,
+            final Instant expiresAt,
+            final String scopes,
+            final Map<String, Object> claims
+    ) {
+        return switch (tokenType) {
+            case OAuth2ParameterNames.CODE -> new OAuth2AuthorizationCode(value, issuedAt, expiresAt);
+            case OAuth2ParameterNames.ACCESS_TOKEN -> new OAuth2AccessToken(
+                    OAuth2AccessToken.TokenType.BEARER,
+                    value,
+                    issuedAt,
+                    expiresAt,
+                    StringUtils.commaDelimitedListToSet(scopes));
+            case OAuth2ParameterNames.REFRESH_TOKEN -> new OAuth2RefreshToken(value, issuedAt, expiresAt);
+            case OidcParameterNames.ID_TOKEN -> new OidcIdToken(value, issuedAt, expiresAt, claims);
+            case OAuth2ParameterNames.USER_CODE -> new OAuth2UserCode(value, issuedAt, expiresAt);
+            case OAuth2ParameterNames.DEVICE_CODE -> new OAuth2DeviceCode(value, issuedAt, expiresAt);
+            default -> null;
+        };
+    }
+}
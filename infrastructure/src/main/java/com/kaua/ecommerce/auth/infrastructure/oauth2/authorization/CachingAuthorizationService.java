@@ -0,0 +1,358 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization;
+
+import com.kaua.ecommerce.auth.infrastructure.configurations.json.Json;
+import com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.persistence.cache.AuthorizationCacheEntity;
+import com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.persistence.cache.AuthorizationTokenCacheEntity;
+import com.kaua.ecommerce.auth.infrastructure.services.KeysService;
+import com.kaua.ecommerce.auth.infrastructure.users.MfaSessionStore;
+import com.kaua.ecommerce.auth.infrastructure.utils.TokenDigestUtils;
+import com.kaua.ecommerce.lib.domain.utils.InstantUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2Token;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+public class CachingAuthorizationService implements OAuth2AuthorizationService {
+
+    private static final Logger log = LoggerFactory.getLogger(CachingAuthorizationService.class);
+
+    private static final String OAUTH2_AUTHORIZATIONS_REF_KEY_PREFIX = "oauth2:authorizations:ref:";
+    private static final String OAUTH2_AUTHORIZATIONS_OBJECT_KEY_PREFIX = "oauth2:authorizations:obj:";
+    private static final String OAUTH2_AUTHORIZATIONS_VERSION_KEY_PREFIX = "oauth2:authorizations:ver:";
+    private static final String OAUTH2_AUTHORIZATIONS_EVICTED_KEY_PREFIX = "oauth2:authorizations:evicted:";
+
+    // a versão só precisa sobreviver ao intervalo entre a leitura no banco e a escrita no cache
+    private static final Duration VERSION_TTL = Duration.ofHours(1);
+    // a busca por um token sem ref não sabe o id antes de ir ao banco, então não tem versão para comparar.
+    // nesse caso qualquer invalidação recente barra a escrita
+    private static final Duration EVICTED_TTL = Duration.ofSeconds(10);
+    private static final String NO_VERSION = "0";
+    private static final String UNKNOWN_VERSION = "";
+
+    // KEYS[1] é a versão da autorização, KEYS[2] a marca de invalidação recente e KEYS[3] o objeto
+    private static final RedisScript<Long> EVICT = new DefaultRedisScript<>("""
+            redis.call('INCR', KEYS[1])
+            redis.call('PEXPIRE', KEYS[1], ARGV[1])
+            redis.call('SET', KEYS[2], '1', 'PX', ARGV[2])
+            redis.call('DEL', KEYS[3])
+            return 1
+            """, Long.class);
+
+    // só grava se ninguém invalidou a autorização depois que a versão foi lida, senão a leitura do banco
+    // feita antes do commit de um save voltaria para o cache. KEYS[4] é a ref do token, quando existe
+    private static final RedisScript<Long> CACHE_IF_NOT_EVICTED = new DefaultRedisScript<>("""
+            if ARGV[1] == '' then
+                if redis.call('EXISTS', KEYS[2]) == 1 then
+                    return 0
+                end
+            elseif (redis.call('GET', KEYS[1]) or '0') ~= ARGV[1] then
+                return 0
+            end
+            redis.call('SET', KEYS[3], ARGV[2], 'PX', ARGV[3])
+            if #KEYS > 3 then
+                redis.call('SET', KEYS[4], ARGV[4], 'PX', ARGV[3])
+            end
+            return 1
+            """, Long.class);
+
+    private final OAuth2AuthorizationService delegate;
+    private final RegisteredClientRepository registeredClientRepository;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final MfaSessionStore mfaSessionStore;
+    private final AuthorizationCacheCipher cipher;
+    private final AuthorizationDataCodec codec = new AuthorizationDataCodec();
+
+    // a transação vem do TransactionalAuthorizationService que embrulha o cache.
+    // com provider_disables_autocommit o hibernate só pega conexão quando precisa, então um hit no cache não usa o banco
+    public CachingAuthorizationService(
+            final OAuth2AuthorizationService delegate,
+            final RegisteredClientRepository registeredClientRepository,
+            final RedisTemplate<String, String> redisTemplate,
+            final MfaSessionStore mfaSessionStore,
+            final KeysService keysService
+    ) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.registeredClientRepository = Objects.requireNonNull(registeredClientRepository);
+        this.redisTemplate = Objects.requireNonNull(redisTemplate);
+        this.mfaSessionStore = Objects.requireNonNull(mfaSessionStore);
+        this.cipher = new AuthorizationCacheCipher(keysService);
+    }
+
+    @Override
+    public void save(final OAuth2Authorization authorization) {
+        this.delegate.save(authorization);
+        evict(authorization.getId());
+    }
+
+    @Override
+    public void remove(final OAuth2Authorization authorization) {
+        this.delegate.remove(authorization);
+        evict(authorization.getId());
+    }
+
+    @Override
+    public OAuth2Authorization findById(final String id) {
+        final var aCachedAuthorization = readCached(id);
+
+        if (aCachedAuthorization.isPresent()) {
+            log.debug("Authorization found in cache by id: {}", id);
+            return toObject(aCachedAuthorization.get());
+        }
+
+        final var aVersion = readVersion(id);
+        final var aAuthorization = this.delegate.findById(id);
+        if (aAuthorization != null) {
+            cache(aAuthorization, aVersion, null);
+        }
+        return aAuthorization;
+    }
+
+    @Override
+    public OAuth2Authorization findByToken(final String token, final OAuth2TokenType tokenType) {
+        final var aRefKey = OAUTH2_AUTHORIZATIONS_REF_KEY_PREFIX.concat(TokenDigestUtils.sha256Hex(token));
+        final var aCachedId = this.redisTemplate.opsForValue().get(aRefKey);
+
+        if (aCachedId != null) {
+            final var aCachedAuthorization = readCached(aCachedId);
+
+            if (aCachedAuthorization.isPresent()) {
+                final var aCacheEntity = aCachedAuthorization.get();
+                final var aMatchedToken = findMatchedToken(aCacheEntity, token, tokenType);
+
+                // a ref pode apontar para uma versão mais nova da autorização, onde o token já foi rotacionado
+                if (aMatchedToken != null || isStateMatched(aCacheEntity, token, tokenType)) {
+                    log.debug("Authorization found in cache by token digest: {}", aCachedId);
+
+                    if (tokenType != null && OAuth2ParameterNames.REFRESH_TOKEN.equals(tokenType.getValue())) {
+                        this.mfaSessionStore.onRefreshTokenLookup(
+                                aCacheEntity.getPrincipalName(),
+                                aCacheEntity.getId(),
+                                aMatchedToken.getExpiresAt());
+                    }
+
+                    return toObject(aCacheEntity);
+                }
+            }
+        }
+
+        // a versão só vale se a ref apontava para a mesma autorização que o banco devolveu
+        final var aVersion = aCachedId != null ? readVersion(aCachedId) : UNKNOWN_VERSION;
+        final var aAuthorization = this.delegate.findByToken(token, tokenType);
+        if (aAuthorization != null) {
+            cache(aAuthorization, aAuthorization.getId().equals(aCachedId) ? aVersion : UNKNOWN_VERSION, aRefKey);
+        }
+        return aAuthorization;
+    }
+
+    private void cache(final OAuth2Authorization authorization, final String version, final String refKey) {
+        final var aExpiresAt = AuthorizationTokenTypes.resolveExpiresAt(authorization);
+        if (aExpiresAt == null) {
+            return;
+        }
+
+        final var aTtl = Duration.between(InstantUtils.now(), aExpiresAt);
+        if (aTtl.isNegative() || aTtl.isZero()) {
+            return;
+        }
+
+        final var aObjectKey = OAUTH2_AUTHORIZATIONS_OBJECT_KEY_PREFIX.concat(authorization.getId());
+        final var aKeys = new ArrayList<String>(4);
+        final var aArgs = new ArrayList<byte[]>(4);
+        aKeys.add(OAUTH2_AUTHORIZATIONS_VERSION_KEY_PREFIX.concat(authorization.getId()));
+        aKeys.add(OAUTH2_AUTHORIZATIONS_EVICTED_KEY_PREFIX.concat(authorization.getId()));
+        aKeys.add(aObjectKey);
+        aArgs.add(ascii(version));
+        aArgs.add(valueSerializer().serialize(
+                this.cipher.encrypt(aObjectKey, Json.writeValueAsString(toEntity(authorization)))));
+        aArgs.add(ascii(Long.toString(aTtl.toMillis())));
+
+        if (refKey != null) {
+            aKeys.add(refKey);
+            aArgs.add(valueSerializer().serialize(authorization.getId()));
+        }
+
+        final var aCached = this.redisTemplate.execute(
+                CACHE_IF_NOT_EVICTED,
+                RedisSerializer.byteArray(),
+                new GenericToStringSerializer<>(Long.class),
+                aKeys,
+                aArgs.toArray());
+
+        if (aCached == null || aCached == 0L) {
+            log.debug("Authorization {} changed while it was loaded, skipping cache", authorization.getId());
+        }
+    }
+
+    private String readVersion(final String id) {
+        final var aVersionKey = RedisSerializer.string().serialize(OAUTH2_AUTHORIZATIONS_VERSION_KEY_PREFIX.concat(id));
+        final var aVersion = this.redisTemplate.execute(
+                (RedisCallback<byte[]>) connection -> connection.stringCommands().get(aVersionKey));
+        return aVersion != null ? new String(aVersion, StandardCharsets.US_ASCII) : NO_VERSION;
+    }
+
+    private Optional<AuthorizationCacheEntity> readCached(final String id) {
+        final var aObjectKey = OAUTH2_AUTHORIZATIONS_OBJECT_KEY_PREFIX.concat(id);
+        final var aCachedAuthorization = this.redisTemplate.opsForValue().get(aObjectKey);
+
+        if (aCachedAuthorization == null) {
+            return Optional.empty();
+        }
+
+        return this.cipher.decrypt(aObjectKey, aCachedAuthorization)
+                .map(aJson -> Json.readValue(aJson, AuthorizationCacheEntity.class));
+    }
+
+    // invalida agora e de novo após o commit. cada invalidação sobe a versão, então quem leu a autorização
+    // antes disso não consegue gravar a cópia antiga de volta no cache
+    private void evict(final String id) {
+        final var aKeys = List.of(
+                OAUTH2_AUTHORIZATIONS_VERSION_KEY_PREFIX.concat(id),
+                OAUTH2_AUTHORIZATIONS_EVICTED_KEY_PREFIX.concat(id),
+                OAUTH2_AUTHORIZATIONS_OBJECT_KEY_PREFIX.concat(id));
+        executeEvict(aKeys);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    executeEvict(aKeys);
+                }
+            });
+        }
+    }
+
+    private void executeEvict(final List<String> keys) {
+        this.redisTemplate.execute(
+                EVICT,
+                RedisSerializer.byteArray(),
+                new GenericToStringSerializer<>(Long.class),
+                keys,
+                ascii(Long.toString(VERSION_TTL.toMillis())),
+                ascii(Long.toString(EVICTED_TTL.toMillis())));
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<String> valueSerializer() {
+        return (RedisSerializer<String>) this.redisTemplate.getValueSerializer();
+    }
+
+    private static byte[] ascii(final String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static AuthorizationTokenCacheEntity findMatchedToken(
+            final AuthorizationCacheEntity entity,
+            final String token,
+            final OAuth2TokenType tokenType
+    ) {
+        return entity.getTokens().stream()
+                .filter(aTokenEntity -> token.equals(aTokenEntity.getValue()))
+                .filter(aTokenEntity -> tokenType == null || tokenType.getValue().equals(aTokenEntity.getTokenType()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static boolean isStateMatched(
+            final AuthorizationCacheEntity entity,
+            final String token,
+            final OAuth2TokenType tokenType
+    ) {
+        return (tokenType == null || OAuth2ParameterNames.STATE.equals(tokenType.getValue()))
+                && token.equals(entity.getState());
+    }
+
+    private AuthorizationCacheEntity toEntity(final OAuth2Authorization authorization) {
+        final var aTokens = new ArrayList<AuthorizationTokenCacheEntity>();
+
+        AuthorizationTokenTypes.TOKEN_TYPES.forEach((aTokenClass, aTokenType) -> {
+            final OAuth2Authorization.Token<? extends OAuth2Token> aToken = authorization.getToken(aTokenClass);
+            if (aToken == null) {
+                return;
+            }
+
+            aTokens.add(new AuthorizationTokenCacheEntity(
+                    aTokenType,
+                    aToken.getToken().getTokenValue(),
+                    aToken.getToken().getIssuedAt(),
+                    aToken.getToken().getExpiresAt(),
+                    this.codec.write(aToken.getMetadata()),
+                    aToken.getToken() instanceof OAuth2AccessToken aAccessToken && aAccessToken.getScopes() != null
+                            ? StringUtils.collectionToDelimitedString(aAccessToken.getScopes(), ",")
+                            : null,
+                    aToken.getToken() instanceof OidcIdToken ? this.codec.write(aToken.getClaims()) : null
+            ));
+        });
+
+        return new AuthorizationCacheEntity(
+                authorization.getId(),
+                authorization.getRegisteredClientId(),
+                authorization.getPrincipalName(),
+                authorization.getAuthorizationGrantType().getValue(),
+                StringUtils.collectionToDelimitedString(authorization.getAuthorizedScopes(), ","),
+                this.codec.write(authorization.getAttributes()),
+                authorization.getAttribute(OAuth2ParameterNames.STATE),
+                aTokens
+        );
+    }
+
+    private OAuth2Authorization toObject(final AuthorizationCacheEntity entity) {
+        final RegisteredClient aRegisteredClient = this.registeredClientRepository
+                .findById(entity.getRegisteredClientId());
+        if (aRegisteredClient == null) {
+            throw new DataRetrievalFailureException(
+                    "The RegisteredClient with id '" + entity.getRegisteredClientId() + "' was not found in the RegisteredClientRepository.");
+        }
+
+        final var aBuilder = new LazyAuthorizationBuilder(aRegisteredClient);
+        aBuilder.id(entity.getId())
+                .principalName(entity.getPrincipalName())
+                .authorizationGrantType(AuthorizationServiceRepositoryImpl
+                        .resolveAuthorizationGrantType(entity.getAuthorizationGrantType()))
+                .authorizedScopes(StringUtils.commaDelimitedListToSet(entity.getAuthorizedScopes()))
+                .attributes(attributes -> attributes.putAll(this.codec.read(entity.getAttributes())));
+
+        if (entity.getState() != null) {
+            aBuilder.attribute(OAuth2ParameterNames.STATE, entity.getState());
+        }
+
+        entity.getTokens().forEach(aTokenEntity -> {
+            final var aToken = AuthorizationTokenTypes.toToken(
+                    aTokenEntity.getTokenType(),
+                    aTokenEntity.getValue(),
+                    aTokenEntity.getIssuedAt(),
+                    aTokenEntity.getExpiresAt(),
+                    aTokenEntity.getScopes(),
+                    aTokenEntity.getClaims() != null ? this.codec.read(aTokenEntity.getClaims()) : null);
+
+            if (aToken != null) {
+                aBuilder.lazyToken(aToken, () -> this.codec.read(aTokenEntity.getMetadata()));
+            }
+        });
+
+        return aBuilder.build();
+    }
+}
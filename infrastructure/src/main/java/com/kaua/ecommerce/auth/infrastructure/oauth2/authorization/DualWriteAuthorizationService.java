@@ -0,0 +1,88 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization;
+
+import com.kaua.ecommerce.auth.domain.users.User;
+import com.kaua.ecommerce.auth.infrastructure.users.MfaSessionStore;
+import jakarta.persistence.EntityManager;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Optional;
+
+// enquanto os dois layouts existirem, todo save grava nos dois para a troca de auth-server.authorization.store
+// (e a volta) não invalidar os tokens emitidos depois do backfill. as leituras vão só no store configurado
+// e o remove também, o ON DELETE CASCADE das tabelas de token limpa o outro layout junto com authorizations
+public class DualWriteAuthorizationService implements OAuth2AuthorizationService {
+
+    private final OAuth2AuthorizationService primary;
+    private final OAuth2AuthorizationService secondary;
+    private final EntityManager entityManager;
+
+    public DualWriteAuthorizationService(
+            final OAuth2AuthorizationService primary,
+            final OAuth2AuthorizationService secondary,
+            final EntityManager entityManager
+    ) {
+        this.primary = Objects.requireNonNull(primary);
+        this.secondary = Objects.requireNonNull(secondary);
+        this.entityManager = Objects.requireNonNull(entityManager);
+    }
+
+    @Override
+    public void save(final OAuth2Authorization authorization) {
+        this.primary.save(authorization);
+        // os dois stores mapeiam a mesma linha de authorizations com entidades diferentes, sem o flush
+        // o secundário não enxerga o insert pendente do primário e tenta inserir a mesma linha
+        this.entityManager.flush();
+        this.secondary.save(authorization);
+    }
+
+    @Override
+    public void remove(final OAuth2Authorization authorization) {
+        this.primary.remove(authorization);
+    }
+
+    @Override
+    public OAuth2Authorization findById(final String id) {
+        return this.primary.findById(id);
+    }
+
+    @Override
+    public OAuth2Authorization findByToken(final String token, final OAuth2TokenType tokenType) {
+        return this.primary.findByToken(token, tokenType);
+    }
+
+    // o store secundário não avisa a sessão MFA, senão cada refresh token novo seria contado duas vezes
+    public static MfaSessionStore withoutTokenEvents(final MfaSessionStore mfaSessionStore) {
+        Objects.requireNonNull(mfaSessionStore);
+        return new MfaSessionStore() {
+            @Override
+            public Optional<Instant> findVerifiedUntil(final User user, final String authorizationId) {
+                return mfaSessionStore.findVerifiedUntil(user, authorizationId);
+            }
+
+            @Override
+            public void verify(final User user, final String authorizationId) {
+                mfaSessionStore.verify(user, authorizationId);
+            }
+
+            @Override
+            public void onRefreshTokenLookup(
+                    final String principalName,
+                    final String authorizationId,
+                    final Instant refreshTokenExpiresAt
+            ) {
+            }
+
+            @Override
+            public void onRefreshTokenIssued(
+                    final String principalName,
+                    final String authorizationId,
+                    final Instant refreshTokenExpiresAt
+            ) {
+            }
+        };
+    }
+}
@@ -0,0 +1,102 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization;
+
+import org.springframework.security.oauth2.core.OAuth2Token;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+// o builder padrão copia o metadata de cada token com putAll, o que obriga a decodificar todos os tokens.
+// aqui cada token recebe um mapa que só decodifica na primeira leitura, quem usa só o access token não paga pelos outros
+final class LazyAuthorizationBuilder extends OAuth2Authorization.Builder {
+
+    private final Map<Class<? extends OAuth2Token>, OAuth2Authorization.Token<?>> lazyTokens = new HashMap<>();
+
+    LazyAuthorizationBuilder(final RegisteredClient registeredClient) {
+        super(registeredClient.getId());
+    }
+
+    // substitui os tokens do builder, então não misturar com token(...) do builder padrão
+    <T extends OAuth2Token> LazyAuthorizationBuilder lazyToken(
+            final T token,
+            final Supplier<Map<String, Object>> metadataSupplier
+    ) {
+        this.lazyTokens.put(token.getClass(), new LazyToken<>(token, new LazyMetadata(metadataSupplier)));
+        tokens(this.lazyTokens);
+        return this;
+    }
+
+    private static final class LazyToken<T extends OAuth2Token> extends OAuth2Authorization.Token<T> {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private LazyToken(final T token, final Map<String, Object> metadata) {
+            super(token, metadata);
+        }
+    }
+
+    static final class LazyMetadata extends AbstractMap<String, Object> implements Serializable {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private transient Supplier<Map<String, Object>> metadataSupplier;
+        private volatile Map<String, Object> metadata;
+
+        LazyMetadata(final Supplier<Map<String, Object>> metadataSupplier) {
+            this.metadataSupplier = metadataSupplier;
+        }
+
+        boolean isLoaded() {
+            return this.metadata != null;
+        }
+
+        @Override
+        public Object get(final Object key) {
+            return load().get(key);
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return load().containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return load().size();
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return load().entrySet();
+        }
+
+        private Map<String, Object> load() {
+            var aMetadata = this.metadata;
+            if (aMetadata == null) {
+                synchronized (this) {
+                    aMetadata = this.metadata;
+                    if (aMetadata == null) {
+                        aMetadata = this.metadataSupplier.get();
+                        this.metadata = aMetadata;
+                        this.metadataSupplier = null;
+                    }
+                }
+            }
+            return aMetadata;
+        }
+
+        // o supplier não é serializável, então serializa o mapa já decodificado
+        @Serial
+        private Object writeReplace() {
+            return new HashMap<>(load());
+        }
+    }
+}
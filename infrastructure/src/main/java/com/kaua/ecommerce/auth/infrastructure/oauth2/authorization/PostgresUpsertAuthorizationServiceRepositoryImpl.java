@@ -0,0 +1,184 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization;
+
+import com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.persistence.AuthorizationJpaEntityRepository;
+import com.kaua.ecommerce.auth.infrastructure.users.MfaSessionStore;
+import com.kaua.ecommerce.auth.infrastructure.utils.TokenDigestUtils;
+import com.kaua.ecommerce.lib.domain.utils.IdentifierUtils;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.security.oauth2.core.*;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationCode;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.util.StringUtils;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+
+// grava a autorização e todos os tokens num único INSERT ... ON CONFLICT com CTEs, sem o findById antes.
+// depende de ON CONFLICT e de CTEs que escrevem, então só funciona no Postgres
+public class PostgresUpsertAuthorizationServiceRepositoryImpl extends AuthorizationServiceRepositoryImpl {
+
+    private static final List<TokenTable> TOKEN_TABLES = List.of(
+            new TokenTable(OAuth2AuthorizationCode.class, "authorization_codes", "code_value", "authorizationCode"),
+            new TokenTable(OAuth2AccessToken.class, "access_tokens", "token_value", "accessToken"),
+            new TokenTable(OAuth2RefreshToken.class, "refresh_tokens", "refresh_value", "refreshToken"),
+            new TokenTable(OidcIdToken.class, "oidc_id_tokens", "oidc_value", "oidcIdToken"),
+            new TokenTable(OAuth2UserCode.class, "user_codes", "user_code_value", "userCode"),
+            new TokenTable(OAuth2DeviceCode.class, "device_codes", "device_code_value", "deviceCode")
+    );
+
+    private static final String UPSERT_AUTHORIZATION = "WITH authorization_upsert AS (" +
+            "INSERT INTO authorizations (id, registered_client_id, principal_name, authorization_grant_type, " +
+            "authorized_scopes, attributes, attributes_bin, state, expires_at) " +
+            "VALUES (:id, :registeredClientId, :principalName, :authorizationGrantType, " +
+            ":authorizedScopes, :attributes, :attributesBin, :state, :expiresAt) " +
+            "ON CONFLICT (id) DO UPDATE SET registered_client_id = EXCLUDED.registered_client_id, " +
+            "principal_name = EXCLUDED.principal_name, " +
+            "authorization_grant_type = EXCLUDED.authorization_grant_type, " +
+            "authorized_scopes = EXCLUDED.authorized_scopes, " +
+            "attributes = EXCLUDED.attributes, " +
+            "attributes_bin = EXCLUDED.attributes_bin, " +
+            "state = EXCLUDED.state, " +
+            "expires_at = EXCLUDED.expires_at " +
+            "RETURNING id)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final MfaSessionStore mfaSessionStore;
+    private final AuthorizationDataCodec codec;
+
+    public PostgresUpsertAuthorizationServiceRepositoryImpl(
+            final AuthorizationJpaEntityRepository authorizationRepository,
+            final RegisteredClientRepository registeredClientRepository,
+            final MfaSessionStore mfaSessionStore,
+            final AuthorizationDataCodec codec,
+            final TokenShapeClassifier tokenShapeClassifier,
+            final boolean legacyValueLookup,
+            final NamedParameterJdbcTemplate jdbcTemplate
+    ) {
+        super(authorizationRepository, registeredClientRepository, mfaSessionStore, codec, tokenShapeClassifier,
+                legacyValueLookup);
+        this.jdbcTemplate = Objects.requireNonNull(jdbcTemplate);
+        this.mfaSessionStore = Objects.requireNonNull(mfaSessionStore);
+        this.codec = Objects.requireNonNull(codec);
+    }
+
+    @Override
+    public void save(final OAuth2Authorization authorization) {
+        final var aAttributes = this.codec.encode(authorization.getAttributes());
+        final var aParams = new MapSqlParameterSource()
+                .addValue("id", authorization.getId())
+                .addValue("registeredClientId", authorization.getRegisteredClientId())
+                .addValue("principalName", authorization.getPrincipalName())
+                .addValue("authorizationGrantType", authorization.getAuthorizationGrantType().getValue())
+                .addValue("authorizedScopes", StringUtils.collectionToDelimitedString(
+                        authorization.getAuthorizedScopes(), ","))
+                .addValue("attributes", aAttributes.text(), Types.VARCHAR)
+                .addValue("attributesBin", aAttributes.binary(), Types.BINARY)
+                .addValue("state", authorization.getAttribute(OAuth2ParameterNames.STATE), Types.VARCHAR)
+                .addValue("expiresAt", toTimestamp(AuthorizationTokenTypes.resolveExpiresAt(authorization)), Types.TIMESTAMP);
+
+        final var aSql = new StringBuilder(UPSERT_AUTHORIZATION);
+        var hasRefreshToken = false;
+
+        for (final var aTable : TOKEN_TABLES) {
+            final OAuth2Authorization.Token<? extends OAuth2Token> aToken = authorization.getToken(aTable.tokenClass());
+            if (aToken == null) {
+                continue;
+            }
+
+            appendTokenUpsert(aSql, aParams, aTable, aToken);
+            hasRefreshToken |= aToken.getToken() instanceof OAuth2RefreshToken;
+        }
+
+        aSql.append(hasRefreshToken
+                ? " SELECT inserted FROM refresh_tokens_upsert"
+                : " SELECT FALSE");
+
+        final var isRefreshTokenInserted = this.jdbcTemplate.queryForObject(aSql.toString(), aParams, Boolean.class);
+
+        if (Boolean.TRUE.equals(isRefreshTokenInserted)) {
+            this.mfaSessionStore.onRefreshTokenIssued(
+                    authorization.getPrincipalName(),
+                    authorization.getId(),
+                    authorization.getToken(OAuth2RefreshToken.class).getToken().getExpiresAt());
+        }
+    }
+
+    private void appendTokenUpsert(
+            final StringBuilder sql,
+            final MapSqlParameterSource params,
+            final TokenTable table,
+            final OAuth2Authorization.Token<? extends OAuth2Token> token
+    ) {
+        final var aPrefix = table.paramPrefix();
+        final var aExtraColumns = new LinkedHashMap<String, String>();
+        final var aMetadata = this.codec.encode(token.getMetadata());
+
+        params.addValue(aPrefix + "Id", IdentifierUtils.generateNewId())
+                .addValue(aPrefix + "Value", token.getToken().getTokenValue())
+                .addValue(aPrefix + "Digest", TokenDigestUtils.sha256(token.getToken().getTokenValue()), Types.BINARY)
+                .addValue(aPrefix + "IssuedAt", toTimestamp(token.getToken().getIssuedAt()), Types.TIMESTAMP)
+                .addValue(aPrefix + "ExpiresAt", toTimestamp(token.getToken().getExpiresAt()), Types.TIMESTAMP)
+                .addValue(aPrefix + "Metadata", aMetadata.text(), Types.VARCHAR)
+                .addValue(aPrefix + "MetadataBin", aMetadata.binary(), Types.BINARY);
+
+        if (token.getToken() instanceof OAuth2AccessToken aAccessToken) {
+            aExtraColumns.put("type", aPrefix + "Type");
+            aExtraColumns.put("scopes", aPrefix + "Scopes");
+            params.addValue(aPrefix + "Type", aAccessToken.getTokenType().getValue())
+                    .addValue(aPrefix + "Scopes", aAccessToken.getScopes() != null
+                            ? StringUtils.collectionToDelimitedString(aAccessToken.getScopes(), ",")
+                            : null, Types.VARCHAR);
+        }
+
+        if (token.getToken() instanceof OidcIdToken) {
+            final var aClaims = this.codec.encode(token.getClaims());
+            aExtraColumns.put("claims", aPrefix + "Claims");
+            aExtraColumns.put("claims_bin", aPrefix + "ClaimsBin");
+            params.addValue(aPrefix + "Claims", aClaims.text(), Types.VARCHAR)
+                    .addValue(aPrefix + "ClaimsBin", aClaims.binary(), Types.BINARY);
+        }
+
+        sql.append(", ").append(table.name()).append("_upsert AS (")
+                .append("INSERT INTO ").append(table.name())
+                .append(" (id, authorization_id, ").append(table.valueColumn())
+                .append(", token_digest, issued_at, expires_at, metadata, metadata_bin");
+        aExtraColumns.keySet().forEach(aColumn -> sql.append(", ").append(aColumn));
+
+        sql.append(") SELECT :").append(aPrefix).append("Id, id, :").append(aPrefix).append("Value, :")
+                .append(aPrefix).append("Digest, :").append(aPrefix).append("IssuedAt, :")
+                .append(aPrefix).append("ExpiresAt, :").append(aPrefix).append("Metadata, :")
+                .append(aPrefix).append("MetadataBin");
+        aExtraColumns.values().forEach(aParam -> sql.append(", :").append(aParam));
+
+        sql.append(" FROM authorization_upsert ON CONFLICT (authorization_id) DO UPDATE SET ")
+                .append(table.valueColumn()).append(" = EXCLUDED.").append(table.valueColumn())
+                .append(", token_digest = EXCLUDED.token_digest, issued_at = EXCLUDED.issued_at, ")
+                .append("expires_at = EXCLUDED.expires_at, metadata = EXCLUDED.metadata, ")
+                .append("metadata_bin = EXCLUDED.metadata_bin");
+        aExtraColumns.keySet().forEach(aColumn -> sql.append(", ")
+                .append(aColumn).append(" = EXCLUDED.").append(aColumn));
+
+        // xmax = 0 só é verdadeiro quando a linha foi inserida, e não atualizada pelo ON CONFLICT
+        sql.append(" RETURNING (xmax = 0) AS inserted)");
+    }
+
+    private static Timestamp toTimestamp(final Instant instant) {
+        return instant != null ? Timestamp.from(instant) : null;
+    }
+
+    private record TokenTable(
+            Class<? extends OAuth2Token> tokenClass,
+            String name,
+            String valueColumn,
+            String paramPrefix
+    ) {
+    }
+}
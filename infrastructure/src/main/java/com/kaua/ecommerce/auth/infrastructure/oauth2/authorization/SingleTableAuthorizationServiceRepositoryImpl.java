@@ -0,0 +1,226 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization;
+
+import com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.persistence.*;
+import com.kaua.ecommerce.auth.infrastructure.users.MfaSessionStore;
+import com.kaua.ecommerce.auth.infrastructure.utils.TokenDigestUtils;
+import com.kaua.ecommerce.lib.domain.utils.IdentifierUtils;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.security.oauth2.core.*;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+
+public class SingleTableAuthorizationServiceRepositoryImpl implements OAuth2AuthorizationService {
+
+    private final AuthorizationHeaderJpaEntityRepository authorizationHeaderRepository;
+    private final AuthorizationTokenJpaEntityRepository authorizationTokenRepository;
+    private final AuthorizationJpaEntityRepository authorizationRepository;
+    private final RegisteredClientRepository registeredClientRepository;
+    private final MfaSessionStore mfaSessionStore;
+    private final AuthorizationDataCodec codec;
+
+    public SingleTableAuthorizationServiceRepositoryImpl(
+            final AuthorizationHeaderJpaEntityRepository authorizationHeaderRepository,
+            final AuthorizationTokenJpaEntityRepository authorizationTokenRepository,
+            final AuthorizationJpaEntityRepository authorizationRepository,
+            final RegisteredClientRepository registeredClientRepository,
+            final MfaSessionStore mfaSessionStore,
+            final AuthorizationDataCodec codec
+    ) {
+        this.authorizationHeaderRepository = Objects.requireNonNull(authorizationHeaderRepository);
+        this.authorizationTokenRepository = Objects.requireNonNull(authorizationTokenRepository);
+        this.authorizationRepository = Objects.requireNonNull(authorizationRepository);
+        this.registeredClientRepository = Objects.requireNonNull(registeredClientRepository);
+        this.mfaSessionStore = Objects.requireNonNull(mfaSessionStore);
+        this.codec = Objects.requireNonNull(codec);
+    }
+
+    @Override
+    public void save(final OAuth2Authorization authorization) {
+        final var aHeaderEntity = this.authorizationHeaderRepository
+                .findById(authorization.getId())
+                .orElseGet(AuthorizationHeaderEntity::new);
+
+        aHeaderEntity.setId(authorization.getId());
+        aHeaderEntity.setRegisteredClientId(authorization.getRegisteredClientId());
+        aHeaderEntity.setPrincipalName(authorization.getPrincipalName());
+        aHeaderEntity.setAuthorizationGrantType(authorization.getAuthorizationGrantType().getValue());
+        aHeaderEntity.setAuthorizedScopes(StringUtils.collectionToDelimitedString(
+                authorization.getAuthorizedScopes(), ","));
+        final var aAttributes = this.codec.encode(authorization.getAttributes());
+        aHeaderEntity.setAttributes(aAttributes.text());
+        aHeaderEntity.setAttributesBin(aAttributes.binary());
+        aHeaderEntity.setState(authorization.getAttribute(OAuth2ParameterNames.STATE));
+        aHeaderEntity.setExpiresAt(AuthorizationTokenTypes.resolveExpiresAt(authorization));
+
+        this.authorizationHeaderRepository.save(aHeaderEntity);
+
+        final var aCurrentTokens = new HashMap<String, AuthorizationTokenEntity>();
+        this.authorizationTokenRepository.findAllByAuthorizationId(authorization.getId())
+                .forEach(aTokenEntity -> aCurrentTokens.put(aTokenEntity.getTokenType(), aTokenEntity));
+
+        final var aTokensToSave = new ArrayList<AuthorizationTokenEntity>();
+
+        final String aState = authorization.getAttribute(OAuth2ParameterNames.STATE);
+        if (aState != null) {
+            final var aStateEntity = resolveTokenEntity(aCurrentTokens, authorization.getId(), OAuth2ParameterNames.STATE);
+            aStateEntity.setTokenDigest(TokenDigestUtils.sha256(aState));
+            aStateEntity.setValue(aState);
+            aTokensToSave.add(aStateEntity);
+        }
+
+        AuthorizationTokenTypes.TOKEN_TYPES.forEach((aTokenClass, aTokenType) -> {
+            final OAuth2Authorization.Token<? extends OAuth2Token> aToken = authorization.getToken(aTokenClass);
+            if (aToken == null) {
+                return;
+            }
+
+            final var isNewToken = !aCurrentTokens.containsKey(aTokenType);
+            final var aTokenEntity = resolveTokenEntity(aCurrentTokens, authorization.getId(), aTokenType);
+            aTokenEntity.setTokenDigest(TokenDigestUtils.sha256(aToken.getToken().getTokenValue()));
+            aTokenEntity.setValue(aToken.getToken().getTokenValue());
+            aTokenEntity.setIssuedAt(aToken.getToken().getIssuedAt());
+            aTokenEntity.setExpiresAt(aToken.getToken().getExpiresAt());
+            final var aMetadata = this.codec.encode(aToken.getMetadata());
+            aTokenEntity.setMetadata(aMetadata.text());
+            aTokenEntity.setMetadataBin(aMetadata.binary());
+
+            if (aToken.getToken() instanceof OAuth2AccessToken aAccessToken && aAccessToken.getScopes() != null) {
+                aTokenEntity.setScopes(StringUtils.collectionToDelimitedString(aAccessToken.getScopes(), ","));
+            }
+
+            if (aToken.getToken() instanceof OidcIdToken) {
+                final var aClaims = this.codec.encode(aToken.getClaims());
+                aTokenEntity.setClaims(aClaims.text());
+                aTokenEntity.setClaimsBin(aClaims.binary());
+            }
+
+            if (isNewToken && aToken.getToken() instanceof OAuth2RefreshToken) {
+                this.mfaSessionStore.onRefreshTokenIssued(
+                        authorization.getPrincipalName(), authorization.getId(), aTokenEntity.getExpiresAt());
+            }
+
+            aTokensToSave.add(aTokenEntity);
+        });
+
+        this.authorizationTokenRepository.saveAll(aTokensToSave);
+    }
+
+    // remove pela entidade antiga para limpar também as linhas que ainda existem no layout com join
+    @Override
+    public void remove(final OAuth2Authorization authorization) {
+        this.authorizationTokenRepository.deleteAllByAuthorizationId(authorization.getId());
+        this.authorizationRepository.deleteById(authorization.getId());
+    }
+
+    @Override
+    public OAuth2Authorization findById(final String id) {
+        return this.authorizationHeaderRepository.findById(id)
+                .map(aHeaderEntity -> toObject(
+                        aHeaderEntity,
+                        this.authorizationTokenRepository.findAllByAuthorizationId(id)))
+                .orElse(null);
+    }
+
+    @Override
+    public OAuth2Authorization findByToken(final String token, final OAuth2TokenType tokenType) {
+        final var aTokenDigest = TokenDigestUtils.sha256(token);
+        final var aTokens = tokenType == null
+                ? this.authorizationTokenRepository.findAllOfAuthorizationByTokenDigest(aTokenDigest)
+                : this.authorizationTokenRepository.findAllOfAuthorizationByTokenDigestAndTokenType(
+                aTokenDigest, tokenType.getValue());
+
+        final var aMatchedToken = aTokens.stream()
+                .filter(aTokenEntity -> token.equals(aTokenEntity.getValue()))
+                .filter(aTokenEntity -> tokenType == null || tokenType.getValue().equals(aTokenEntity.getTokenType()))
+                .findFirst()
+                .orElse(null);
+
+        if (aMatchedToken == null) {
+            return null;
+        }
+
+        final var aHeaderEntity = this.authorizationHeaderRepository
+                .findById(aMatchedToken.getAuthorizationId())
+                .orElse(null);
+
+        if (aHeaderEntity == null) {
+            return null;
+        }
+
+        if (OAuth2ParameterNames.REFRESH_TOKEN.equals(aMatchedToken.getTokenType())) {
+            this.mfaSessionStore.onRefreshTokenLookup(
+                    aHeaderEntity.getPrincipalName(), aHeaderEntity.getId(), aMatchedToken.getExpiresAt());
+        }
+
+        return toObject(aHeaderEntity, aTokens.stream()
+                .filter(aTokenEntity -> aTokenEntity.getAuthorizationId().equals(aHeaderEntity.getId()))
+                .toList());
+    }
+
+    private AuthorizationTokenEntity resolveTokenEntity(
+            final Map<String, AuthorizationTokenEntity> currentTokens,
+            final String authorizationId,
+            final String tokenType
+    ) {
+        final var aTokenEntity = currentTokens.get(tokenType);
+        if (aTokenEntity != null) {
+            return aTokenEntity;
+        }
+
+        final var aNewTokenEntity = new AuthorizationTokenEntity();
+        aNewTokenEntity.setId(IdentifierUtils.generateNewId());
+        aNewTokenEntity.setAuthorizationId(authorizationId);
+        aNewTokenEntity.setTokenType(tokenType);
+        return aNewTokenEntity;
+    }
+
+    private OAuth2Authorization toObject(
+            final AuthorizationHeaderEntity entity,
+            final List<AuthorizationTokenEntity> tokens
+    ) {
+        RegisteredClient registeredClient = this.registeredClientRepository.findById(entity.getRegisteredClientId());
+        if (registeredClient == null) {
+            throw new DataRetrievalFailureException(
+                    "The RegisteredClient with id '" + entity.getRegisteredClientId() + "' was not found in the RegisteredClientRepository.");
+        }
+
+        final var builder = new LazyAuthorizationBuilder(registeredClient);
+        builder.id(entity.getId())
+                .principalName(entity.getPrincipalName())
+                .authorizationGrantType(AuthorizationServiceRepositoryImpl
+                        .resolveAuthorizationGrantType(entity.getAuthorizationGrantType()))
+                .authorizedScopes(StringUtils.commaDelimitedListToSet(entity.getAuthorizedScopes()))
+                .attributes(attributes -> attributes.putAll(this.codec.read(entity.getAttributes(), entity.getAttributesBin())));
+        if (entity.getState() != null) {
+            builder.attribute(OAuth2ParameterNames.STATE, entity.getState());
+        }
+
+        tokens.forEach(aTokenEntity -> {
+            final var aToken = AuthorizationTokenTypes.toToken(
+                    aTokenEntity.getTokenType(),
+                    aTokenEntity.getValue(),
+                    aTokenEntity.getIssuedAt(),
+                    aTokenEntity.getExpiresAt(),
+                    aTokenEntity.getScopes(),
+                    aTokenEntity.getClaims() != null || aTokenEntity.getClaimsBin() != null
+                            ? this.codec.read(aTokenEntity.getClaims(), aTokenEntity.getClaimsBin())
+                            : null);
+
+            if (aToken != null) {
+                final var aMetadata = aTokenEntity.getMetadata();
+                final var aMetadataBin = aTokenEntity.getMetadataBin();
+                builder.lazyToken(aToken, () -> this.codec.read(aMetadata, aMetadataBin));
+            }
+        });
+
+        return builder.build();
+    }
+}
@@ -0,0 +1,114 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.oidc.endpoint.OidcParameterNames;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// sem token_type_hint o findByToken fazia o OR nas sete tabelas. pelo formato do token dá para saber
+// qual consulta tipada tentar primeiro, o OR só roda quando nenhum palpite acerta
+public class TokenShapeClassifier {
+
+    // os geradores padrão do authorization server usam 96 bytes em base64url (128 caracteres). o corte fica em
+    // 32 caracteres (24 bytes) para aceitar geradores com menos entropia, abaixo disso não é token opaco nosso
+    private static final int MIN_OPAQUE_TOKEN_LENGTH = 32;
+    private static final String USER_CODE_CHARSET = "BCDFGHJKLMNPQRSTVWXZ";
+
+    private final Map<Shape, Map<Result, Counter>> counters = new EnumMap<>(Shape.class);
+
+    public TokenShapeClassifier(final MeterRegistry meterRegistry) {
+        for (final var aShape : Shape.values()) {
+            final var aCounters = new EnumMap<Result, Counter>(Result.class);
+            for (final var aResult : Result.values()) {
+                aCounters.put(aResult, Counter.builder("auth.authorizations.token.shape")
+                        .description("Untyped token lookups by detected shape and which query found the authorization")
+                        .tag("shape", aShape.name().toLowerCase(Locale.ROOT))
+                        .tag("result", aResult.name().toLowerCase(Locale.ROOT))
+                        .register(meterRegistry));
+            }
+            this.counters.put(aShape, aCounters);
+        }
+    }
+
+    Shape classify(final String token) {
+        if (isUserCode(token)) {
+            return Shape.USER_CODE;
+        }
+
+        if (token.length() < MIN_OPAQUE_TOKEN_LENGTH) {
+            return Shape.UNKNOWN;
+        }
+
+        var aDots = 0;
+        for (int i = 0; i < token.length(); i++) {
+            final var aChar = token.charAt(i);
+            if (aChar == '.') {
+                aDots++;
+            } else if (!isBase64Url(aChar)) {
+                return Shape.UNKNOWN;
+            }
+        }
+
+        if (aDots == 0) {
+            return Shape.OPAQUE;
+        }
+
+        // header de JWT sempre começa com {" que em base64url vira eyJ
+        return aDots == 2 && token.startsWith("eyJ") ? Shape.JWT : Shape.UNKNOWN;
+    }
+
+    void record(final Shape shape, final Result result) {
+        this.counters.get(shape).get(result).increment();
+    }
+
+    private static boolean isUserCode(final String token) {
+        if (token.length() != 9 || token.charAt(4) != '-') {
+            return false;
+        }
+
+        for (int i = 0; i < token.length(); i++) {
+            if (i != 4 && USER_CODE_CHARSET.indexOf(token.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isBase64Url(final char value) {
+        return (value >= 'A' && value <= 'Z')
+                || (value >= 'a' && value <= 'z')
+                || (value >= '0' && value <= '9')
+                || value == '-'
+                || value == '_';
+    }
+
+    enum Shape {
+        JWT(List.of(OAuth2ParameterNames.ACCESS_TOKEN, OidcParameterNames.ID_TOKEN)),
+        OPAQUE(List.of(OAuth2ParameterNames.REFRESH_TOKEN, OAuth2ParameterNames.CODE, OAuth2ParameterNames.DEVICE_CODE)),
+        USER_CODE(List.of(OAuth2ParameterNames.USER_CODE)),
+        UNKNOWN(List.of());
+
+        private final List<String> candidates;
+
+        Shape(final List<String> candidates) {
+            this.candidates = candidates;
+        }
+
+        // em ordem de probabilidade, o primeiro é o palpite principal
+        List<String> candidates() {
+            return candidates;
+        }
+    }
+
+    enum Result {
+        FIRST_GUESS,
+        OTHER_GUESS,
+        FALLBACK,
+        MISS
+    }
+}
@@ -0,0 +1,49 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization;
+
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Objects;
+
+// os stores e os decorators são criados com new na configuração e não passam pelo proxy do spring,
+// então a transação de cada chamada é aberta aqui, por fora de toda a cadeia (cache, dual-write e store).
+// o findByToken é de escrita porque o store pode gravar o digest de um token legado na leitura
+public class TransactionalAuthorizationService implements OAuth2AuthorizationService {
+
+    private final OAuth2AuthorizationService delegate;
+    private final TransactionTemplate writeTransaction;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public TransactionalAuthorizationService(
+            final OAuth2AuthorizationService delegate,
+            final PlatformTransactionManager transactionManager
+    ) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.writeTransaction = new TransactionTemplate(Objects.requireNonNull(transactionManager));
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Override
+    public void save(final OAuth2Authorization authorization) {
+        this.writeTransaction.executeWithoutResult(status -> this.delegate.save(authorization));
+    }
+
+    @Override
+    public void remove(final OAuth2Authorization authorization) {
+        this.writeTransaction.executeWithoutResult(status -> this.delegate.remove(authorization));
+    }
+
+    @Override
+    public OAuth2Authorization findById(final String id) {
+        return this.readOnlyTransaction.execute(status -> this.delegate.findById(id));
+    }
+
+    @Override
+    public OAuth2Authorization findByToken(final String token, final OAuth2TokenType tokenType) {
+        return this.writeTransaction.execute(status -> this.delegate.findByToken(token, tokenType));
+    }
+}
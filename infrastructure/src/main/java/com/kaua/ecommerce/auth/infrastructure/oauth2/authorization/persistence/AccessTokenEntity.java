@@ -18,6 +18,9 @@ public class AccessTokenEntity {
     @Column(name = "token_value", columnDefinition = "TEXT")
     private String value;
 
+    @Column(name = "token_digest")
+    private byte[] tokenDigest;
+
     @Column(name = "issued_at")
     private Instant issuedAt;
 
@@ -27,6 +30,9 @@ public class AccessTokenEntity {
     @Column(columnDefinition = "TEXT")
     private String metadata;
 
+    @Column(name = "metadata_bin")
+    private byte[] metadataBin;
+
     private String type;
 
     @Column(length = 1000)
@@ -39,18 +45,22 @@ public class AccessTokenEntity {
             final String id,
             final AuthorizationEntity authorization,
             final String value,
+            final byte[] tokenDigest,
             final Instant issuedAt,
             final Instant expiresAt,
             final String metadata,
+            final byte[] metadataBin,
             final String type,
             final String scopes
     ) {
         this.id = id;
         this.authorization = authorization;
         this.value = value;
+        this.tokenDigest = tokenDigest;
         this.issuedAt = issuedAt;
         this.expiresAt = expiresAt;
         this.metadata = metadata;
+        this.metadataBin = metadataBin;
         this.type = type;
         this.scopes = scopes;
     }
@@ -79,6 +89,14 @@ public class AccessTokenEntity {
         this.value = value;
     }
 
+    public byte[] getTokenDigest() {
+        return tokenDigest;
+    }
+
+    public void setTokenDigest(byte[] tokenDigest) {
+        this.tokenDigest = tokenDigest;
+    }
+
     public Instant getIssuedAt() {
         return issuedAt;
     }
@@ -103,6 +121,14 @@ public class AccessTokenEntity {
         this.metadata = metadata;
     }
 
+    public byte[] getMetadataBin() {
+        return metadataBin;
+    }
+
+    public void setMetadataBin(byte[] metadataBin) {
+        this.metadataBin = metadataBin;
+    }
+
     public String getType() {
         return type;
     }
@@ -2,10 +2,27 @@ package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.persistence;
 
 import jakarta.persistence.*;
 
+import java.time.Instant;
+
+// os one-to-one com mappedBy não viram proxy sem bytecode enhancement, então sem esse grafo
+// cada token carrega com um SELECT a mais
 @Entity
 @Table(name = "authorizations")
+@NamedEntityGraph(
+        name = AuthorizationEntity.TOKENS_GRAPH,
+        attributeNodes = {
+                @NamedAttributeNode("authorizationCode"),
+                @NamedAttributeNode("accessToken"),
+                @NamedAttributeNode("refreshToken"),
+                @NamedAttributeNode("oidcIdToken"),
+                @NamedAttributeNode("userCode"),
+                @NamedAttributeNode("deviceCode")
+        }
+)
 public class AuthorizationEntity {
 
+    public static final String TOKENS_GRAPH = "AuthorizationEntity.tokens";
+
     @Id
     private String id;
 
@@ -24,9 +41,15 @@ public class AuthorizationEntity {
     @Column(columnDefinition = "TEXT")
     private String attributes;
 
+    @Column(name = "attributes_bin")
+    private byte[] attributesBin;
+
     @Column(length = 500)
     private String state;
 
+    @Column(name = "expires_at")
+    private Instant expiresAt;
+
     @OneToOne(mappedBy = "authorization", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private AuthorizationCodeEntity authorizationCode;
 
@@ -55,7 +78,9 @@ public class AuthorizationEntity {
             final String authorizationGrantType,
             final String authorizedScopes,
             final String attributes,
+            final byte[] attributesBin,
             final String state,
+            final Instant expiresAt,
             final AuthorizationCodeEntity authorizationCode,
             final AccessTokenEntity accessToken,
             final RefreshTokenEntity refreshToken,
@@ -69,7 +94,9 @@ public class AuthorizationEntity {
         this.authorizationGrantType = authorizationGrantType;
         this.authorizedScopes = authorizedScopes;
         this.attributes = attributes;
+        this.attributesBin = attributesBin;
         this.state = state;
+        this.expiresAt = expiresAt;
         this.authorizationCode = authorizationCode;
         this.accessToken = accessToken;
         this.refreshToken = refreshToken;
@@ -126,6 +153,14 @@ public class AuthorizationEntity {
         this.attributes = attributes;
     }
 
+    public byte[] getAttributesBin() {
+        return attributesBin;
+    }
+
+    public void setAttributesBin(byte[] attributesBin) {
+        this.attributesBin = attributesBin;
+    }
+
     public String getState() {
         return state;
     }
@@ -134,6 +169,14 @@ public class AuthorizationEntity {
         this.state = state;
     }
 
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
     public AuthorizationCodeEntity getAuthorizationCode() {
         return authorizationCode;
     }
@@ -0,0 +1,135 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.persistence;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+// mesma tabela de AuthorizationEntity, sem os one-to-one inversos, usada pelo layout authorization_tokens
+@Entity
+@Table(name = "authorizations")
+public class AuthorizationHeaderEntity {
+
+    @Id
+    private String id;
+
+    @Column(name = "registered_client_id", nullable = false)
+    private String registeredClientId;
+
+    @Column(name = "principal_name", nullable = false)
+    private String principalName;
+
+    @Column(name = "authorization_grant_type", nullable = false)
+    private String authorizationGrantType;
+
+    @Column(name = "authorized_scopes", length = 1000)
+    private String authorizedScopes;
+
+    @Column(columnDefinition = "TEXT")
+    private String attributes;
+
+    @Column(name = "attributes_bin")
+    private byte[] attributesBin;
+
+    @Column(length = 500)
+    private String state;
+
+    @Column(name = "expires_at")
+    private Instant expiresAt;
+
+    public AuthorizationHeaderEntity() {
+    }
+
+    public AuthorizationHeaderEntity(
+            final String id,
+            final String registeredClientId,
+            final String principalName,
+            final String authorizationGrantType,
+            final String authorizedScopes,
+            final String attributes,
+            final byte[] attributesBin,
+            final String state,
+            final Instant expiresAt
+    ) {
+        this.id = id;
+        this.registeredClientId = registeredClientId;
+        this.principalName = principalName;
+        this.authorizationGrantType = authorizationGrantType;
+        this.authorizedScopes = authorizedScopes;
+        this.attributes = attributes;
+        this.attributesBin = attributesBin;
+        this.state = state;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getRegisteredClientId() {
+        return registeredClientId;
+    }
+
+    public void setRegisteredClientId(String registeredClientId) {
+        this.registeredClientId = registeredClientId;
+    }
+
+    public String getPrincipalName() {
+        return principalName;
+    }
+
+    public void setPrincipalName(String principalName) {
+        this.principalName = principalName;
+    }
+
+    public String getAuthorizationGrantType() {
+        return authorizationGrantType;
+    }
+
+    public void setAuthorizationGrantType(String authorizationGrantType) {
+        this.authorizationGrantType = authorizationGrantType;
+    }
+
+    public String getAuthorizedScopes() {
+        return authorizedScopes;
+    }
+
+    public void setAuthorizedScopes(String authorizedScopes) {
+        this.authorizedScopes = authorizedScopes;
+    }
+
+    public String getAttributes() {
+        return attributes;
+    }
+
+    public void setAttributes(String attributes) {
+        this.attributes = attributes;
+    }
+
+    public byte[] getAttributesBin() {
+        return attributesBin;
+    }
+
+    public void setAttributesBin(byte[] attributesBin) {
+        this.attributesBin = attributesBin;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,6 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.persistence;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface AuthorizationHeaderJpaEntityRepository extends JpaRepository<AuthorizationHeaderEntity, String> {
+}
@@ -1,5 +1,6 @@
 package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.persistence;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -8,26 +9,83 @@ import java.util.Optional;
 
 public interface AuthorizationJpaEntityRepository extends JpaRepository<AuthorizationEntity, String> {
 
+    @Override
+    @EntityGraph(AuthorizationEntity.TOKENS_GRAPH)
+    Optional<AuthorizationEntity> findById(String id);
+
+    @EntityGraph(AuthorizationEntity.TOKENS_GRAPH)
     Optional<AuthorizationEntity> findByState(String state);
 
+    @EntityGraph(AuthorizationEntity.TOKENS_GRAPH)
+    @Query("select a from AuthorizationEntity a join a.authorizationCode ac where ac.tokenDigest = :tokenDigest")
+    Optional<AuthorizationEntity> findByAuthorizationCodeDigest(@Param("tokenDigest") byte[] tokenDigest);
+
+    @EntityGraph(AuthorizationEntity.TOKENS_GRAPH)
+    @Query("select a from AuthorizationEntity a join a.accessToken at where at.tokenDigest = :tokenDigest")
+    Optional<AuthorizationEntity> findByAccessTokenDigest(@Param("tokenDigest") byte[] tokenDigest);
+
+    @EntityGraph(AuthorizationEntity.TOKENS_GRAPH)
+    @Query("select ae from AuthorizationEntity ae join ae.refreshToken rt where rt.tokenDigest = :tokenDigest")
+    Optional<AuthorizationEntity> findByRefreshTokenDigest(@Param("tokenDigest") byte[] tokenDigest);
+
+    @EntityGraph(AuthorizationEntity.TOKENS_GRAPH)
+    @Query("select a from AuthorizationEntity a join a.oidcIdToken oi where oi.tokenDigest = :tokenDigest")
+    Optional<AuthorizationEntity> findByOidcIdTokenDigest(@Param("tokenDigest") byte[] tokenDigest);
+
+    @EntityGraph(AuthorizationEntity.TOKENS_GRAPH)
+    @Query("select a from AuthorizationEntity a join a.userCode uc where uc.tokenDigest = :tokenDigest")
+    Optional<AuthorizationEntity> findByUserCodeDigest(@Param("tokenDigest") byte[] tokenDigest);
+
+    @EntityGraph(AuthorizationEntity.TOKENS_GRAPH)
+    @Query("select a from AuthorizationEntity a join a.deviceCode dc where dc.tokenDigest = :tokenDigest")
+    Optional<AuthorizationEntity> findByDeviceCodeDigest(@Param("tokenDigest") byte[] tokenDigest);
+
+    @EntityGraph(AuthorizationEntity.TOKENS_GRAPH)
+    @Query("select a from AuthorizationEntity a " +
+            "left join a.authorizationCode ac " +
+            "left join a.accessToken at " +
+            "left join a.refreshToken rt " +
+            "left join a.oidcIdToken oi " +
+            "left join a.userCode uc " +
+            "left join a.deviceCode dc " +
+            "where a.state = :token " +
+            "or ac.tokenDigest = :tokenDigest " +
+            "or at.tokenDigest = :tokenDigest " +
+            "or rt.tokenDigest = :tokenDigest " +
+            "or oi.tokenDigest = :tokenDigest " +
+            "or uc.tokenDigest = :tokenDigest " +
+            "or dc.tokenDigest = :tokenDigest")
+    Optional<AuthorizationEntity> findByStateOrTokenDigest(
+            @Param("token") String token,
+            @Param("tokenDigest") byte[] tokenDigest
+    );
+
+    // lookups pelo valor, só para as linhas gravadas por nós que ainda não preenchem o token_digest
+    @EntityGraph(AuthorizationEntity.TOKENS_GRAPH)
     @Query("select a from AuthorizationEntity a join a.authorizationCode ac where ac.value = :authorizationCode")
     Optional<AuthorizationEntity> findByAuthorizationCodeValue(@Param("authorizationCode") String authorizationCode);
 
+    @EntityGraph(AuthorizationEntity.TOKENS_GRAPH)
     @Query("select a from AuthorizationEntity a join a.accessToken at where at.value = :accessToken")
     Optional<AuthorizationEntity> findByAccessTokenValue(@Param("accessToken") String accessToken);
 
+    @EntityGraph(AuthorizationEntity.TOKENS_GRAPH)
     @Query("select ae from AuthorizationEntity ae join ae.refreshToken rt where rt.value = :refreshValue")
     Optional<AuthorizationEntity> findByRefreshTokenValue(@Param("refreshValue") String refreshValue);
 
+    @EntityGraph(AuthorizationEntity.TOKENS_GRAPH)
     @Query("select a from AuthorizationEntity a join a.oidcIdToken oi where oi.value = :idToken")
     Optional<AuthorizationEntity> findByOidcIdTokenValue(@Param("idToken") String idToken);
 
+    @EntityGraph(AuthorizationEntity.TOKENS_GRAPH)
     @Query("select a from AuthorizationEntity a join a.userCode uc where uc.value = :userCode")
     Optional<AuthorizationEntity> findByUserCodeValue(@Param("userCode") String userCode);
 
+    @EntityGraph(AuthorizationEntity.TOKENS_GRAPH)
     @Query("select a from AuthorizationEntity a join a.deviceCode dc where dc.value = :deviceCode")
     Optional<AuthorizationEntity> findByDeviceCodeValue(@Param("deviceCode") String deviceCode);
 
+    @EntityGraph(AuthorizationEntity.TOKENS_GRAPH)
     @Query("select a from AuthorizationEntity a " +
             "left join a.authorizationCode ac " +
             "left join a.accessToken at " +
@@ -42,5 +100,5 @@ public interface AuthorizationJpaEntityRepository extends JpaRepository<Authoriz
             "or oi.value = :token " +
             "or uc.value = :token " +
             "or dc.value = :token")
-    Optional<AuthorizationEntity> findByStateOrAuthorizationCodeValueOrAccessTokenValueOrRefreshTokenValueOrOidcIdTokenValueOrUserCodeValueOrDeviceCodeValue(@Param("token") String token);
+    Optional<AuthorizationEntity> findByStateOrTokenValue(@Param("token") String token);
 }
@@ -0,0 +1,173 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.persistence;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "authorization_tokens")
+public class AuthorizationTokenEntity {
+
+    @Id
+    private String id;
+
+    @Column(name = "authorization_id", nullable = false)
+    private String authorizationId;
+
+    @Column(name = "token_type", nullable = false, length = 32)
+    private String tokenType;
+
+    @Column(name = "token_digest", nullable = false)
+    private byte[] tokenDigest;
+
+    @Column(name = "token_value", nullable = false, columnDefinition = "TEXT")
+    private String value;
+
+    @Column(name = "issued_at")
+    private Instant issuedAt;
+
+    @Column(name = "expires_at")
+    private Instant expiresAt;
+
+    @Column(columnDefinition = "TEXT")
+    private String metadata;
+
+    @Column(name = "metadata_bin")
+    private byte[] metadataBin;
+
+    @Column(length = 1000)
+    private String scopes;
+
+    @Column(columnDefinition = "TEXT")
+    private String claims;
+
+    @Column(name = "claims_bin")
+    private byte[] claimsBin;
+
+    public AuthorizationTokenEntity() {
+    }
+
+    public AuthorizationTokenEntity(
+            final String id,
+            final String authorizationId,
+            final String tokenType,
+            final byte[] tokenDigest,
+            final String value,
+            final Instant issuedAt,
+            final Instant expiresAt,
+            final String metadata,
+            final byte[] metadataBin,
+            final String scopes,
+            final String claims,
+            final byte[] claimsBin
+    ) {
+        this.id = id;
+        this.authorizationId = authorizationId;
+        this.tokenType = tokenType;
+        this.tokenDigest = tokenDigest;
+        this.value = value;
+        this.issuedAt = issuedAt;
+        this.expiresAt = expiresAt;
+        this.metadata = metadata;
+        this.metadataBin = metadataBin;
+        this.scopes = scopes;
+        this.claims = claims;
+        this.claimsBin = claimsBin;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getAuthorizationId() {
+        return authorizationId;
+    }
+
+    public void setAuthorizationId(String authorizationId) {
+        this.authorizationId = authorizationId;
+    }
+
+    public String getTokenType() {
+        return tokenType;
+    }
+
+    public void setTokenType(String tokenType) {
+        this.tokenType = tokenType;
+    }
+
+    public byte[] getTokenDigest() {
+        return tokenDigest;
+    }
+
+    public void setTokenDigest(byte[] tokenDigest) {
+        this.tokenDigest = tokenDigest;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    public Instant getIssuedAt() {
+        return issuedAt;
+    }
+
+    public void setIssuedAt(Instant issuedAt) {
+        this.issuedAt = issuedAt;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public String getMetadata() {
+        return metadata;
+    }
+
+    public void setMetadata(String metadata) {
+        this.metadata = metadata;
+    }
+
+    public byte[] getMetadataBin() {
+        return metadataBin;
+    }
+
+    public void setMetadataBin(byte[] metadataBin) {
+        this.metadataBin = metadataBin;
+    }
+
+    public String getScopes() {
+        return scopes;
+    }
+
+    public void setScopes(String scopes) {
+        this.scopes = scopes;
+    }
+
+    public String getClaims() {
+        return claims;
+    }
+
+    public void setClaims(String claims) {
+        this.claims = claims;
+    }
+
+    public byte[] getClaimsBin() {
+        return claimsBin;
+    }
+
+    public void setClaimsBin(byte[] claimsBin) {
+        this.claimsBin = claimsBin;
+    }
+}
@@ -0,0 +1,29 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.persistence;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface AuthorizationTokenJpaEntityRepository extends JpaRepository<AuthorizationTokenEntity, String> {
+
+    List<AuthorizationTokenEntity> findAllByAuthorizationId(String authorizationId);
+
+    @Query("select t from AuthorizationTokenEntity t where t.authorizationId in " +
+            "(select d.authorizationId from AuthorizationTokenEntity d where d.tokenDigest = :tokenDigest)")
+    List<AuthorizationTokenEntity> findAllOfAuthorizationByTokenDigest(@Param("tokenDigest") byte[] tokenDigest);
+
+    @Query("select t from AuthorizationTokenEntity t where t.authorizationId in " +
+            "(select d.authorizationId from AuthorizationTokenEntity d " +
+            "where d.tokenDigest = :tokenDigest and d.tokenType = :tokenType)")
+    List<AuthorizationTokenEntity> findAllOfAuthorizationByTokenDigestAndTokenType(
+            @Param("tokenDigest") byte[] tokenDigest,
+            @Param("tokenType") String tokenType
+    );
+
+    @Modifying
+    @Query("delete from AuthorizationTokenEntity t where t.authorizationId = :authorizationId")
+    void deleteAllByAuthorizationId(@Param("authorizationId") String authorizationId);
+}
@@ -18,6 +18,9 @@ public class OidcIdTokenEntity {
     @Column(name = "oidc_value", columnDefinition = "TEXT")
     private String value;
 
+    @Column(name = "token_digest")
+    private byte[] tokenDigest;
+
     @Column(name = "issued_at", nullable = false)
     private Instant issuedAt;
 
@@ -27,9 +30,15 @@ public class OidcIdTokenEntity {
     @Column(columnDefinition = "TEXT")
     private String metadata;
 
+    @Column(name = "metadata_bin")
+    private byte[] metadataBin;
+
     @Column(columnDefinition = "TEXT")
     private String claims;
 
+    @Column(name = "claims_bin")
+    private byte[] claimsBin;
+
     public OidcIdTokenEntity() {
     }
 
@@ -37,18 +46,24 @@ public class OidcIdTokenEntity {
             final String id,
             final AuthorizationEntity authorization,
             final String value,
+            final byte[] tokenDigest,
             final Instant issuedAt,
             final Instant expiresAt,
             final String metadata,
-            final String claims
+            final byte[] metadataBin,
+            final String claims,
+            final byte[] claimsBin
     ) {
         this.id = id;
         this.authorization = authorization;
         this.value = value;
+        this.tokenDigest = tokenDigest;
         this.issuedAt = issuedAt;
         this.expiresAt = expiresAt;
         this.metadata = metadata;
+        this.metadataBin = metadataBin;
         this.claims = claims;
+        this.claimsBin = claimsBin;
     }
 
     public String getId() {
@@ -75,6 +90,14 @@ public class OidcIdTokenEntity {
         this.value = value;
     }
 
+    public byte[] getTokenDigest() {
+        return tokenDigest;
+    }
+
+    public void setTokenDigest(byte[] tokenDigest) {
+        this.tokenDigest = tokenDigest;
+    }
+
     public Instant getIssuedAt() {
         return issuedAt;
     }
@@ -99,6 +122,14 @@ public class OidcIdTokenEntity {
         this.metadata = metadata;
     }
 
+    public byte[] getMetadataBin() {
+        return metadataBin;
+    }
+
+    public void setMetadataBin(byte[] metadataBin) {
+        this.metadataBin = metadataBin;
+    }
+
     public String getClaims() {
         return claims;
     }
@@ -106,4 +137,12 @@ public class OidcIdTokenEntity {
     public void setClaims(String claims) {
         this.claims = claims;
     }
+
+    public byte[] getClaimsBin() {
+        return claimsBin;
+    }
+
+    public void setClaimsBin(byte[] claimsBin) {
+        this.claimsBin = claimsBin;
+    }
 }
@@ -18,6 +18,9 @@ public class RefreshTokenEntity {
     @Column(name = "refresh_value", columnDefinition = "TEXT")
     private String value;
 
+    @Column(name = "token_digest")
+    private byte[] tokenDigest;
+
     @Column(name = "issued_at", nullable = false)
     private Instant issuedAt;
 
@@ -27,6 +30,9 @@ public class RefreshTokenEntity {
     @Column(columnDefinition = "TEXT")
     private String metadata;
 
+    @Column(name = "metadata_bin")
+    private byte[] metadataBin;
+
     public RefreshTokenEntity() {
     }
 
@@ -34,16 +40,20 @@ public class RefreshTokenEntity {
             final String id,
             final AuthorizationEntity authorization,
             final String value,
+            final byte[] tokenDigest,
             final Instant issuedAt,
             final Instant expiresAt,
-            final String metadata
+            final String metadata,
+            final byte[] metadataBin
     ) {
         this.id = id;
         this.authorization = authorization;
         this.value = value;
+        this.tokenDigest = tokenDigest;
         this.issuedAt = issuedAt;
         this.expiresAt = expiresAt;
         this.metadata = metadata;
+        this.metadataBin = metadataBin;
     }
 
     public String getId() {
@@ -70,6 +80,14 @@ public class RefreshTokenEntity {
         this.value = value;
     }
 
+    public byte[] getTokenDigest() {
+        return tokenDigest;
+    }
+
+    public void setTokenDigest(byte[] tokenDigest) {
+        this.tokenDigest = tokenDigest;
+    }
+
     public Instant getIssuedAt() {
         return issuedAt;
     }
@@ -93,4 +111,12 @@ public class RefreshTokenEntity {
     public void setMetadata(String metadata) {
         this.metadata = metadata;
     }
+
+    public byte[] getMetadataBin() {
+        return metadataBin;
+    }
+
+    public void setMetadataBin(byte[] metadataBin) {
+        this.metadataBin = metadataBin;
+    }
 }
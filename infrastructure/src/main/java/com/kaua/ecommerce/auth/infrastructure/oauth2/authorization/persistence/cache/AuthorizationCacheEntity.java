@@ -0,0 +1,107 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.persistence.cache;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+public class AuthorizationCacheEntity implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = -2417386390147415362L;
+
+    private String id;
+    private String registeredClientId;
+    private String principalName;
+    private String authorizationGrantType;
+    private String authorizedScopes;
+    private String attributes;
+    private String state;
+    private List<AuthorizationTokenCacheEntity> tokens;
+
+    public AuthorizationCacheEntity() {
+    }
+
+    public AuthorizationCacheEntity(
+            final String id,
+            final String registeredClientId,
+            final String principalName,
+            final String authorizationGrantType,
+            final String authorizedScopes,
+            final String attributes,
+            final String state,
+            final List<AuthorizationTokenCacheEntity> tokens
+    ) {
+        this.id = id;
+        this.registeredClientId = registeredClientId;
+        this.principalName = principalName;
+        this.authorizationGrantType = authorizationGrantType;
+        this.authorizedScopes = authorizedScopes;
+        this.attributes = attributes;
+        this.state = state;
+        this.tokens = tokens;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getRegisteredClientId() {
+        return registeredClientId;
+    }
+
+    public void setRegisteredClientId(String registeredClientId) {
+        this.registeredClientId = registeredClientId;
+    }
+
+    public String getPrincipalName() {
+        return principalName;
+    }
+
+    public void setPrincipalName(String principalName) {
+        this.principalName = principalName;
+    }
+
+    public String getAuthorizationGrantType() {
+        return authorizationGrantType;
+    }
+
+    public void setAuthorizationGrantType(String authorizationGrantType) {
+        this.authorizationGrantType = authorizationGrantType;
+    }
+
+    public String getAuthorizedScopes() {
+        return authorizedScopes;
+    }
+
+    public void setAuthorizedScopes(String authorizedScopes) {
+        this.authorizedScopes = authorizedScopes;
+    }
+
+    public String getAttributes() {
+        return attributes;
+    }
+
+    public void setAttributes(String attributes) {
+        this.attributes = attributes;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public List<AuthorizationTokenCacheEntity> getTokens() {
+        return tokens;
+    }
+
+    public void setTokens(List<AuthorizationTokenCacheEntity> tokens) {
+        this.tokens = tokens;
+    }
+}
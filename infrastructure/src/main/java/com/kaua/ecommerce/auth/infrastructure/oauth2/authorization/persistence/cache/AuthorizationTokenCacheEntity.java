@@ -0,0 +1,96 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.persistence.cache;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.Instant;
+
+public class AuthorizationTokenCacheEntity implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 5309183620157233807L;
+
+    private String tokenType;
+    private String value;
+    private Instant issuedAt;
+    private Instant expiresAt;
+    private String metadata;
+    private String scopes;
+    private String claims;
+
+    public AuthorizationTokenCacheEntity() {
+    }
+
+    public AuthorizationTokenCacheEntity(
+            final String tokenType,
+            final String value,
+            final Instant issuedAt,
+            final Instant expiresAt,
+            final String metadata,
+            final String scopes,
+            final String claims
+    ) {
+        this.tokenType = tokenType;
+        this.value = value;
+        this.issuedAt = issuedAt;
+        this.expiresAt = expiresAt;
+        this.metadata = metadata;
+        this.scopes = scopes;
+        this.claims = claims;
+    }
+
+    public String getTokenType() {
+        return tokenType;
+    }
+
+    public void setTokenType(String tokenType) {
+        this.tokenType = tokenType;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    public Instant getIssuedAt() {
+        return issuedAt;
+    }
+
+    public void setIssuedAt(Instant issuedAt) {
+        this.issuedAt = issuedAt;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public String getMetadata() {
+        return metadata;
+    }
+
+    public void setMetadata(String metadata) {
+        this.metadata = metadata;
+    }
+
+    public String getScopes() {
+        return scopes;
+    }
+
+    public void setScopes(String scopes) {
+        this.scopes = scopes;
+    }
+
+    public String getClaims() {
+        return claims;
+    }
+
+    public void setClaims(String claims) {
+        this.claims = claims;
+    }
+}
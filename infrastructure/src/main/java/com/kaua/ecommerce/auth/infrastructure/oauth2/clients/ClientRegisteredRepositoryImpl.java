@@ -1,5 +1,7 @@
 package com.kaua.ecommerce.auth.infrastructure.oauth2.clients;
 
+import com.kaua.ecommerce.auth.infrastructure.cache.RedisCacheAccessor;
+import com.kaua.ecommerce.auth.infrastructure.cache.SingleFlight;
 import com.kaua.ecommerce.auth.infrastructure.configurations.json.Json;
 import com.kaua.ecommerce.auth.infrastructure.oauth2.clients.persistence.ClientEntity;
 import com.kaua.ecommerce.auth.infrastructure.oauth2.clients.persistence.ClientJpaEntityRepository;
@@ -12,9 +14,11 @@ import org.springframework.security.oauth2.server.authorization.client.Registere
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 @Component
@@ -28,18 +32,21 @@ public class ClientRegisteredRepositoryImpl implements RegisteredClientRepositor
     private static final String OAUTH2_CLIENTS_REF_KEY_ID = "id:";
     private static final String OAUTH2_CLIENTS_REF_KEY_CLIENT_ID = "clientId:";
 
-    private static final long EXPIRATION_TIME = 5; // 5 days
-    private static final TimeUnit EXPIRATION_TIME_UNIT = TimeUnit.DAYS;
+    private static final Duration EXPIRATION = Duration.ofDays(5);
+
+    // a referência guarda a chave inteira do objeto, não há prefixo a completar
+    private static final String OBJECT_KEY_FROM_REFERENCE = "";
 
     private final ClientJpaEntityRepository clientJpaEntityRepository;
-    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisCacheAccessor cache;
+    private final SingleFlight<String, Optional<ClientEntity>> loads = new SingleFlight<>();
 
     public ClientRegisteredRepositoryImpl(
             final ClientJpaEntityRepository clientJpaEntityRepository,
             final RedisTemplate<String, String> redisTemplate
     ) {
         this.clientJpaEntityRepository = Objects.requireNonNull(clientJpaEntityRepository);
-        this.redisTemplate = Objects.requireNonNull(redisTemplate);
+        this.cache = new RedisCacheAccessor(redisTemplate, EXPIRATION);
     }
 
     @Override
@@ -66,54 +73,57 @@ public class ClientRegisteredRepositoryImpl implements RegisteredClientRepositor
         return this.findClientByRefKey(aRefKey, () -> this.clientJpaEntityRepository.findByClientId(clientId));
     }
 
+    // a tabela de clients é pequena, vai inteira numa consulta e num pipeline
+    @Transactional(readOnly = true)
+    public int preloadAll() {
+        final var aClients = this.clientJpaEntityRepository.findAllWithDetails();
+        final var aEntries = new HashMap<String, String>(aClients.size() * 6);
+        aClients.forEach(it -> aEntries.putAll(cacheEntries(it)));
+
+        this.cache.setAll(aEntries);
+        return aClients.size();
+    }
+
     private RegisteredClient findClientByRefKey(
             final String refKey,
             final Supplier<Optional<ClientEntity>> repositoryFinder
     ) {
-        final var aActualKey = this.redisTemplate.opsForValue().get(refKey);
+        final var aCachedClientJson = this.cache.getByReference(refKey, OBJECT_KEY_FROM_REFERENCE);
 
-        if (aActualKey != null) {
-            final var aClientJson = this.redisTemplate.opsForValue().get(aActualKey);
-
-            if (aClientJson != null) {
-                log.debug("Client found in Redis using key {}", refKey);
-                final var aClient = Json.readValue(aClientJson, ClientEntity.class);
-                return ClientEntity.fromClient(aClient);
-            }
+        if (aCachedClientJson != null) {
+            log.debug("Client found in Redis using key {}", refKey);
+            final var aClient = Json.readValue(aCachedClientJson, ClientEntity.class);
+            return ClientEntity.fromClient(aClient);
         }
 
-        return repositoryFinder.get()
+        // o client é lido em todo pedido de token, uma expiração não pode virar uma consulta por requisição
+        return this.loads.load(refKey, () -> repositoryFinder.get()
                 .map(it -> {
-                    final var aClientJson = Json.writeValueAsString(it);
-                    final var aObjectKey = OAUTH2_CLIENTS_OBJECT_KEY_PREFIX + it.getId();
-
-                    // save client object with key
-                    this.redisTemplate.opsForValue().set(aObjectKey, aClientJson);
-
-                    final var aIdRefKey = OAUTH2_CLIENTS_REF_KEY_PREFIX
-                            .concat(OAUTH2_CLIENTS_REF_KEY_ID)
-                            .concat(it.getId());
-
-                    final var aClientIdRefKey = OAUTH2_CLIENTS_REF_KEY_PREFIX
-                            .concat(OAUTH2_CLIENTS_REF_KEY_CLIENT_ID)
-                            .concat(it.getClientId());
+                    // objeto e as duas referências num único pipeline, todos com TTL
+                    this.cache.setAll(cacheEntries(it));
+                    return it;
+                }))
+                .map(ClientEntity::fromClient)
+                .orElseThrow(NotFoundException.with("OAuth2Client", getIdFromRefKey(refKey)));
+    }
 
-                    // save id ref key
-                    this.redisTemplate.opsForValue()
-                            .set(aIdRefKey, aObjectKey);
+    private static Map<String, String> cacheEntries(final ClientEntity client) {
+        final var aClientJson = Json.writeValueAsString(client);
+        final var aObjectKey = OAUTH2_CLIENTS_OBJECT_KEY_PREFIX + client.getId();
 
-                    // save clientId ref key
-                    this.redisTemplate.opsForValue()
-                            .set(aClientIdRefKey, aObjectKey);
+        final var aIdRefKey = OAUTH2_CLIENTS_REF_KEY_PREFIX
+                .concat(OAUTH2_CLIENTS_REF_KEY_ID)
+                .concat(client.getId());
 
-                    this.redisTemplate.expire(aObjectKey, EXPIRATION_TIME, EXPIRATION_TIME_UNIT);
-                    this.redisTemplate.expire(aIdRefKey, EXPIRATION_TIME, EXPIRATION_TIME_UNIT);
-                    this.redisTemplate.expire(aClientIdRefKey, EXPIRATION_TIME, EXPIRATION_TIME_UNIT);
+        final var aClientIdRefKey = OAUTH2_CLIENTS_REF_KEY_PREFIX
+                .concat(OAUTH2_CLIENTS_REF_KEY_CLIENT_ID)
+                .concat(client.getClientId());
 
-                    return it;
-                })
-                .map(ClientEntity::fromClient)
-                .orElseThrow(NotFoundException.with("OAuth2Client", getIdFromRefKey(refKey)));
+        return Map.of(
+                aObjectKey, aClientJson,
+                aIdRefKey, aObjectKey,
+                aClientIdRefKey, aObjectKey
+        );
     }
 
     private String getIdFromRefKey(final String refKey) {
@@ -4,6 +4,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface ClientJpaEntityRepository extends JpaRepository<ClientEntity, String> {
@@ -19,4 +20,13 @@ public interface ClientJpaEntityRepository extends JpaRepository<ClientEntity, S
     Optional<ClientEntity> findByClientId(@Param("clientId") String clientId);
 
     boolean existsByClientId(String clientId);
+
+    @Query("SELECT DISTINCT c FROM ClientEntity c " +
+            "LEFT JOIN FETCH c.authenticationMethods " +
+            "LEFT JOIN FETCH c.grantTypes " +
+            "LEFT JOIN FETCH c.redirectUrls " +
+            "LEFT JOIN FETCH c.scopes " +
+            "LEFT JOIN FETCH c.clientTokenSettings " +
+            "LEFT JOIN FETCH c.clientSettings")
+    List<ClientEntity> findAllWithDetails();
 }
@@ -3,6 +3,7 @@ package com.kaua.ecommerce.auth.infrastructure.oauth2.grants.mfa;
 import com.kaua.ecommerce.auth.application.repositories.UserRepository;
 import com.kaua.ecommerce.auth.domain.users.User;
 import com.kaua.ecommerce.auth.infrastructure.oauth2.grants.utils.CustomTokenClaimsUtils;
+import com.kaua.ecommerce.auth.infrastructure.users.MfaSessionStore;
 import com.kaua.ecommerce.lib.domain.exceptions.NotFoundException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -10,6 +11,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -22,6 +24,9 @@ import java.util.UUID;
 
 public class MfaAuthenticationFilter extends OncePerRequestFilter {
 
+    // marca o request cujo OTP já foi aceito aqui, o confirm do device não pode conferir o mesmo código de novo
+    public static final String OTP_VERIFIED_ATTRIBUTE = MfaAuthenticationFilter.class.getName() + ".OTP_VERIFIED";
+
     private static final Logger log = LoggerFactory.getLogger(MfaAuthenticationFilter.class);
 
     private static final String MFA_URI_CREATE = "/mfa";
@@ -35,16 +40,24 @@ public class MfaAuthenticationFilter extends OncePerRequestFilter {
     private static final String NO_OTP_CODE = "NO-OTP-CODE";
     private static final String DEVICE_NOT_VERIFIED = "DEVICE-NOT-VERIFIED";
     private static final String MFA_NOT_VERIFIED = "MFA-NOT-VERIFIED";
+    private static final String TOO_MANY_ATTEMPTS = "TOO-MANY-ATTEMPTS";
+    private static final String RETRY_AFTER_HEADER_NAME = "Retry-After";
 
     private final AuthenticationManager manager;
     private final UserRepository userRepository;
+    private final MfaSessionStore mfaSessionStore;
+    private final OtpAttemptLimiter otpAttemptLimiter;
 
     public MfaAuthenticationFilter(
             final AuthenticationManager manager,
-            final UserRepository userRepository
+            final UserRepository userRepository,
+            final MfaSessionStore mfaSessionStore,
+            final OtpAttemptLimiter otpAttemptLimiter
     ) {
         this.manager = Objects.requireNonNull(manager);
         this.userRepository = Objects.requireNonNull(userRepository);
+        this.mfaSessionStore = Objects.requireNonNull(mfaSessionStore);
+        this.otpAttemptLimiter = Objects.requireNonNull(otpAttemptLimiter);
     }
 
     @Override
@@ -78,6 +91,12 @@ public class MfaAuthenticationFilter extends OncePerRequestFilter {
                 return;
             }
 
+            if (MfaTokenClaims.isAssured(aToken)) {
+                log.debug("MFA Authentication Filter - MFA assured by token claims");
+                filterChain.doFilter(request, response);
+                return;
+            }
+
             final var aUser = this.userRepository
                     .findById(UUID.fromString(aInitial.getName()))
                     .orElseThrow(NotFoundException.with(User.class, aInitial.getName()));
@@ -90,7 +109,7 @@ public class MfaAuthenticationFilter extends OncePerRequestFilter {
                 return;
             }
 
-            if (aUserMfa.isValid()) {
+            if (this.mfaSessionStore.isVerified(aUser, aToken.getClaimAsString(CustomTokenClaimsUtils.AUTHORIZATION_ID))) {
                 log.debug("MFA Authentication Filter - MFA already verified");
                 filterChain.doFilter(request, response);
                 return;
@@ -134,9 +153,20 @@ public class MfaAuthenticationFilter extends OncePerRequestFilter {
                 return;
             }
 
+            // antes do provider, que carrega o usuário de novo e decifra o secret
+            if (!this.otpAttemptLimiter.tryAcquire(aInitial.getName())) {
+                log.debug("MFA Authentication Filter - Too many OTP attempts");
+                response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                response.setHeader(RETRY_AFTER_HEADER_NAME, String.valueOf(this.otpAttemptLimiter.retryAfterSeconds()));
+                response.setHeader(MFA_ERROR_OTP, TOO_MANY_ATTEMPTS);
+                return;
+            }
+
             try {
                 final var aAuth = this.manager.authenticate(aOtp);
                 SecurityContextHolder.getContext().setAuthentication(aAuth);
+                this.otpAttemptLimiter.onSuccess(aInitial.getName());
+                request.setAttribute(OTP_VERIFIED_ATTRIBUTE, Boolean.TRUE);
                 log.debug("MFA Authentication Filter - MFA verified");
             } catch (Exception e) {
                 log.debug("MFA Authentication Filter - Error verifying MFA", e);
@@ -4,11 +4,14 @@ import com.kaua.ecommerce.auth.application.gateways.MfaGateway;
 import com.kaua.ecommerce.auth.application.repositories.UserRepository;
 import com.kaua.ecommerce.auth.domain.users.User;
 import com.kaua.ecommerce.auth.domain.users.mfas.UserMfaType;
+import com.kaua.ecommerce.auth.infrastructure.oauth2.grants.utils.CustomTokenClaimsUtils;
+import com.kaua.ecommerce.auth.infrastructure.users.MfaSessionStore;
 import com.kaua.ecommerce.lib.domain.exceptions.NotFoundException;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.jwt.Jwt;
 
 import java.util.Objects;
 import java.util.UUID;
@@ -17,13 +20,16 @@ public class MfaAuthenticationProvider implements AuthenticationProvider {
 
     private final UserRepository userRepository;
     private final MfaGateway mfaGateway;
+    private final MfaSessionStore mfaSessionStore;
 
     public MfaAuthenticationProvider(
             final UserRepository userRepository,
-            final MfaGateway mfaGateway
+            final MfaGateway mfaGateway,
+            final MfaSessionStore mfaSessionStore
     ) {
         this.userRepository = Objects.requireNonNull(userRepository);
         this.mfaGateway = Objects.requireNonNull(mfaGateway);
+        this.mfaSessionStore = Objects.requireNonNull(mfaSessionStore);
     }
 
     @Override
@@ -32,15 +38,17 @@ public class MfaAuthenticationProvider implements AuthenticationProvider {
         final var aUser = this.userRepository.findById(UUID.fromString(aAuth.getName()))
                 .orElseThrow(NotFoundException.with(User.class, aAuth.getName()));
         final var aUserMfa = aUser.getMfa();
+        final var aAuthorizationId = aAuth.initial().getCredentials() instanceof Jwt aJwt
+                ? aJwt.getClaimAsString(CustomTokenClaimsUtils.AUTHORIZATION_ID)
+                : null;
 
-        if (aUserMfa.isMfaEnabled() && !aUserMfa.isValid()) {
+        if (aUserMfa.isMfaEnabled() && !this.mfaSessionStore.isVerified(aUser, aAuthorizationId)) {
             switch (aUserMfa.getMfaType().get()) {
                 case TOTP, EMAIL -> {
                     if (!this.mfaGateway.accepts(UserMfaType.TOTP, aAuth.code(), aUserMfa.getMfaSecret().get())) {
                         throw new BadCredentialsException("Invalid MFA code");
                     }
-                    aUserMfa.verifyMfa();
-                    this.userRepository.save(aUser);
+                    this.mfaSessionStore.verify(aUser, aAuthorizationId);
                 }
             }
         }
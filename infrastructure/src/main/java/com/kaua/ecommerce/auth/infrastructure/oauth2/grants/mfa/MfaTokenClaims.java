@@ -0,0 +1,47 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.grants.mfa;
+
+import com.kaua.ecommerce.auth.domain.users.mfas.UserMfa;
+import com.kaua.ecommerce.auth.infrastructure.oauth2.grants.utils.CustomTokenClaimsUtils;
+import com.kaua.ecommerce.lib.domain.utils.InstantUtils;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+// mfa_valid_until só vai no access token quando nenhuma verificação é necessária até lá.
+// sem o claim (ou vencido) o filtro volta a consultar o usuário
+public final class MfaTokenClaims {
+
+    private static final String AMR_PASSWORD = "pwd";
+    private static final String AMR_OTP = "otp";
+    private static final String AMR_MFA = "mfa";
+
+    private MfaTokenClaims() {}
+
+    public static void stamp(
+            final JwtClaimsSet.Builder claims,
+            final UserMfa mfa,
+            final Optional<Instant> verifiedUntil,
+            final Instant tokenExpiresAt
+    ) {
+        // MFA desligado vale pelo token inteiro, quem ligar o MFA depois só é cobrado no próximo token
+        if (!mfa.isMfaEnabled()) {
+            claims.claim(CustomTokenClaimsUtils.AMR, List.of(AMR_PASSWORD))
+                    .claim(CustomTokenClaimsUtils.MFA_VALID_UNTIL, tokenExpiresAt);
+            return;
+        }
+
+        verifiedUntil.ifPresentOrElse(
+                it -> claims.claim(CustomTokenClaimsUtils.AMR, List.of(AMR_PASSWORD, AMR_OTP, AMR_MFA))
+                        .claim(CustomTokenClaimsUtils.MFA_VALID_UNTIL, it),
+                () -> claims.claim(CustomTokenClaimsUtils.AMR, List.of(AMR_PASSWORD))
+        );
+    }
+
+    public static boolean isAssured(final Jwt token) {
+        final var aValidUntil = token.getClaimAsInstant(CustomTokenClaimsUtils.MFA_VALID_UNTIL);
+        return aValidUntil != null && InstantUtils.now().isBefore(aValidUntil);
+    }
+}
@@ -0,0 +1,211 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.grants.mfa;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// limita as tentativas de OTP por usuário antes do provider carregar o usuário e decifrar o secret.
+// cada nó conta numa janela deslizante local (duas janelas fixas ponderadas) e rejeita sem sair da memória.
+// o sync periódico soma as tentativas do nó no redis e traz o total do cluster, o orçamento do cluster
+// é por janela fixa e só é visto depois de um sync
+@Component
+public class OtpAttemptLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(OtpAttemptLimiter.class);
+
+    private static final String ATTEMPTS_KEY = "mfa:attempts:";
+
+    private final Map<String, AttemptWindow> windows = new ConcurrentHashMap<>();
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final int maxAttempts;
+    private final int clusterMaxAttempts;
+    private final long windowMillis;
+    private final LongSupplier clock;
+    private final Counter localRejectedCounter;
+    private final Counter clusterRejectedCounter;
+
+    public OtpAttemptLimiter(
+            final RedisTemplate<String, String> redisTemplate,
+            final MeterRegistry meterRegistry,
+            @Value("${auth-server.mfa.attempts.max:5}") final int maxAttempts,
+            @Value("${auth-server.mfa.attempts.cluster-max:10}") final int clusterMaxAttempts,
+            @Value("${auth-server.mfa.attempts.window:5m}") final Duration window
+    ) {
+        this(redisTemplate, meterRegistry, maxAttempts, clusterMaxAttempts, window, System::currentTimeMillis);
+    }
+
+    OtpAttemptLimiter(
+            final RedisTemplate<String, String> redisTemplate,
+            final MeterRegistry meterRegistry,
+            final int maxAttempts,
+            final int clusterMaxAttempts,
+            final Duration window,
+            final LongSupplier clock
+    ) {
+        this.redisTemplate = Objects.requireNonNull(redisTemplate);
+        this.maxAttempts = maxAttempts;
+        this.clusterMaxAttempts = clusterMaxAttempts;
+        this.windowMillis = window.toMillis();
+        this.clock = Objects.requireNonNull(clock);
+        this.localRejectedCounter = Counter.builder("auth.mfa.otp.attempts.rejected")
+                .description("OTP submissions rejected by the attempt limiter before the code was checked")
+                .tag("scope", "local")
+                .register(meterRegistry);
+        this.clusterRejectedCounter = Counter.builder("auth.mfa.otp.attempts.rejected")
+                .description("OTP submissions rejected by the attempt limiter before the code was checked")
+                .tag("scope", "cluster")
+                .register(meterRegistry);
+    }
+
+    // conta a tentativa antes de checar, um burst concorrente não passa do limite
+    public boolean tryAcquire(final String userId) {
+        final var aNow = this.clock.getAsLong();
+        final var aWindowIndex = aNow / this.windowMillis;
+        final var aWindow = this.windows.computeIfAbsent(userId, it -> new AttemptWindow(aWindowIndex));
+        aWindow.rollTo(aWindowIndex);
+
+        aWindow.current.increment();
+        aWindow.unsynced.increment();
+
+        final var aElapsed = (double) (aNow % this.windowMillis) / this.windowMillis;
+        final var aLocalCount = aWindow.previous * (1 - aElapsed) + aWindow.current.sum();
+        if (aLocalCount > this.maxAttempts) {
+            this.localRejectedCounter.increment();
+            return false;
+        }
+
+        if (aWindow.clusterWindowIndex == aWindowIndex
+                && aWindow.clusterCount + aWindow.unsynced.sum() > this.clusterMaxAttempts) {
+            this.clusterRejectedCounter.increment();
+            return false;
+        }
+        return true;
+    }
+
+    public long retryAfterSeconds() {
+        final var aRemaining = this.windowMillis - this.clock.getAsLong() % this.windowMillis;
+        return Math.max(1, (aRemaining + 999) / 1000);
+    }
+
+    public void onSuccess(final String userId) {
+        if (this.windows.remove(userId) != null) {
+            this.redisTemplate.delete(key(userId, this.clock.getAsLong() / this.windowMillis));
+        }
+    }
+
+    @Scheduled(
+            initialDelayString = "${auth-server.mfa.attempts.sync-interval:1s}",
+            fixedDelayString = "${auth-server.mfa.attempts.sync-interval:1s}"
+    )
+    public void sync() {
+        final var aWindowIndex = this.clock.getAsLong() / this.windowMillis;
+        final var aUsers = new ArrayList<String>();
+        final var aSynced = new ArrayList<AttemptWindow>();
+        final var aDeltas = new ArrayList<Long>();
+
+        this.windows.forEach((userId, window) -> {
+            if (window.windowIndex < aWindowIndex - 1 && window.unsynced.sum() == 0) {
+                // nada nas duas últimas janelas, a janela local já não pesa em nada
+                this.windows.remove(userId, window);
+                return;
+            }
+            if (window.windowIndex < aWindowIndex && window.unsynced.sum() == 0) {
+                return;
+            }
+            aUsers.add(userId);
+            aSynced.add(window);
+            aDeltas.add(window.unsynced.sumThenReset());
+        });
+
+        if (aUsers.isEmpty()) {
+            return;
+        }
+
+        try {
+            // INCRBY devolve o total do cluster na janela, com delta 0 só atualiza a visão local
+            final var aResults = this.redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(final RedisOperations<K, V> operations) throws DataAccessException {
+                    final var aOperations = (RedisOperations<String, String>) operations;
+                    for (int i = 0; i < aUsers.size(); i++) {
+                        final var aKey = key(aUsers.get(i), aWindowIndex);
+                        aOperations.opsForValue().increment(aKey, aDeltas.get(i));
+                        aOperations.expire(aKey, Duration.ofMillis(OtpAttemptLimiter.this.windowMillis * 2));
+                    }
+                    return null;
+                }
+            });
+
+            for (int i = 0; i < aSynced.size(); i++) {
+                if (aResults.get(i * 2) instanceof Long aTotal) {
+                    aSynced.get(i).clusterSynced(aWindowIndex, aTotal);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to sync {} OTP attempt counters, keeping them for the next run", aUsers.size(), e);
+            for (int i = 0; i < aSynced.size(); i++) {
+                aSynced.get(i).unsynced.add(aDeltas.get(i));
+            }
+        }
+    }
+
+    int trackedUsers() {
+        return this.windows.size();
+    }
+
+    private static String key(final String userId, final long windowIndex) {
+        return ATTEMPTS_KEY + userId + ":" + windowIndex;
+    }
+
+    private static final class AttemptWindow {
+
+        private final LongAdder current = new LongAdder();
+        private final LongAdder unsynced = new LongAdder();
+        private volatile long windowIndex;
+        private volatile long previous;
+        private volatile long clusterWindowIndex = -1;
+        private volatile long clusterCount;
+
+        private AttemptWindow(final long windowIndex) {
+            this.windowIndex = windowIndex;
+        }
+
+        private void rollTo(final long windowIndex) {
+            if (this.windowIndex == windowIndex) {
+                return;
+            }
+            synchronized (this) {
+                if (this.windowIndex < windowIndex) {
+                    this.previous = windowIndex == this.windowIndex + 1 ? this.current.sumThenReset() : 0;
+                    if (windowIndex != this.windowIndex + 1) {
+                        this.current.reset();
+                    }
+                    this.windowIndex = windowIndex;
+                }
+            }
+        }
+
+        private void clusterSynced(final long windowIndex, final long total) {
+            this.clusterCount = total;
+            this.clusterWindowIndex = windowIndex;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.kaua.ecommerce.auth.infrastructure.oauth2.grants.password;
 
+import com.kaua.ecommerce.lib.domain.utils.IdentifierUtils;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -61,10 +62,18 @@ public class CustomPasswordGrantAuthenticationProvider implements Authentication
 
         final var aUsernamePasswordAuth = getUsernamePasswordAuthentication(aPasswordGrantAuthentication);
 
+        // o id da autorização já vai no access token (claim authorization_id), então é gerado antes dos tokens
+        final var aAuthorizationId = IdentifierUtils.generateNewId();
+
         // generate access token
         final var tokenContextBuilder = DefaultOAuth2TokenContext.builder()
                 .registeredClient(aRegisteredClient)
                 .principal(aUsernamePasswordAuth)
+                .authorization(OAuth2Authorization.withRegisteredClient(aRegisteredClient)
+                        .id(aAuthorizationId)
+                        .principalName(aUsernamePasswordAuth.getName())
+                        .authorizationGrantType(CustomPasswordGrantType.PASSWORD)
+                        .build())
                 .authorizationServerContext(AuthorizationServerContextHolder.getContext())
                 .authorizationGrantType(CustomPasswordGrantType.PASSWORD)
                 .authorizationGrant(aPasswordGrantAuthentication);
@@ -84,6 +93,7 @@ public class CustomPasswordGrantAuthenticationProvider implements Authentication
 
         // Initialize the OAuth2Authorization
         final var aAuthorizationBuilder = OAuth2Authorization.withRegisteredClient(aRegisteredClient)
+                .id(aAuthorizationId)
                 .principalName(aUsernamePasswordAuth.getName())
                 .authorizationGrantType(CustomPasswordGrantType.PASSWORD)
                 .attribute(Principal.class.getName(), aUsernamePasswordAuth);
@@ -6,6 +6,9 @@ public final class CustomTokenClaimsUtils {
 
     public static final String IS_MICROSERVICE = "is_microservice";
     public static final String AUTHORITIES = "authorities";
+    public static final String AUTHORIZATION_ID = "authorization_id";
+    public static final String AMR = "amr";
+    public static final String MFA_VALID_UNTIL = "mfa_valid_until";
 
     public static final String ALL_AUTHORITIES = "*";
 }
@@ -1,6 +1,7 @@
 package com.kaua.ecommerce.auth.infrastructure.rest;
 
 import com.kaua.ecommerce.auth.application.usecases.users.outputs.*;
+import com.kaua.ecommerce.auth.infrastructure.oauth2.grants.mfa.MfaAuthenticationFilter;
 import com.kaua.ecommerce.auth.infrastructure.rest.models.req.*;
 import com.kaua.ecommerce.auth.infrastructure.rest.models.res.GetUserByIdResponse;
 import com.kaua.ecommerce.auth.infrastructure.userdetails.UserDetailsImpl;
@@ -184,6 +185,7 @@ public interface UserRestApi {
     ResponseEntity<ConfirmUserMfaDeviceOutput> confirmDevice(
             @AuthenticationPrincipal final UserDetailsImpl principal,
             @RequestParam("otp_code") final String otpCode,
+            @RequestAttribute(name = MfaAuthenticationFilter.OTP_VERIFIED_ATTRIBUTE, required = false) final Boolean otpVerified,
             @RequestBody ConfirmUserMfaDeviceRequest request
     );
 
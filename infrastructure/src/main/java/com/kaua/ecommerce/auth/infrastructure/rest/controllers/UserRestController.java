@@ -237,6 +237,7 @@ public class UserRestController implements UserRestApi {
     public ResponseEntity<ConfirmUserMfaDeviceOutput> confirmDevice(
             final UserDetailsImpl principal,
             final String otpCode,
+            final Boolean otpVerified,
             final ConfirmUserMfaDeviceRequest request
     ) {
         log.debug("Received request to confirm user MFA device to userId: {}", principal.getUsername());
@@ -244,7 +245,8 @@ public class UserRestController implements UserRestApi {
         final var aInput = new ConfirmUserMfaDeviceInput(
                 UUID.fromString(principal.getUsername()),
                 otpCode,
-                InstantUtils.fromString(request.validUntil()).orElse(null)
+                InstantUtils.fromString(request.validUntil()).orElse(null),
+                Boolean.TRUE.equals(otpVerified)
         );
 
         final var aOutput = this.confirmUserMfaDeviceUseCase.execute(aInput);
@@ -1,5 +1,6 @@
 package com.kaua.ecommerce.auth.infrastructure.services;
 
+import javax.crypto.SecretKey;
 import java.security.KeyPair;
 import java.security.PrivateKey;
 import java.security.PublicKey;
@@ -18,5 +19,7 @@ public interface KeysService {
 
     KeyPair getKeyPairOrGenerate(String publicKeyName, String privateKeyName);
 
+    SecretKey getDataKeyOrGenerate(String dataKeyName, String publicKeyName, String privateKeyName);
+
     boolean keysExists(String publicKeyName, String privateKeyName);
 }
@@ -0,0 +1,69 @@
+package com.kaua.ecommerce.auth.infrastructure.services.impl;
+
+import com.kaua.ecommerce.auth.infrastructure.constants.Constants;
+import com.kaua.ecommerce.auth.infrastructure.services.KeysService;
+import com.kaua.ecommerce.auth.infrastructure.utils.AesGcmCipher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.util.Objects;
+
+// o secret do MFA era RSA puro, cada código digitado custava uma decifragem RSA-2048.
+// no modo data-key o RSA só embrulha uma chave AES, os secrets são AES-GCM com prefixo de versão.
+// secrets sem prefixo continuam sendo lidos pelo RSA até o MfaSecretReencryptionJob migrar
+@Component
+public class MfaSecretCipher {
+
+    public static final String DATA_KEY_PREFIX = "v2:";
+
+    private static final String DATA_KEY_MODE = "data-key";
+
+    private final KeysService keysService;
+    private final boolean dataKeyEnabled;
+
+    public MfaSecretCipher(
+            final KeysService keysService,
+            @Value("${auth-server.mfa.secret-encryption:rsa}") final String secretEncryption
+    ) {
+        this.keysService = Objects.requireNonNull(keysService);
+        this.dataKeyEnabled = DATA_KEY_MODE.equals(secretEncryption);
+    }
+
+    public String encrypt(final String secret) {
+        if (!this.dataKeyEnabled) {
+            return this.keysService.encrypt(secret, Constants.MFA_PUBLIC_KEY);
+        }
+        return encryptWithDataKey(secret);
+    }
+
+    public String decrypt(final String secret) {
+        if (!isDataKeyEncrypted(secret)) {
+            return this.keysService.decrypt(secret, Constants.MFA_PRIVATE_KEY);
+        }
+
+        return AesGcmCipher.decrypt(dataKey(), secret.substring(DATA_KEY_PREFIX.length()), null)
+                .orElseThrow(() -> new IllegalStateException("MFA secret was not encrypted with the current data key"));
+    }
+
+    // usado pela migração, sempre grava no formato novo independente do modo configurado
+    public String reencrypt(final String secret) {
+        return isDataKeyEncrypted(secret) ? secret : encryptWithDataKey(decrypt(secret));
+    }
+
+    public static boolean isDataKeyEncrypted(final String secret) {
+        return secret != null && secret.startsWith(DATA_KEY_PREFIX);
+    }
+
+    private String encryptWithDataKey(final String secret) {
+        return DATA_KEY_PREFIX.concat(AesGcmCipher.encrypt(dataKey(), secret, null));
+    }
+
+    private SecretKey dataKey() {
+        return this.keysService.getDataKeyOrGenerate(
+                Constants.MFA_DATA_KEY,
+                Constants.MFA_PUBLIC_KEY,
+                Constants.MFA_PRIVATE_KEY
+        );
+    }
+}
@@ -0,0 +1,176 @@
+package com.kaua.ecommerce.auth.infrastructure.services.local;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchService;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// cada chave é lida e parseada uma vez só. o WatchService da pasta invalida a chave quando o arquivo muda,
+// a próxima chamada lê de novo do disco
+final class KeyRing implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(KeyRing.class);
+
+    private final Path folder;
+    private final String algorithm;
+    private final Map<String, Key> keys = new ConcurrentHashMap<>();
+
+    // o Cipher não é thread-safe e o getInstance faz lookup de provider, o init a cada uso troca chave e modo
+    private final ThreadLocal<Cipher> ciphers;
+
+    private volatile WatchService watchService;
+    private volatile boolean closed;
+
+    KeyRing(final Path folder, final String algorithm) {
+        this.folder = folder;
+        this.algorithm = algorithm;
+        this.ciphers = ThreadLocal.withInitial(() -> {
+            try {
+                return Cipher.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    PublicKey publicKey(final String name) {
+        return (PublicKey) this.keys.computeIfAbsent(name, it -> {
+            try {
+                return keyFactory().generatePublic(new X509EncodedKeySpec(read(it)));
+            } catch (InvalidKeySpecException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    PrivateKey privateKey(final String name) {
+        return (PrivateKey) this.keys.computeIfAbsent(name, it -> {
+            try {
+                return keyFactory().generatePrivate(new PKCS8EncodedKeySpec(read(it)));
+            } catch (InvalidKeySpecException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    // a chave de dados fica embrulhada com RSA no arquivo, o unwrap roda só na primeira leitura
+    SecretKey secretKey(final String name, final Function<byte[], SecretKey> unwrapper) {
+        return (SecretKey) this.keys.computeIfAbsent(name, it -> unwrapper.apply(read(it)));
+    }
+
+    Cipher cipher() {
+        return this.ciphers.get();
+    }
+
+    void invalidate(final String name) {
+        this.keys.remove(name);
+    }
+
+    boolean isLoaded(final String name) {
+        return this.keys.containsKey(name);
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+        final var aWatchService = this.watchService;
+        if (aWatchService != null) {
+            try {
+                aWatchService.close();
+            } catch (IOException e) {
+                log.warn("Failed to close keys folder watcher", e);
+            }
+        }
+    }
+
+    private byte[] read(final String name) {
+        watchFolder();
+        try {
+            final var aKeyBytes = Base64.getDecoder().decode(Files.readAllBytes(this.folder.resolve(name)));
+            log.debug("Key {} loaded from {}", name, this.folder);
+            return aKeyBytes;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private KeyFactory keyFactory() {
+        try {
+            return KeyFactory.getInstance(this.algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // a pasta pode ainda não existir quando o ring é criado, então o watcher só sobe na primeira leitura
+    private void watchFolder() {
+        if (this.watchService != null || this.closed) {
+            return;
+        }
+
+        synchronized (this) {
+            if (this.watchService != null || this.closed || !Files.isDirectory(this.folder)) {
+                return;
+            }
+
+            try {
+                final var aWatchService = this.folder.getFileSystem().newWatchService();
+                this.folder.register(aWatchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE);
+                this.watchService = aWatchService;
+
+                final var aThread = new Thread(() -> watch(aWatchService), "key-ring-watcher");
+                aThread.setDaemon(true);
+                aThread.start();
+            } catch (IOException e) {
+                log.warn("Could not watch keys folder {}, keys will not be reloaded", this.folder, e);
+            }
+        }
+    }
+
+    private void watch(final WatchService watchService) {
+        try {
+            while (!this.closed) {
+                final var aWatchKey = watchService.take();
+                for (final var aEvent : aWatchKey.pollEvents()) {
+                    if (aEvent.context() instanceof Path aPath) {
+                        final var aName = aPath.getFileName().toString();
+                        if (this.keys.remove(aName) != null) {
+                            log.info("Key {} changed on disk, it will be reloaded on next use", aName);
+                        }
+                    } else {
+                        // OVERFLOW, não dá para saber qual arquivo mudou
+                        this.keys.clear();
+                    }
+                }
+                aWatchKey.reset();
+            }
+        } catch (ClosedWatchServiceException e) {
+            log.debug("Keys folder watcher closed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -7,19 +7,22 @@ import org.slf4j.LoggerFactory;
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
-import javax.crypto.NoSuchPaddingException;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.security.*;
-import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.Base64;
 
-public class RSAKeyLocalGeneratorService implements KeysService {
+public class RSAKeyLocalGeneratorService implements KeysService, AutoCloseable {
 
     private static final Logger log = LoggerFactory.getLogger(RSAKeyLocalGeneratorService.class);
 
@@ -27,6 +30,21 @@ public class RSAKeyLocalGeneratorService implements KeysService {
     private static final int KEY_SIZE = 2048;
     private static final String KEYS_FOLDER = "keys";
 
+    private static final String DATA_KEY_ALGORITHM = "AES";
+    private static final int DATA_KEY_SIZE = 256;
+
+    private final File keysFolder;
+    private final KeyRing keyRing;
+
+    public RSAKeyLocalGeneratorService() {
+        this(Paths.get(KEYS_FOLDER));
+    }
+
+    RSAKeyLocalGeneratorService(final Path keysFolder) {
+        this.keysFolder = keysFolder.toFile();
+        this.keyRing = new KeyRing(keysFolder, ALGORITHM);
+    }
+
     @Override
     public void generateAndSaveKeys(final String publicKeyName, final String privateKeyName) {
         if (keysExists(publicKeyName, privateKeyName)) {
@@ -37,7 +55,7 @@ public class RSAKeyLocalGeneratorService implements KeysService {
         PublicKey publicKey = keyPair.getPublic();
         PrivateKey privateKey = keyPair.getPrivate();
 
-        File keysFolder = new File(KEYS_FOLDER);
+        File keysFolder = this.keysFolder;
         if (!keysFolder.exists()) {
             log.debug("Creating keys folder");
             final var aOutput = keysFolder.mkdirs();
@@ -67,6 +85,8 @@ public class RSAKeyLocalGeneratorService implements KeysService {
             throw new RuntimeException(e);
         }
 
+        this.keyRing.invalidate(publicKeyName);
+        this.keyRing.invalidate(privateKeyName);
         log.info("RSA keys generated and saved successfully");
     }
 
@@ -74,12 +94,11 @@ public class RSAKeyLocalGeneratorService implements KeysService {
     public String encrypt(final String data, final String publicKey) {
         try {
             final var key = getPublicKey(publicKey);
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
+            Cipher cipher = this.keyRing.cipher();
             cipher.init(Cipher.ENCRYPT_MODE, key);
             byte[] encryptedBytes = cipher.doFinal(data.getBytes());
             return Base64.getEncoder().encodeToString(encryptedBytes);
-        } catch (NoSuchPaddingException | NoSuchAlgorithmException | InvalidKeyException | IllegalBlockSizeException |
-                 BadPaddingException e) {
+        } catch (InvalidKeyException | IllegalBlockSizeException | BadPaddingException e) {
             throw new RuntimeException(e);
         }
     }
@@ -88,40 +107,23 @@ public class RSAKeyLocalGeneratorService implements KeysService {
     public String decrypt(final String data, final String privateKey) {
         try {
             final var key = getPrivateKey(privateKey);
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
+            Cipher cipher = this.keyRing.cipher();
             cipher.init(Cipher.DECRYPT_MODE, key);
             byte[] decryptedBytes = cipher.doFinal(Base64.getDecoder().decode(data));
             return new String(decryptedBytes);
-        } catch (NoSuchPaddingException | NoSuchAlgorithmException | InvalidKeyException | IllegalBlockSizeException |
-                 BadPaddingException e) {
+        } catch (InvalidKeyException | IllegalBlockSizeException | BadPaddingException e) {
             throw new RuntimeException(e);
         }
     }
 
     @Override
     public PublicKey getPublicKey(final String publicKeyName) {
-        try {
-            byte[] keyBytes = Base64.getDecoder()
-                    .decode(Files.readAllBytes(Paths.get(KEYS_FOLDER, publicKeyName)));
-            X509EncodedKeySpec spec = new X509EncodedKeySpec(keyBytes);
-            KeyFactory keyFactory = KeyFactory.getInstance(ALGORITHM);
-            return keyFactory.generatePublic(spec);
-        } catch (IOException | NoSuchAlgorithmException | InvalidKeySpecException e) {
-            throw new RuntimeException(e);
-        }
+        return this.keyRing.publicKey(publicKeyName);
     }
 
     @Override
     public PrivateKey getPrivateKey(final String privateKeyName) {
-        try {
-            byte[] keyBytes = Base64.getDecoder()
-                    .decode(Files.readAllBytes(Paths.get(KEYS_FOLDER, privateKeyName)));
-            PKCS8EncodedKeySpec spec = new PKCS8EncodedKeySpec(keyBytes);
-            KeyFactory keyFactory = KeyFactory.getInstance(ALGORITHM);
-            return keyFactory.generatePrivate(spec);
-        } catch (IOException | NoSuchAlgorithmException | InvalidKeySpecException e) {
-            throw new RuntimeException(e);
-        }
+        return this.keyRing.privateKey(privateKeyName);
     }
 
     @Override
@@ -133,6 +135,55 @@ public class RSAKeyLocalGeneratorService implements KeysService {
         return new KeyPair(getPublicKey(publicKeyName), getPrivateKey(privateKeyName));
     }
 
+    @Override
+    public SecretKey getDataKeyOrGenerate(
+            final String dataKeyName,
+            final String publicKeyName,
+            final String privateKeyName
+    ) {
+        if (!this.keyRing.isLoaded(dataKeyName) && !new File(this.keysFolder, dataKeyName).exists()) {
+            generateAndSaveDataKey(dataKeyName, publicKeyName);
+        }
+
+        // a chave privada sai do ring antes, o unwrap roda dentro do computeIfAbsent e não pode mexer no mapa
+        final var aPrivateKey = getPrivateKey(privateKeyName);
+        return this.keyRing.secretKey(dataKeyName, it -> unwrapDataKey(it, aPrivateKey));
+    }
+
+    private void generateAndSaveDataKey(final String dataKeyName, final String publicKeyName) {
+        log.info("Generating data key {}", dataKeyName);
+        try {
+            final var aKeyGenerator = KeyGenerator.getInstance(DATA_KEY_ALGORITHM);
+            aKeyGenerator.init(DATA_KEY_SIZE);
+
+            final var aCipher = this.keyRing.cipher();
+            aCipher.init(Cipher.WRAP_MODE, getPublicKey(publicKeyName));
+            final var aWrappedKey = aCipher.wrap(aKeyGenerator.generateKey());
+
+            // CREATE_NEW: se outra instância gerou a chave antes, a dela vale e essa é descartada
+            Files.write(
+                    this.keysFolder.toPath().resolve(dataKeyName),
+                    Base64.getEncoder().encode(aWrappedKey),
+                    StandardOpenOption.CREATE_NEW
+            );
+            log.info("Data key saved: {}", dataKeyName);
+        } catch (FileAlreadyExistsException e) {
+            log.info("Data key {} already exists", dataKeyName);
+        } catch (NoSuchAlgorithmException | InvalidKeyException | IllegalBlockSizeException | IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private SecretKey unwrapDataKey(final byte[] wrappedKey, final PrivateKey privateKey) {
+        try {
+            final var aCipher = this.keyRing.cipher();
+            aCipher.init(Cipher.UNWRAP_MODE, privateKey);
+            return (SecretKey) aCipher.unwrap(wrappedKey, DATA_KEY_ALGORITHM, Cipher.SECRET_KEY);
+        } catch (InvalidKeyException | NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private KeyPair generateKey() {
         log.info("Generating RSA keys");
         KeyPair keyPair;
@@ -152,8 +203,8 @@ public class RSAKeyLocalGeneratorService implements KeysService {
             final String publicKeyName,
             final String privateKeyName
     ) {
-        final File publicKeyFile = new File(KEYS_FOLDER, publicKeyName);
-        final File privateKeyFile = new File(KEYS_FOLDER, privateKeyName);
+        final File publicKeyFile = new File(this.keysFolder, publicKeyName);
+        final File privateKeyFile = new File(this.keysFolder, privateKeyName);
 
         if (publicKeyFile.exists() && privateKeyFile.exists()) {
             log.info("RSA keys [public:{}] [private:{}] already exists", publicKeyName, privateKeyName);
@@ -162,4 +213,9 @@ public class RSAKeyLocalGeneratorService implements KeysService {
 
         return false;
     }
+
+    @Override
+    public void close() {
+        this.keyRing.close();
+    }
 }
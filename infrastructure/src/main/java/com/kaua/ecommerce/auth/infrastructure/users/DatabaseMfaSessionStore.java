@@ -0,0 +1,60 @@
+package com.kaua.ecommerce.auth.infrastructure.users;
+
+import com.kaua.ecommerce.auth.application.repositories.UserRepository;
+import com.kaua.ecommerce.auth.domain.users.User;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Optional;
+
+// a sessão vale para o usuário inteiro, o authorization id é ignorado
+@Component
+@ConditionalOnProperty(
+        value = "auth-server.mfa.session-store",
+        havingValue = "database",
+        matchIfMissing = true
+)
+public class DatabaseMfaSessionStore implements MfaSessionStore {
+
+    private final UserRepository userRepository;
+    private final MfaSessionUpdater mfaSessionUpdater;
+
+    public DatabaseMfaSessionStore(
+            final UserRepository userRepository,
+            final MfaSessionUpdater mfaSessionUpdater
+    ) {
+        this.userRepository = Objects.requireNonNull(userRepository);
+        this.mfaSessionUpdater = Objects.requireNonNull(mfaSessionUpdater);
+    }
+
+    @Override
+    public Optional<Instant> findVerifiedUntil(final User user, final String authorizationId) {
+        return user.getMfa().isValid() ? user.getMfa().getValidUntil() : Optional.empty();
+    }
+
+    @Override
+    public void verify(final User user, final String authorizationId) {
+        user.getMfa().verifyMfa();
+        this.userRepository.update(user);
+    }
+
+    @Override
+    public void onRefreshTokenLookup(
+            final String principalName,
+            final String authorizationId,
+            final Instant refreshTokenExpiresAt
+    ) {
+        this.mfaSessionUpdater.onRefreshTokenLookup(principalName, refreshTokenExpiresAt);
+    }
+
+    @Override
+    public void onRefreshTokenIssued(
+            final String principalName,
+            final String authorizationId,
+            final Instant refreshTokenExpiresAt
+    ) {
+        this.mfaSessionUpdater.onRefreshTokenIssued(principalName, refreshTokenExpiresAt);
+    }
+}
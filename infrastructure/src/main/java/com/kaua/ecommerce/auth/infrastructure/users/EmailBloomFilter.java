@@ -0,0 +1,210 @@
+package com.kaua.ecommerce.auth.infrastructure.users;
+
+import com.kaua.ecommerce.auth.infrastructure.utils.HashUtils;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// bloom filter dos emails cadastrados na frente do existsByEmail. um "não" é definitivo e o cadastro nem vai ao
+// banco, um "talvez" segue para a consulta. só responde depois da carga inicial, até lá tudo vai ao banco.
+// bits só são ligados, nunca desligados: email trocado ou usuário apagado vira falso positivo, nunca falso negativo.
+// os outros nós recebem os emails novos por pub/sub e a varredura periódica por updated_at cobre mensagem perdida
+final class EmailBloomFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailBloomFilter.class);
+
+    static final String ADDED_CHANNEL = "users:emails:added";
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final RedisMessageListenerContainer listenerContainer = new RedisMessageListenerContainer();
+    private final LongAdder negatives = new LongAdder();
+    private final LongAdder truePositives = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private volatile boolean ready;
+    private volatile boolean subscribed;
+
+    EmailBloomFilter(
+            final RedisTemplate<String, String> redisTemplate,
+            final long expectedEmails,
+            final double falsePositiveRate
+    ) {
+        this.redisTemplate = Objects.requireNonNull(redisTemplate);
+
+        if (expectedEmails <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid email filter sizing: " + expectedEmails + ", " + falsePositiveRate);
+        }
+
+        // m = -n ln(p) / ln(2)^2 e k = m/n ln(2), arredondado para palavras de 64 bits
+        final var aBits = (long) Math.ceil(-expectedEmails * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        final var aWords = Math.toIntExact((aBits + 63) >>> 6);
+        this.bits = new AtomicLongArray(aWords);
+        this.bitCount = (long) aWords << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) this.bitCount / expectedEmails * Math.log(2)));
+    }
+
+    // true só quando o email com certeza não existe, antes da carga inicial sempre false
+    boolean definitelyAbsent(final String email) {
+        if (!this.ready || mightContain(email)) {
+            return false;
+        }
+        this.negatives.increment();
+        return true;
+    }
+
+    void recordDatabaseCheck(final boolean exists) {
+        if (this.ready) {
+            (exists ? this.truePositives : this.falsePositives).increment();
+        }
+    }
+
+    // antes do insert: ligar o bit cedo demais só gera falso positivo, ligar depois do commit abriria uma janela
+    // em que o email existe e o filtro diz que não
+    void addAndPublish(final String email) {
+        add(email);
+        try {
+            this.redisTemplate.convertAndSend(ADDED_CHANNEL, email);
+        } catch (RuntimeException e) {
+            log.warn("Failed to publish new user email to other nodes, they catch up on the next scan", e);
+        }
+    }
+
+    void add(final String email) {
+        final var aHash = hash(email);
+        final var aFirst = HashUtils.mix64(aHash);
+        final var aSecond = HashUtils.mix64(aHash + GOLDEN_GAMMA) | 1;
+
+        for (int i = 0; i < this.hashCount; i++) {
+            final var aIndex = Math.floorMod(aFirst + i * aSecond, this.bitCount);
+            final var aWord = (int) (aIndex >>> 6);
+            final var aMask = 1L << aIndex;
+            if ((this.bits.get(aWord) & aMask) == 0) {
+                this.bits.accumulateAndGet(aWord, aMask, (current, mask) -> current | mask);
+            }
+        }
+    }
+
+    boolean mightContain(final String email) {
+        final var aHash = hash(email);
+        final var aFirst = HashUtils.mix64(aHash);
+        final var aSecond = HashUtils.mix64(aHash + GOLDEN_GAMMA) | 1;
+
+        for (int i = 0; i < this.hashCount; i++) {
+            final var aIndex = Math.floorMod(aFirst + i * aSecond, this.bitCount);
+            if ((this.bits.get((int) (aIndex >>> 6)) & (1L << aIndex)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void markReady() {
+        this.ready = true;
+    }
+
+    boolean isReady() {
+        return this.ready;
+    }
+
+    // antes da carga inicial, assim nenhum email cadastrado em outro nó durante a varredura se perde
+    void subscribe() {
+        if (this.subscribed) {
+            return;
+        }
+        this.listenerContainer.setConnectionFactory(Objects.requireNonNull(this.redisTemplate.getConnectionFactory()));
+        this.listenerContainer.addMessageListener(
+                (message, pattern) -> onAdded(message),
+                new ChannelTopic(ADDED_CHANNEL)
+        );
+        try {
+            this.listenerContainer.afterPropertiesSet();
+            this.listenerContainer.start();
+            this.subscribed = true;
+        } catch (RuntimeException e) {
+            // sem a assinatura os emails de outros nós só chegam pela varredura periódica
+            log.warn("Could not subscribe to {}, email filter relies on the periodic scan only", ADDED_CHANNEL, e);
+        }
+    }
+
+    void stop() {
+        if (!this.subscribed) {
+            return;
+        }
+        try {
+            this.listenerContainer.destroy();
+        } catch (Exception e) {
+            log.warn("Failed to stop user email filter listener", e);
+        }
+    }
+
+    void bindTo(final MeterRegistry registry) {
+        FunctionCounter.builder("auth.users.email.filter.lookups", this.negatives, LongAdder::doubleValue)
+                .description("existsByEmail lookups by email filter outcome")
+                .tag("result", "negative")
+                .register(registry);
+        FunctionCounter.builder("auth.users.email.filter.lookups", this.truePositives, LongAdder::doubleValue)
+                .description("existsByEmail lookups by email filter outcome")
+                .tag("result", "true_positive")
+                .register(registry);
+        FunctionCounter.builder("auth.users.email.filter.lookups", this.falsePositives, LongAdder::doubleValue)
+                .description("existsByEmail lookups by email filter outcome")
+                .tag("result", "false_positive")
+                .register(registry);
+
+        Gauge.builder("auth.users.email.filter.false.positive.rate", this, EmailBloomFilter::observedFalsePositiveRate)
+                .description("Share of absent emails the filter still sent to the database")
+                .register(registry);
+        Gauge.builder("auth.users.email.filter.expected.false.positive.rate", this, EmailBloomFilter::expectedFalsePositiveRate)
+                .description("False positive rate predicted from the filter fill, grows as emails are added")
+                .register(registry);
+    }
+
+    // entre os emails que não existiam, quantos o filtro deixou passar
+    double observedFalsePositiveRate() {
+        final var aFalsePositives = this.falsePositives.sum();
+        final var aAbsent = aFalsePositives + this.negatives.sum();
+        return aAbsent == 0 ? 0.0 : (double) aFalsePositives / aAbsent;
+    }
+
+    double expectedFalsePositiveRate() {
+        var aSetBits = 0L;
+        for (int i = 0; i < this.bits.length(); i++) {
+            aSetBits += Long.bitCount(this.bits.get(i));
+        }
+        return Math.pow((double) aSetBits / this.bitCount, this.hashCount);
+    }
+
+    // o convertAndSend passa a mensagem pelo serializer de valores do template, aqui é o caminho inverso
+    private void onAdded(final Message message) {
+        if (this.redisTemplate.getValueSerializer().deserialize(message.getBody()) instanceof String aEmail
+                && !aEmail.isBlank()) {
+            add(aEmail);
+        }
+    }
+
+    // FNV-1a sobre os chars, sem alocar os bytes do email. as duas funções do double hashing saem do mesmo valor
+    private static long hash(final String email) {
+        var aHash = FNV_OFFSET;
+        for (int i = 0; i < email.length(); i++) {
+            aHash ^= email.charAt(i);
+            aHash *= FNV_PRIME;
+        }
+        return aHash;
+    }
+}
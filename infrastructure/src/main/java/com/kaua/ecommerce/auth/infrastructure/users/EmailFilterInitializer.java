@@ -0,0 +1,70 @@
+package com.kaua.ecommerce.auth.infrastructure.users;
+
+import com.kaua.ecommerce.lib.domain.utils.InstantUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+
+// carrega o filtro de emails antes do readiness e depois relê os usuários alterados desde a última passada.
+// a margem cobre relógios diferentes entre os nós e transações que commitam depois do updated_at que gravaram
+@Component
+@ConditionalOnProperty(
+        value = "auth-server.users.email-filter.enabled",
+        havingValue = "true"
+)
+public class EmailFilterInitializer implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailFilterInitializer.class);
+
+    private final UserRepositoryImpl userRepository;
+    private final Duration margin;
+    private volatile Instant lastScanAt;
+
+    public EmailFilterInitializer(
+            final UserRepositoryImpl userRepository,
+            @Value("${auth-server.users.email-filter.scan-margin:1m}") final Duration margin
+    ) {
+        this.userRepository = Objects.requireNonNull(userRepository);
+        this.margin = Objects.requireNonNull(margin);
+    }
+
+    @Override
+    public void run(String... args) {
+        // sem a carga o filtro fica desligado e o existsByEmail segue indo ao banco, não impede o nó de subir
+        try {
+            final var aStartedAt = InstantUtils.now();
+            final var aEmails = this.userRepository.loadEmailFilter();
+            this.lastScanAt = aStartedAt;
+            log.info("User email filter loaded with {} emails", aEmails);
+        } catch (RuntimeException e) {
+            log.warn("Failed to load user email filter, existsByEmail keeps querying the database", e);
+        }
+    }
+
+    @Scheduled(
+            initialDelayString = "${auth-server.users.email-filter.scan-interval:1m}",
+            fixedDelayString = "${auth-server.users.email-filter.scan-interval:1m}"
+    )
+    public void catchUp() {
+        if (this.lastScanAt == null) {
+            return;
+        }
+
+        try {
+            final var aStartedAt = InstantUtils.now();
+            final var aEmails = this.userRepository.catchUpEmailFilter(this.lastScanAt.minus(this.margin));
+            this.lastScanAt = aStartedAt;
+            log.debug("User email filter caught up with {} emails", aEmails);
+        } catch (RuntimeException e) {
+            log.warn("Failed to catch up user email filter, retrying on the next interval", e);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.kaua.ecommerce.auth.infrastructure.users;
+
+import com.kaua.ecommerce.auth.infrastructure.services.impl.MfaSecretCipher;
+import com.kaua.ecommerce.lib.domain.utils.InstantUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+// migra os secrets RSA de users_mfa para o formato da chave de dados, em lotes e com a aplicação no ar.
+// o id do último lote anda para frente, uma linha que não decifra fica para trás sem travar o resto. somente postgres
+@Component
+@ConditionalOnProperty(
+        value = "auth-server.mfa.secret-reencryption.enabled",
+        havingValue = "true"
+)
+public class MfaSecretReencryptionJob {
+
+    private static final Logger log = LoggerFactory.getLogger(MfaSecretReencryptionJob.class);
+
+    private static final String SELECT_LEGACY_SECRETS = "SELECT m.id, m.mfa_secret, u.id AS user_id " +
+            "FROM users_mfa m JOIN users u ON u.mfa_id = m.id " +
+            "WHERE m.id > ? AND m.mfa_secret IS NOT NULL AND m.mfa_secret NOT LIKE '" +
+            MfaSecretCipher.DATA_KEY_PREFIX + "%' " +
+            "ORDER BY m.id LIMIT ? FOR UPDATE OF m SKIP LOCKED";
+
+    private static final String UPDATE_SECRET = "UPDATE users_mfa SET mfa_secret = ?, updated_at = ? WHERE id = ?";
+
+    // o postgres ordena uuid byte a byte sem sinal, o menor valor é o zerado
+    private static final UUID FIRST_ID = new UUID(0L, 0L);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final MfaSecretCipher mfaSecretCipher;
+    private final Counter reencryptedCounter;
+    private final Counter failedCounter;
+
+    @Value("${auth-server.mfa.secret-reencryption.batch-size:200}")
+    private int batchSize;
+
+    @Value("${auth-server.mfa.secret-reencryption.pause:100ms}")
+    private Duration pause;
+
+    public MfaSecretReencryptionJob(
+            final JdbcTemplate jdbcTemplate,
+            final PlatformTransactionManager transactionManager,
+            final RedisTemplate<String, String> redisTemplate,
+            final MfaSecretCipher mfaSecretCipher,
+            final MeterRegistry meterRegistry
+    ) {
+        this.jdbcTemplate = Objects.requireNonNull(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(Objects.requireNonNull(transactionManager));
+        this.redisTemplate = Objects.requireNonNull(redisTemplate);
+        this.mfaSecretCipher = Objects.requireNonNull(mfaSecretCipher);
+        this.reencryptedCounter = Counter.builder("auth.users.mfa.secrets.reencrypted")
+                .description("MFA secrets moved from RSA to the data key format")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("auth.users.mfa.secrets.reencryption.failed")
+                .description("MFA secrets that could not be decrypted during the re-encryption")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(
+            initialDelayString = "${auth-server.mfa.secret-reencryption.interval:1h}",
+            fixedDelayString = "${auth-server.mfa.secret-reencryption.interval:1h}"
+    )
+    public void reencrypt() {
+        var aLastId = FIRST_ID;
+        var aTotal = 0L;
+        Batch aBatch;
+
+        do {
+            final var aAfterId = aLastId;
+            aBatch = this.transactionTemplate.execute(status -> reencryptBatch(aAfterId));
+            if (aBatch == null) {
+                break;
+            }
+
+            // o usuário em cache guarda o secret antigo, ainda decifra pelo RSA mas perderia o ganho até expirar
+            UserCacheVersions.invalidate(this.redisTemplate, aBatch.userVersions());
+
+            aTotal += aBatch.userVersions().size();
+            this.reencryptedCounter.increment(aBatch.userVersions().size());
+            aLastId = aBatch.lastId();
+        } while (aBatch.read() == this.batchSize && pauseBetweenBatches());
+
+        if (aTotal > 0) {
+            log.info("Re-encrypted {} MFA secrets with the data key", aTotal);
+        }
+    }
+
+    private Batch reencryptBatch(final UUID afterId) {
+        final var aRows = this.jdbcTemplate.query(SELECT_LEGACY_SECRETS, (rs, rowNum) -> new LegacySecret(
+                rs.getObject("id", UUID.class),
+                rs.getString("mfa_secret"),
+                rs.getObject("user_id", UUID.class)
+        ), afterId, this.batchSize);
+
+        if (aRows.isEmpty()) {
+            return new Batch(0, afterId, Map.of());
+        }
+
+        final var aNow = Timestamp.from(InstantUtils.now());
+        final var aUpdates = new ArrayList<Object[]>(aRows.size());
+        final var aUserIds = new ArrayList<UUID>(aRows.size());
+
+        aRows.forEach(it -> {
+            try {
+                aUpdates.add(new Object[]{this.mfaSecretCipher.reencrypt(it.secret()), aNow, it.id()});
+                aUserIds.add(it.userId());
+            } catch (RuntimeException e) {
+                log.warn("Could not re-encrypt MFA secret of users_mfa {}", it.id(), e);
+                this.failedCounter.increment();
+            }
+        });
+
+        if (!aUpdates.isEmpty()) {
+            this.jdbcTemplate.batchUpdate(UPDATE_SECRET, aUpdates);
+        }
+
+        return new Batch(aRows.size(), aRows.get(aRows.size() - 1).id(),
+                UserCacheVersions.bump(this.jdbcTemplate, aUserIds));
+    }
+
+    private boolean pauseBetweenBatches() {
+        try {
+            Thread.sleep(this.pause.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private record LegacySecret(UUID id, String secret, UUID userId) {
+    }
+
+    private record Batch(int read, UUID lastId, Map<UUID, Long> userVersions) {
+    }
+}
@@ -0,0 +1,22 @@
+package com.kaua.ecommerce.auth.infrastructure.users;
+
+import com.kaua.ecommerce.auth.domain.users.User;
+
+import java.time.Instant;
+import java.util.Optional;
+
+// estado da sessão MFA (verificado até quando), separado do device e do secret que ficam em users_mfa
+public interface MfaSessionStore {
+
+    Optional<Instant> findVerifiedUntil(User user, String authorizationId);
+
+    default boolean isVerified(final User user, final String authorizationId) {
+        return findVerifiedUntil(user, authorizationId).isPresent();
+    }
+
+    void verify(User user, String authorizationId);
+
+    void onRefreshTokenLookup(String principalName, String authorizationId, Instant refreshTokenExpiresAt);
+
+    void onRefreshTokenIssued(String principalName, String authorizationId, Instant refreshTokenExpiresAt);
+}
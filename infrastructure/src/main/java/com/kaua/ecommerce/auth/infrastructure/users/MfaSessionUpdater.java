@@ -0,0 +1,174 @@
+package com.kaua.ecommerce.auth.infrastructure.users;
+
+import com.kaua.ecommerce.lib.domain.utils.InstantUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// renovar o MFA no lookup do refresh token carregava o usuário inteiro e salvava o agregado de volta.
+// agora só enfileira, várias renovações do mesmo usuário dentro do intervalo viram um único UPDATE em users_mfa
+@Component
+@ConditionalOnProperty(
+        value = "auth-server.mfa.session-store",
+        havingValue = "database",
+        matchIfMissing = true
+)
+public class MfaSessionUpdater {
+
+    private static final Logger log = LoggerFactory.getLogger(MfaSessionUpdater.class);
+
+    private static final String UPDATE_VALID_UNTIL = "UPDATE users_mfa SET valid_until = ?, updated_at = ? " +
+            "WHERE id = (SELECT mfa_id FROM users WHERE id = ?) AND mfa_enabled = TRUE";
+
+    private static final String RESET_MFA_VERIFIED = "UPDATE users_mfa SET mfa_verified = FALSE, updated_at = ? " +
+            "WHERE id = (SELECT mfa_id FROM users WHERE id = ?) AND mfa_enabled = TRUE";
+
+    private final Map<UUID, PendingUpdate> pendingUpdates = new ConcurrentHashMap<>();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final Counter writtenCounter;
+    private final Counter coalescedCounter;
+
+    public MfaSessionUpdater(
+            final JdbcTemplate jdbcTemplate,
+            final PlatformTransactionManager transactionManager,
+            final RedisTemplate<String, String> redisTemplate,
+            final MeterRegistry meterRegistry
+    ) {
+        this.jdbcTemplate = Objects.requireNonNull(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(Objects.requireNonNull(transactionManager));
+        this.redisTemplate = Objects.requireNonNull(redisTemplate);
+        this.writtenCounter = Counter.builder("auth.users.mfa.session.updates")
+                .description("Targeted users_mfa updates written by the MFA session updater")
+                .register(meterRegistry);
+        this.coalescedCounter = Counter.builder("auth.users.mfa.session.coalesced")
+                .description("MFA session updates collapsed into a newer pending update for the same user")
+                .register(meterRegistry);
+    }
+
+    // renova o MFA a cada busca pelo refresh token, caso contrário ele vai expirar
+    public void onRefreshTokenLookup(final String principalName, final Instant refreshTokenExpiresAt) {
+        if (refreshTokenExpiresAt.isBefore(InstantUtils.now())) {
+            enqueue(principalName, new PendingUpdate(null));
+        } else {
+            // adicionamos ao expires at uma margem de 30 minutos
+            enqueue(principalName, new PendingUpdate(refreshTokenExpiresAt.plus(30, ChronoUnit.MINUTES)));
+        }
+    }
+
+    public void onRefreshTokenIssued(final String principalName, final Instant refreshTokenExpiresAt) {
+        enqueue(principalName, new PendingUpdate(refreshTokenExpiresAt));
+    }
+
+    @Scheduled(
+            initialDelayString = "${auth-server.mfa.session-updater.flush-interval:1s}",
+            fixedDelayString = "${auth-server.mfa.session-updater.flush-interval:1s}"
+    )
+    public void flush() {
+        if (this.pendingUpdates.isEmpty()) {
+            return;
+        }
+
+        final var aUpdates = new ArrayList<Map.Entry<UUID, PendingUpdate>>();
+        for (final var aUserId : this.pendingUpdates.keySet()) {
+            final var aUpdate = this.pendingUpdates.remove(aUserId);
+            if (aUpdate != null) {
+                aUpdates.add(Map.entry(aUserId, aUpdate));
+            }
+        }
+
+        try {
+            write(aUpdates);
+        } catch (RuntimeException e) {
+            log.error("Failed to flush {} MFA session updates, requeueing", aUpdates.size(), e);
+            // não sobrescreve o que chegou enquanto o flush falhava, o mais novo ganha
+            aUpdates.forEach(it -> this.pendingUpdates.putIfAbsent(it.getKey(), it.getValue()));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    int pendingCount() {
+        return this.pendingUpdates.size();
+    }
+
+    private void enqueue(final String principalName, final PendingUpdate update) {
+        if (this.pendingUpdates.put(UUID.fromString(principalName), update) != null) {
+            this.coalescedCounter.increment();
+        }
+    }
+
+    private void write(final List<Map.Entry<UUID, PendingUpdate>> updates) {
+        final var aNow = Timestamp.from(InstantUtils.now());
+        final var aValidUntilUpdates = new ArrayList<Object[]>();
+        final var aValidUntilUsers = new ArrayList<UUID>();
+        final var aResetUpdates = new ArrayList<Object[]>();
+        final var aResetUsers = new ArrayList<UUID>();
+
+        updates.forEach(it -> {
+            if (it.getValue().validUntil() == null) {
+                aResetUpdates.add(new Object[]{aNow, it.getKey()});
+                aResetUsers.add(it.getKey());
+            } else {
+                aValidUntilUpdates.add(new Object[]{Timestamp.from(it.getValue().validUntil()), aNow, it.getKey()});
+                aValidUntilUsers.add(it.getKey());
+            }
+        });
+
+        final var aUpdatedUsers = this.transactionTemplate.execute(status -> {
+            final var aOutput = new ArrayList<UUID>();
+            collectUpdated(aOutput, aValidUntilUsers, batchUpdate(UPDATE_VALID_UNTIL, aValidUntilUpdates));
+            collectUpdated(aOutput, aResetUsers, batchUpdate(RESET_MFA_VERIFIED, aResetUpdates));
+            return UserCacheVersions.bump(this.jdbcTemplate, aOutput);
+        });
+
+        if (aUpdatedUsers == null || aUpdatedUsers.isEmpty()) {
+            return;
+        }
+
+        // o cache do usuário guarda o MFA, sem a invalidação o filtro continuaria vendo o valid_until antigo
+        UserCacheVersions.invalidate(this.redisTemplate, aUpdatedUsers);
+        this.writtenCounter.increment(aUpdatedUsers.size());
+    }
+
+    private int[] batchUpdate(final String sql, final List<Object[]> args) {
+        return args.isEmpty() ? new int[0] : this.jdbcTemplate.batchUpdate(sql, args);
+    }
+
+    private static void collectUpdated(final List<UUID> output, final List<UUID> users, final int[] counts) {
+        for (int i = 0; i < counts.length; i++) {
+            // alguns drivers devolvem SUCCESS_NO_INFO (-2) no batch, só o 0 garante que a linha não existe
+            if (counts[i] != 0) {
+                output.add(users.get(i));
+            }
+        }
+    }
+
+    // validUntil nulo significa que o refresh token já expirou e o MFA precisa ser verificado de novo
+    private record PendingUpdate(Instant validUntil) {
+    }
+}
@@ -0,0 +1,116 @@
+package com.kaua.ecommerce.auth.infrastructure.users;
+
+import com.kaua.ecommerce.auth.domain.users.User;
+import com.kaua.ecommerce.lib.domain.utils.InstantUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// a verificação vira uma chave com TTL por usuário e autorização, o redis expira sozinho e nada é escrito em users_mfa.
+// tokens emitidos sem o claim authorization_id caem numa sessão única do usuário.
+// sessões verificadas antes da troca de store só existem em users_mfa.valid_until, sem a chave o valor do banco vale
+// e vira a chave dessa autorização, daí em diante os refreshes estendem pelo redis
+@Component
+@ConditionalOnProperty(
+        value = "auth-server.mfa.session-store",
+        havingValue = "redis"
+)
+public class RedisMfaSessionStore implements MfaSessionStore {
+
+    private static final String MFA_SESSION_KEY = "mfa:sessions:";
+    private static final String NO_AUTHORIZATION = "none";
+    private static final String VERIFIED = "1";
+
+    // mesma janela do UserMfa.verifyMfa
+    private static final Duration VERIFIED_FOR = Duration.ofMinutes(30);
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    public RedisMfaSessionStore(final RedisTemplate<String, String> redisTemplate) {
+        this.redisTemplate = Objects.requireNonNull(redisTemplate);
+    }
+
+    @Override
+    public Optional<Instant> findVerifiedUntil(final User user, final String authorizationId) {
+        if (!user.getMfa().isDeviceVerified()) {
+            return Optional.empty();
+        }
+
+        final var aKey = key(user.getId().value(), authorizationId);
+
+        // PTTL devolve -2 quando a chave não existe, toda sessão é criada com TTL
+        final var aTtl = this.redisTemplate.getExpire(aKey, TimeUnit.MILLISECONDS);
+        if (aTtl != null && aTtl > 0) {
+            return Optional.of(InstantUtils.now().plusMillis(aTtl));
+        }
+
+        return findDatabaseVerifiedUntil(user, aKey);
+    }
+
+    @Override
+    public void verify(final User user, final String authorizationId) {
+        this.redisTemplate.opsForValue()
+                .set(key(user.getId().value(), authorizationId), VERIFIED, VERIFIED_FOR);
+    }
+
+    // renova o MFA a cada busca pelo refresh token, caso contrário ele vai expirar
+    @Override
+    public void onRefreshTokenLookup(
+            final String principalName,
+            final String authorizationId,
+            final Instant refreshTokenExpiresAt
+    ) {
+        // adicionamos ao expires at uma margem de 30 minutos
+        extend(principalName, authorizationId, refreshTokenExpiresAt.plus(30, ChronoUnit.MINUTES));
+    }
+
+    @Override
+    public void onRefreshTokenIssued(
+            final String principalName,
+            final String authorizationId,
+            final Instant refreshTokenExpiresAt
+    ) {
+        extend(principalName, authorizationId, refreshTokenExpiresAt);
+    }
+
+    private Optional<Instant> findDatabaseVerifiedUntil(final User user, final String key) {
+        if (!user.getMfa().isValid()) {
+            return Optional.empty();
+        }
+
+        final var aVerifiedUntil = user.getMfa().getValidUntil();
+        aVerifiedUntil.ifPresent(it -> {
+            final var aTtl = Duration.between(InstantUtils.now(), it);
+            if (!aTtl.isNegative() && !aTtl.isZero()) {
+                // SET NX, não encurta uma sessão criada por outro nó nesse meio tempo
+                this.redisTemplate.opsForValue().setIfAbsent(key, VERIFIED, aTtl);
+            }
+        });
+        return aVerifiedUntil;
+    }
+
+    // SET XX, só estende uma sessão que já foi verificada
+    private void extend(final String principalName, final String authorizationId, final Instant verifiedUntil) {
+        final var aKey = key(UUID.fromString(principalName), authorizationId);
+        final var aTtl = Duration.between(InstantUtils.now(), verifiedUntil);
+
+        if (aTtl.isNegative() || aTtl.isZero()) {
+            this.redisTemplate.delete(aKey);
+            return;
+        }
+
+        this.redisTemplate.opsForValue().setIfPresent(aKey, VERIFIED, aTtl);
+    }
+
+    private static String key(final UUID userId, final String authorizationId) {
+        return MFA_SESSION_KEY + userId + ":" + Objects.requireNonNullElse(authorizationId, NO_AUTHORIZATION);
+    }
+}
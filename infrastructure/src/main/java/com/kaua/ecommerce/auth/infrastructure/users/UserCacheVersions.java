@@ -0,0 +1,64 @@
+package com.kaua.ecommerce.auth.infrastructure.users;
+
+import com.kaua.ecommerce.auth.infrastructure.cache.RedisCacheAccessor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+// escritas em users_mfa por JDBC, fora do agregado, não passam pelo @Version do usuário. sem subir users.version
+// um leitor que viu a linha antes do commit recarregaria o cache com o MFA antigo, a chave de versão não barraria.
+// bump roda na transação da escrita, invalidate depois do commit
+final class UserCacheVersions {
+
+    private static final String BUMP_USER_VERSION = "UPDATE users SET version = version + 1 WHERE id = ?";
+    private static final String SELECT_USER_VERSIONS = "SELECT id, version FROM users WHERE id IN (%s)";
+
+    private UserCacheVersions() {
+    }
+
+    static Map<UUID, Long> bump(final JdbcTemplate jdbcTemplate, final Collection<UUID> userIds) {
+        if (userIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        jdbcTemplate.batchUpdate(BUMP_USER_VERSION, userIds.stream()
+                .map(it -> new Object[]{it})
+                .toList());
+
+        return jdbcTemplate.query(
+                        SELECT_USER_VERSIONS.formatted(userIds.stream()
+                                .map(it -> "?")
+                                .collect(Collectors.joining(", "))),
+                        (rs, rowNum) -> Map.entry(rs.getObject("id", UUID.class), rs.getLong("version")),
+                        userIds.toArray())
+                .stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    // a versão sobe no redis antes do delete, a recarga de quem leu a versão anterior é recusada pelo script
+    static void invalidate(final RedisTemplate<String, String> redisTemplate, final Map<UUID, Long> versions) {
+        if (versions.isEmpty()) {
+            return;
+        }
+
+        new RedisCacheAccessor(redisTemplate, UserRepositoryImpl.CACHE_EXPIRATION).setAllRawIfNotOlder(
+                versions.entrySet().stream()
+                        .map(it -> new RedisCacheAccessor.VersionedEntries(
+                                UserRepositoryImpl.USER_VERSION_CACHE_KEY.concat(it.getKey().toString()),
+                                it.getValue(),
+                                Map.of()
+                        ))
+                        .toList()
+        );
+
+        redisTemplate.delete(versions.keySet().stream()
+                .map(it -> UserRepositoryImpl.USER_CACHE_KEY.concat(it.toString()))
+                .toList());
+        UserNearCache.publishInvalidation(redisTemplate, versions.keySet());
+    }
+}
@@ -0,0 +1,198 @@
+package com.kaua.ecommerce.auth.infrastructure.users;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kaua.ecommerce.auth.infrastructure.users.persistence.cache.UserCacheEntity;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+// L1 em memória na frente do redis. guarda o UserCacheEntity, que ninguém altera, e não o User, que é mutável.
+// qualquer escrita publica os ids no canal e cada nó (inclusive o que escreveu) derruba a entrada local.
+// uma leitura do redis que cruza com a invalidação pode voltar a entrada antiga, o TTL curto limita esse tempo
+final class UserNearCache {
+
+    private static final Logger log = LoggerFactory.getLogger(UserNearCache.class);
+
+    static final String INVALIDATION_CHANNEL = "users:invalidations";
+    private static final String ID_SEPARATOR = ",";
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final boolean enabled;
+    private final Cache<UUID, UserCacheEntity> users;
+    private final Cache<String, UUID> emails;
+    private final RedisMessageListenerContainer listenerContainer = new RedisMessageListenerContainer();
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder redisMisses = new LongAdder();
+
+    UserNearCache(
+            final RedisTemplate<String, String> redisTemplate,
+            final Duration ttl,
+            final long maxSize
+    ) {
+        this.redisTemplate = Objects.requireNonNull(redisTemplate);
+        this.enabled = !ttl.isZero();
+        this.users = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        this.emails = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    Optional<UserCacheEntity> get(final UUID id) {
+        return Optional.ofNullable(this.users.getIfPresent(id));
+    }
+
+    // o email -> id de antes de uma troca de email pode sobrar até o TTL, só vale se o usuário ainda tem o email
+    Optional<UserCacheEntity> getByEmail(final String email) {
+        final var aId = this.emails.getIfPresent(email);
+        return aId == null ? Optional.empty() : get(aId).filter(it -> it.getEmail().equals(email));
+    }
+
+    // sem contar nas estatísticas, para a checagem de novo dentro da carga
+    Optional<UserCacheEntity> peek(final UUID id) {
+        return Optional.ofNullable(this.users.asMap().get(id));
+    }
+
+    Optional<UserCacheEntity> peekByEmail(final String email) {
+        final var aId = this.emails.getIfPresent(email);
+        return aId == null ? Optional.empty() : peek(aId).filter(it -> it.getEmail().equals(email));
+    }
+
+    void put(final UserCacheEntity user) {
+        this.users.put(user.getId(), user);
+        this.emails.put(user.getEmail(), user.getId());
+    }
+
+    void recordRedisLookup(final boolean hit) {
+        (hit ? this.redisHits : this.redisMisses).increment();
+    }
+
+    void invalidate(final Collection<UUID> ids) {
+        invalidateLocally(ids);
+        publishInvalidation(this.redisTemplate, ids);
+    }
+
+    // para quem apaga users:{id} direto no redis, os nós derrubam o L1 ao receber a mensagem
+    static void publishInvalidation(final RedisTemplate<String, String> redisTemplate, final Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, ids.stream()
+                    .map(UUID::toString)
+                    .collect(Collectors.joining(ID_SEPARATOR)));
+        } catch (RuntimeException e) {
+            log.warn("Failed to publish user cache invalidation for {} users", ids.size(), e);
+        }
+    }
+
+    void start() {
+        if (!this.enabled) {
+            // TTL zero desliga o L1, não há o que invalidar
+            return;
+        }
+        this.listenerContainer.setConnectionFactory(Objects.requireNonNull(this.redisTemplate.getConnectionFactory()));
+        this.listenerContainer.addMessageListener(
+                (message, pattern) -> onInvalidation(message),
+                new ChannelTopic(INVALIDATION_CHANNEL)
+        );
+        try {
+            this.listenerContainer.afterPropertiesSet();
+            this.listenerContainer.start();
+        } catch (RuntimeException e) {
+            // sem a assinatura o L1 só fica desatualizado até o TTL, não vale derrubar a aplicação
+            log.warn("Could not subscribe to {}, user near cache relies on its TTL only", INVALIDATION_CHANNEL, e);
+        }
+    }
+
+    void stop() {
+        if (!this.enabled) {
+            return;
+        }
+        try {
+            this.listenerContainer.destroy();
+        } catch (Exception e) {
+            log.warn("Failed to stop user cache invalidation listener", e);
+        }
+    }
+
+    void bindTo(final MeterRegistry registry) {
+        FunctionCounter.builder("auth.users.cache.requests", this.users, it -> it.stats().hitCount())
+                .description("User lookups per cache tier")
+                .tags("tier", "l1", "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("auth.users.cache.requests", this.users, it -> it.stats().missCount())
+                .description("User lookups per cache tier")
+                .tags("tier", "l1", "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("auth.users.cache.requests", this.redisHits, LongAdder::doubleValue)
+                .description("User lookups per cache tier")
+                .tags("tier", "l2", "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("auth.users.cache.requests", this.redisMisses, LongAdder::doubleValue)
+                .description("User lookups per cache tier")
+                .tags("tier", "l2", "result", "miss")
+                .register(registry);
+
+        Gauge.builder("auth.users.cache.hit.ratio", this.users, it -> it.stats().hitRate())
+                .description("Hit ratio per user cache tier")
+                .tag("tier", "l1")
+                .register(registry);
+        Gauge.builder("auth.users.cache.hit.ratio", this, UserNearCache::redisHitRatio)
+                .description("Hit ratio per user cache tier")
+                .tag("tier", "l2")
+                .register(registry);
+    }
+
+    double redisHitRatio() {
+        final var aHits = this.redisHits.sum();
+        final var aTotal = aHits + this.redisMisses.sum();
+        return aTotal == 0 ? 1.0 : (double) aHits / aTotal;
+    }
+
+    // o convertAndSend passa a mensagem pelo serializer de valores do template, aqui é o caminho inverso
+    private void onInvalidation(final Message message) {
+        if (!(this.redisTemplate.getValueSerializer().deserialize(message.getBody()) instanceof String aIds)
+                || aIds.isBlank()) {
+            return;
+        }
+
+        try {
+            invalidateLocally(Arrays.stream(aIds.split(ID_SEPARATOR))
+                    .map(UUID::fromString)
+                    .toList());
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring malformed user cache invalidation message", e);
+        }
+    }
+
+    private void invalidateLocally(final Collection<UUID> ids) {
+        // pelo asMap para a remoção não contar como miss nas estatísticas
+        ids.forEach(it -> {
+            final var aRemoved = this.users.asMap().remove(it);
+            if (aRemoved != null) {
+                this.emails.invalidate(aRemoved.getEmail());
+            }
+        });
+    }
+}
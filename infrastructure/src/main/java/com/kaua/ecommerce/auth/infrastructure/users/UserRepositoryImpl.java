@@ -2,49 +2,113 @@ package com.kaua.ecommerce.auth.infrastructure.users;
 
 import com.kaua.ecommerce.auth.application.repositories.UserRepository;
 import com.kaua.ecommerce.auth.domain.users.User;
-import com.kaua.ecommerce.auth.infrastructure.configurations.json.Json;
+import com.kaua.ecommerce.auth.infrastructure.cache.HotKeySketch;
+import com.kaua.ecommerce.auth.infrastructure.cache.RedisCacheAccessor;
+import com.kaua.ecommerce.auth.infrastructure.cache.SingleFlight;
 import com.kaua.ecommerce.auth.infrastructure.users.persistence.UserJpaEntity;
 import com.kaua.ecommerce.auth.infrastructure.users.persistence.UserJpaEntityRepository;
 import com.kaua.ecommerce.auth.infrastructure.users.persistence.cache.UserCacheEntity;
+import com.kaua.ecommerce.auth.infrastructure.users.persistence.cache.UserCacheEntityCodec;
+import com.kaua.ecommerce.lib.domain.exceptions.DomainException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 @Component
-public class UserRepositoryImpl implements UserRepository {
+public class UserRepositoryImpl implements UserRepository, MeterBinder {
 
     private static final Logger log = LoggerFactory.getLogger(UserRepositoryImpl.class);
 
-    private static final String USER_CACHE_KEY = "users:";
+    static final String USER_CACHE_KEY = "users:";
     private static final String USER_EMAIL_CACHE_KEY = "users:email:";
+    static final String USER_VERSION_CACHE_KEY = "users:version:";
 
-    private static final TimeUnit CACHE_EXPIRATION_TIME_UNIT = TimeUnit.DAYS;
-    private static final long CACHE_EXPIRATION_TIME = 2;
+    static final Duration CACHE_EXPIRATION = Duration.ofDays(2);
 
     private final UserJpaEntityRepository userJpaEntityRepository;
-    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisCacheAccessor cache;
+    private final UserCacheEntityCodec codec;
+    private final UserNearCache nearCache;
+    private final SingleFlight<UUID, Optional<UserCacheEntity>> loadsById = new SingleFlight<>();
+    private final SingleFlight<String, Optional<UserCacheEntity>> loadsByEmail = new SingleFlight<>();
+    private final HotKeySketch<UUID> hotUsers;
+    private final EmailBloomFilter emailFilter;
 
     public UserRepositoryImpl(
             final UserJpaEntityRepository userJpaEntityRepository,
-            final RedisTemplate<String, String> redisTemplate
+            final RedisTemplate<String, String> redisTemplate,
+            @Value("${auth-server.users.near-cache.ttl:5s}") final Duration nearCacheTtl,
+            @Value("${auth-server.users.near-cache.max-size:10000}") final long nearCacheMaxSize,
+            @Value("${auth-server.users.cache-codec:json}") final String cacheCodec,
+            @Value("${auth-server.users.hot-keys.capacity:1000}") final long hotKeysCapacity,
+            @Value("${auth-server.users.email-filter.expected-emails:1000000}") final long expectedEmails,
+            @Value("${auth-server.users.email-filter.false-positive-rate:0.01}") final double emailFalsePositiveRate
     ) {
         this.userJpaEntityRepository = Objects.requireNonNull(userJpaEntityRepository);
-        this.redisTemplate = Objects.requireNonNull(redisTemplate);
+        this.cache = new RedisCacheAccessor(redisTemplate, CACHE_EXPIRATION);
+        this.codec = new UserCacheEntityCodec(UserCacheEntityCodec.Format.of(cacheCodec), this.cache.valueSerializer());
+        this.nearCache = new UserNearCache(redisTemplate, nearCacheTtl, nearCacheMaxSize);
+        this.hotUsers = new HotKeySketch<>(hotKeysCapacity);
+        this.emailFilter = new EmailBloomFilter(redisTemplate, expectedEmails, emailFalsePositiveRate);
+    }
+
+    @PostConstruct
+    public void startNearCache() {
+        this.nearCache.start();
+    }
+
+    @PreDestroy
+    public void stopCaches() {
+        this.nearCache.stop();
+        this.emailFilter.stop();
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        this.nearCache.bindTo(registry);
+        this.emailFilter.bindTo(registry);
     }
 
     @Override
     public User save(final User user) {
         log.debug("Saving user: {}", user);
 
-        final var aOutput = this.userJpaEntityRepository.save(UserJpaEntity.toEntity(user))
-                .toDomain();
+        this.emailFilter.addAndPublish(user.getEmail().value());
+
+        final UserJpaEntity aSaved;
+        try {
+            aSaved = this.userJpaEntityRepository.save(UserJpaEntity.toEntity(user));
+        } catch (final DataIntegrityViolationException e) {
+            // o filtro de outro nó pode não ter recebido um email cadastrado agora, quem barra é o unique de
+            // users.email. confere no banco para não confundir com outra constraint
+            if (this.userJpaEntityRepository.existsByEmail(user.getEmail().value())) {
+                throw DomainException.with("Email already exists");
+            }
+            throw e;
+        }
+
+        final var aOutput = aSaved.toDomain();
         log.info("User saved: {}", aOutput);
         return aOutput;
     }
@@ -53,11 +117,15 @@ public class UserRepositoryImpl implements UserRepository {
     public User update(final User user) {
         log.debug("Updating user: {}", user);
 
-        this.redisTemplate.delete(USER_CACHE_KEY.concat(user.getId().value().toString()));
-        this.redisTemplate.delete(USER_EMAIL_CACHE_KEY.concat(user.getEmail().value()));
+        // o email pode ter mudado, o antigo continua no filtro como falso positivo
+        this.emailFilter.addAndPublish(user.getEmail().value());
+
+        final var aSaved = this.userJpaEntityRepository.save(UserJpaEntity.toEntity(user));
+        // só depois do commit: antes disso quem lesse o banco ainda veria a linha antiga e recarregaria o cache com
+        // ela. a versão do @Version é lida no callback, já com o incremento do flush
+        afterCommit(() -> this.refreshCache(aSaved));
 
-        final var aOutput = this.userJpaEntityRepository.save(UserJpaEntity.toEntity(user))
-                .toDomain();
+        final var aOutput = aSaved.toDomain();
         log.info("User updated: {}", aOutput);
         return aOutput;
     }
@@ -65,75 +133,204 @@ public class UserRepositoryImpl implements UserRepository {
     @Transactional(readOnly = true)
     @Override
     public Optional<User> findById(final UUID id) {
+        this.hotUsers.record(id);
+
+        final var aNearCached = this.nearCache.get(id);
+        if (aNearCached.isPresent()) {
+            log.debug("User by id found in near cache: {}", id);
+            return aNearCached.map(UserCacheEntity::toDomain);
+        }
+
         final var aKey = USER_CACHE_KEY.concat(id.toString());
 
-        final var aCachedUser = this.redisTemplate.opsForValue().get(aKey);
+        final var aCachedUser = this.cache.getRaw(aKey);
+        this.nearCache.recordRedisLookup(aCachedUser != null);
 
         if (aCachedUser != null) {
             log.debug("User by id found in cache: {}", id);
-            final var aUserCacheEntity = Json.readValue(aCachedUser, UserCacheEntity.class);
+            final var aUserCacheEntity = this.codec.decode(aCachedUser);
+            this.nearCache.put(aUserCacheEntity);
             return Optional.of(aUserCacheEntity.toDomain());
         }
 
-        return this.userJpaEntityRepository.findById(id)
-                .map(it -> {
-                    log.debug("User by id found in database and set in cache: {}", id);
+        // quem esperou a carga de outra thread recebe o mesmo UserCacheEntity, cada um monta o seu User
+        return this.loadsById.load(id, () -> this.nearCache.peek(id)
+                        .or(() -> this.userJpaEntityRepository.findById(id)
+                                .map(it -> {
+                                    log.debug("User by id found in database and set in cache: {}", id);
+                                    return this.setInCache(UserCacheEntity.toEntity(it));
+                                })))
+                .map(UserCacheEntity::toDomain);
+    }
 
-                    final var aUserCacheEntity = UserCacheEntity.toEntity(it);
+    @Transactional(readOnly = true)
+    @Override
+    public Optional<User> findByEmail(final String email) {
+        final var aNearCached = this.nearCache.getByEmail(email);
+        if (aNearCached.isPresent()) {
+            log.debug("User found in near cache by email: {}", aNearCached.get().getId());
+            this.hotUsers.record(aNearCached.get().getId());
+            return aNearCached.map(UserCacheEntity::toDomain);
+        }
 
-                    this.redisTemplate.opsForValue()
-                            .set(USER_CACHE_KEY.concat(it.getId().toString()), Json.writeValueAsString(aUserCacheEntity));
-                    this.redisTemplate.opsForValue()
-                            .set(USER_EMAIL_CACHE_KEY.concat(it.getEmail()), it.getId().toString());
+        // email -> id -> usuário numa ida só ao redis
+        final var aCachedUser = this.cache.getRawByReference(USER_EMAIL_CACHE_KEY.concat(email), USER_CACHE_KEY);
+        this.nearCache.recordRedisLookup(aCachedUser != null);
 
-                    this.redisTemplate.expire(USER_CACHE_KEY.concat(it.getId().toString()),
-                            CACHE_EXPIRATION_TIME, CACHE_EXPIRATION_TIME_UNIT);
-                    this.redisTemplate.expire(USER_EMAIL_CACHE_KEY.concat(it.getEmail()),
-                            CACHE_EXPIRATION_TIME, CACHE_EXPIRATION_TIME_UNIT);
+        final var aUserCacheEntity = aCachedUser == null ? null : this.codec.decode(aCachedUser);
+        // a referência de um email antigo pode sobrar de uma troca de email, não vale como hit
+        if (aUserCacheEntity != null && aUserCacheEntity.getEmail().equals(email)) {
+            log.debug("User found in cache by email: {}", aUserCacheEntity.getId());
+            this.hotUsers.record(aUserCacheEntity.getId());
+            this.nearCache.put(aUserCacheEntity);
+            return Optional.of(aUserCacheEntity.toDomain());
+        }
 
+        return this.loadsByEmail.load(email, () -> this.nearCache.peekByEmail(email)
+                        .or(() -> this.userJpaEntityRepository.findByEmail(email)
+                                .map(it -> {
+                                    log.debug("User by email found in database and set in cache, {}", it.getId());
+                                    return this.setInCache(UserCacheEntity.toEntity(it));
+                                })))
+                .map(it -> {
+                    this.hotUsers.record(it.getId());
                     return it.toDomain();
                 });
     }
 
-    @Transactional(readOnly = true)
     @Override
-    public Optional<User> findByEmail(final String email) {
-        final var aEmailKey = USER_EMAIL_CACHE_KEY.concat(email);
+    public boolean existsByEmail(final String email) {
+        if (this.emailFilter.definitelyAbsent(email)) {
+            log.debug("Email not found by email filter, skipping database");
+            return false;
+        }
 
-        final var aCachedId = this.redisTemplate.opsForValue().get(aEmailKey);
+        final var aOutput = this.userJpaEntityRepository.existsByEmail(email);
+        this.emailFilter.recordDatabaseCheck(aOutput);
+        return aOutput;
+    }
 
-        if (aCachedId != null) {
-            log.debug("User found in cache by email: {}", email);
-            final var aCachedUser = this.redisTemplate.opsForValue().get(USER_CACHE_KEY.concat(aCachedId));
+    // assina o canal antes da varredura e só libera o filtro no fim dela, com o stream aberto só uma página de
+    // emails fica em memória por vez
+    @Transactional(readOnly = true)
+    public long loadEmailFilter() {
+        this.emailFilter.subscribe();
 
-            if (aCachedUser != null) {
-                log.debug("User by reference key found in cache: {}", aCachedId);
-                final var aUserCacheEntity = Json.readValue(aCachedUser, UserCacheEntity.class);
-                return Optional.of(aUserCacheEntity.toDomain());
-            }
+        final long aOutput;
+        try (final var aEmails = this.userJpaEntityRepository.streamAllEmails()) {
+            aOutput = addToEmailFilter(aEmails);
         }
 
-        return this.userJpaEntityRepository.findByEmail(email)
+        this.emailFilter.markReady();
+        return aOutput;
+    }
+
+    @Transactional(readOnly = true)
+    public long catchUpEmailFilter(final Instant since) {
+        try (final var aEmails = this.userJpaEntityRepository.streamEmailsUpdatedSince(since)) {
+            return addToEmailFilter(aEmails);
+        }
+    }
+
+    private long addToEmailFilter(final Stream<String> emails) {
+        return emails.mapToLong(it -> {
+            this.emailFilter.add(it);
+            return 1;
+        }).sum();
+    }
+
+    public List<UUID> recentlyActiveUserIds(final int limit) {
+        return this.userJpaEntityRepository.findRecentlyUpdatedIds(PageRequest.of(0, limit));
+    }
+
+    // os mais acessados deste nó, o que vale reaquecer depois de um failover do redis
+    public List<UUID> hottestUserIds(final int limit) {
+        return this.hotUsers.hottest(limit);
+    }
+
+    // uma consulta com os joins para o lote todo e um pipeline só no redis. passa pela mesma guarda de versão do
+    // setInCache, um update que commitou durante o aquecimento não é sobrescrito pela linha lida antes.
+    // o L1 não é preenchido, ele se enche sozinho com o tráfego
+    @Transactional(readOnly = true)
+    public int preload(final Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        final var aBatch = this.userJpaEntityRepository.findAllByIdIn(ids).stream()
+                .map(UserCacheEntity::toEntity)
                 .map(it -> {
-                    log.debug("User by email found in database and set in cache, {}", it.getId());
-                    final var aUserCacheEntity = UserCacheEntity.toEntity(it);
+                    final var aId = it.getId().toString();
+                    return new RedisCacheAccessor.VersionedEntries(
+                            USER_VERSION_CACHE_KEY.concat(aId),
+                            it.getVersion(),
+                            Map.of(
+                                    USER_CACHE_KEY.concat(aId), this.codec.encode(it),
+                                    USER_EMAIL_CACHE_KEY.concat(it.getEmail()), this.cache.serialize(aId)
+                            )
+                    );
+                })
+                .toList();
 
-                    this.redisTemplate.opsForValue()
-                            .set(USER_CACHE_KEY.concat(it.getId().toString()), Json.writeValueAsString(aUserCacheEntity));
-                    this.redisTemplate.opsForValue()
-                            .set(USER_EMAIL_CACHE_KEY.concat(it.getEmail()), it.getId().toString());
+        this.cache.setAllRawIfNotOlder(aBatch);
+        return aBatch.size();
+    }
 
-                    this.redisTemplate.expire(USER_CACHE_KEY.concat(it.getId().toString()),
-                            CACHE_EXPIRATION_TIME, CACHE_EXPIRATION_TIME_UNIT);
-                    this.redisTemplate.expire(USER_EMAIL_CACHE_KEY.concat(it.getEmail()),
-                            CACHE_EXPIRATION_TIME, CACHE_EXPIRATION_TIME_UNIT);
+    private void refreshCache(final UserJpaEntity saved) {
+        final var aUser = UserCacheEntity.toEntity(saved);
+        final var aUserKey = USER_CACHE_KEY.concat(aUser.getId().toString());
 
-                    return it.toDomain();
-                });
+        try {
+            final var aPrevious = this.cache.getRaw(aUserKey);
+            if (aPrevious != null) {
+                final var aPreviousEmail = this.codec.decode(aPrevious).getEmail();
+                if (!aPreviousEmail.equals(aUser.getEmail())) {
+                    this.cache.delete(USER_EMAIL_CACHE_KEY.concat(aPreviousEmail));
+                }
+            }
+
+            this.nearCache.invalidate(List.of(aUser.getId()));
+            setInCache(aUser);
+        } catch (RuntimeException e) {
+            // o commit já aconteceu, não dá para desfazer. sem a recarga a entrada antiga fica até o TTL
+            log.error("Failed to refresh cached user {} after update", aUser.getId(), e);
+        }
     }
 
-    @Override
-    public boolean existsByEmail(final String email) {
-        return this.userJpaEntityRepository.existsByEmail(email);
+    // escreve só se nenhuma versão mais nova do usuário já estiver no redis, um leitor atrasado não sobrescreve
+    // o que o update gravou depois do commit
+    UserCacheEntity setInCache(final UserCacheEntity user) {
+        final var aId = user.getId().toString();
+        final var aWritten = this.cache.setAllRawIfNotOlder(
+                USER_VERSION_CACHE_KEY.concat(aId),
+                user.getVersion(),
+                Map.of(
+                        USER_CACHE_KEY.concat(aId), this.codec.encode(user),
+                        USER_EMAIL_CACHE_KEY.concat(user.getEmail()), this.cache.serialize(aId)
+                )
+        );
+
+        if (aWritten) {
+            // o L1 por último, é ele que a próxima carga olha antes de ir ao banco
+            this.nearCache.put(user);
+        } else {
+            log.debug("Skipped cache fill for user {}, a newer version is already cached", aId);
+        }
+        return user;
+    }
+
+    private static void afterCommit(final Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            // sem transação em volta o save já commitou
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
@@ -1,10 +1,18 @@
 package com.kaua.ecommerce.auth.infrastructure.users.persistence;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface UserJpaEntityRepository extends JpaRepository<UserJpaEntity, UUID> {
 
@@ -12,4 +20,20 @@ public interface UserJpaEntityRepository extends JpaRepository<UserJpaEntity, UU
 
     @Query("SELECT u FROM UserJpaEntity u LEFT JOIN FETCH u.roles LEFT JOIN FETCH u.mfa WHERE u.email = :email")
     Optional<UserJpaEntity> findByEmail(String email);
+
+    @Query("SELECT DISTINCT u FROM UserJpaEntity u LEFT JOIN FETCH u.roles LEFT JOIN FETCH u.mfa WHERE u.id IN :ids")
+    List<UserJpaEntity> findAllByIdIn(Collection<UUID> ids);
+
+    // não existe coluna de último login, o updated_at é o que mais se aproxima de atividade recente
+    @Query("SELECT u.id FROM UserJpaEntity u WHERE u.isDeleted = false ORDER BY u.updatedAt DESC")
+    List<UUID> findRecentlyUpdatedIds(Pageable pageable);
+
+    // streams precisam de transação aberta e de close, o fetch size evita trazer a tabela inteira de uma vez
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT u.email FROM UserJpaEntity u")
+    Stream<String> streamAllEmails();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT u.email FROM UserJpaEntity u WHERE u.updatedAt >= :since")
+    Stream<String> streamEmailsUpdatedSince(Instant since);
 }
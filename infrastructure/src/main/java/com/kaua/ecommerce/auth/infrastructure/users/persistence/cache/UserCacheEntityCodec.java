@@ -0,0 +1,239 @@
+package com.kaua.ecommerce.auth.infrastructure.users.persistence.cache;
+
+import com.kaua.ecommerce.auth.domain.users.mfas.UserMfaType;
+import com.kaua.ecommerce.auth.infrastructure.configurations.json.Json;
+import com.kaua.ecommerce.auth.infrastructure.users.persistence.UserMfaJpaEntity;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.UUID;
+
+// formato binário do usuário em cache: UUID em dois longs, Instant em nanos desde a epoch, strings com tamanho na
+// frente. o primeiro byte é a versão do formato. o formato antigo é a string JSON passada pelo serializer do
+// template, que sempre começa com aspas, então os dois convivem na mesma chave durante o deploy.
+// a ordem de rollout é subir todos os nós lendo os dois formatos com json e só depois trocar para binary
+public final class UserCacheEntityCodec {
+
+    static final byte BINARY_VERSION = 1;
+    private static final byte JSON_STRING_START = '"';
+
+    private static final int DELETED = 1;
+    private static final int EMAIL_VERIFIED = 1 << 1;
+    private static final int HAS_DELETED_AT = 1 << 2;
+    private static final int HAS_MFA = 1 << 3;
+
+    private static final int MFA_ENABLED = 1;
+    private static final int MFA_VERIFIED = 1 << 1;
+    private static final int DEVICE_VERIFIED = 1 << 2;
+    private static final int HAS_SECRET = 1 << 3;
+    private static final int HAS_DEVICE_NAME = 1 << 4;
+    private static final int HAS_TYPE = 1 << 5;
+    private static final int HAS_VALID_UNTIL = 1 << 6;
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final Format format;
+    private final RedisSerializer<String> textSerializer;
+
+    public UserCacheEntityCodec(final Format format, final RedisSerializer<String> textSerializer) {
+        this.format = Objects.requireNonNull(format);
+        this.textSerializer = Objects.requireNonNull(textSerializer);
+    }
+
+    public byte[] encode(final UserCacheEntity user) {
+        if (this.format == Format.JSON) {
+            return this.textSerializer.serialize(Json.writeValueAsString(user));
+        }
+        return writeBinary(user);
+    }
+
+    public UserCacheEntity decode(final byte[] data) {
+        if (data.length == 0) {
+            throw new IllegalStateException("Unsupported user cache format: empty");
+        }
+
+        return switch (data[0]) {
+            case JSON_STRING_START -> Json.readValue(this.textSerializer.deserialize(data), UserCacheEntity.class);
+            case BINARY_VERSION -> readBinary(data);
+            default -> throw new IllegalStateException("Unsupported user cache format: " + data[0]);
+        };
+    }
+
+    static byte[] writeBinary(final UserCacheEntity user) {
+        final var aOutput = new ByteArrayOutputStream(256);
+        try (final var aData = new DataOutputStream(aOutput)) {
+            final var aMfa = user.getMfa();
+            final var aDeletedAt = user.getDeletedAt().orElse(null);
+
+            aData.writeByte(BINARY_VERSION);
+            writeUuid(aData, user.getId());
+            aData.writeLong(user.getVersion());
+            writeUuid(aData, user.getCustomerId());
+            writeString(aData, user.getFirstName());
+            writeString(aData, user.getLastName());
+            writeString(aData, user.getEmail());
+            writeString(aData, user.getPassword());
+
+            var aFlags = 0;
+            if (user.isDeleted()) aFlags |= DELETED;
+            if (user.isEmailVerified()) aFlags |= EMAIL_VERIFIED;
+            if (aDeletedAt != null) aFlags |= HAS_DELETED_AT;
+            if (aMfa != null) aFlags |= HAS_MFA;
+            aData.writeByte(aFlags);
+
+            aData.writeShort(user.getRoles().size());
+            for (final var aRole : user.getRoles()) {
+                writeUuid(aData, aRole);
+            }
+
+            writeInstant(aData, user.getCreatedAt());
+            writeInstant(aData, user.getUpdatedAt());
+            if (aDeletedAt != null) {
+                writeInstant(aData, aDeletedAt);
+            }
+
+            if (aMfa != null) {
+                writeMfa(aData, aMfa);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return aOutput.toByteArray();
+    }
+
+    static UserCacheEntity readBinary(final byte[] data) {
+        final var aBuffer = ByteBuffer.wrap(data, 1, data.length - 1);
+
+        final var aId = readUuid(aBuffer);
+        final var aVersion = aBuffer.getLong();
+        final var aCustomerId = readUuid(aBuffer);
+        final var aFirstName = readString(aBuffer);
+        final var aLastName = readString(aBuffer);
+        final var aEmail = readString(aBuffer);
+        final var aPassword = readString(aBuffer);
+        final var aFlags = aBuffer.get();
+
+        final var aRolesCount = aBuffer.getShort() & 0xFFFF;
+        final var aRoles = new HashSet<UUID>(aRolesCount * 2);
+        for (int i = 0; i < aRolesCount; i++) {
+            aRoles.add(readUuid(aBuffer));
+        }
+
+        final var aCreatedAt = readInstant(aBuffer);
+        final var aUpdatedAt = readInstant(aBuffer);
+        final var aDeletedAt = (aFlags & HAS_DELETED_AT) != 0 ? readInstant(aBuffer) : null;
+        final var aMfa = (aFlags & HAS_MFA) != 0 ? readMfa(aBuffer) : null;
+
+        return new UserCacheEntity(
+                aId,
+                aVersion,
+                aCustomerId,
+                aFirstName,
+                aLastName,
+                aEmail,
+                aPassword,
+                aRoles,
+                (aFlags & DELETED) != 0,
+                (aFlags & EMAIL_VERIFIED) != 0,
+                aMfa,
+                aCreatedAt,
+                aUpdatedAt,
+                aDeletedAt
+        );
+    }
+
+    private static void writeMfa(final DataOutputStream data, final UserMfaJpaEntity mfa) throws IOException {
+        final var aSecret = mfa.getMfaSecret().orElse(null);
+        final var aDeviceName = mfa.getDeviceName().orElse(null);
+        final var aType = mfa.getMfaType().orElse(null);
+        final var aValidUntil = mfa.getValidUntil().orElse(null);
+
+        var aFlags = 0;
+        if (mfa.isMfaEnabled()) aFlags |= MFA_ENABLED;
+        if (mfa.isMfaVerified()) aFlags |= MFA_VERIFIED;
+        if (mfa.isDeviceVerified()) aFlags |= DEVICE_VERIFIED;
+        if (aSecret != null) aFlags |= HAS_SECRET;
+        if (aDeviceName != null) aFlags |= HAS_DEVICE_NAME;
+        if (aType != null) aFlags |= HAS_TYPE;
+        if (aValidUntil != null) aFlags |= HAS_VALID_UNTIL;
+
+        writeUuid(data, mfa.getId());
+        data.writeByte(aFlags);
+        if (aSecret != null) writeString(data, aSecret);
+        if (aDeviceName != null) writeString(data, aDeviceName);
+        // pelo nome, reordenar o enum não muda o que já está no cache
+        if (aType != null) writeString(data, aType.name());
+        writeInstant(data, mfa.getCreatedAt());
+        writeInstant(data, mfa.getUpdatedAt());
+        if (aValidUntil != null) writeInstant(data, aValidUntil);
+    }
+
+    private static UserMfaJpaEntity readMfa(final ByteBuffer buffer) {
+        final var aMfa = new UserMfaJpaEntity();
+        aMfa.setId(readUuid(buffer));
+
+        final var aFlags = buffer.get();
+        aMfa.setMfaEnabled((aFlags & MFA_ENABLED) != 0);
+        aMfa.setMfaVerified((aFlags & MFA_VERIFIED) != 0);
+        aMfa.setDeviceVerified((aFlags & DEVICE_VERIFIED) != 0);
+        if ((aFlags & HAS_SECRET) != 0) aMfa.setMfaSecret(readString(buffer));
+        if ((aFlags & HAS_DEVICE_NAME) != 0) aMfa.setDeviceName(readString(buffer));
+        if ((aFlags & HAS_TYPE) != 0) aMfa.setMfaType(UserMfaType.valueOf(readString(buffer)));
+        aMfa.setCreatedAt(readInstant(buffer));
+        aMfa.setUpdatedAt(readInstant(buffer));
+        if ((aFlags & HAS_VALID_UNTIL) != 0) aMfa.setValidUntil(readInstant(buffer));
+        return aMfa;
+    }
+
+    private static void writeUuid(final DataOutputStream data, final UUID value) throws IOException {
+        data.writeLong(value.getMostSignificantBits());
+        data.writeLong(value.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(final ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    // nanos desde a epoch cabem num long até 2262, estoura com exception em vez de gravar uma data errada
+    private static void writeInstant(final DataOutputStream data, final Instant value) throws IOException {
+        data.writeLong(Math.addExact(Math.multiplyExact(value.getEpochSecond(), NANOS_PER_SECOND), value.getNano()));
+    }
+
+    private static Instant readInstant(final ByteBuffer buffer) {
+        final var aNanos = buffer.getLong();
+        return Instant.ofEpochSecond(Math.floorDiv(aNanos, NANOS_PER_SECOND), Math.floorMod(aNanos, NANOS_PER_SECOND));
+    }
+
+    private static void writeString(final DataOutputStream data, final String value) throws IOException {
+        final var aBytes = value.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(aBytes.length);
+        data.write(aBytes);
+    }
+
+    private static String readString(final ByteBuffer buffer) {
+        final var aLength = buffer.getInt();
+        final var aOutput = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), aLength, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + aLength);
+        return aOutput;
+    }
+
+    public enum Format {
+        JSON,
+        BINARY;
+
+        public static Format of(final String value) {
+            return Arrays.stream(values())
+                    .filter(aFormat -> aFormat.name().equalsIgnoreCase(value))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown user cache codec: " + value));
+        }
+    }
+}
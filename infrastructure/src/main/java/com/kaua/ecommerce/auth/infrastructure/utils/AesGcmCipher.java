@@ -0,0 +1,88 @@
+package com.kaua.ecommerce.auth.infrastructure.utils;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Optional;
+
+// AES-GCM com IV aleatório de 12 bytes na frente do texto cifrado, tudo em base64.
+// o aad é opcional, quando vem amarra o payload ao contexto (ex.: a chave do redis)
+public final class AesGcmCipher {
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH = 128;
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+    private static final ThreadLocal<Cipher> CIPHERS = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+            throw new RuntimeException(e);
+        }
+    });
+
+    private AesGcmCipher() {}
+
+    public static String encrypt(final SecretKey key, final String value, final byte[] aad) {
+        final var aIv = new byte[IV_LENGTH];
+        SECURE_RANDOM.nextBytes(aIv);
+
+        try {
+            final var aCipher = CIPHERS.get();
+            aCipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, aIv));
+            if (aad != null) {
+                aCipher.updateAAD(aad);
+            }
+            final var aCipherText = aCipher.doFinal(value.getBytes(StandardCharsets.UTF_8));
+
+            final var aOutput = new byte[IV_LENGTH + aCipherText.length];
+            System.arraycopy(aIv, 0, aOutput, 0, IV_LENGTH);
+            System.arraycopy(aCipherText, 0, aOutput, IV_LENGTH, aCipherText.length);
+            return Base64.getEncoder().encodeToString(aOutput);
+        } catch (InvalidKeyException | InvalidAlgorithmParameterException
+                 | IllegalBlockSizeException | BadPaddingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // vazio quando o payload não é base64, é curto demais ou não abre com essa chave e esse aad
+    public static Optional<String> decrypt(final SecretKey key, final String value, final byte[] aad) {
+        final byte[] aBytes;
+        try {
+            aBytes = Base64.getDecoder().decode(value);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+
+        if (aBytes.length <= IV_LENGTH) {
+            return Optional.empty();
+        }
+
+        try {
+            final var aCipher = CIPHERS.get();
+            aCipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, aBytes, 0, IV_LENGTH));
+            if (aad != null) {
+                aCipher.updateAAD(aad);
+            }
+            return Optional.of(new String(
+                    aCipher.doFinal(aBytes, IV_LENGTH, aBytes.length - IV_LENGTH),
+                    StandardCharsets.UTF_8));
+        } catch (AEADBadTagException e) {
+            return Optional.empty();
+        } catch (InvalidKeyException | InvalidAlgorithmParameterException
+                 | IllegalBlockSizeException | BadPaddingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
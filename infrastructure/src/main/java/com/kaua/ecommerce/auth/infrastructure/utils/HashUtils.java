@@ -0,0 +1,16 @@
+package com.kaua.ecommerce.auth.infrastructure.utils;
+
+public final class HashUtils {
+
+    private HashUtils() {}
+
+    // finalizador de 64 bits do murmur3 (fmix64), espalha os bits de um hash fraco ou de uma chave sequencial
+    public static long mix64(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb3fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,26 @@
+package com.kaua.ecommerce.auth.infrastructure.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public final class TokenDigestUtils {
+
+    private static final String ALGORITHM = "SHA-256";
+
+    private TokenDigestUtils() {}
+
+    public static byte[] sha256(final String value) {
+        try {
+            return MessageDigest.getInstance(ALGORITHM)
+                    .digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static String sha256Hex(final String value) {
+        return HexFormat.of().formatHex(sha256(value));
+    }
+}
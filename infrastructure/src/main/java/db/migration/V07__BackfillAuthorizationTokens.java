@@ -0,0 +1,85 @@
+package db.migration;
+
+import com.kaua.ecommerce.auth.infrastructure.utils.TokenDigestUtils;
+import com.kaua.ecommerce.lib.domain.utils.IdentifierUtils;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// o digest é calculado na JVM para o backfill rodar igual no Postgres e no H2
+public class V07__BackfillAuthorizationTokens extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_TOKEN = "INSERT INTO authorization_tokens " +
+            "(id, authorization_id, token_type, token_digest, token_value, issued_at, expires_at, metadata, scopes, claims) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Override
+    public void migrate(final Context context) throws Exception {
+        final var aConnection = context.getConnection();
+
+        copy(aConnection, "state",
+                "SELECT id, state, NULL, NULL, NULL, NULL, NULL FROM authorizations WHERE state IS NOT NULL");
+        copy(aConnection, "code",
+                "SELECT authorization_id, code_value, issued_at, expires_at, metadata, NULL, NULL " +
+                        "FROM authorization_codes WHERE code_value IS NOT NULL");
+        copy(aConnection, "access_token",
+                "SELECT authorization_id, token_value, issued_at, expires_at, metadata, scopes, NULL " +
+                        "FROM access_tokens WHERE token_value IS NOT NULL");
+        copy(aConnection, "refresh_token",
+                "SELECT authorization_id, refresh_value, issued_at, expires_at, metadata, NULL, NULL " +
+                        "FROM refresh_tokens WHERE refresh_value IS NOT NULL");
+        copy(aConnection, "id_token",
+                "SELECT authorization_id, oidc_value, issued_at, expires_at, metadata, NULL, claims " +
+                        "FROM oidc_id_tokens WHERE oidc_value IS NOT NULL");
+        copy(aConnection, "user_code",
+                "SELECT authorization_id, user_code_value, issued_at, expires_at, metadata, NULL, NULL " +
+                        "FROM user_codes WHERE user_code_value IS NOT NULL");
+        copy(aConnection, "device_code",
+                "SELECT authorization_id, device_code_value, issued_at, expires_at, metadata, NULL, NULL " +
+                        "FROM device_codes WHERE device_code_value IS NOT NULL");
+    }
+
+    private void copy(
+            final Connection connection,
+            final String tokenType,
+            final String selectSql
+    ) throws SQLException {
+        try (final var aSelect = connection.createStatement();
+             final var aInsert = connection.prepareStatement(INSERT_TOKEN)) {
+            aSelect.setFetchSize(BATCH_SIZE);
+
+            try (final var aRows = aSelect.executeQuery(selectSql)) {
+                var aPending = 0;
+
+                while (aRows.next()) {
+                    final var aValue = aRows.getString(2);
+
+                    aInsert.setString(1, IdentifierUtils.generateNewId());
+                    aInsert.setString(2, aRows.getString(1));
+                    aInsert.setString(3, tokenType);
+                    aInsert.setBytes(4, TokenDigestUtils.sha256(aValue));
+                    aInsert.setString(5, aValue);
+                    aInsert.setTimestamp(6, aRows.getTimestamp(3));
+                    aInsert.setTimestamp(7, aRows.getTimestamp(4));
+                    aInsert.setString(8, aRows.getString(5));
+                    aInsert.setString(9, aRows.getString(6));
+                    aInsert.setString(10, aRows.getString(7));
+                    aInsert.addBatch();
+
+                    if (++aPending == BATCH_SIZE) {
+                        aInsert.executeBatch();
+                        aPending = 0;
+                    }
+                }
+
+                if (aPending > 0) {
+                    aInsert.executeBatch();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package db.migration;
+
+import com.kaua.ecommerce.auth.infrastructure.utils.TokenDigestUtils;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+// roda fora de transação para o Postgres aceitar CREATE/DROP INDEX CONCURRENTLY
+// e para cada lote do backfill ser commitado sem segurar lock na tabela inteira.
+// os índices por valor ficam, nós antigos ainda gravam linhas sem digest (ver V15)
+public class V09__RebuildTokenIndexesWithDigest extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 500;
+    private static final String POSTGRESQL = "PostgreSQL";
+
+    private static final List<TokenTable> TOKEN_TABLES = List.of(
+            new TokenTable("authorization_codes", "code_value"),
+            new TokenTable("access_tokens", "token_value"),
+            new TokenTable("refresh_tokens", "refresh_value"),
+            new TokenTable("oidc_id_tokens", "oidc_value"),
+            new TokenTable("user_codes", "user_code_value"),
+            new TokenTable("device_codes", "device_code_value")
+    );
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(final Context context) throws Exception {
+        final var aConnection = context.getConnection();
+        final var isPostgres = POSTGRESQL.equals(aConnection.getMetaData().getDatabaseProductName());
+
+        for (final var aTable : TOKEN_TABLES) {
+            backfill(aConnection, aTable);
+
+            final var aDigestIndex = "idx_" + aTable.name() + "_token_digest";
+
+            if (isPostgres) {
+                // um CONCURRENTLY que falhou deixa o índice INVALID, por isso recriamos sempre
+                execute(aConnection, "DROP INDEX CONCURRENTLY IF EXISTS " + aDigestIndex);
+                execute(aConnection, "CREATE INDEX CONCURRENTLY " + aDigestIndex
+                        + " ON " + aTable.name() + " (token_digest)");
+            } else {
+                execute(aConnection, "CREATE INDEX " + aDigestIndex
+                        + " ON " + aTable.name() + " (token_digest)");
+            }
+        }
+    }
+
+    // paginado por id e não por "token_digest IS NULL": uma linha que um nó antigo grava sem digest no meio do
+    // backfill ficaria voltando em todo lote. o que entrar atrás do cursor fica para o fallback por valor
+    // e para o backfillTokenDigests
+    private void backfill(final Connection connection, final TokenTable table) throws SQLException {
+        final var aSelectSql = "SELECT id, " + table.valueColumn() + " FROM " + table.name()
+                + " WHERE token_digest IS NULL AND " + table.valueColumn() + " IS NOT NULL AND id > ?"
+                + " ORDER BY id LIMIT " + BATCH_SIZE;
+        final var aUpdateSql = "UPDATE " + table.name() + " SET token_digest = ? WHERE id = ?";
+
+        try (final var aSelect = connection.prepareStatement(aSelectSql);
+             final var aUpdate = connection.prepareStatement(aUpdateSql)) {
+            var aLastId = "";
+            var aUpdated = BATCH_SIZE;
+
+            while (aUpdated == BATCH_SIZE) {
+                aUpdated = 0;
+                aSelect.setString(1, aLastId);
+
+                try (final var aRows = aSelect.executeQuery()) {
+                    while (aRows.next()) {
+                        aLastId = aRows.getString(1);
+                        aUpdate.setBytes(1, TokenDigestUtils.sha256(aRows.getString(2)));
+                        aUpdate.setString(2, aLastId);
+                        aUpdate.addBatch();
+                        aUpdated++;
+                    }
+                }
+
+                if (aUpdated > 0) {
+                    aUpdate.executeBatch();
+
+                    if (!connection.getAutoCommit()) {
+                        connection.commit();
+                    }
+                }
+            }
+        }
+    }
+
+    private void execute(final Connection connection, final String sql) throws SQLException {
+        try (final var aStatement = connection.createStatement()) {
+            aStatement.execute(sql);
+        }
+    }
+
+    private record TokenTable(String name, String valueColumn) {
+    }
+}
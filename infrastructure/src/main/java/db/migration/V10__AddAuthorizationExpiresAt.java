@@ -0,0 +1,143 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+// roda fora de transação: no Postgres as FKs com ON DELETE CASCADE entram NOT VALID e são validadas depois,
+// sem bloquear escrita nas tabelas de token, os índices são CONCURRENTLY e o backfill de expires_at
+// é commitado em lotes. linhas gravadas por nós antigos durante o backfill ficam com expires_at nulo,
+// o AuthorizationPurgeJob calcula o vencimento delas pelas tabelas de token
+public class V10__AddAuthorizationExpiresAt extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 500;
+    private static final String POSTGRESQL = "PostgreSQL";
+    private static final String EXPIRES_AT_INDEX = "idx_authorizations_expires_at";
+
+    private static final List<TokenTable> TOKEN_TABLES = List.of(
+            new TokenTable("authorization_codes", "fk_authorization_code_authorization"),
+            new TokenTable("access_tokens", "fk_access_token_authorization"),
+            new TokenTable("refresh_tokens", "fk_refresh_token_authorization"),
+            new TokenTable("oidc_id_tokens", "fk_oidc_id_token_authorization"),
+            new TokenTable("user_codes", "fk_user_code_authorization"),
+            new TokenTable("device_codes", "fk_device_code_authorization")
+    );
+
+    private static final String BACKFILL_SQL = """
+            UPDATE authorizations SET expires_at = GREATEST(
+                (SELECT MAX(expires_at) FROM authorization_codes WHERE authorization_id = authorizations.id),
+                (SELECT MAX(expires_at) FROM access_tokens WHERE authorization_id = authorizations.id),
+                (SELECT MAX(expires_at) FROM refresh_tokens WHERE authorization_id = authorizations.id),
+                (SELECT MAX(expires_at) FROM oidc_id_tokens WHERE authorization_id = authorizations.id),
+                (SELECT MAX(expires_at) FROM user_codes WHERE authorization_id = authorizations.id),
+                (SELECT MAX(expires_at) FROM device_codes WHERE authorization_id = authorizations.id),
+                (SELECT MAX(expires_at) FROM authorization_tokens WHERE authorization_id = authorizations.id)
+            )
+            WHERE id > ? AND id <= ? AND expires_at IS NULL
+            """;
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(final Context context) throws Exception {
+        final var aConnection = context.getConnection();
+        final var isPostgres = POSTGRESQL.equals(aConnection.getMetaData().getDatabaseProductName());
+
+        // coluna nula sem default, no Postgres é só uma alteração de catálogo
+        execute(aConnection, "ALTER TABLE authorizations ADD COLUMN IF NOT EXISTS expires_at TIMESTAMP");
+
+        for (final var aTable : TOKEN_TABLES) {
+            replaceForeignKey(aConnection, aTable, isPostgres);
+            createIndex(aConnection, "idx_" + aTable.name() + "_authorization_id",
+                    aTable.name() + " (authorization_id)", isPostgres);
+        }
+
+        backfill(aConnection);
+        createIndex(aConnection, EXPIRES_AT_INDEX, "authorizations (expires_at)", isPostgres);
+    }
+
+    private void replaceForeignKey(
+            final Connection connection,
+            final TokenTable table,
+            final boolean isPostgres
+    ) throws SQLException {
+        final var aForeignKey = "CONSTRAINT " + table.foreignKey()
+                + " FOREIGN KEY (authorization_id) REFERENCES authorizations (id) ON DELETE CASCADE";
+
+        if (isPostgres) {
+            // o drop e o add no mesmo ALTER, a tabela não fica nenhum momento sem a FK.
+            // o NOT VALID só pega o lock curto, o VALIDATE varre a tabela sem bloquear escrita
+            execute(connection, "ALTER TABLE " + table.name()
+                    + " DROP CONSTRAINT IF EXISTS " + table.foreignKey()
+                    + ", ADD " + aForeignKey + " NOT VALID");
+            execute(connection, "ALTER TABLE " + table.name() + " VALIDATE CONSTRAINT " + table.foreignKey());
+        } else {
+            execute(connection, "ALTER TABLE " + table.name() + " DROP CONSTRAINT IF EXISTS " + table.foreignKey());
+            execute(connection, "ALTER TABLE " + table.name() + " ADD " + aForeignKey);
+        }
+    }
+
+    private void createIndex(
+            final Connection connection,
+            final String indexName,
+            final String definition,
+            final boolean isPostgres
+    ) throws SQLException {
+        if (isPostgres) {
+            // um CONCURRENTLY que falhou deixa o índice INVALID, por isso recriamos sempre
+            execute(connection, "DROP INDEX CONCURRENTLY IF EXISTS " + indexName);
+            execute(connection, "CREATE INDEX CONCURRENTLY " + indexName + " ON " + definition);
+        } else {
+            execute(connection, "CREATE INDEX IF NOT EXISTS " + indexName + " ON " + definition);
+        }
+    }
+
+    // paginado por id, cada lote é um UPDATE curto commitado antes do próximo
+    private void backfill(final Connection connection) throws SQLException {
+        final var aSelectSql = "SELECT id FROM authorizations WHERE id > ? ORDER BY id LIMIT " + BATCH_SIZE;
+
+        try (final var aSelect = connection.prepareStatement(aSelectSql);
+             final var aUpdate = connection.prepareStatement(BACKFILL_SQL)) {
+            var aLastId = "";
+            var aSelected = BATCH_SIZE;
+
+            while (aSelected == BATCH_SIZE) {
+                aSelected = 0;
+                final var aFromId = aLastId;
+                aSelect.setString(1, aFromId);
+
+                try (final var aRows = aSelect.executeQuery()) {
+                    while (aRows.next()) {
+                        aLastId = aRows.getString(1);
+                        aSelected++;
+                    }
+                }
+
+                if (aSelected > 0) {
+                    aUpdate.setString(1, aFromId);
+                    aUpdate.setString(2, aLastId);
+                    aUpdate.executeUpdate();
+
+                    if (!connection.getAutoCommit()) {
+                        connection.commit();
+                    }
+                }
+            }
+        }
+    }
+
+    private void execute(final Connection connection, final String sql) throws SQLException {
+        try (final var aStatement = connection.createStatement()) {
+            aStatement.execute(sql);
+        }
+    }
+
+    private record TokenTable(String name, String foreignKey) {
+    }
+}
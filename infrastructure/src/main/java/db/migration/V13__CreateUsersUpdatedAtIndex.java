@@ -0,0 +1,39 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// fora de transação para o Postgres aceitar CREATE INDEX CONCURRENTLY, um CREATE INDEX
+// simples seguraria os inserts e updates em users durante todo o build do índice
+public class V13__CreateUsersUpdatedAtIndex extends BaseJavaMigration {
+
+    private static final String POSTGRESQL = "PostgreSQL";
+    private static final String INDEX_NAME = "idx_users_updated_at";
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(final Context context) throws Exception {
+        final var aConnection = context.getConnection();
+
+        if (POSTGRESQL.equals(aConnection.getMetaData().getDatabaseProductName())) {
+            // um CONCURRENTLY que falhou deixa o índice INVALID, por isso recriamos sempre
+            execute(aConnection, "DROP INDEX CONCURRENTLY IF EXISTS " + INDEX_NAME);
+            execute(aConnection, "CREATE INDEX CONCURRENTLY " + INDEX_NAME + " ON users (updated_at)");
+        } else {
+            execute(aConnection, "CREATE INDEX IF NOT EXISTS " + INDEX_NAME + " ON users (updated_at)");
+        }
+    }
+
+    private void execute(final Connection connection, final String sql) throws SQLException {
+        try (final var aStatement = connection.createStatement()) {
+            aStatement.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package db.migration;
+
+import com.kaua.ecommerce.auth.infrastructure.utils.TokenDigestUtils;
+import com.kaua.ecommerce.lib.domain.utils.IdentifierUtils;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// o V07 copiou as tabelas com join uma única vez e até o dual-write nada mais gravava em authorization_tokens.
+// traz de novo o que foi emitido ou rotacionado depois dele: insere o que falta e troca o token quando o do
+// layout com join é mais novo. o joined é o store padrão, então é ele que tem os tokens atuais
+public class V14__ReconcileAuthorizationTokens extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_TOKEN = "INSERT INTO authorization_tokens " +
+            "(id, authorization_id, token_type, token_digest, token_value, issued_at, expires_at, " +
+            "metadata, metadata_bin, scopes, claims, claims_bin) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_TOKEN = "UPDATE authorization_tokens SET " +
+            "token_digest = ?, token_value = ?, issued_at = ?, expires_at = ?, " +
+            "metadata = ?, metadata_bin = ?, scopes = ?, claims = ?, claims_bin = ? " +
+            "WHERE id = ?";
+
+    @Override
+    public void migrate(final Context context) throws Exception {
+        final var aConnection = context.getConnection();
+
+        reconcile(aConnection, "state",
+                "SELECT a.id, a.state, NULL, NULL, NULL, NULL, NULL, NULL, NULL, t.id " +
+                        "FROM authorizations a " + missingOrStale("a.id", "a.state", "state", null));
+        reconcile(aConnection, "code",
+                "SELECT c.authorization_id, c.code_value, c.issued_at, c.expires_at, c.metadata, c.metadata_bin, " +
+                        "NULL, NULL, NULL, t.id FROM authorization_codes c " +
+                        missingOrStale("c.authorization_id", "c.code_value", "code", "c.issued_at"));
+        reconcile(aConnection, "access_token",
+                "SELECT c.authorization_id, c.token_value, c.issued_at, c.expires_at, c.metadata, c.metadata_bin, " +
+                        "c.scopes, NULL, NULL, t.id FROM access_tokens c " +
+                        missingOrStale("c.authorization_id", "c.token_value", "access_token", "c.issued_at"));
+        reconcile(aConnection, "refresh_token",
+                "SELECT c.authorization_id, c.refresh_value, c.issued_at, c.expires_at, c.metadata, c.metadata_bin, " +
+                        "NULL, NULL, NULL, t.id FROM refresh_tokens c " +
+                        missingOrStale("c.authorization_id", "c.refresh_value", "refresh_token", "c.issued_at"));
+        reconcile(aConnection, "id_token",
+                "SELECT c.authorization_id, c.oidc_value, c.issued_at, c.expires_at, c.metadata, c.metadata_bin, " +
+                        "NULL, c.claims, c.claims_bin, t.id FROM oidc_id_tokens c " +
+                        missingOrStale("c.authorization_id", "c.oidc_value", "id_token", "c.issued_at"));
+        reconcile(aConnection, "user_code",
+                "SELECT c.authorization_id, c.user_code_value, c.issued_at, c.expires_at, c.metadata, c.metadata_bin, " +
+                        "NULL, NULL, NULL, t.id FROM user_codes c " +
+                        missingOrStale("c.authorization_id", "c.user_code_value", "user_code", "c.issued_at"));
+        reconcile(aConnection, "device_code",
+                "SELECT c.authorization_id, c.device_code_value, c.issued_at, c.expires_at, c.metadata, c.metadata_bin, " +
+                        "NULL, NULL, NULL, t.id FROM device_codes c " +
+                        missingOrStale("c.authorization_id", "c.device_code_value", "device_code", "c.issued_at"));
+    }
+
+    // sem linha em authorization_tokens, ou com outro valor e emitida antes da linha do layout com join
+    private static String missingOrStale(
+            final String authorizationIdColumn,
+            final String valueColumn,
+            final String tokenType,
+            final String issuedAtColumn
+    ) {
+        final var aNewer = issuedAtColumn == null
+                ? ""
+                : " AND (t.issued_at IS NULL OR " + issuedAtColumn + " > t.issued_at)";
+        return "LEFT JOIN authorization_tokens t ON t.authorization_id = " + authorizationIdColumn
+                + " AND t.token_type = '" + tokenType + "' "
+                + "WHERE " + valueColumn + " IS NOT NULL "
+                + "AND (t.id IS NULL OR (t.token_value <> " + valueColumn + aNewer + "))";
+    }
+
+    private void reconcile(
+            final Connection connection,
+            final String tokenType,
+            final String selectSql
+    ) throws SQLException {
+        try (final var aSelect = connection.createStatement();
+             final var aInsert = connection.prepareStatement(INSERT_TOKEN);
+             final var aUpdate = connection.prepareStatement(UPDATE_TOKEN)) {
+            aSelect.setFetchSize(BATCH_SIZE);
+
+            try (final var aRows = aSelect.executeQuery(selectSql)) {
+                var aPendingInserts = 0;
+                var aPendingUpdates = 0;
+
+                while (aRows.next()) {
+                    final var aValue = aRows.getString(2);
+                    final var aExistingId = aRows.getString(10);
+
+                    if (aExistingId == null) {
+                        aInsert.setString(1, IdentifierUtils.generateNewId());
+                        aInsert.setString(2, aRows.getString(1));
+                        aInsert.setString(3, tokenType);
+                        aInsert.setBytes(4, TokenDigestUtils.sha256(aValue));
+                        aInsert.setString(5, aValue);
+                        aInsert.setTimestamp(6, aRows.getTimestamp(3));
+                        aInsert.setTimestamp(7, aRows.getTimestamp(4));
+                        aInsert.setString(8, aRows.getString(5));
+                        aInsert.setBytes(9, aRows.getBytes(6));
+                        aInsert.setString(10, aRows.getString(7));
+                        aInsert.setString(11, aRows.getString(8));
+                        aInsert.setBytes(12, aRows.getBytes(9));
+                        aInsert.addBatch();
+
+                        if (++aPendingInserts == BATCH_SIZE) {
+                            aInsert.executeBatch();
+                            aPendingInserts = 0;
+                        }
+                    } else {
+                        aUpdate.setBytes(1, TokenDigestUtils.sha256(aValue));
+                        aUpdate.setString(2, aValue);
+                        aUpdate.setTimestamp(3, aRows.getTimestamp(3));
+                        aUpdate.setTimestamp(4, aRows.getTimestamp(4));
+                        aUpdate.setString(5, aRows.getString(5));
+                        aUpdate.setBytes(6, aRows.getBytes(6));
+                        aUpdate.setString(7, aRows.getString(7));
+                        aUpdate.setString(8, aRows.getString(8));
+                        aUpdate.setBytes(9, aRows.getBytes(9));
+                        aUpdate.setString(10, aExistingId);
+                        aUpdate.addBatch();
+
+                        if (++aPendingUpdates == BATCH_SIZE) {
+                            aUpdate.executeBatch();
+                            aPendingUpdates = 0;
+                        }
+                    }
+                }
+
+                if (aPendingInserts > 0) {
+                    aInsert.executeBatch();
+                }
+
+                if (aPendingUpdates > 0) {
+                    aUpdate.executeBatch();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+// a primeira versão do V09 derrubava os índices por valor, mas durante o rolling deploy os nós antigos
+// continuam gravando tokens sem token_digest e essas linhas só são achadas pelo valor.
+// recria os índices fora de transação, com CONCURRENTLY no Postgres
+public class V15__RestoreTokenValueIndexes extends BaseJavaMigration {
+
+    private static final String POSTGRESQL = "PostgreSQL";
+
+    private static final List<TokenTable> TOKEN_TABLES = List.of(
+            new TokenTable("authorization_codes", "code_value"),
+            new TokenTable("access_tokens", "token_value"),
+            new TokenTable("refresh_tokens", "refresh_value"),
+            new TokenTable("oidc_id_tokens", "oidc_value"),
+            new TokenTable("user_codes", "user_code_value"),
+            new TokenTable("device_codes", "device_code_value")
+    );
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(final Context context) throws Exception {
+        final var aConnection = context.getConnection();
+        final var isPostgres = POSTGRESQL.equals(aConnection.getMetaData().getDatabaseProductName());
+
+        for (final var aTable : TOKEN_TABLES) {
+            final var aValueIndex = "idx_" + aTable.name() + "_" + aTable.valueColumn();
+
+            if (!isPostgres) {
+                execute(aConnection, "CREATE INDEX IF NOT EXISTS " + aValueIndex
+                        + " ON " + aTable.name() + " (" + aTable.valueColumn() + ")");
+                continue;
+            }
+
+            // tabelas particionadas não aceitam CONCURRENTLY, e o particionamento só roda com todos os nós atualizados
+            if (isPartitioned(aConnection, aTable.name())) {
+                continue;
+            }
+
+            final var aValid = isValidIndex(aConnection, aValueIndex);
+            if (Boolean.TRUE.equals(aValid)) {
+                continue;
+            }
+
+            // um CONCURRENTLY que falhou deixa o índice INVALID
+            if (aValid != null) {
+                execute(aConnection, "DROP INDEX CONCURRENTLY IF EXISTS " + aValueIndex);
+            }
+            execute(aConnection, "CREATE INDEX CONCURRENTLY " + aValueIndex
+                    + " ON " + aTable.name() + " (" + aTable.valueColumn() + ")");
+        }
+    }
+
+    private boolean isPartitioned(final Connection connection, final String table) throws SQLException {
+        try (final var aStatement = connection.prepareStatement(
+                "SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?)")) {
+            aStatement.setString(1, table);
+            try (final var aRows = aStatement.executeQuery()) {
+                return aRows.next();
+            }
+        }
+    }
+
+    // null quando o índice não existe
+    private Boolean isValidIndex(final Connection connection, final String index) throws SQLException {
+        try (final var aStatement = connection.prepareStatement(
+                "SELECT indisvalid FROM pg_index WHERE indexrelid = to_regclass(?)")) {
+            aStatement.setString(1, index);
+            try (final var aRows = aStatement.executeQuery()) {
+                return aRows.next() ? aRows.getBoolean(1) : null;
+            }
+        }
+    }
+
+    private void execute(final Connection connection, final String sql) throws SQLException {
+        try (final var aStatement = connection.createStatement()) {
+            aStatement.execute(sql);
+        }
+    }
+
+    private record TokenTable(String name, String valueColumn) {
+    }
+}
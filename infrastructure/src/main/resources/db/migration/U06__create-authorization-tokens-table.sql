@@ -0,0 +1 @@
+DROP TABLE authorization_tokens;
\ No newline at end of file
@@ -0,0 +1,6 @@
+ALTER TABLE authorization_codes DROP COLUMN token_digest;
+ALTER TABLE access_tokens DROP COLUMN token_digest;
+ALTER TABLE refresh_tokens DROP COLUMN token_digest;
+ALTER TABLE oidc_id_tokens DROP COLUMN token_digest;
+ALTER TABLE user_codes DROP COLUMN token_digest;
+ALTER TABLE device_codes DROP COLUMN token_digest;
\ No newline at end of file
@@ -0,0 +1,26 @@
+DROP INDEX idx_authorizations_expires_at;
+DROP INDEX idx_authorization_codes_authorization_id;
+ALTER TABLE authorization_codes DROP CONSTRAINT fk_authorization_code_authorization;
+ALTER TABLE authorization_codes ADD CONSTRAINT fk_authorization_code_authorization
+    FOREIGN KEY (authorization_id) REFERENCES authorizations (id);
+DROP INDEX idx_access_tokens_authorization_id;
+ALTER TABLE access_tokens DROP CONSTRAINT fk_access_token_authorization;
+ALTER TABLE access_tokens ADD CONSTRAINT fk_access_token_authorization
+    FOREIGN KEY (authorization_id) REFERENCES authorizations (id);
+DROP INDEX idx_refresh_tokens_authorization_id;
+ALTER TABLE refresh_tokens DROP CONSTRAINT fk_refresh_token_authorization;
+ALTER TABLE refresh_tokens ADD CONSTRAINT fk_refresh_token_authorization
+    FOREIGN KEY (authorization_id) REFERENCES authorizations (id);
+DROP INDEX idx_oidc_id_tokens_authorization_id;
+ALTER TABLE oidc_id_tokens DROP CONSTRAINT fk_oidc_id_token_authorization;
+ALTER TABLE oidc_id_tokens ADD CONSTRAINT fk_oidc_id_token_authorization
+    FOREIGN KEY (authorization_id) REFERENCES authorizations (id);
+DROP INDEX idx_user_codes_authorization_id;
+ALTER TABLE user_codes DROP CONSTRAINT fk_user_code_authorization;
+ALTER TABLE user_codes ADD CONSTRAINT fk_user_code_authorization
+    FOREIGN KEY (authorization_id) REFERENCES authorizations (id);
+DROP INDEX idx_device_codes_authorization_id;
+ALTER TABLE device_codes DROP CONSTRAINT fk_device_code_authorization;
+ALTER TABLE device_codes ADD CONSTRAINT fk_device_code_authorization
+    FOREIGN KEY (authorization_id) REFERENCES authorizations (id);
+ALTER TABLE authorizations DROP COLUMN expires_at;
\ No newline at end of file
@@ -0,0 +1,12 @@
+DROP INDEX idx_authorization_codes_authorization_id;
+CREATE INDEX idx_authorization_codes_authorization_id ON authorization_codes (authorization_id);
+DROP INDEX idx_access_tokens_authorization_id;
+CREATE INDEX idx_access_tokens_authorization_id ON access_tokens (authorization_id);
+DROP INDEX idx_refresh_tokens_authorization_id;
+CREATE INDEX idx_refresh_tokens_authorization_id ON refresh_tokens (authorization_id);
+DROP INDEX idx_oidc_id_tokens_authorization_id;
+CREATE INDEX idx_oidc_id_tokens_authorization_id ON oidc_id_tokens (authorization_id);
+DROP INDEX idx_user_codes_authorization_id;
+CREATE INDEX idx_user_codes_authorization_id ON user_codes (authorization_id);
+DROP INDEX idx_device_codes_authorization_id;
+CREATE INDEX idx_device_codes_authorization_id ON device_codes (authorization_id);
\ No newline at end of file
@@ -0,0 +1,10 @@
+ALTER TABLE authorizations DROP COLUMN attributes_bin;
+ALTER TABLE authorization_codes DROP COLUMN metadata_bin;
+ALTER TABLE access_tokens DROP COLUMN metadata_bin;
+ALTER TABLE refresh_tokens DROP COLUMN metadata_bin;
+ALTER TABLE oidc_id_tokens DROP COLUMN metadata_bin;
+ALTER TABLE oidc_id_tokens DROP COLUMN claims_bin;
+ALTER TABLE user_codes DROP COLUMN metadata_bin;
+ALTER TABLE device_codes DROP COLUMN metadata_bin;
+ALTER TABLE authorization_tokens DROP COLUMN metadata_bin;
+ALTER TABLE authorization_tokens DROP COLUMN claims_bin;
\ No newline at end of file
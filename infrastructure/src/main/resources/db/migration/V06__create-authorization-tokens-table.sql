@@ -0,0 +1,16 @@
+CREATE TABLE authorization_tokens (
+    id VARCHAR(38) NOT NULL PRIMARY KEY,
+    authorization_id VARCHAR(255) NOT NULL,
+    token_type VARCHAR(32) NOT NULL,
+    token_digest BYTEA NOT NULL,
+    token_value TEXT NOT NULL,
+    issued_at TIMESTAMP,
+    expires_at TIMESTAMP,
+    metadata TEXT,
+    scopes VARCHAR(1000),
+    claims TEXT,
+    CONSTRAINT fk_authorization_token_authorization
+        FOREIGN KEY (authorization_id) REFERENCES authorizations (id) ON DELETE CASCADE
+);
+CREATE UNIQUE INDEX idx_authorization_tokens_token_digest_token_type ON authorization_tokens (token_digest, token_type);
+CREATE UNIQUE INDEX idx_authorization_tokens_authorization_id_token_type ON authorization_tokens (authorization_id, token_type);
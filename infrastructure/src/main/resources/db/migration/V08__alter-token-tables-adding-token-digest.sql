@@ -0,0 +1,6 @@
+ALTER TABLE authorization_codes ADD COLUMN token_digest BYTEA;
+ALTER TABLE access_tokens ADD COLUMN token_digest BYTEA;
+ALTER TABLE refresh_tokens ADD COLUMN token_digest BYTEA;
+ALTER TABLE oidc_id_tokens ADD COLUMN token_digest BYTEA;
+ALTER TABLE user_codes ADD COLUMN token_digest BYTEA;
+ALTER TABLE device_codes ADD COLUMN token_digest BYTEA;
\ No newline at end of file
@@ -0,0 +1,47 @@
+DELETE FROM authorization_codes WHERE EXISTS (
+    SELECT 1 FROM authorization_codes newer
+    WHERE newer.authorization_id = authorization_codes.authorization_id
+      AND (newer.issued_at > authorization_codes.issued_at OR (newer.issued_at = authorization_codes.issued_at AND newer.id > authorization_codes.id))
+);
+DROP INDEX idx_authorization_codes_authorization_id;
+CREATE UNIQUE INDEX idx_authorization_codes_authorization_id ON authorization_codes (authorization_id);
+
+DELETE FROM access_tokens WHERE EXISTS (
+    SELECT 1 FROM access_tokens newer
+    WHERE newer.authorization_id = access_tokens.authorization_id
+      AND (newer.issued_at > access_tokens.issued_at OR (newer.issued_at = access_tokens.issued_at AND newer.id > access_tokens.id))
+);
+DROP INDEX idx_access_tokens_authorization_id;
+CREATE UNIQUE INDEX idx_access_tokens_authorization_id ON access_tokens (authorization_id);
+
+DELETE FROM refresh_tokens WHERE EXISTS (
+    SELECT 1 FROM refresh_tokens newer
+    WHERE newer.authorization_id = refresh_tokens.authorization_id
+      AND (newer.issued_at > refresh_tokens.issued_at OR (newer.issued_at = refresh_tokens.issued_at AND newer.id > refresh_tokens.id))
+);
+DROP INDEX idx_refresh_tokens_authorization_id;
+CREATE UNIQUE INDEX idx_refresh_tokens_authorization_id ON refresh_tokens (authorization_id);
+
+DELETE FROM oidc_id_tokens WHERE EXISTS (
+    SELECT 1 FROM oidc_id_tokens newer
+    WHERE newer.authorization_id = oidc_id_tokens.authorization_id
+      AND (newer.issued_at > oidc_id_tokens.issued_at OR (newer.issued_at = oidc_id_tokens.issued_at AND newer.id > oidc_id_tokens.id))
+);
+DROP INDEX idx_oidc_id_tokens_authorization_id;
+CREATE UNIQUE INDEX idx_oidc_id_tokens_authorization_id ON oidc_id_tokens (authorization_id);
+
+DELETE FROM user_codes WHERE EXISTS (
+    SELECT 1 FROM user_codes newer
+    WHERE newer.authorization_id = user_codes.authorization_id
+      AND (newer.issued_at > user_codes.issued_at OR (newer.issued_at = user_codes.issued_at AND newer.id > user_codes.id))
+);
+DROP INDEX idx_user_codes_authorization_id;
+CREATE UNIQUE INDEX idx_user_codes_authorization_id ON user_codes (authorization_id);
+
+DELETE FROM device_codes WHERE EXISTS (
+    SELECT 1 FROM device_codes newer
+    WHERE newer.authorization_id = device_codes.authorization_id
+      AND (newer.issued_at > device_codes.issued_at OR (newer.issued_at = device_codes.issued_at AND newer.id > device_codes.id))
+);
+DROP INDEX idx_device_codes_authorization_id;
+CREATE UNIQUE INDEX idx_device_codes_authorization_id ON device_codes (authorization_id);
\ No newline at end of file
@@ -0,0 +1,10 @@
+ALTER TABLE authorizations ADD COLUMN attributes_bin BYTEA;
+ALTER TABLE authorization_codes ADD COLUMN metadata_bin BYTEA;
+ALTER TABLE access_tokens ADD COLUMN metadata_bin BYTEA;
+ALTER TABLE refresh_tokens ADD COLUMN metadata_bin BYTEA;
+ALTER TABLE oidc_id_tokens ADD COLUMN metadata_bin BYTEA;
+ALTER TABLE oidc_id_tokens ADD COLUMN claims_bin BYTEA;
+ALTER TABLE user_codes ADD COLUMN metadata_bin BYTEA;
+ALTER TABLE device_codes ADD COLUMN metadata_bin BYTEA;
+ALTER TABLE authorization_tokens ADD COLUMN metadata_bin BYTEA;
+ALTER TABLE authorization_tokens ADD COLUMN claims_bin BYTEA;
\ No newline at end of file
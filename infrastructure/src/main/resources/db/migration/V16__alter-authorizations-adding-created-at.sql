@@ -0,0 +1,3 @@
+-- autorizações sem nenhum token (fluxo de consentimento abandonado) não têm expires_at, o purge usa a criação.
+-- nos nós antigos o insert não conhece a coluna e o default preenche
+ALTER TABLE authorizations ADD COLUMN created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP;
@@ -0,0 +1,62 @@
+-- caminho opcional, somente postgres: só roda quando classpath:db/partitioning é adicionado ao spring.flyway.locations.
+-- particiona as tabelas do layout com join por dia de emissão (issued_at) e recria os índices sem unicidade,
+-- porque no postgres toda chave única de uma tabela particionada precisa conter a coluna de partição.
+-- as FKs entre as tabelas saem, a limpeza passa a ser feita pelo AuthorizationPartitionMaintenanceJob com DROP de partição
+DO $$
+DECLARE
+    v_table TEXT;
+    v_first_day DATE;
+    v_day DATE;
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = 'authorizations'::regclass) THEN
+        RETURN;
+    END IF;
+
+    -- a autorização não tinha data de emissão, usamos o token mais antigo dela
+    ALTER TABLE authorizations ADD COLUMN issued_at TIMESTAMP;
+    UPDATE authorizations a SET issued_at = COALESCE(LEAST(
+            (SELECT ac.issued_at FROM authorization_codes ac WHERE ac.authorization_id = a.id),
+            (SELECT at.issued_at FROM access_tokens at WHERE at.authorization_id = a.id),
+            (SELECT rt.issued_at FROM refresh_tokens rt WHERE rt.authorization_id = a.id),
+            (SELECT oi.issued_at FROM oidc_id_tokens oi WHERE oi.authorization_id = a.id),
+            (SELECT uc.issued_at FROM user_codes uc WHERE uc.authorization_id = a.id),
+            (SELECT dc.issued_at FROM device_codes dc WHERE dc.authorization_id = a.id)
+        ), now());
+    ALTER TABLE authorizations ALTER COLUMN issued_at SET DEFAULT now();
+    ALTER TABLE authorizations ALTER COLUMN issued_at SET NOT NULL;
+
+    -- os tokens primeiro, assim o DROP ... CASCADE de authorizations só leva a FK de authorization_tokens
+    FOREACH v_table IN ARRAY ARRAY['authorization_codes', 'access_tokens', 'refresh_tokens',
+            'oidc_id_tokens', 'user_codes', 'device_codes', 'authorizations'] LOOP
+        EXECUTE format('UPDATE %I SET issued_at = now() WHERE issued_at IS NULL', v_table);
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN issued_at SET NOT NULL', v_table);
+
+        EXECUTE format('ALTER TABLE %I RENAME TO %I', v_table, v_table || '_legacy');
+        EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS) PARTITION BY RANGE (issued_at)',
+                v_table, v_table || '_legacy');
+        EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I PRIMARY KEY (id, issued_at)',
+                v_table, 'pk_' || v_table);
+
+        EXECUTE format('SELECT COALESCE(MIN(issued_at)::date, CURRENT_DATE) FROM %I', v_table || '_legacy')
+            INTO v_first_day;
+
+        FOR v_day IN SELECT generate_series(v_first_day, CURRENT_DATE + 7, INTERVAL '1 day')::date LOOP
+            EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                    v_table || '_p' || to_char(v_day, 'YYYYMMDD'), v_table, v_day, v_day + 1);
+        END LOOP;
+
+        -- só recebe linhas se o job de manutenção ficar parado por mais dias do que o premake
+        EXECUTE format('CREATE TABLE %I PARTITION OF %I DEFAULT', v_table || '_default', v_table);
+
+        EXECUTE format('INSERT INTO %I SELECT * FROM %I', v_table, v_table || '_legacy');
+        EXECUTE format('DROP TABLE %I CASCADE', v_table || '_legacy');
+
+        IF v_table = 'authorizations' THEN
+            CREATE INDEX idx_authorizations_state ON authorizations (state);
+            CREATE INDEX idx_authorizations_expires_at ON authorizations (expires_at);
+        ELSE
+            EXECUTE format('CREATE INDEX %I ON %I (token_digest)', 'idx_' || v_table || '_token_digest', v_table);
+            EXECUTE format('CREATE INDEX %I ON %I (authorization_id)', 'idx_' || v_table || '_authorization_id', v_table);
+        END IF;
+    END LOOP;
+END $$;
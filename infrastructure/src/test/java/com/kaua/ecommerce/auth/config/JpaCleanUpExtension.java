@@ -1,6 +1,7 @@
 package com.kaua.ecommerce.auth.config;
 
 import com.kaua.ecommerce.auth.infrastructure.mailtokens.persistence.MailTokenJpaEntityRepository;
+import com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.persistence.AuthorizationJpaEntityRepository;
 import com.kaua.ecommerce.auth.infrastructure.oauth2.clients.persistence.ClientJpaEntityRepository;
 import com.kaua.ecommerce.auth.infrastructure.roles.persistence.RoleJpaEntityRepository;
 import com.kaua.ecommerce.auth.infrastructure.users.persistence.UserJpaEntityRepository;
@@ -22,7 +23,8 @@ public class JpaCleanUpExtension implements BeforeEachCallback {
                 appContext.getBean(UserJpaEntityRepository.class),
                 appContext.getBean(RoleJpaEntityRepository.class),
                 appContext.getBean(ClientJpaEntityRepository.class),
-                appContext.getBean(MailTokenJpaEntityRepository.class)
+                appContext.getBean(MailTokenJpaEntityRepository.class),
+                appContext.getBean(AuthorizationJpaEntityRepository.class)
         ));
     }
 
@@ -0,0 +1,38 @@
+package com.kaua.ecommerce.auth.infrastructure;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+// para o que depende do Postgres de verdade (SKIP LOCKED, ON CONFLICT, contagem de statements),
+// o H2 em modo PostgreSQL não reproduz
+@Testcontainers
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public abstract class AbstractPostgresTest {
+
+    private static final Logger log = LoggerFactory.getLogger(AbstractPostgresTest.class);
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(
+            DockerImageName.parse("postgres:16-alpine"));
+
+    static {
+        POSTGRES.start();
+    }
+
+    @DynamicPropertySource
+    public static void postgresProperties(final DynamicPropertyRegistry registry) {
+        log.info("Postgres properties: url={}", POSTGRES.getJdbcUrl());
+
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+}
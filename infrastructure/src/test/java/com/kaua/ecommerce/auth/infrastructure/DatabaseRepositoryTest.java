@@ -20,6 +20,10 @@ import java.lang.annotation.*;
         useDefaultFilters = false,
         includeFilters = {
                 @ComponentScan.Filter(type = FilterType.REGEX, pattern = ".*RepositoryImpl")
+        },
+        // os stores de autorização são montados pelo AuthorizationServiceConfig, os testes criam na mão
+        excludeFilters = {
+                @ComponentScan.Filter(type = FilterType.REGEX, pattern = ".*\\.oauth2\\.authorization\\..*RepositoryImpl")
         }
 )
 @DataJpaTest
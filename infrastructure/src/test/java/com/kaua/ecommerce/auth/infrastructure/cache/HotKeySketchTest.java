@@ -0,0 +1,45 @@
+package com.kaua.ecommerce.auth.infrastructure.cache;
+
+import com.kaua.ecommerce.auth.infrastructure.UnitTest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+@UnitTest
+class HotKeySketchTest {
+
+    @Test
+    void givenKeysRecorded_whenCallHottest_thenTheMostFrequentComeFirst() {
+        // o caffeine só passa a contar frequência com o cache na metade da capacidade
+        final var aSketch = new HotKeySketch<String>(4);
+        aSketch.record("cold");
+        aSketch.record("warm");
+        aSketch.record("hot");
+
+        for (int i = 0; i < 5; i++) {
+            aSketch.record("hot");
+        }
+        aSketch.record("warm");
+
+        Assertions.assertEquals(List.of("hot", "warm"), aSketch.hottest(2));
+        Assertions.assertEquals(3, aSketch.hottest(10).size());
+    }
+
+    @Test
+    void givenMoreKeysThanCapacity_whenCallSize_thenTheSketchStaysBounded() {
+        final var aSketch = new HotKeySketch<Integer>(100);
+
+        for (int i = 0; i < 10_000; i++) {
+            aSketch.record(i);
+        }
+
+        Assertions.assertTrue(aSketch.size() <= 100);
+        Assertions.assertTrue(aSketch.hottest(1_000).size() <= 100);
+    }
+
+    @Test
+    void givenAnEmptySketch_whenCallHottest_thenReturnEmpty() {
+        Assertions.assertTrue(new HotKeySketch<String>(10).hottest(5).isEmpty());
+    }
+}
@@ -0,0 +1,68 @@
+package com.kaua.ecommerce.auth.infrastructure.cache;
+
+import com.kaua.ecommerce.auth.infrastructure.AbstractCacheTest;
+import com.kaua.ecommerce.auth.infrastructure.DatabaseRepositoryTest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@DatabaseRepositoryTest
+class RedisCacheAccessorTest extends AbstractCacheTest {
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    private RedisCacheAccessor cache;
+
+    @BeforeEach
+    void setUp() {
+        this.cache = new RedisCacheAccessor(this.redisTemplate, Duration.ofDays(2));
+    }
+
+    @Test
+    void givenEntries_whenCallSetAll_shouldWriteEveryKeyWithTtl() {
+        this.cache.setAll(Map.of(
+                "test:obj:1", "{\"id\":\"1\"}",
+                "test:ref:1", "1"
+        ));
+
+        Assertions.assertEquals("{\"id\":\"1\"}", this.redisTemplate.opsForValue().get("test:obj:1"));
+        Assertions.assertEquals("1", this.cache.get("test:ref:1"));
+        Assertions.assertTrue(this.redisTemplate.getExpire("test:obj:1", TimeUnit.HOURS) > 24);
+        Assertions.assertTrue(this.redisTemplate.getExpire("test:ref:1", TimeUnit.HOURS) > 24);
+    }
+
+    @Test
+    void givenAReferenceAndItsTarget_whenCallGetByReference_shouldReturnTheTarget() {
+        this.cache.setAll(Map.of(
+                "test:obj:1", "{\"id\":\"1\"}",
+                "test:ref:email", "1"
+        ));
+
+        Assertions.assertEquals("{\"id\":\"1\"}", this.cache.getByReference("test:ref:email", "test:obj:"));
+    }
+
+    @Test
+    void givenAMissingReferenceOrTarget_whenCallGetByReference_shouldReturnNull() {
+        this.cache.setAll(Map.of("test:ref:email", "1"));
+
+        Assertions.assertNull(this.cache.getByReference("test:ref:unknown", "test:obj:"));
+        Assertions.assertNull(this.cache.getByReference("test:ref:email", "test:obj:"));
+    }
+
+    @Test
+    void givenKeys_whenCallDelete_shouldRemoveAllOfThem() {
+        this.cache.setAll(Map.of("test:a", "a", "test:b", "b"));
+
+        this.cache.delete("test:a", "test:b");
+
+        Assertions.assertNull(this.cache.get("test:a"));
+        Assertions.assertNull(this.cache.get("test:b"));
+    }
+}
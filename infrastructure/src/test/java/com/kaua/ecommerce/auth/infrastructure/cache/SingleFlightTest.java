@@ -0,0 +1,104 @@
+package com.kaua.ecommerce.auth.infrastructure.cache;
+
+import com.kaua.ecommerce.auth.infrastructure.UnitTest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@UnitTest
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+    @Test
+    void givenConcurrentCallersForTheSameKey_whenLoadIsInFlight_shouldRunTheLoaderOnce() throws Exception {
+        final var aLoads = new AtomicInteger();
+        final var aLoaderStarted = new CountDownLatch(1);
+        final var aReleaseLoader = new CountDownLatch(1);
+
+        final var aLeader = CompletableFuture.supplyAsync(() -> this.singleFlight.load("key", () -> {
+            aLoads.incrementAndGet();
+            aLoaderStarted.countDown();
+            await(aReleaseLoader);
+            return "value";
+        }));
+        Assertions.assertTrue(aLoaderStarted.await(5, TimeUnit.SECONDS));
+
+        final var aFollowerResults = new ArrayList<String>();
+        final var aFollowers = new ArrayList<Thread>();
+        for (int i = 0; i < 16; i++) {
+            final var aFollower = new Thread(() -> {
+                final var aOutput = this.singleFlight.load("key", () -> {
+                    aLoads.incrementAndGet();
+                    return "other";
+                });
+                synchronized (aFollowerResults) {
+                    aFollowerResults.add(aOutput);
+                }
+            });
+            aFollowers.add(aFollower);
+            aFollower.start();
+        }
+
+        // todos parados no future da carga em andamento antes de liberar o loader
+        awaitWaiting(aFollowers);
+        aReleaseLoader.countDown();
+
+        Assertions.assertEquals("value", aLeader.get(5, TimeUnit.SECONDS));
+        for (final var aFollower : aFollowers) {
+            aFollower.join(5_000);
+        }
+
+        Assertions.assertEquals(1, aLoads.get());
+        Assertions.assertEquals(16, aFollowerResults.size());
+        Assertions.assertTrue(aFollowerResults.stream().allMatch("value"::equals));
+        Assertions.assertEquals(0, this.singleFlight.inFlight());
+    }
+
+    @Test
+    void givenAFailedLoad_whenCallLoadAgain_shouldRunANewLoad() {
+        final var aException = new IllegalStateException("database down");
+
+        final var aThrown = Assertions.assertThrows(IllegalStateException.class,
+                () -> this.singleFlight.load("key", () -> {
+                    throw aException;
+                }));
+
+        Assertions.assertSame(aException, aThrown);
+        Assertions.assertEquals(0, this.singleFlight.inFlight());
+        Assertions.assertEquals("value", this.singleFlight.load("key", () -> "value"));
+    }
+
+    @Test
+    void givenDifferentKeys_whenCallLoad_shouldLoadEachKey() {
+        final var aLoads = new AtomicInteger();
+
+        this.singleFlight.load("a", () -> "a" + aLoads.incrementAndGet());
+        this.singleFlight.load("b", () -> "b" + aLoads.incrementAndGet());
+
+        Assertions.assertEquals(2, aLoads.get());
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void awaitWaiting(final List<Thread> threads) throws InterruptedException {
+        final var aDeadline = System.currentTimeMillis() + 5_000;
+        while (!threads.stream().allMatch(it -> it.getState() == Thread.State.WAITING)
+                && System.currentTimeMillis() < aDeadline) {
+            Thread.sleep(10);
+        }
+    }
+}
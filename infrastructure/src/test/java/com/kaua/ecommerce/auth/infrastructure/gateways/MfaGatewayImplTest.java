@@ -6,7 +6,10 @@ import com.kaua.ecommerce.auth.domain.Fixture;
 import com.kaua.ecommerce.auth.domain.exceptions.InternalServerErrorException;
 import com.kaua.ecommerce.auth.domain.users.mfas.UserMfaType;
 import com.kaua.ecommerce.auth.infrastructure.IntegrationTest;
+import com.kaua.ecommerce.auth.infrastructure.gateways.qrcode.PngQrCodeRenderer;
+import com.kaua.ecommerce.auth.infrastructure.gateways.totp.TotpVerifier;
 import com.kaua.ecommerce.auth.infrastructure.services.KeysService;
+import com.kaua.ecommerce.auth.infrastructure.services.impl.MfaSecretCipher;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -24,7 +27,11 @@ class MfaGatewayImplTest {
     void givenAValidUserMfaType_whenCallGenerateSecret_thenReturnAValidSecret() {
         final var aMfaType = UserMfaType.TOTP;
 
-        final var mfaGatewayImpl = new MfaGatewayImpl(new QRCodeWriter(), keysService);
+        final var mfaGatewayImpl = new MfaGatewayImpl(
+                new PngQrCodeRenderer(new QRCodeWriter()),
+                new MfaSecretCipher(keysService, "rsa"),
+                new TotpVerifier(1024)
+        );
 
         Mockito.when(keysService.encrypt(Mockito.anyString(), Mockito.anyString()))
                 .thenAnswer(returnsFirstArg());
@@ -36,7 +43,11 @@ class MfaGatewayImplTest {
 
     @Test
     void givenAValidValues_whenCallAccepts_thenReturnFalse() {
-        final var mfaGatewayImpl = new MfaGatewayImpl(new QRCodeWriter(), keysService);
+        final var mfaGatewayImpl = new MfaGatewayImpl(
+                new PngQrCodeRenderer(new QRCodeWriter()),
+                new MfaSecretCipher(keysService, "rsa"),
+                new TotpVerifier(1024)
+        );
 
         Mockito.when(keysService.encrypt(Mockito.anyString(), Mockito.anyString()))
                 .thenAnswer(returnsFirstArg());
@@ -54,7 +65,11 @@ class MfaGatewayImplTest {
 
     @Test
     void givenAValidValues_whenCallGenerateConfirmationQrCode_thenReturnAValidQrCode() {
-        final var mfaGatewayImpl = new MfaGatewayImpl(new QRCodeWriter(), keysService);
+        final var mfaGatewayImpl = new MfaGatewayImpl(
+                new PngQrCodeRenderer(new QRCodeWriter()),
+                new MfaSecretCipher(keysService, "rsa"),
+                new TotpVerifier(1024)
+        );
 
         Mockito.when(keysService.encrypt(Mockito.anyString(), Mockito.anyString()))
                 .thenAnswer(returnsFirstArg());
@@ -70,6 +85,28 @@ class MfaGatewayImplTest {
         Assertions.assertNotNull(aQrCode);
     }
 
+    @Test
+    void givenTheSameSecret_whenCallGenerateConfirmationQrCodeTwice_thenRenderOnlyOnce() throws WriterException {
+        final var qrCodeWriter = Mockito.spy(new QRCodeWriter());
+        final var mfaGatewayImpl = new MfaGatewayImpl(
+                new PngQrCodeRenderer(qrCodeWriter),
+                new MfaSecretCipher(keysService, "rsa"),
+                new TotpVerifier(1024)
+        );
+
+        Mockito.when(keysService.decrypt(Mockito.anyString(), Mockito.anyString()))
+                .thenAnswer(returnsFirstArg());
+
+        final var aEmail = Fixture.Users.email();
+        final var aFirst = mfaGatewayImpl.generateConfirmationQrCode("secret", aEmail, "deviceName");
+        final var aSecond = mfaGatewayImpl.generateConfirmationQrCode("secret", aEmail, "deviceName");
+
+        Assertions.assertEquals(aFirst, aSecond);
+        Mockito.verify(qrCodeWriter, Mockito.times(1))
+                .encode(Mockito.anyString(), Mockito.any(), Mockito.anyInt(), Mockito.anyInt());
+        Mockito.verify(keysService, Mockito.times(1)).decrypt(Mockito.anyString(), Mockito.anyString());
+    }
+
     // test generate confirmation qrcode throws
     @Test
     void givenAnInvalidValues_whenCallGenerateConfirmationQrCode_thenThrowsRuntimeException() throws WriterException {
@@ -78,7 +115,11 @@ class MfaGatewayImplTest {
         final var aIssuer = "deviceName";
 
         final var qrCodeWriter = Mockito.mock(QRCodeWriter.class);
-        final var mfaGatewayImpl = new MfaGatewayImpl(qrCodeWriter, keysService);
+        final var mfaGatewayImpl = new MfaGatewayImpl(
+                new PngQrCodeRenderer(qrCodeWriter),
+                new MfaSecretCipher(keysService, "rsa"),
+                new TotpVerifier(1024)
+        );
 
         Mockito.when(keysService.encrypt(Mockito.anyString(), Mockito.anyString()))
                 .thenAnswer(returnsFirstArg());
@@ -0,0 +1,49 @@
+package com.kaua.ecommerce.auth.infrastructure.gateways.qrcode;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.Encoder;
+import com.kaua.ecommerce.auth.infrastructure.UnitTest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.regex.Pattern;
+
+@UnitTest
+class SvgQrCodeRendererTest {
+
+    private static final String CONTENTS = "otpauth://totp/issuer:user@mail.com?secret=JBSWY3DPEHPK3PXP&issuer=issuer";
+    private static final Pattern RUN = Pattern.compile("M(\\d+) (\\d+)h(\\d+)v1h-(\\d+)z");
+
+    @Test
+    void givenAnOtpAuthUri_whenCallRender_shouldDrawEveryDarkModule() throws WriterException {
+        final var aMatrix = Encoder.encode(CONTENTS, ErrorCorrectionLevel.L).getMatrix();
+        var aDarkModules = 0;
+        for (int y = 0; y < aMatrix.getHeight(); y++) {
+            for (int x = 0; x < aMatrix.getWidth(); x++) {
+                if (aMatrix.get(x, y) == 1) {
+                    aDarkModules++;
+                }
+            }
+        }
+
+        final var aSvg = new SvgQrCodeRenderer().render(CONTENTS);
+
+        Assertions.assertTrue(aSvg.startsWith("<svg"));
+        Assertions.assertTrue(aSvg.contains("viewBox=\"0 0 " + (aMatrix.getWidth() + 8)));
+
+        var aDrawnModules = 0;
+        final var aRuns = RUN.matcher(aSvg);
+        while (aRuns.find()) {
+            final var aX = Integer.parseInt(aRuns.group(1)) - 4;
+            final var aY = Integer.parseInt(aRuns.group(2)) - 4;
+            final var aLength = Integer.parseInt(aRuns.group(3));
+            for (int i = 0; i < aLength; i++) {
+                Assertions.assertEquals(1, aMatrix.get(aX + i, aY));
+            }
+            aDrawnModules += aLength;
+        }
+
+        Assertions.assertEquals(aDarkModules, aDrawnModules);
+    }
+}
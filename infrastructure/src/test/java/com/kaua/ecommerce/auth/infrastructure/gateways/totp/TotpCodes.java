@@ -0,0 +1,14 @@
+package com.kaua.ecommerce.auth.infrastructure.gateways.totp;
+
+// gera o código do passo atual para os testes de fora deste pacote, como faria o app autenticador
+public final class TotpCodes {
+
+    private static final TotpEngine TOTP_ENGINE = new TotpEngine();
+
+    private TotpCodes() {}
+
+    public static String current(final String secret) {
+        final var aStep = TotpEngine.currentStep(System.currentTimeMillis());
+        return "%06d".formatted(TOTP_ENGINE.generate(TotpEngine.decodeBase32(secret), aStep));
+    }
+}
@@ -0,0 +1,66 @@
+package com.kaua.ecommerce.auth.infrastructure.gateways.totp;
+
+import com.kaua.ecommerce.auth.infrastructure.UnitTest;
+import com.warrenstrange.googleauth.GoogleAuthenticator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+@UnitTest
+class TotpEngineTest {
+
+    // secret dos vetores de teste SHA1 da RFC 6238
+    private static final byte[] RFC_KEY = "12345678901234567890".getBytes(StandardCharsets.US_ASCII);
+
+    private final TotpEngine totpEngine = new TotpEngine();
+
+    @Test
+    void givenTheRfcVectors_whenCallGenerate_shouldReturnTheLastSixDigits() {
+        Assertions.assertEquals(287082, this.totpEngine.generate(RFC_KEY, 59L / 30));
+        Assertions.assertEquals(81804, this.totpEngine.generate(RFC_KEY, 1111111109L / 30));
+        Assertions.assertEquals(5924, this.totpEngine.generate(RFC_KEY, 1234567890L / 30));
+        Assertions.assertEquals(279037, this.totpEngine.generate(RFC_KEY, 2000000000L / 30));
+    }
+
+    @Test
+    void givenAGoogleAuthenticatorSecret_whenCallVerify_shouldAcceptItsCode() {
+        final var aGoogleAuth = new GoogleAuthenticator();
+        final var aSecret = aGoogleAuth.createCredentials().getKey();
+        final var aNow = System.currentTimeMillis();
+
+        final var aCode = aGoogleAuth.getTotpPassword(aSecret, aNow);
+
+        Assertions.assertEquals(TotpEngine.currentStep(aNow),
+                this.totpEngine.verify(TotpEngine.decodeBase32(aSecret), aCode, aNow));
+    }
+
+    @Test
+    void givenACodeFromThePreviousStep_whenCallVerify_shouldReturnThatStep() {
+        final var aNow = 1_700_000_000_000L;
+        final var aStep = TotpEngine.currentStep(aNow);
+        final var aCode = this.totpEngine.generate(RFC_KEY, aStep - 1);
+
+        Assertions.assertEquals(aStep - 1, this.totpEngine.verify(RFC_KEY, aCode, aNow));
+        Assertions.assertEquals(-1, this.totpEngine.verify(RFC_KEY, aCode, aNow + 2 * TotpEngine.TIME_STEP_MILLIS));
+    }
+
+    @Test
+    void givenInvalidCodes_whenCallParseCode_shouldReturnMinusOne() {
+        Assertions.assertEquals(123, TotpEngine.parseCode("000123"));
+        Assertions.assertEquals(-1, TotpEngine.parseCode(null));
+        Assertions.assertEquals(-1, TotpEngine.parseCode("12345"));
+        Assertions.assertEquals(-1, TotpEngine.parseCode("1234567"));
+        Assertions.assertEquals(-1, TotpEngine.parseCode("12a456"));
+        Assertions.assertEquals(-1, TotpEngine.parseCode("-12345"));
+    }
+
+    @Test
+    void givenANewSecret_whenDecode_shouldHaveTheConfiguredSize() {
+        final var aSecret = this.totpEngine.newSecret();
+
+        Assertions.assertEquals(32, aSecret.length());
+        Assertions.assertEquals(TotpEngine.SECRET_BYTES, TotpEngine.decodeBase32(aSecret).length);
+        Assertions.assertEquals(aSecret, TotpEngine.encodeBase32(TotpEngine.decodeBase32(aSecret)));
+    }
+}
@@ -0,0 +1,72 @@
+package com.kaua.ecommerce.auth.infrastructure.gateways.totp;
+
+import com.kaua.ecommerce.auth.infrastructure.UnitTest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+@UnitTest
+class TotpVerifierTest {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+    private final TotpVerifier totpVerifier = new TotpVerifier(1024, this.now::get);
+    private final TotpEngine totpEngine = new TotpEngine();
+
+    @Test
+    void givenAnAcceptedCode_whenVerifyAgain_shouldRejectTheReplay() {
+        final var aSecret = this.totpVerifier.newSecret();
+        final var aCode = code(aSecret, 0);
+
+        Assertions.assertTrue(this.totpVerifier.verify(aSecret, aCode));
+        Assertions.assertFalse(this.totpVerifier.verify(aSecret, aCode));
+
+        // ainda dentro da janela no passo seguinte
+        this.now.addAndGet(TotpEngine.TIME_STEP_MILLIS);
+        Assertions.assertFalse(this.totpVerifier.verify(aSecret, aCode));
+    }
+
+    @Test
+    void givenTheSameCodeForAnotherSecret_whenCallVerify_shouldAccept() {
+        final var aFirst = this.totpVerifier.newSecret();
+        final var aSecond = this.totpVerifier.newSecret();
+
+        Assertions.assertTrue(this.totpVerifier.verify(aFirst, code(aFirst, 0)));
+        Assertions.assertTrue(this.totpVerifier.verify(aSecond, code(aSecond, 0)));
+    }
+
+    @Test
+    void givenAnAcceptedCode_whenTheNextStepCodeIsUsed_shouldAccept() {
+        final var aSecret = this.totpVerifier.newSecret();
+
+        Assertions.assertTrue(this.totpVerifier.verify(aSecret, code(aSecret, 0)));
+
+        this.now.addAndGet(TotpEngine.TIME_STEP_MILLIS);
+        Assertions.assertTrue(this.totpVerifier.verify(aSecret, code(aSecret, 0)));
+    }
+
+    @Test
+    void givenAnInvalidCode_whenCallVerify_shouldReturnFalse() {
+        final var aSecret = this.totpVerifier.newSecret();
+
+        Assertions.assertFalse(this.totpVerifier.verify(aSecret, "abc123"));
+        Assertions.assertFalse(this.totpVerifier.verify(aSecret, null));
+    }
+
+    @Test
+    void givenAFullCache_whenMarkMoreCodes_shouldStayBounded() {
+        final var aCache = new UsedCodeCache(16);
+        final var aStep = 1000L;
+
+        for (long i = 1; i <= 100; i++) {
+            Assertions.assertTrue(aCache.markUsed(i * 0x9E3779B97F4A7C15L, aStep, aStep));
+        }
+        // a última entrada sempre fica, a posição mais antiga é que é sobrescrita
+        Assertions.assertFalse(aCache.markUsed(100 * 0x9E3779B97F4A7C15L, aStep, aStep));
+    }
+
+    private String code(final String secret, final int stepOffset) {
+        final var aStep = TotpEngine.currentStep(this.now.get()) + stepOffset;
+        return String.format("%06d", this.totpEngine.generate(TotpEngine.decodeBase32(secret), aStep));
+    }
+}
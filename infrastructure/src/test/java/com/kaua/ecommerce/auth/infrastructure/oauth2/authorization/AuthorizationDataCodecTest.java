@@ -0,0 +1,93 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization;
+
+import com.kaua.ecommerce.auth.infrastructure.UnitTest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@UnitTest
+class AuthorizationDataCodecTest {
+
+    @Test
+    void givenACborCodec_whenCallEncode_shouldWriteOnlyVersionedBinaryData() {
+        final var aCodec = new AuthorizationDataCodec(AuthorizationDataCodec.Format.CBOR);
+
+        final var aResult = aCodec.encode(newAttributes());
+
+        Assertions.assertNull(aResult.text());
+        Assertions.assertNotNull(aResult.binary());
+        Assertions.assertEquals(AuthorizationDataCodec.CBOR_VERSION, aResult.binary()[0]);
+    }
+
+    @Test
+    void givenACborEncodedData_whenCallRead_shouldReturnSameAttributes() {
+        final var aCodec = new AuthorizationDataCodec(AuthorizationDataCodec.Format.CBOR);
+        final var aAttributes = newAttributes();
+
+        final var aResult = aCodec.read(null, aCodec.encode(aAttributes).binary());
+
+        Assertions.assertEquals(aAttributes.get("custom"), aResult.get("custom"));
+        final var aPrincipal = (UsernamePasswordAuthenticationToken) aResult.get(Principal.class.getName());
+        Assertions.assertEquals("user", aPrincipal.getName());
+        Assertions.assertEquals(1, aPrincipal.getAuthorities().size());
+    }
+
+    @Test
+    void givenAnOldJsonRow_whenCallReadWithCborCodec_shouldFallbackToJson() {
+        final var aJsonCodec = new AuthorizationDataCodec();
+        final var aCborCodec = new AuthorizationDataCodec(AuthorizationDataCodec.Format.CBOR);
+        final var aJson = aJsonCodec.encode(newAttributes());
+
+        Assertions.assertNull(aJson.binary());
+
+        final var aResult = aCborCodec.read(aJson.text(), null);
+
+        Assertions.assertEquals("value", aResult.get("custom"));
+        Assertions.assertNotNull(aResult.get(Principal.class.getName()));
+    }
+
+    @Test
+    void givenTheSameAttributes_whenEncodeWithCbor_shouldBeSmallerThanJson() {
+        final var aAttributes = newAttributes();
+
+        final var aJson = new AuthorizationDataCodec().encode(aAttributes).text();
+        final var aBinary = new AuthorizationDataCodec(AuthorizationDataCodec.Format.CBOR)
+                .encode(aAttributes).binary();
+
+        Assertions.assertTrue(aBinary.length < aJson.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    void givenAnUnknownVersion_whenCallRead_shouldThrowIllegalStateException() {
+        final var aCodec = new AuthorizationDataCodec(AuthorizationDataCodec.Format.CBOR);
+        final var aBinary = aCodec.encode(newAttributes()).binary();
+        aBinary[0] = 99;
+
+        Assertions.assertThrows(IllegalStateException.class, () -> aCodec.read(null, aBinary));
+    }
+
+    @Test
+    void givenAnInvalidFormat_whenCallFormatOf_shouldThrowIllegalArgumentException() {
+        Assertions.assertEquals(AuthorizationDataCodec.Format.CBOR, AuthorizationDataCodec.Format.of("cbor"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> AuthorizationDataCodec.Format.of("smile"));
+    }
+
+    private static Map<String, Object> newAttributes() {
+        final var aUser = new User("user", "", List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        final var aPrincipal = UsernamePasswordAuthenticationToken.authenticated(
+                aUser, null, aUser.getAuthorities());
+
+        final var aAttributes = new HashMap<String, Object>();
+        aAttributes.put(Principal.class.getName(), aPrincipal);
+        aAttributes.put("custom", "value");
+        return aAttributes;
+    }
+}
@@ -0,0 +1,133 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization;
+
+import com.kaua.ecommerce.auth.infrastructure.AbstractPostgresTest;
+import com.kaua.ecommerce.auth.infrastructure.DatabaseRepositoryTest;
+import com.kaua.ecommerce.auth.infrastructure.utils.TokenDigestUtils;
+import com.kaua.ecommerce.lib.domain.utils.IdentifierUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+@DatabaseRepositoryTest
+@TestPropertySource(properties = "spring.flyway.locations=classpath:db/migration,classpath:db/partitioning")
+class AuthorizationPartitionMaintenanceJobTest extends AbstractPostgresTest {
+
+    private static final int RETENTION_DAYS = 30;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private AuthorizationPartitionMaintenanceJob maintenanceJob;
+
+    @BeforeEach
+    void setUp() {
+        this.maintenanceJob = new AuthorizationPartitionMaintenanceJob(
+                this.jdbcTemplate,
+                this.transactionManager,
+                new SimpleMeterRegistry(),
+                Duration.ofDays(RETENTION_DAYS),
+                7,
+                Duration.ofSeconds(5)
+        );
+    }
+
+    @Test
+    void givenAnExpiredPartitionWithRefreshedTokens_whenCallMaintain_thenDropItWithTheTokensOfNewerPartitions() {
+        final var aNow = Instant.now();
+        final var aExpiredIssuedAt = aNow.minus(RETENTION_DAYS + 5, ChronoUnit.DAYS);
+        createPartition("authorizations", aExpiredIssuedAt);
+        createPartition("refresh_tokens", aExpiredIssuedAt);
+
+        final var aExpiredId = insertAuthorization(aExpiredIssuedAt);
+        insertRefreshToken(aExpiredId, aExpiredIssuedAt);
+        // rotacionado ontem, a linha fica na partição de ontem
+        insertRefreshToken(aExpiredId, aNow.minus(1, ChronoUnit.DAYS));
+        insertAuthorizationToken(aExpiredId);
+
+        final var aLiveId = insertAuthorization(aNow);
+        insertRefreshToken(aLiveId, aNow);
+        insertAuthorizationToken(aLiveId);
+
+        this.maintenanceJob.maintain();
+
+        Assertions.assertFalse(partitionExists("authorizations", aExpiredIssuedAt));
+        Assertions.assertFalse(partitionExists("refresh_tokens", aExpiredIssuedAt));
+        Assertions.assertEquals(0, countRows("authorizations", aExpiredId));
+        Assertions.assertEquals(0, countRows("refresh_tokens", aExpiredId));
+        Assertions.assertEquals(0, countRows("authorization_tokens", aExpiredId));
+        Assertions.assertEquals(1, countRows("authorizations", aLiveId));
+        Assertions.assertEquals(1, countRows("refresh_tokens", aLiveId));
+        Assertions.assertEquals(1, countRows("authorization_tokens", aLiveId));
+    }
+
+    private void createPartition(final String table, final Instant day) {
+        final var aDay = LocalDate.ofInstant(day, ZoneOffset.UTC);
+        this.jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(table, day) + " PARTITION OF " + table
+                + " FOR VALUES FROM ('" + aDay + "') TO ('" + aDay.plusDays(1) + "')");
+    }
+
+    private boolean partitionExists(final String table, final Instant day) {
+        return Boolean.TRUE.equals(this.jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, partitionName(table, day)));
+    }
+
+    private static String partitionName(final String table, final Instant day) {
+        return table + "_p" + LocalDate.ofInstant(day, ZoneOffset.UTC).format(DateTimeFormatter.BASIC_ISO_DATE);
+    }
+
+    private String insertAuthorization(final Instant issuedAt) {
+        final var aId = IdentifierUtils.generateNewId();
+        this.jdbcTemplate.update("INSERT INTO authorizations " +
+                        "(id, registered_client_id, principal_name, authorization_grant_type, issued_at) " +
+                        "VALUES (?, ?, ?, ?, ?)",
+                aId,
+                IdentifierUtils.generateNewId(),
+                IdentifierUtils.generateNewId(),
+                "refresh_token",
+                Timestamp.from(issuedAt));
+        return aId;
+    }
+
+    private void insertRefreshToken(final String authorizationId, final Instant issuedAt) {
+        this.jdbcTemplate.update("INSERT INTO refresh_tokens (id, authorization_id, refresh_value, issued_at, expires_at) " +
+                        "VALUES (?, ?, ?, ?, ?)",
+                IdentifierUtils.generateNewId(),
+                authorizationId,
+                IdentifierUtils.generateNewId(),
+                Timestamp.from(issuedAt),
+                Timestamp.from(issuedAt.plus(RETENTION_DAYS, ChronoUnit.DAYS)));
+    }
+
+    private void insertAuthorizationToken(final String authorizationId) {
+        final var aValue = IdentifierUtils.generateNewId();
+        this.jdbcTemplate.update("INSERT INTO authorization_tokens " +
+                        "(id, authorization_id, token_type, token_digest, token_value) VALUES (?, ?, ?, ?, ?)",
+                IdentifierUtils.generateNewId(),
+                authorizationId,
+                "refresh_token",
+                TokenDigestUtils.sha256(aValue),
+                aValue);
+    }
+
+    private int countRows(final String table, final String authorizationId) {
+        final var aColumn = table.equals("authorizations") ? "id" : "authorization_id";
+        return this.jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM " + table + " WHERE " + aColumn + " = ?", Integer.class, authorizationId);
+    }
+}
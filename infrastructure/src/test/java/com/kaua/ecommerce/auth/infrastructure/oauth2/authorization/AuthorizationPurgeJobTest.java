@@ -0,0 +1,164 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization;
+
+import com.kaua.ecommerce.auth.infrastructure.AbstractPostgresTest;
+import com.kaua.ecommerce.auth.infrastructure.DatabaseRepositoryTest;
+import com.kaua.ecommerce.auth.infrastructure.utils.TokenDigestUtils;
+import com.kaua.ecommerce.lib.domain.utils.IdentifierUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+@DatabaseRepositoryTest
+class AuthorizationPurgeJobTest extends AbstractPostgresTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private AuthorizationPurgeJob purgeJob;
+
+    @BeforeEach
+    void setUp() {
+        this.meterRegistry = new SimpleMeterRegistry();
+        // lote menor que o número de linhas para passar pelo laço mais de uma vez
+        this.purgeJob = new AuthorizationPurgeJob(
+                this.jdbcTemplate,
+                this.transactionManager,
+                this.meterRegistry,
+                2,
+                Duration.ZERO,
+                Duration.ofDays(1)
+        );
+    }
+
+    @Test
+    void givenExpiredAndLiveAuthorizations_whenCallPurge_thenDeleteOnlyExpiredWithTheirTokens() {
+        final var aNow = Instant.now();
+        final var aExpiredAt = aNow.minus(3, ChronoUnit.DAYS);
+        final var aLiveUntil = aNow.plus(1, ChronoUnit.DAYS);
+
+        final var aExpiredIds = new String[]{
+                insertAuthorization(aExpiredAt, aNow),
+                insertAuthorization(aExpiredAt, aNow),
+                insertAuthorization(aExpiredAt, aNow)
+        };
+        for (final var aId : aExpiredIds) {
+            insertAccessToken(aId, aExpiredAt);
+            insertAuthorizationToken(aId, aExpiredAt);
+        }
+
+        final var aLiveId = insertAuthorization(aLiveUntil, aNow);
+        insertAccessToken(aLiveId, aLiveUntil);
+        insertAuthorizationToken(aLiveId, aLiveUntil);
+
+        // expirou, mas ainda dentro da retenção
+        final var aRecentlyExpiredId = insertAuthorization(aNow.minus(1, ChronoUnit.HOURS), aNow);
+
+        this.purgeJob.purge();
+
+        for (final var aId : aExpiredIds) {
+            Assertions.assertEquals(0, countRows("authorizations", "id", aId));
+            Assertions.assertEquals(0, countRows("access_tokens", "authorization_id", aId));
+            Assertions.assertEquals(0, countRows("authorization_tokens", "authorization_id", aId));
+        }
+        Assertions.assertEquals(1, countRows("authorizations", "id", aLiveId));
+        Assertions.assertEquals(1, countRows("access_tokens", "authorization_id", aLiveId));
+        Assertions.assertEquals(1, countRows("authorization_tokens", "authorization_id", aLiveId));
+        Assertions.assertEquals(1, countRows("authorizations", "id", aRecentlyExpiredId));
+        Assertions.assertEquals(3, this.meterRegistry.counter("auth.authorizations.purged").count());
+    }
+
+    @Test
+    void givenAuthorizationsWithoutExpiresAt_whenCallPurge_thenAgeThemByTokensOrCreation() {
+        final var aNow = Instant.now();
+        final var aExpiredAt = aNow.minus(3, ChronoUnit.DAYS);
+        final var aLiveUntil = aNow.plus(1, ChronoUnit.DAYS);
+
+        // gravada por um nó anterior ao V10, os tokens dizem que venceu
+        final var aExpiredTokensId = insertAuthorization(null, aNow);
+        insertRefreshToken(aExpiredTokensId, aExpiredAt);
+
+        // sem expires_at mas com um token ainda válido
+        final var aLiveTokensId = insertAuthorization(null, aNow.minus(30, ChronoUnit.DAYS));
+        insertAccessToken(aLiveTokensId, aExpiredAt);
+        insertRefreshToken(aLiveTokensId, aLiveUntil);
+
+        // consentimento abandonado, sem token nenhum
+        final var aAbandonedId = insertAuthorization(null, aExpiredAt);
+        final var aPendingId = insertAuthorization(null, aNow);
+
+        this.purgeJob.purge();
+
+        Assertions.assertEquals(0, countRows("authorizations", "id", aExpiredTokensId));
+        Assertions.assertEquals(0, countRows("refresh_tokens", "authorization_id", aExpiredTokensId));
+        Assertions.assertEquals(1, countRows("authorizations", "id", aLiveTokensId));
+        Assertions.assertEquals(1, countRows("refresh_tokens", "authorization_id", aLiveTokensId));
+        Assertions.assertEquals(0, countRows("authorizations", "id", aAbandonedId));
+        Assertions.assertEquals(1, countRows("authorizations", "id", aPendingId));
+    }
+
+    private String insertAuthorization(final Instant expiresAt, final Instant createdAt) {
+        final var aId = IdentifierUtils.generateNewId();
+        this.jdbcTemplate.update("INSERT INTO authorizations " +
+                        "(id, registered_client_id, principal_name, authorization_grant_type, expires_at, created_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)",
+                aId,
+                IdentifierUtils.generateNewId(),
+                IdentifierUtils.generateNewId(),
+                "authorization_code",
+                expiresAt == null ? null : Timestamp.from(expiresAt),
+                Timestamp.from(createdAt));
+        return aId;
+    }
+
+    private void insertAccessToken(final String authorizationId, final Instant expiresAt) {
+        this.jdbcTemplate.update("INSERT INTO access_tokens (id, authorization_id, token_value, issued_at, expires_at) " +
+                        "VALUES (?, ?, ?, ?, ?)",
+                IdentifierUtils.generateNewId(),
+                authorizationId,
+                IdentifierUtils.generateNewId(),
+                Timestamp.from(expiresAt.minus(5, ChronoUnit.MINUTES)),
+                Timestamp.from(expiresAt));
+    }
+
+    private void insertRefreshToken(final String authorizationId, final Instant expiresAt) {
+        this.jdbcTemplate.update("INSERT INTO refresh_tokens (id, authorization_id, refresh_value, issued_at, expires_at) " +
+                        "VALUES (?, ?, ?, ?, ?)",
+                IdentifierUtils.generateNewId(),
+                authorizationId,
+                IdentifierUtils.generateNewId(),
+                Timestamp.from(expiresAt.minus(1, ChronoUnit.DAYS)),
+                Timestamp.from(expiresAt));
+    }
+
+    private void insertAuthorizationToken(final String authorizationId, final Instant expiresAt) {
+        final var aValue = IdentifierUtils.generateNewId();
+        this.jdbcTemplate.update("INSERT INTO authorization_tokens " +
+                        "(id, authorization_id, token_type, token_digest, token_value, issued_at, expires_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                IdentifierUtils.generateNewId(),
+                authorizationId,
+                "access_token",
+                TokenDigestUtils.sha256(aValue),
+                aValue,
+                Timestamp.from(expiresAt.minus(5, ChronoUnit.MINUTES)),
+                Timestamp.from(expiresAt));
+    }
+
+    private int countRows(final String table, final String column, final String id) {
+        return this.jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM " + table + " WHERE " + column + " = ?", Integer.class, id);
+    }
+}
@@ -0,0 +1,217 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization;
+
+import com.kaua.ecommerce.auth.infrastructure.DatabaseRepositoryTest;
+import com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.persistence.AuthorizationJpaEntityRepository;
+import com.kaua.ecommerce.auth.infrastructure.users.MfaSessionStore;
+import com.kaua.ecommerce.lib.domain.utils.IdentifierUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationCode;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.client.InMemoryRegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Set;
+
+@DatabaseRepositoryTest
+class AuthorizationServiceRepositoryImplTest {
+
+    @Autowired
+    private AuthorizationJpaEntityRepository authorizationJpaEntityRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RegisteredClient registeredClient;
+    private AuthorizationServiceRepositoryImpl authorizationService;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.registeredClient = RegisteredClient.withId(IdentifierUtils.generateNewId())
+                .clientId("client")
+                .clientSecret("secret")
+                .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+                .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                .redirectUri("http://localhost:5173")
+                .scope("openid")
+                .build();
+
+        this.authorizationService = new AuthorizationServiceRepositoryImpl(
+                this.authorizationJpaEntityRepository,
+                new InMemoryRegisteredClientRepository(this.registeredClient),
+                Mockito.mock(MfaSessionStore.class),
+                new AuthorizationDataCodec(),
+                new TokenShapeClassifier(this.meterRegistry),
+                false
+        );
+
+        this.statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void givenAPersistedAuthorization_whenCallFindByAccessToken_shouldExecuteASingleStatement() {
+        final var aAuthorization = persistAuthorization();
+
+        final var aOutput = this.authorizationService.findByToken(
+                aAuthorization.getAccessToken().getToken().getTokenValue(),
+                OAuth2TokenType.ACCESS_TOKEN);
+
+        Assertions.assertEquals(1, this.statistics.getPrepareStatementCount());
+        Assertions.assertEquals(aAuthorization.getId(), aOutput.getId());
+        Assertions.assertNotNull(aOutput.getToken(OAuth2AuthorizationCode.class));
+        Assertions.assertNotNull(aOutput.getToken(OidcIdToken.class));
+    }
+
+    @Test
+    void givenAPersistedAuthorization_whenCallFindByRefreshTokenWithoutType_shouldExecuteASingleStatement() {
+        final var aAuthorization = persistAuthorization();
+
+        final var aOutput = this.authorizationService.findByToken(
+                aAuthorization.getRefreshToken().getToken().getTokenValue(),
+                null);
+
+        Assertions.assertEquals(1, this.statistics.getPrepareStatementCount());
+        Assertions.assertEquals(aAuthorization.getId(), aOutput.getId());
+        Assertions.assertNotNull(aOutput.getAccessToken());
+        Assertions.assertEquals(1, shapeCount("opaque", "first_guess"));
+    }
+
+    @Test
+    void givenAPersistedAuthorization_whenCallFindByCodeWithoutType_shouldFindOnSecondGuess() {
+        final var aAuthorization = persistAuthorization();
+
+        final var aOutput = this.authorizationService.findByToken(
+                aAuthorization.getToken(OAuth2AuthorizationCode.class).getToken().getTokenValue(),
+                null);
+
+        Assertions.assertEquals(2, this.statistics.getPrepareStatementCount());
+        Assertions.assertEquals(aAuthorization.getId(), aOutput.getId());
+        Assertions.assertEquals(1, shapeCount("opaque", "other_guess"));
+    }
+
+    @Test
+    void givenAnUnknownToken_whenCallFindByTokenWithoutType_shouldFallBackAndRecordMiss() {
+        persistAuthorization();
+
+        final var aOutput = this.authorizationService.findByToken("unknown", null);
+
+        Assertions.assertNull(aOutput);
+        Assertions.assertEquals(1, this.statistics.getPrepareStatementCount());
+        Assertions.assertEquals(1, shapeCount("unknown", "miss"));
+    }
+
+    @Test
+    void givenAPersistedAuthorization_whenCallFindById_shouldExecuteASingleStatement() {
+        final var aAuthorization = persistAuthorization();
+
+        final var aOutput = this.authorizationService.findById(aAuthorization.getId());
+
+        Assertions.assertEquals(1, this.statistics.getPrepareStatementCount());
+        Assertions.assertEquals(aAuthorization.getId(), aOutput.getId());
+        Assertions.assertNotNull(aOutput.getAccessToken());
+    }
+
+    @Test
+    void givenARowWithoutDigest_whenCallFindByRefreshTokenWithLegacyLookup_shouldFindByValueAndBackfillTheDigest() {
+        final var aAuthorization = persistAuthorization();
+        final var aRefreshToken = aAuthorization.getRefreshToken().getToken().getTokenValue();
+        // linha gravada por um nó que ainda não preenche o token_digest
+        this.testEntityManager.getEntityManager()
+                .createNativeQuery("UPDATE refresh_tokens SET token_digest = NULL")
+                .executeUpdate();
+
+        Assertions.assertNull(this.authorizationService.findByToken(aRefreshToken, OAuth2TokenType.REFRESH_TOKEN));
+
+        final var aOutput = legacyLookupService().findByToken(aRefreshToken, OAuth2TokenType.REFRESH_TOKEN);
+        this.testEntityManager.flush();
+        this.testEntityManager.clear();
+
+        Assertions.assertEquals(aAuthorization.getId(), aOutput.getId());
+        Assertions.assertEquals(aAuthorization.getId(),
+                this.authorizationService.findByToken(aRefreshToken, OAuth2TokenType.REFRESH_TOKEN).getId());
+    }
+
+    @Test
+    void givenADigestLeftFromARotatedToken_whenCallFindByTheOldToken_shouldNotFindTheAuthorization() {
+        final var aAuthorization = persistAuthorization();
+        final var aOldRefreshToken = aAuthorization.getRefreshToken().getToken().getTokenValue();
+        // nó antigo trocou o valor e não mexeu no digest
+        this.testEntityManager.getEntityManager()
+                .createNativeQuery("UPDATE refresh_tokens SET refresh_value = 'rotated-refresh-token'")
+                .executeUpdate();
+
+        final var aService = legacyLookupService();
+
+        Assertions.assertNull(aService.findByToken(aOldRefreshToken, OAuth2TokenType.REFRESH_TOKEN));
+        Assertions.assertNull(aService.findByToken(aOldRefreshToken, null));
+        Assertions.assertEquals(aAuthorization.getId(),
+                aService.findByToken("rotated-refresh-token", OAuth2TokenType.REFRESH_TOKEN).getId());
+    }
+
+    private AuthorizationServiceRepositoryImpl legacyLookupService() {
+        return new AuthorizationServiceRepositoryImpl(
+                this.authorizationJpaEntityRepository,
+                new InMemoryRegisteredClientRepository(this.registeredClient),
+                Mockito.mock(MfaSessionStore.class),
+                new AuthorizationDataCodec(),
+                new TokenShapeClassifier(this.meterRegistry),
+                true
+        );
+    }
+
+    private OAuth2Authorization persistAuthorization() {
+        final var aIssuedAt = Instant.now();
+        final var aAuthorization = OAuth2Authorization.withRegisteredClient(this.registeredClient)
+                .id(IdentifierUtils.generateNewId())
+                .principalName(IdentifierUtils.generateNewId())
+                .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                .authorizedScopes(Set.of("openid"))
+                .token(new OAuth2AuthorizationCode(IdentifierUtils.generateNewId(),
+                        aIssuedAt, aIssuedAt.plus(5, ChronoUnit.MINUTES)))
+                .token(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, IdentifierUtils.generateNewId(),
+                        aIssuedAt, aIssuedAt.plus(5, ChronoUnit.MINUTES), Set.of("openid")))
+                .refreshToken(new OAuth2RefreshToken(IdentifierUtils.generateNewId(),
+                        aIssuedAt, aIssuedAt.plus(1, ChronoUnit.DAYS)))
+                .token(new OidcIdToken(IdentifierUtils.generateNewId(),
+                        aIssuedAt, aIssuedAt.plus(5, ChronoUnit.MINUTES), Map.of("sub", "user")))
+                .build();
+
+        this.authorizationService.save(aAuthorization);
+        this.testEntityManager.flush();
+        this.testEntityManager.clear();
+        this.statistics.clear();
+
+        return aAuthorization;
+    }
+
+    private double shapeCount(final String shape, final String result) {
+        return this.meterRegistry.get("auth.authorizations.token.shape")
+                .tag("shape", shape)
+                .tag("result", result)
+                .counter()
+                .count();
+    }
+}
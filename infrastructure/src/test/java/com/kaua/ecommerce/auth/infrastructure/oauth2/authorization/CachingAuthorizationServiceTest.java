@@ -0,0 +1,221 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization;
+
+import com.kaua.ecommerce.auth.infrastructure.AbstractCacheTest;
+import com.kaua.ecommerce.auth.infrastructure.DatabaseRepositoryTest;
+import com.kaua.ecommerce.auth.infrastructure.constants.Constants;
+import com.kaua.ecommerce.auth.infrastructure.services.KeysService;
+import com.kaua.ecommerce.auth.infrastructure.users.MfaSessionStore;
+import com.kaua.ecommerce.lib.domain.utils.IdentifierUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.client.InMemoryRegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+import javax.crypto.KeyGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Set;
+
+@DatabaseRepositoryTest
+class CachingAuthorizationServiceTest extends AbstractCacheTest {
+
+    private static final String OBJECT_KEY_PREFIX = "oauth2:authorizations:obj:";
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    private final OAuth2AuthorizationService delegate = Mockito.mock(OAuth2AuthorizationService.class);
+    private final MfaSessionStore mfaSessionStore = Mockito.mock(MfaSessionStore.class);
+
+    private RegisteredClient registeredClient;
+    private CachingAuthorizationService authorizationService;
+
+    @BeforeEach
+    void setUp() throws NoSuchAlgorithmException {
+        this.registeredClient = RegisteredClient.withId(IdentifierUtils.generateNewId())
+                .clientId("client")
+                .clientSecret("secret")
+                .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+                .authorizationGrantType(AuthorizationGrantType.REFRESH_TOKEN)
+                .scope("openid")
+                .build();
+
+        final var aKeyGenerator = KeyGenerator.getInstance("AES");
+        aKeyGenerator.init(256);
+        final var aDataKey = aKeyGenerator.generateKey();
+        final var aKeysService = Mockito.mock(KeysService.class);
+        Mockito.when(aKeysService.getDataKeyOrGenerate(
+                Constants.AUTHORIZATION_CACHE_DATA_KEY,
+                Constants.MFA_PUBLIC_KEY,
+                Constants.MFA_PRIVATE_KEY
+        )).thenReturn(aDataKey);
+
+        this.authorizationService = new CachingAuthorizationService(
+                this.delegate,
+                new InMemoryRegisteredClientRepository(this.registeredClient),
+                this.redisTemplate,
+                this.mfaSessionStore,
+                aKeysService
+        );
+    }
+
+    @Test
+    void givenAnUncachedToken_whenCallFindByToken_thenLoadFromTheStoreAndCache() {
+        final var aAuthorization = newAuthorization("refresh-1");
+        Mockito.when(this.delegate.findByToken("refresh-1", OAuth2TokenType.REFRESH_TOKEN))
+                .thenReturn(aAuthorization);
+
+        final var aOutput = this.authorizationService.findByToken("refresh-1", OAuth2TokenType.REFRESH_TOKEN);
+
+        Assertions.assertEquals(aAuthorization.getId(), aOutput.getId());
+        Assertions.assertTrue(this.redisTemplate.hasKey(OBJECT_KEY_PREFIX + aAuthorization.getId()));
+        Mockito.verify(this.delegate, Mockito.times(1)).findByToken("refresh-1", OAuth2TokenType.REFRESH_TOKEN);
+    }
+
+    @Test
+    void givenACachedToken_whenCallFindByToken_thenDoNotHitTheStore() {
+        final var aAuthorization = newAuthorization("refresh-1");
+        Mockito.when(this.delegate.findByToken("refresh-1", OAuth2TokenType.REFRESH_TOKEN))
+                .thenReturn(aAuthorization);
+        this.authorizationService.findByToken("refresh-1", OAuth2TokenType.REFRESH_TOKEN);
+
+        final var aOutput = this.authorizationService.findByToken("refresh-1", OAuth2TokenType.REFRESH_TOKEN);
+
+        Assertions.assertEquals(aAuthorization.getId(), aOutput.getId());
+        Assertions.assertEquals("refresh-1", aOutput.getRefreshToken().getToken().getTokenValue());
+        Assertions.assertEquals("access-token", aOutput.getAccessToken().getToken().getTokenValue());
+        Mockito.verify(this.delegate, Mockito.times(1)).findByToken("refresh-1", OAuth2TokenType.REFRESH_TOKEN);
+        Mockito.verify(this.mfaSessionStore, Mockito.times(1))
+                .onRefreshTokenLookup(Mockito.eq(aAuthorization.getPrincipalName()),
+                        Mockito.eq(aAuthorization.getId()), Mockito.any());
+    }
+
+    @Test
+    void givenARotatedToken_whenCallFindByTheOldToken_thenFallThroughToTheStore() {
+        final var aAuthorization = newAuthorization("refresh-1");
+        final var aRotated = OAuth2Authorization.from(aAuthorization)
+                .refreshToken(refreshToken("refresh-2"))
+                .build();
+        Mockito.when(this.delegate.findByToken("refresh-1", OAuth2TokenType.REFRESH_TOKEN))
+                .thenReturn(aAuthorization)
+                .thenReturn(null);
+        Mockito.when(this.delegate.findById(aAuthorization.getId())).thenReturn(aRotated);
+
+        this.authorizationService.findByToken("refresh-1", OAuth2TokenType.REFRESH_TOKEN);
+        this.authorizationService.save(aRotated);
+        // a ref do token antigo continua apontando para a autorização, agora cacheada sem ele
+        this.authorizationService.findById(aAuthorization.getId());
+
+        final var aOutput = this.authorizationService.findByToken("refresh-1", OAuth2TokenType.REFRESH_TOKEN);
+
+        Assertions.assertNull(aOutput);
+        Mockito.verify(this.delegate, Mockito.times(2)).findByToken("refresh-1", OAuth2TokenType.REFRESH_TOKEN);
+    }
+
+    @Test
+    void givenACachedAuthorization_whenCallSave_thenEvictAndReloadFromTheStore() {
+        final var aAuthorization = newAuthorization("refresh-1");
+        Mockito.when(this.delegate.findById(aAuthorization.getId())).thenReturn(aAuthorization);
+        this.authorizationService.findById(aAuthorization.getId());
+        Assertions.assertTrue(this.redisTemplate.hasKey(OBJECT_KEY_PREFIX + aAuthorization.getId()));
+
+        this.authorizationService.save(aAuthorization);
+
+        Assertions.assertFalse(this.redisTemplate.hasKey(OBJECT_KEY_PREFIX + aAuthorization.getId()));
+        Mockito.verify(this.delegate).save(aAuthorization);
+
+        this.authorizationService.findById(aAuthorization.getId());
+        Mockito.verify(this.delegate, Mockito.times(2)).findById(aAuthorization.getId());
+    }
+
+    @Test
+    void givenASaveWhileTheStoreIsRead_whenCallFindById_thenTheStaleCopyIsNotCached() {
+        final var aAuthorization = newAuthorization("refresh-1");
+        final var aRotated = OAuth2Authorization.from(aAuthorization)
+                .refreshToken(refreshToken("refresh-2"))
+                .build();
+        // o save entra depois da leitura no banco e antes da escrita no cache
+        Mockito.when(this.delegate.findById(aAuthorization.getId())).thenAnswer(invocation -> {
+            this.authorizationService.save(aRotated);
+            return aAuthorization;
+        });
+
+        final var aOutput = this.authorizationService.findById(aAuthorization.getId());
+
+        Assertions.assertEquals("refresh-1", aOutput.getRefreshToken().getToken().getTokenValue());
+        Assertions.assertFalse(this.redisTemplate.hasKey(OBJECT_KEY_PREFIX + aAuthorization.getId()));
+
+        Mockito.when(this.delegate.findById(aAuthorization.getId())).thenReturn(aRotated);
+        this.authorizationService.findById(aAuthorization.getId());
+        Assertions.assertTrue(this.redisTemplate.hasKey(OBJECT_KEY_PREFIX + aAuthorization.getId()));
+    }
+
+    @Test
+    void givenASaveWhileAnUnreferencedTokenIsRead_whenCallFindByToken_thenTheStaleCopyIsNotCached() {
+        final var aAuthorization = newAuthorization("refresh-1");
+        Mockito.when(this.delegate.findByToken("refresh-1", OAuth2TokenType.REFRESH_TOKEN)).thenAnswer(invocation -> {
+            this.authorizationService.save(aAuthorization);
+            return aAuthorization;
+        });
+
+        final var aOutput = this.authorizationService.findByToken("refresh-1", OAuth2TokenType.REFRESH_TOKEN);
+
+        Assertions.assertEquals(aAuthorization.getId(), aOutput.getId());
+        Assertions.assertFalse(this.redisTemplate.hasKey(OBJECT_KEY_PREFIX + aAuthorization.getId()));
+    }
+
+    @Test
+    void givenACachedAuthorization_whenReadTheRawEntry_thenTokenValuesAreNotInPlainText() {
+        final var aAuthorization = newAuthorization("refresh-1");
+        Mockito.when(this.delegate.findById(aAuthorization.getId())).thenReturn(aAuthorization);
+        this.authorizationService.findById(aAuthorization.getId());
+
+        final var aRawEntry = this.redisTemplate.opsForValue().get(OBJECT_KEY_PREFIX + aAuthorization.getId());
+
+        Assertions.assertNotNull(aRawEntry);
+        Assertions.assertFalse(aRawEntry.contains("refresh-1"));
+        Assertions.assertFalse(aRawEntry.contains("access-token"));
+    }
+
+    @Test
+    void givenAnEntryThatDoesNotDecrypt_whenCallFindById_thenTreatAsAMiss() {
+        final var aAuthorization = newAuthorization("refresh-1");
+        Mockito.when(this.delegate.findById(aAuthorization.getId())).thenReturn(aAuthorization);
+        this.redisTemplate.opsForValue().set(OBJECT_KEY_PREFIX + aAuthorization.getId(), "{\"id\":\"plain\"}");
+
+        final var aOutput = this.authorizationService.findById(aAuthorization.getId());
+
+        Assertions.assertEquals(aAuthorization.getId(), aOutput.getId());
+        Mockito.verify(this.delegate, Mockito.times(1)).findById(aAuthorization.getId());
+    }
+
+    private OAuth2Authorization newAuthorization(final String refreshToken) {
+        final var aIssuedAt = Instant.now();
+        return OAuth2Authorization.withRegisteredClient(this.registeredClient)
+                .id(IdentifierUtils.generateNewId())
+                .principalName(IdentifierUtils.generateNewId())
+                .authorizationGrantType(AuthorizationGrantType.REFRESH_TOKEN)
+                .authorizedScopes(Set.of("openid"))
+                .token(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "access-token",
+                        aIssuedAt, aIssuedAt.plus(5, ChronoUnit.MINUTES), Set.of("openid")))
+                .refreshToken(refreshToken(refreshToken))
+                .build();
+    }
+
+    private static OAuth2RefreshToken refreshToken(final String value) {
+        final var aIssuedAt = Instant.now();
+        return new OAuth2RefreshToken(value, aIssuedAt, aIssuedAt.plus(1, ChronoUnit.DAYS));
+    }
+}
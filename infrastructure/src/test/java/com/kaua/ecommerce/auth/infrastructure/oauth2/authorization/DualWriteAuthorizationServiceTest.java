@@ -0,0 +1,167 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization;
+
+import com.kaua.ecommerce.auth.infrastructure.DatabaseRepositoryTest;
+import com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.persistence.AuthorizationHeaderJpaEntityRepository;
+import com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.persistence.AuthorizationJpaEntityRepository;
+import com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.persistence.AuthorizationTokenJpaEntityRepository;
+import com.kaua.ecommerce.auth.infrastructure.users.MfaSessionStore;
+import com.kaua.ecommerce.lib.domain.utils.IdentifierUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.client.InMemoryRegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Set;
+
+@DatabaseRepositoryTest
+class DualWriteAuthorizationServiceTest {
+
+    @Autowired
+    private AuthorizationJpaEntityRepository authorizationRepository;
+
+    @Autowired
+    private AuthorizationHeaderJpaEntityRepository authorizationHeaderRepository;
+
+    @Autowired
+    private AuthorizationTokenJpaEntityRepository authorizationTokenRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private final MfaSessionStore mfaSessionStore = Mockito.mock(MfaSessionStore.class);
+
+    private RegisteredClient registeredClient;
+    private AuthorizationServiceRepositoryImpl joinedStore;
+    private SingleTableAuthorizationServiceRepositoryImpl singleTableStore;
+
+    @BeforeEach
+    void setUp() {
+        this.registeredClient = RegisteredClient.withId(IdentifierUtils.generateNewId())
+                .clientId("client")
+                .clientSecret("secret")
+                .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+                .authorizationGrantType(AuthorizationGrantType.REFRESH_TOKEN)
+                .scope("openid")
+                .build();
+
+        final var aRegisteredClientRepository = new InMemoryRegisteredClientRepository(this.registeredClient);
+        this.joinedStore = new AuthorizationServiceRepositoryImpl(
+                this.authorizationRepository,
+                aRegisteredClientRepository,
+                this.mfaSessionStore,
+                new AuthorizationDataCodec(),
+                new TokenShapeClassifier(new SimpleMeterRegistry()),
+                false);
+        this.singleTableStore = new SingleTableAuthorizationServiceRepositoryImpl(
+                this.authorizationHeaderRepository,
+                this.authorizationTokenRepository,
+                this.authorizationRepository,
+                aRegisteredClientRepository,
+                this.mfaSessionStore,
+                new AuthorizationDataCodec());
+    }
+
+    @Test
+    void givenJoinedAsPrimary_whenCallSave_thenSingleTableStoreFindsTheTokens() {
+        final var aService = new DualWriteAuthorizationService(
+                this.joinedStore, this.singleTableStore, this.testEntityManager.getEntityManager());
+        final var aAuthorization = newAuthorization("refresh-1");
+
+        aService.save(aAuthorization);
+        aService.save(OAuth2Authorization.from(aAuthorization)
+                .refreshToken(refreshToken("refresh-2"))
+                .build());
+        this.testEntityManager.flush();
+        this.testEntityManager.clear();
+
+        Assertions.assertNull(this.singleTableStore.findByToken("refresh-1", OAuth2TokenType.REFRESH_TOKEN));
+        Assertions.assertEquals(aAuthorization.getId(),
+                this.singleTableStore.findByToken("refresh-2", OAuth2TokenType.REFRESH_TOKEN).getId());
+        Assertions.assertEquals(aAuthorization.getId(),
+                this.joinedStore.findByToken("refresh-2", OAuth2TokenType.REFRESH_TOKEN).getId());
+    }
+
+    @Test
+    void givenSingleTableAsPrimary_whenCallSave_thenJoinedStoreFindsTheTokens() {
+        final var aService = new DualWriteAuthorizationService(
+                this.singleTableStore, this.joinedStore, this.testEntityManager.getEntityManager());
+        final var aAuthorization = newAuthorization("refresh-1");
+
+        aService.save(aAuthorization);
+        this.testEntityManager.flush();
+        this.testEntityManager.clear();
+
+        Assertions.assertEquals(aAuthorization.getId(),
+                this.joinedStore.findByToken("refresh-1", OAuth2TokenType.REFRESH_TOKEN).getId());
+        Assertions.assertEquals(aAuthorization.getId(),
+                this.joinedStore.findByToken("access-token", OAuth2TokenType.ACCESS_TOKEN).getId());
+    }
+
+    @Test
+    void givenAnAuthorizationInBothLayouts_whenCallRemove_thenBothLayoutsAreCleaned() {
+        final var aService = new DualWriteAuthorizationService(
+                this.joinedStore, this.singleTableStore, this.testEntityManager.getEntityManager());
+        final var aAuthorization = newAuthorization("refresh-1");
+        aService.save(aAuthorization);
+        this.testEntityManager.flush();
+        this.testEntityManager.clear();
+
+        aService.remove(aAuthorization);
+        this.testEntityManager.flush();
+        this.testEntityManager.clear();
+
+        Assertions.assertTrue(this.authorizationRepository.findById(aAuthorization.getId()).isEmpty());
+        Assertions.assertTrue(this.authorizationTokenRepository.findAllByAuthorizationId(aAuthorization.getId()).isEmpty());
+    }
+
+    @Test
+    void givenAMfaSessionStore_whenSecondaryIssuesARefreshToken_thenTheSessionIsNotifiedOnce() {
+        final var aSecondary = new SingleTableAuthorizationServiceRepositoryImpl(
+                this.authorizationHeaderRepository,
+                this.authorizationTokenRepository,
+                this.authorizationRepository,
+                new InMemoryRegisteredClientRepository(this.registeredClient),
+                DualWriteAuthorizationService.withoutTokenEvents(this.mfaSessionStore),
+                new AuthorizationDataCodec());
+        final var aService = new DualWriteAuthorizationService(
+                this.joinedStore, aSecondary, this.testEntityManager.getEntityManager());
+        final var aAuthorization = newAuthorization("refresh-1");
+
+        aService.save(aAuthorization);
+
+        Mockito.verify(this.mfaSessionStore, Mockito.times(1))
+                .onRefreshTokenIssued(Mockito.eq(aAuthorization.getPrincipalName()),
+                        Mockito.eq(aAuthorization.getId()), Mockito.any());
+    }
+
+    private OAuth2Authorization newAuthorization(final String refreshToken) {
+        final var aIssuedAt = Instant.now();
+        return OAuth2Authorization.withRegisteredClient(this.registeredClient)
+                .id(IdentifierUtils.generateNewId())
+                .principalName(IdentifierUtils.generateNewId())
+                .authorizationGrantType(AuthorizationGrantType.REFRESH_TOKEN)
+                .authorizedScopes(Set.of("openid"))
+                .token(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "access-token",
+                        aIssuedAt, aIssuedAt.plus(5, ChronoUnit.MINUTES), Set.of("openid")))
+                .refreshToken(refreshToken(refreshToken))
+                .build();
+    }
+
+    private static OAuth2RefreshToken refreshToken(final String value) {
+        final var aIssuedAt = Instant.now();
+        return new OAuth2RefreshToken(value, aIssuedAt, aIssuedAt.plus(1, ChronoUnit.DAYS));
+    }
+}
@@ -0,0 +1,83 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization;
+
+import com.kaua.ecommerce.auth.infrastructure.UnitTest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@UnitTest
+class LazyAuthorizationBuilderTest {
+
+    @Test
+    void givenLazyTokens_whenOnlyAccessTokenIsRead_shouldDecodeOnlyAccessTokenMetadata() {
+        final var aAccessTokenReads = new AtomicInteger();
+        final var aRefreshTokenReads = new AtomicInteger();
+        final var aIssuedAt = Instant.now();
+
+        final var aBuilder = new LazyAuthorizationBuilder(newRegisteredClient());
+        aBuilder.id("authorization-id")
+                .principalName("user")
+                .authorizationGrantType(AuthorizationGrantType.REFRESH_TOKEN);
+        aBuilder.lazyToken(
+                new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "access-token",
+                        aIssuedAt, aIssuedAt.plus(5, ChronoUnit.MINUTES), Set.of("read")),
+                () -> {
+                    aAccessTokenReads.incrementAndGet();
+                    return Map.of(OAuth2Authorization.Token.INVALIDATED_METADATA_NAME, false);
+                });
+        aBuilder.lazyToken(
+                new OAuth2RefreshToken("refresh-token", aIssuedAt, aIssuedAt.plus(1, ChronoUnit.DAYS)),
+                () -> {
+                    aRefreshTokenReads.incrementAndGet();
+                    return Map.of(OAuth2Authorization.Token.INVALIDATED_METADATA_NAME, false);
+                });
+
+        final var aAuthorization = aBuilder.build();
+
+        Assertions.assertEquals(0, aAccessTokenReads.get());
+        Assertions.assertEquals(0, aRefreshTokenReads.get());
+
+        Assertions.assertTrue(aAuthorization.getAccessToken().isActive());
+        Assertions.assertTrue(aAuthorization.getAccessToken().isActive());
+
+        Assertions.assertEquals(1, aAccessTokenReads.get());
+        Assertions.assertEquals(0, aRefreshTokenReads.get());
+        Assertions.assertEquals("refresh-token", aAuthorization.getRefreshToken().getToken().getTokenValue());
+    }
+
+    @Test
+    void givenALazyMetadata_whenCallGet_shouldDecodeOnce() {
+        final var aReads = new AtomicInteger();
+        final var aMetadata = new LazyAuthorizationBuilder.LazyMetadata(() -> {
+            aReads.incrementAndGet();
+            return Map.of("key", "value");
+        });
+
+        Assertions.assertFalse(aMetadata.isLoaded());
+        Assertions.assertEquals("value", aMetadata.get("key"));
+        Assertions.assertEquals(1, aMetadata.size());
+        Assertions.assertTrue(aMetadata.isLoaded());
+        Assertions.assertEquals(1, aReads.get());
+    }
+
+    private static RegisteredClient newRegisteredClient() {
+        return RegisteredClient.withId("client-id")
+                .clientId("client")
+                .clientSecret("secret")
+                .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+                .authorizationGrantType(AuthorizationGrantType.REFRESH_TOKEN)
+                .scope("read")
+                .build();
+    }
+}
@@ -0,0 +1,101 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization;
+
+import com.kaua.ecommerce.auth.infrastructure.UnitTest;
+import com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.persistence.AuthorizationJpaEntityRepository;
+import com.kaua.ecommerce.auth.infrastructure.users.MfaSessionStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Set;
+
+@UnitTest
+class PostgresUpsertAuthorizationServiceRepositoryImplTest {
+
+    private final AuthorizationJpaEntityRepository authorizationRepository =
+            Mockito.mock(AuthorizationJpaEntityRepository.class);
+    private final RegisteredClientRepository registeredClientRepository =
+            Mockito.mock(RegisteredClientRepository.class);
+    private final MfaSessionStore mfaSessionStore =
+            Mockito.mock(MfaSessionStore.class);
+    private final NamedParameterJdbcTemplate jdbcTemplate =
+            Mockito.mock(NamedParameterJdbcTemplate.class);
+
+    @Test
+    void givenAnAuthorization_whenCallSaveOnUpsertStore_shouldBuildASingleUpsert() {
+        final var aAuthorization = newAuthorization();
+        Mockito.when(this.jdbcTemplate.queryForObject(
+                        Mockito.anyString(), Mockito.any(SqlParameterSource.class), Mockito.eq(Boolean.class)))
+                .thenReturn(Boolean.FALSE);
+
+        final var aStore = new PostgresUpsertAuthorizationServiceRepositoryImpl(
+                this.authorizationRepository,
+                this.registeredClientRepository,
+                this.mfaSessionStore,
+                new AuthorizationDataCodec(),
+                new TokenShapeClassifier(new SimpleMeterRegistry()),
+                false,
+                this.jdbcTemplate);
+
+        aStore.save(aAuthorization);
+
+        final var aSqlCaptor = ArgumentCaptor.forClass(String.class);
+        final var aParamsCaptor = ArgumentCaptor.forClass(SqlParameterSource.class);
+
+        // a contagem de statements contra o Postgres fica no PostgresUpsertAuthorizationServiceStatementsTest
+        Mockito.verify(this.jdbcTemplate, Mockito.times(1))
+                .queryForObject(aSqlCaptor.capture(), aParamsCaptor.capture(), Mockito.eq(Boolean.class));
+        Mockito.verifyNoMoreInteractions(this.jdbcTemplate);
+        Mockito.verifyNoInteractions(this.authorizationRepository, this.mfaSessionStore);
+
+        final var aSql = aSqlCaptor.getValue();
+        Assertions.assertTrue(aSql.contains("ON CONFLICT (id) DO UPDATE"));
+        Assertions.assertTrue(aSql.contains("access_tokens_upsert AS ("));
+        Assertions.assertFalse(aSql.contains("refresh_tokens_upsert"));
+        Assertions.assertTrue(aSql.endsWith("SELECT FALSE"));
+
+        final var aParams = (MapSqlParameterSource) aParamsCaptor.getValue();
+        Assertions.assertEquals(aAuthorization.getId(), aParams.getValue("id"));
+        Assertions.assertEquals("access-token-value", aParams.getValue("accessTokenValue"));
+        Assertions.assertEquals(32, ((byte[]) aParams.getValue("accessTokenDigest")).length);
+    }
+
+    private static OAuth2Authorization newAuthorization() {
+        final var aRegisteredClient = RegisteredClient.withId("client-id")
+                .clientId("client")
+                .clientSecret("secret")
+                .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .scope("read")
+                .build();
+
+        final var aIssuedAt = Instant.now();
+        final var aAccessToken = new OAuth2AccessToken(
+                OAuth2AccessToken.TokenType.BEARER,
+                "access-token-value",
+                aIssuedAt,
+                aIssuedAt.plus(5, ChronoUnit.MINUTES),
+                Set.of("read"));
+
+        return OAuth2Authorization.withRegisteredClient(aRegisteredClient)
+                .id("authorization-id")
+                .principalName("client")
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .authorizedScopes(Set.of("read"))
+                .token(aAccessToken)
+                .build();
+    }
+}
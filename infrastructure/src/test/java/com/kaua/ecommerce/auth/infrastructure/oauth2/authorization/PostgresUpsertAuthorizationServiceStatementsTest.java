@@ -0,0 +1,216 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization;
+
+import com.kaua.ecommerce.auth.infrastructure.AbstractPostgresTest;
+import com.kaua.ecommerce.auth.infrastructure.DatabaseRepositoryTest;
+import com.kaua.ecommerce.auth.infrastructure.oauth2.authorization.persistence.AuthorizationJpaEntityRepository;
+import com.kaua.ecommerce.auth.infrastructure.users.MfaSessionStore;
+import com.kaua.ecommerce.lib.domain.utils.IdentifierUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.client.InMemoryRegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// conta os statements que chegam ao Postgres em cada save: pelas estatísticas do hibernate no store joined
+// e por um DataSource que conta os statements abertos no store de upsert, que grava por JDBC
+@DatabaseRepositoryTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PostgresUpsertAuthorizationServiceStatementsTest extends AbstractPostgresTest {
+
+    @Autowired
+    private AuthorizationJpaEntityRepository authorizationRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final MfaSessionStore mfaSessionStore = Mockito.mock(MfaSessionStore.class);
+    private final AtomicInteger jdbcStatements = new AtomicInteger();
+
+    private TransactionTemplate upsertTransaction;
+
+    private RegisteredClient registeredClient;
+    private AuthorizationServiceRepositoryImpl joinedStore;
+    private PostgresUpsertAuthorizationServiceRepositoryImpl upsertStore;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        this.registeredClient = RegisteredClient.withId(IdentifierUtils.generateNewId())
+                .clientId("client")
+                .clientSecret("secret")
+                .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+                .authorizationGrantType(AuthorizationGrantType.REFRESH_TOKEN)
+                .scope("openid")
+                .build();
+
+        final var aRegisteredClientRepository = new InMemoryRegisteredClientRepository(this.registeredClient);
+        this.joinedStore = new AuthorizationServiceRepositoryImpl(
+                this.authorizationRepository,
+                aRegisteredClientRepository,
+                this.mfaSessionStore,
+                new AuthorizationDataCodec(),
+                new TokenShapeClassifier(new SimpleMeterRegistry()),
+                false);
+        final var aCountingDataSource = countingStatements(this.dataSource, this.jdbcStatements);
+        // o hikari roda com auto-commit desligado, o upsert precisa de uma transação na conexão que conta
+        this.upsertTransaction = new TransactionTemplate(new DataSourceTransactionManager(aCountingDataSource));
+        this.upsertStore = new PostgresUpsertAuthorizationServiceRepositoryImpl(
+                this.authorizationRepository,
+                aRegisteredClientRepository,
+                this.mfaSessionStore,
+                new AuthorizationDataCodec(),
+                new TokenShapeClassifier(new SimpleMeterRegistry()),
+                false,
+                new NamedParameterJdbcTemplate(aCountingDataSource));
+
+        this.statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.statistics.setStatisticsEnabled(true);
+    }
+
+    @Test
+    void givenANewAuthorization_whenCallSaveOnBothStores_thenUpsertIssuesASingleStatement() {
+        final var aJoinedStatements = joinedSaveStatements(newAuthorization("refresh-1"));
+
+        final var aAuthorization = newAuthorization("refresh-2");
+        this.jdbcStatements.set(0);
+        this.statistics.clear();
+        upsertSave(aAuthorization);
+
+        // ao menos o SELECT por id e um INSERT por tabela (authorizations, access_tokens, refresh_tokens)
+        Assertions.assertTrue(aJoinedStatements >= 4);
+        Assertions.assertEquals(1, this.jdbcStatements.get());
+        Assertions.assertEquals(0, this.statistics.getPrepareStatementCount());
+        assertPersisted(aAuthorization, "refresh-2");
+    }
+
+    @Test
+    void givenARefreshedAuthorization_whenCallSaveOnBothStores_thenUpsertIssuesASingleStatement() {
+        final var aJoinedAuthorization = newAuthorization("refresh-1");
+        joinedSaveStatements(aJoinedAuthorization);
+        final var aJoinedStatements = joinedSaveStatements(OAuth2Authorization.from(aJoinedAuthorization)
+                .refreshToken(refreshToken("refresh-1b"))
+                .build());
+
+        final var aAuthorization = newAuthorization("refresh-2");
+        upsertSave(aAuthorization);
+        final var aRefreshed = OAuth2Authorization.from(aAuthorization)
+                .refreshToken(refreshToken("refresh-2b"))
+                .build();
+        this.jdbcStatements.set(0);
+        this.statistics.clear();
+        upsertSave(aRefreshed);
+
+        Assertions.assertTrue(aJoinedStatements > 1);
+        Assertions.assertEquals(1, this.jdbcStatements.get());
+        Assertions.assertEquals(0, this.statistics.getPrepareStatementCount());
+        assertPersisted(aRefreshed, "refresh-2b");
+        Assertions.assertNull(this.joinedStore.findByToken("refresh-2", OAuth2TokenType.REFRESH_TOKEN));
+    }
+
+    // o save do joined roda dentro da transação que o CachingAuthorizationService/DualWrite abre em produção
+    private long joinedSaveStatements(final OAuth2Authorization authorization) {
+        this.statistics.clear();
+        new TransactionTemplate(this.transactionManager).executeWithoutResult(status ->
+                this.joinedStore.save(authorization));
+        return this.statistics.getPrepareStatementCount();
+    }
+
+    private void upsertSave(final OAuth2Authorization authorization) {
+        this.upsertTransaction.executeWithoutResult(status -> this.upsertStore.save(authorization));
+    }
+
+    private void assertPersisted(final OAuth2Authorization authorization, final String refreshToken) {
+        final var aOutput = this.joinedStore.findByToken(refreshToken, OAuth2TokenType.REFRESH_TOKEN);
+
+        Assertions.assertNotNull(aOutput);
+        Assertions.assertEquals(authorization.getId(), aOutput.getId());
+        Assertions.assertEquals(authorization.getAccessToken().getToken().getTokenValue(),
+                aOutput.getAccessToken().getToken().getTokenValue());
+    }
+
+    private OAuth2Authorization newAuthorization(final String refreshToken) {
+        final var aIssuedAt = Instant.now();
+        return OAuth2Authorization.withRegisteredClient(this.registeredClient)
+                .id(IdentifierUtils.generateNewId())
+                .principalName(IdentifierUtils.generateNewId())
+                .authorizationGrantType(AuthorizationGrantType.REFRESH_TOKEN)
+                .authorizedScopes(Set.of("openid"))
+                .token(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "access-" + refreshToken,
+                        aIssuedAt, aIssuedAt.plus(5, ChronoUnit.MINUTES), Set.of("openid")))
+                .refreshToken(refreshToken(refreshToken))
+                .build();
+    }
+
+    private static OAuth2RefreshToken refreshToken(final String value) {
+        final var aIssuedAt = Instant.now();
+        return new OAuth2RefreshToken(value, aIssuedAt, aIssuedAt.plus(1, ChronoUnit.DAYS));
+    }
+
+    private static DataSource countingStatements(final DataSource dataSource, final AtomicInteger counter) {
+        return (DataSource) Proxy.newProxyInstance(
+                DataSource.class.getClassLoader(),
+                new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> {
+                    final var aResult = invoke(dataSource, method, args);
+                    if (aResult instanceof Connection aConnection) {
+                        return countingStatements(aConnection, counter);
+                    }
+                    return aResult;
+                });
+    }
+
+    private static Connection countingStatements(final Connection connection, final AtomicInteger counter) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    final var aName = method.getName();
+                    if (aName.equals("prepareStatement") || aName.equals("prepareCall") || aName.equals("createStatement")) {
+                        counter.incrementAndGet();
+                    }
+                    return invoke(connection, method, args);
+                });
+    }
+
+    private static Object invoke(final Object target, final Method method, final Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.authorization;
+
+import com.kaua.ecommerce.auth.infrastructure.UnitTest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+@UnitTest
+class TransactionalAuthorizationServiceTest {
+
+    private final OAuth2AuthorizationService delegate = Mockito.mock(OAuth2AuthorizationService.class);
+    private final PlatformTransactionManager transactionManager = Mockito.mock(PlatformTransactionManager.class);
+    private final TransactionStatus transactionStatus = Mockito.mock(TransactionStatus.class);
+
+    private final TransactionalAuthorizationService service =
+            new TransactionalAuthorizationService(this.delegate, this.transactionManager);
+
+    @Test
+    void givenAnAuthorization_whenCallSave_thenDelegatesInsideAWriteTransaction() {
+        final var aAuthorization = Mockito.mock(OAuth2Authorization.class);
+        Mockito.when(this.transactionManager.getTransaction(Mockito.any())).thenReturn(this.transactionStatus);
+
+        this.service.save(aAuthorization);
+
+        final var aInOrder = Mockito.inOrder(this.transactionManager, this.delegate);
+        aInOrder.verify(this.transactionManager).getTransaction(Mockito.any());
+        aInOrder.verify(this.delegate).save(aAuthorization);
+        aInOrder.verify(this.transactionManager).commit(this.transactionStatus);
+        Assertions.assertFalse(capturedDefinition().isReadOnly());
+    }
+
+    @Test
+    void givenAFailingDelegate_whenCallRemove_thenRollsBackAndRethrows() {
+        final var aAuthorization = Mockito.mock(OAuth2Authorization.class);
+        Mockito.when(this.transactionManager.getTransaction(Mockito.any())).thenReturn(this.transactionStatus);
+        Mockito.doThrow(new IllegalStateException("boom")).when(this.delegate).remove(aAuthorization);
+
+        Assertions.assertThrows(IllegalStateException.class, () -> this.service.remove(aAuthorization));
+
+        Mockito.verify(this.transactionManager).rollback(this.transactionStatus);
+        Mockito.verify(this.transactionManager, Mockito.never()).commit(Mockito.any());
+    }
+
+    @Test
+    void givenAnId_whenCallFindById_thenDelegatesInsideAReadOnlyTransaction() {
+        final var aAuthorization = Mockito.mock(OAuth2Authorization.class);
+        Mockito.when(this.transactionManager.getTransaction(Mockito.any())).thenReturn(this.transactionStatus);
+        Mockito.when(this.delegate.findById("id")).thenReturn(aAuthorization);
+
+        Assertions.assertSame(aAuthorization, this.service.findById("id"));
+        Assertions.assertTrue(capturedDefinition().isReadOnly());
+    }
+
+    @Test
+    void givenAToken_whenCallFindByToken_thenDelegatesInsideAWriteTransaction() {
+        final var aAuthorization = Mockito.mock(OAuth2Authorization.class);
+        Mockito.when(this.transactionManager.getTransaction(Mockito.any())).thenReturn(this.transactionStatus);
+        Mockito.when(this.delegate.findByToken("token", OAuth2TokenType.REFRESH_TOKEN)).thenReturn(aAuthorization);
+
+        Assertions.assertSame(aAuthorization, this.service.findByToken("token", OAuth2TokenType.REFRESH_TOKEN));
+        // o store pode gravar o digest de um token legado durante a busca
+        Assertions.assertFalse(capturedDefinition().isReadOnly());
+    }
+
+    private TransactionDefinition capturedDefinition() {
+        final var aCaptor = ArgumentCaptor.forClass(TransactionDefinition.class);
+        Mockito.verify(this.transactionManager).getTransaction(aCaptor.capture());
+        return aCaptor.getValue();
+    }
+}
@@ -77,6 +77,20 @@ class ClientRegisteredRepositoryImplTest extends AbstractCacheTest {
         Assertions.assertEquals(aClient.getTokenSettings().isReuseRefreshTokens(), clientEntity.getTokenSettings().isReuseRefreshTokens());
     }
 
+    @Test
+    void givenRegisteredClients_whenCallPreloadAll_thenEveryClientIsCached() {
+        final var aClient = createRegisteredClient();
+        this.clientRegisteredRepositoryImpl.save(aClient);
+
+        Assertions.assertEquals(1, this.clientRegisteredRepositoryImpl.preloadAll());
+
+        final var aObjectKey = "oauth2:clients:obj:".concat(aClient.getId());
+        Assertions.assertTrue(this.redisTemplate.hasKey(aObjectKey));
+        Assertions.assertEquals(aObjectKey, this.redisTemplate.opsForValue().get("oauth2:clients:ref:id:".concat(aClient.getId())));
+        Assertions.assertEquals(aObjectKey, this.redisTemplate.opsForValue().get("oauth2:clients:ref:clientId:".concat(aClient.getClientId())));
+        Assertions.assertTrue(this.redisTemplate.getExpire(aObjectKey) > 0);
+    }
+
     @Test
     void givenAValidId_whenCallFindById_thenReturnRegisteredClient() {
         final var aClient = createRegisteredClient();
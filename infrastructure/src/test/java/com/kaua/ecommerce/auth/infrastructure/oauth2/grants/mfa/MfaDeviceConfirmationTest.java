@@ -0,0 +1,87 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.grants.mfa;
+
+import com.kaua.ecommerce.auth.application.gateways.MfaGateway;
+import com.kaua.ecommerce.auth.domain.Fixture;
+import com.kaua.ecommerce.auth.domain.users.mfas.UserMfaType;
+import com.kaua.ecommerce.auth.infrastructure.AbstractCacheTest;
+import com.kaua.ecommerce.auth.infrastructure.ApiTest;
+import com.kaua.ecommerce.auth.infrastructure.IntegrationTest;
+import com.kaua.ecommerce.auth.infrastructure.gateways.totp.TotpCodes;
+import com.kaua.ecommerce.auth.infrastructure.roles.persistence.RoleJpaEntity;
+import com.kaua.ecommerce.auth.infrastructure.roles.persistence.RoleJpaEntityRepository;
+import com.kaua.ecommerce.auth.infrastructure.services.impl.MfaSecretCipher;
+import com.kaua.ecommerce.auth.infrastructure.users.persistence.UserJpaEntity;
+import com.kaua.ecommerce.auth.infrastructure.users.persistence.UserJpaEntityRepository;
+import com.kaua.ecommerce.lib.domain.utils.InstantUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.temporal.ChronoUnit;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// passa pelo MfaAuthenticationFilter, pelo provider e pelo use case com o TotpVerifier real,
+// o cache de códigos usados recusaria uma segunda conferência do mesmo código no mesmo request
+@IntegrationTest
+@AutoConfigureMockMvc
+class MfaDeviceConfirmationTest extends AbstractCacheTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private RoleJpaEntityRepository roleJpaEntityRepository;
+
+    @Autowired
+    private UserJpaEntityRepository userJpaEntityRepository;
+
+    @Autowired
+    private MfaGateway mfaGateway;
+
+    @Autowired
+    private MfaSecretCipher mfaSecretCipher;
+
+    @Test
+    void givenAValidOtp_whenCallConfirmDevice_thenTheDeviceIsConfirmed() throws Exception {
+        final var aRole = Fixture.Roles.defaultRole();
+        this.roleJpaEntityRepository.saveAndFlush(RoleJpaEntity.toEntity(aRole));
+
+        final var aSecret = this.mfaGateway.generateSecret(UserMfaType.TOTP);
+        final var aUser = Fixture.Users.randomUser(aRole.getId());
+        aUser.getMfa().createMfaOnDevice(aSecret, "my-device", UserMfaType.TOTP);
+        this.userJpaEntityRepository.saveAndFlush(UserJpaEntity.toEntity(aUser));
+
+        final var aUserId = aUser.getId().value().toString();
+        final var aValidUntil = InstantUtils.now().plus(30, ChronoUnit.MINUTES);
+
+        final var aRequest = MockMvcRequestBuilders.post("/v1/users/mfa/device/confirm")
+                .with(ApiTest.admin(aUserId))
+                .with(csrf())
+                .accept(MediaType.APPLICATION_JSON_VALUE)
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .param("otp_code", TotpCodes.current(this.mfaSecretCipher.decrypt(aSecret)))
+                .content("""
+                        {
+                            "valid_until": "%s"
+                        }
+                        """.formatted(aValidUntil));
+
+        this.mvc.perform(aRequest)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.user_id").value(aUserId));
+
+        final var aPersistedUser = this.userJpaEntityRepository.findById(aUser.getId().value())
+                .orElseThrow()
+                .toDomain();
+
+        Assertions.assertTrue(aPersistedUser.getMfa().isDeviceVerified());
+        Assertions.assertTrue(aPersistedUser.getMfa().isValid());
+    }
+}
@@ -0,0 +1,81 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.grants.mfa;
+
+import com.kaua.ecommerce.auth.domain.users.mfas.UserMfa;
+import com.kaua.ecommerce.auth.domain.users.mfas.UserMfaType;
+import com.kaua.ecommerce.auth.infrastructure.UnitTest;
+import com.kaua.ecommerce.auth.infrastructure.oauth2.grants.utils.CustomTokenClaimsUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+@UnitTest
+class MfaTokenClaimsTest {
+
+    @Test
+    void givenMfaDisabled_whenCallStamp_shouldBeAssuredUntilTokenExpires() {
+        final var aExpiresAt = Instant.now().plus(15, ChronoUnit.MINUTES);
+
+        final var aToken = stamp(UserMfa.newMfa(), Optional.empty(), aExpiresAt);
+
+        Assertions.assertTrue(MfaTokenClaims.isAssured(aToken));
+        Assertions.assertEquals(List.of("pwd"), aToken.getClaimAsStringList(CustomTokenClaimsUtils.AMR));
+        Assertions.assertEquals(aExpiresAt, aToken.getClaimAsInstant(CustomTokenClaimsUtils.MFA_VALID_UNTIL));
+    }
+
+    @Test
+    void givenAVerifiedMfa_whenCallStamp_shouldBeAssuredUntilSessionExpires() {
+        final var aVerifiedUntil = Instant.now().plus(30, ChronoUnit.MINUTES);
+
+        final var aToken = stamp(enabledMfa(), Optional.of(aVerifiedUntil), Instant.now().plus(15, ChronoUnit.MINUTES));
+
+        Assertions.assertTrue(MfaTokenClaims.isAssured(aToken));
+        Assertions.assertEquals(List.of("pwd", "otp", "mfa"), aToken.getClaimAsStringList(CustomTokenClaimsUtils.AMR));
+        Assertions.assertEquals(aVerifiedUntil, aToken.getClaimAsInstant(CustomTokenClaimsUtils.MFA_VALID_UNTIL));
+    }
+
+    @Test
+    void givenAnUnverifiedMfa_whenCallStamp_shouldNotBeAssured() {
+        final var aToken = stamp(enabledMfa(), Optional.empty(), Instant.now().plus(15, ChronoUnit.MINUTES));
+
+        Assertions.assertFalse(MfaTokenClaims.isAssured(aToken));
+        Assertions.assertNull(aToken.getClaimAsInstant(CustomTokenClaimsUtils.MFA_VALID_UNTIL));
+    }
+
+    @Test
+    void givenAStaleClaim_whenCallIsAssured_shouldReturnFalse() {
+        final var aToken = stamp(enabledMfa(), Optional.of(Instant.now().minus(1, ChronoUnit.MINUTES)),
+                Instant.now().plus(15, ChronoUnit.MINUTES));
+
+        Assertions.assertFalse(MfaTokenClaims.isAssured(aToken));
+    }
+
+    @Test
+    void givenATokenWithoutClaims_whenCallIsAssured_shouldReturnFalse() {
+        final var aToken = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("user")
+                .build();
+
+        Assertions.assertFalse(MfaTokenClaims.isAssured(aToken));
+    }
+
+    private static UserMfa enabledMfa() {
+        return UserMfa.newMfa().createMfaOnDevice("secret", "device", UserMfaType.TOTP);
+    }
+
+    private static Jwt stamp(final UserMfa mfa, final Optional<Instant> verifiedUntil, final Instant expiresAt) {
+        final var aClaims = JwtClaimsSet.builder().subject("user");
+        MfaTokenClaims.stamp(aClaims, mfa, verifiedUntil, expiresAt);
+
+        return Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .claims(it -> it.putAll(aClaims.build().getClaims()))
+                .build();
+    }
+}
@@ -0,0 +1,103 @@
+package com.kaua.ecommerce.auth.infrastructure.oauth2.grants.mfa;
+
+import com.kaua.ecommerce.auth.infrastructure.AbstractCacheTest;
+import com.kaua.ecommerce.auth.infrastructure.DatabaseRepositoryTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+@DatabaseRepositoryTest
+class OtpAttemptLimiterTest extends AbstractCacheTest {
+
+    private static final Duration WINDOW = Duration.ofMinutes(5);
+    // múltiplo da janela, o teste começa no início de uma
+    private static final long START = WINDOW.toMillis() * 5_666_667L;
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    private final AtomicLong now = new AtomicLong(START);
+
+    @Test
+    void givenTooManyAttempts_whenCallTryAcquire_shouldRejectUntilSuccess() {
+        final var aLimiter = newLimiter(3, 100);
+        final var aUserId = UUID.randomUUID().toString();
+
+        Assertions.assertTrue(aLimiter.tryAcquire(aUserId));
+        Assertions.assertTrue(aLimiter.tryAcquire(aUserId));
+        Assertions.assertTrue(aLimiter.tryAcquire(aUserId));
+        Assertions.assertFalse(aLimiter.tryAcquire(aUserId));
+        Assertions.assertEquals(300, aLimiter.retryAfterSeconds());
+
+        aLimiter.onSuccess(aUserId);
+
+        Assertions.assertTrue(aLimiter.tryAcquire(aUserId));
+    }
+
+    @Test
+    void givenAttemptsInThePreviousWindow_whenCallTryAcquire_shouldWeightThemByTheElapsedTime() {
+        final var aLimiter = newLimiter(3, 100);
+        final var aUserId = UUID.randomUUID().toString();
+        for (int i = 0; i < 3; i++) {
+            aLimiter.tryAcquire(aUserId);
+        }
+
+        this.now.set(START + WINDOW.toMillis());
+        Assertions.assertFalse(aLimiter.tryAcquire(aUserId));
+
+        // 90% da janela nova, as 3 antigas pesam 0.3
+        this.now.set(START + 2 * WINDOW.toMillis() - WINDOW.toMillis() / 10);
+        Assertions.assertTrue(aLimiter.tryAcquire(aUserId));
+    }
+
+    @Test
+    void givenAttemptsOnTwoNodes_whenSynced_shouldEnforceTheClusterBudget() {
+        final var aFirstNode = newLimiter(5, 6);
+        final var aSecondNode = newLimiter(5, 6);
+        final var aUserId = UUID.randomUUID().toString();
+
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertTrue(aFirstNode.tryAcquire(aUserId));
+        }
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertTrue(aSecondNode.tryAcquire(aUserId));
+        }
+
+        aFirstNode.sync();
+        aSecondNode.sync();
+        Assertions.assertFalse(aSecondNode.tryAcquire(aUserId));
+
+        aFirstNode.sync();
+        Assertions.assertFalse(aFirstNode.tryAcquire(aUserId));
+    }
+
+    @Test
+    void givenAnIdleUser_whenCallSync_shouldDropTheLocalWindow() {
+        final var aLimiter = newLimiter(3, 100);
+        aLimiter.tryAcquire(UUID.randomUUID().toString());
+        aLimiter.sync();
+        Assertions.assertEquals(1, aLimiter.trackedUsers());
+
+        this.now.set(START + 2 * WINDOW.toMillis());
+        aLimiter.sync();
+
+        Assertions.assertEquals(0, aLimiter.trackedUsers());
+    }
+
+    private OtpAttemptLimiter newLimiter(final int maxAttempts, final int clusterMaxAttempts) {
+        return new OtpAttemptLimiter(
+                this.redisTemplate,
+                new SimpleMeterRegistry(),
+                maxAttempts,
+                clusterMaxAttempts,
+                WINDOW,
+                this.now::get
+        );
+    }
+}
@@ -10,6 +10,7 @@ import com.kaua.ecommerce.auth.domain.Fixture;
 import com.kaua.ecommerce.auth.domain.users.mfas.UserMfaType;
 import com.kaua.ecommerce.auth.infrastructure.ApiTest;
 import com.kaua.ecommerce.auth.infrastructure.ControllerTest;
+import com.kaua.ecommerce.auth.infrastructure.oauth2.grants.mfa.MfaAuthenticationFilter;
 import com.kaua.ecommerce.auth.infrastructure.rest.controllers.UserRestController;
 import com.kaua.ecommerce.lib.domain.utils.IdentifierUtils;
 import com.kaua.ecommerce.lib.domain.utils.InstantUtils;
@@ -216,6 +217,31 @@ class UserRestApiTest {
 
         Assertions.assertEquals(aOtpCode, aConfirmUserMfaDeviceInput.code());
         Assertions.assertEquals(aValidUntil, aConfirmUserMfaDeviceInput.validUntil().toString());
+        Assertions.assertFalse(aConfirmUserMfaDeviceInput.codeVerified());
+    }
+
+    @Test
+    void givenAnOtpAlreadyVerifiedByTheMfaFilter_whenCallConfirmDevice_thenTheCodeIsNotCheckedAgain() throws Exception {
+        final var aExpectedUserId = UUID.randomUUID().toString();
+
+        Mockito.when(confirmUserMfaDeviceUseCase.execute(any()))
+                .thenAnswer(call -> new ConfirmUserMfaDeviceOutput(aExpectedUserId));
+
+        final var aRequest = MockMvcRequestBuilders.post("/v1/users/mfa/device/confirm")
+                .with(ApiTest.admin())
+                .with(csrf())
+                .requestAttr(MfaAuthenticationFilter.OTP_VERIFIED_ATTRIBUTE, Boolean.TRUE)
+                .accept(MediaType.APPLICATION_JSON_VALUE)
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .param("otp_code", "123456")
+                .content("{}");
+
+        this.mvc.perform(aRequest)
+                .andExpect(status().isOk());
+
+        Mockito.verify(confirmUserMfaDeviceUseCase, Mockito.times(1))
+                .execute(confirmUserMfaDeviceInputCaptor.capture());
+        Assertions.assertTrue(confirmUserMfaDeviceInputCaptor.getValue().codeVerified());
     }
 
     @Test
@@ -0,0 +1,81 @@
+package com.kaua.ecommerce.auth.infrastructure.services.impl;
+
+import com.kaua.ecommerce.auth.infrastructure.UnitTest;
+import com.kaua.ecommerce.auth.infrastructure.constants.Constants;
+import com.kaua.ecommerce.auth.infrastructure.services.KeysService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import javax.crypto.KeyGenerator;
+import java.security.NoSuchAlgorithmException;
+
+@UnitTest
+class MfaSecretCipherTest {
+
+    private static final String SECRET = "JBSWY3DPEHPK3PXP";
+
+    private KeysService keysService;
+
+    @BeforeEach
+    void setUp() throws NoSuchAlgorithmException {
+        final var aKeyGenerator = KeyGenerator.getInstance("AES");
+        aKeyGenerator.init(256);
+        final var aDataKey = aKeyGenerator.generateKey();
+
+        this.keysService = Mockito.mock(KeysService.class);
+        Mockito.when(this.keysService.getDataKeyOrGenerate(
+                Constants.MFA_DATA_KEY,
+                Constants.MFA_PUBLIC_KEY,
+                Constants.MFA_PRIVATE_KEY
+        )).thenReturn(aDataKey);
+    }
+
+    @Test
+    void givenDataKeyMode_whenCallEncryptAndDecrypt_shouldNotUseRsa() {
+        final var aCipher = new MfaSecretCipher(this.keysService, "data-key");
+
+        final var aEncrypted = aCipher.encrypt(SECRET);
+
+        Assertions.assertTrue(aEncrypted.startsWith(MfaSecretCipher.DATA_KEY_PREFIX));
+        Assertions.assertEquals(SECRET, aCipher.decrypt(aEncrypted));
+        Mockito.verify(this.keysService, Mockito.never()).encrypt(Mockito.anyString(), Mockito.anyString());
+        Mockito.verify(this.keysService, Mockito.never()).decrypt(Mockito.anyString(), Mockito.anyString());
+    }
+
+    @Test
+    void givenDataKeyMode_whenEncryptTheSameSecretTwice_shouldUseADifferentIv() {
+        final var aCipher = new MfaSecretCipher(this.keysService, "data-key");
+
+        Assertions.assertNotEquals(aCipher.encrypt(SECRET), aCipher.encrypt(SECRET));
+    }
+
+    @Test
+    void givenALegacySecret_whenCallDecrypt_shouldDelegateToRsa() {
+        final var aCipher = new MfaSecretCipher(this.keysService, "data-key");
+        Mockito.when(this.keysService.decrypt("legacy", Constants.MFA_PRIVATE_KEY)).thenReturn(SECRET);
+
+        Assertions.assertEquals(SECRET, aCipher.decrypt("legacy"));
+    }
+
+    @Test
+    void givenRsaMode_whenCallEncrypt_shouldKeepTheLegacyFormat() {
+        final var aCipher = new MfaSecretCipher(this.keysService, "rsa");
+        Mockito.when(this.keysService.encrypt(SECRET, Constants.MFA_PUBLIC_KEY)).thenReturn("legacy");
+
+        Assertions.assertEquals("legacy", aCipher.encrypt(SECRET));
+    }
+
+    @Test
+    void givenALegacySecret_whenCallReencrypt_shouldReturnTheDataKeyFormat() {
+        final var aCipher = new MfaSecretCipher(this.keysService, "rsa");
+        Mockito.when(this.keysService.decrypt("legacy", Constants.MFA_PRIVATE_KEY)).thenReturn(SECRET);
+
+        final var aReencrypted = aCipher.reencrypt("legacy");
+
+        Assertions.assertTrue(MfaSecretCipher.isDataKeyEncrypted(aReencrypted));
+        Assertions.assertEquals(SECRET, aCipher.decrypt(aReencrypted));
+        Assertions.assertSame(aReencrypted, aCipher.reencrypt(aReencrypted));
+    }
+}
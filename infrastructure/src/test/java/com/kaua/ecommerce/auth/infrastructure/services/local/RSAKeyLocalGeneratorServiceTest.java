@@ -0,0 +1,86 @@
+package com.kaua.ecommerce.auth.infrastructure.services.local;
+
+import com.kaua.ecommerce.auth.infrastructure.UnitTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+@UnitTest
+class RSAKeyLocalGeneratorServiceTest {
+
+    private static final String PUBLIC_KEY = "test-public.key";
+    private static final String PRIVATE_KEY = "test-private.key";
+
+    @TempDir
+    Path keysFolder;
+
+    private RSAKeyLocalGeneratorService keysService;
+
+    @BeforeEach
+    void setUp() {
+        this.keysService = new RSAKeyLocalGeneratorService(this.keysFolder);
+        this.keysService.generateAndSaveKeys(PUBLIC_KEY, PRIVATE_KEY);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.keysService.close();
+    }
+
+    @Test
+    void givenGeneratedKeys_whenCallEncryptAndDecrypt_shouldReturnTheOriginalData() {
+        final var aEncrypted = this.keysService.encrypt("JBSWY3DPEHPK3PXP", PUBLIC_KEY);
+
+        Assertions.assertEquals("JBSWY3DPEHPK3PXP", this.keysService.decrypt(aEncrypted, PRIVATE_KEY));
+    }
+
+    @Test
+    void givenALoadedKey_whenCallGetPrivateKey_shouldNotReadTheFileAgain() {
+        final var aFirst = this.keysService.getPrivateKey(PRIVATE_KEY);
+        final var aSecond = this.keysService.getPrivateKey(PRIVATE_KEY);
+
+        Assertions.assertSame(aFirst, aSecond);
+    }
+
+    @Test
+    void givenADataKey_whenLoadedByAnotherInstance_shouldUnwrapTheSameKey() {
+        final var aDataKey = this.keysService.getDataKeyOrGenerate("test-data.key", PUBLIC_KEY, PRIVATE_KEY);
+
+        Assertions.assertTrue(Files.exists(this.keysFolder.resolve("test-data.key")));
+        Assertions.assertSame(aDataKey, this.keysService.getDataKeyOrGenerate("test-data.key", PUBLIC_KEY, PRIVATE_KEY));
+
+        try (final var aOtherService = new RSAKeyLocalGeneratorService(this.keysFolder)) {
+            final var aLoaded = aOtherService.getDataKeyOrGenerate("test-data.key", PUBLIC_KEY, PRIVATE_KEY);
+            Assertions.assertArrayEquals(aDataKey.getEncoded(), aLoaded.getEncoded());
+        }
+    }
+
+    @Test
+    void givenALoadedKey_whenTheFileChanges_shouldReloadIt() throws Exception {
+        final var aOldKey = this.keysService.getPublicKey(PUBLIC_KEY);
+
+        // gera outro par em outra pasta e copia por cima, simulando uma rotação feita fora da aplicação
+        final var aOtherFolder = Files.createTempDirectory(this.keysFolder, "other");
+        try (final var aOtherService = new RSAKeyLocalGeneratorService(aOtherFolder)) {
+            aOtherService.generateAndSaveKeys(PUBLIC_KEY, PRIVATE_KEY);
+        }
+        Files.copy(aOtherFolder.resolve(PUBLIC_KEY), this.keysFolder.resolve(PUBLIC_KEY),
+                StandardCopyOption.REPLACE_EXISTING);
+
+        final var aDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        var aNewKey = this.keysService.getPublicKey(PUBLIC_KEY);
+        while (aNewKey.equals(aOldKey) && System.nanoTime() < aDeadline) {
+            Thread.sleep(50);
+            aNewKey = this.keysService.getPublicKey(PUBLIC_KEY);
+        }
+
+        Assertions.assertNotEquals(aOldKey, aNewKey);
+    }
+}
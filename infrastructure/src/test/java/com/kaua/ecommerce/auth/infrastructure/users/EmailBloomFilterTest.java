@@ -0,0 +1,79 @@
+package com.kaua.ecommerce.auth.infrastructure.users;
+
+import com.kaua.ecommerce.auth.infrastructure.UnitTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+
+@UnitTest
+class EmailBloomFilterTest {
+
+    @Test
+    void givenAddedEmails_whenCallMightContain_thenEveryAddedEmailIsFound() {
+        final var aFilter = new EmailBloomFilter(new RedisTemplate<>(), 10_000, 0.01);
+
+        for (int i = 0; i < 10_000; i++) {
+            aFilter.add("user" + i + "@tester.com");
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            Assertions.assertTrue(aFilter.mightContain("user" + i + "@tester.com"));
+        }
+    }
+
+    @Test
+    void givenAFullFilter_whenCallMightContainWithUnknownEmails_thenFalsePositivesStayNearTheTarget() {
+        final var aFilter = new EmailBloomFilter(new RedisTemplate<>(), 10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            aFilter.add("user" + i + "@tester.com");
+        }
+
+        var aFalsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (aFilter.mightContain("bot" + i + "@tester.com")) {
+                aFalsePositives++;
+            }
+        }
+
+        Assertions.assertTrue(aFalsePositives < 2_000, "false positives: " + aFalsePositives);
+        Assertions.assertEquals(0.01, aFilter.expectedFalsePositiveRate(), 0.005);
+    }
+
+    @Test
+    void givenAFilterNotLoaded_whenCallDefinitelyAbsent_thenReturnFalse() {
+        final var aFilter = new EmailBloomFilter(new RedisTemplate<>(), 1_000, 0.01);
+
+        Assertions.assertFalse(aFilter.definitelyAbsent("unknown@tester.com"));
+
+        aFilter.markReady();
+
+        Assertions.assertTrue(aFilter.definitelyAbsent("unknown@tester.com"));
+    }
+
+    @Test
+    void givenLookups_whenBindTo_thenExposeTheObservedFalsePositiveRate() {
+        final var aFilter = new EmailBloomFilter(new RedisTemplate<>(), 1_000, 0.01);
+        final var aRegistry = new SimpleMeterRegistry();
+        aFilter.bindTo(aRegistry);
+        aFilter.markReady();
+
+        aFilter.definitelyAbsent("one@tester.com");
+        aFilter.definitelyAbsent("two@tester.com");
+        aFilter.definitelyAbsent("three@tester.com");
+        aFilter.recordDatabaseCheck(false);
+        aFilter.recordDatabaseCheck(true);
+
+        Assertions.assertEquals(3, aRegistry.get("auth.users.email.filter.lookups").tag("result", "negative").functionCounter().count());
+        Assertions.assertEquals(1, aRegistry.get("auth.users.email.filter.lookups").tag("result", "false_positive").functionCounter().count());
+        Assertions.assertEquals(0.25, aRegistry.get("auth.users.email.filter.false.positive.rate").gauge().value());
+    }
+
+    @Test
+    void givenAnInvalidSizing_whenCreate_thenThrowsIllegalArgumentException() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new EmailBloomFilter(new RedisTemplate<>(), 0, 0.01));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new EmailBloomFilter(new RedisTemplate<>(), 1_000, 1));
+    }
+}
@@ -0,0 +1,109 @@
+package com.kaua.ecommerce.auth.infrastructure.users;
+
+import com.kaua.ecommerce.auth.infrastructure.UnitTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@UnitTest
+class MfaSessionUpdaterTest {
+
+    private final JdbcTemplate jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, String> redisTemplate = Mockito.mock(RedisTemplate.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final MfaSessionUpdater mfaSessionUpdater = new MfaSessionUpdater(
+            this.jdbcTemplate,
+            Mockito.mock(PlatformTransactionManager.class),
+            this.redisTemplate,
+            this.meterRegistry
+    );
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void givenRepeatedRefreshesForTheSameUser_whenCallFlush_shouldWriteASingleUpdate() {
+        final var aUserId = UUID.randomUUID();
+        final var aFirstExpiresAt = Instant.now().plus(1, ChronoUnit.DAYS);
+        final var aLastExpiresAt = aFirstExpiresAt.plus(1, ChronoUnit.HOURS);
+        Mockito.when(this.jdbcTemplate.batchUpdate(Mockito.anyString(), Mockito.<List<Object[]>>any()))
+                .thenReturn(new int[]{1});
+        Mockito.when(this.jdbcTemplate.query(
+                        Mockito.startsWith("SELECT id, version FROM users"),
+                        Mockito.<RowMapper<Map.Entry<UUID, Long>>>any(),
+                        Mockito.<Object>any()))
+                .thenReturn(List.of(Map.entry(aUserId, 2L)));
+
+        this.mfaSessionUpdater.onRefreshTokenIssued(aUserId.toString(), aFirstExpiresAt);
+        this.mfaSessionUpdater.onRefreshTokenLookup(aUserId.toString(), aFirstExpiresAt);
+        this.mfaSessionUpdater.onRefreshTokenIssued(aUserId.toString(), aLastExpiresAt);
+
+        Assertions.assertEquals(1, this.mfaSessionUpdater.pendingCount());
+        Mockito.verifyNoInteractions(this.jdbcTemplate);
+
+        this.mfaSessionUpdater.flush();
+
+        final var aArgsCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(this.jdbcTemplate, Mockito.times(1))
+                .batchUpdate(Mockito.startsWith("UPDATE users_mfa SET valid_until"), aArgsCaptor.capture());
+
+        final var aArgs = (List<Object[]>) aArgsCaptor.getValue();
+        Assertions.assertEquals(1, aArgs.size());
+        Assertions.assertEquals(Timestamp.from(aLastExpiresAt), aArgs.get(0)[0]);
+        Assertions.assertEquals(aUserId, aArgs.get(0)[2]);
+
+        // users.version sobe junto, senão um leitor com a linha antiga recarregaria o cache
+        final var aBumpCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(this.jdbcTemplate, Mockito.times(1))
+                .batchUpdate(Mockito.eq("UPDATE users SET version = version + 1 WHERE id = ?"), aBumpCaptor.capture());
+        Assertions.assertEquals(aUserId, ((List<Object[]>) aBumpCaptor.getValue()).get(0)[0]);
+
+        Mockito.verify(this.redisTemplate, Mockito.times(1)).delete(List.of("users:" + aUserId));
+        Assertions.assertEquals(0, this.mfaSessionUpdater.pendingCount());
+        Assertions.assertEquals(2, this.meterRegistry.get("auth.users.mfa.session.coalesced").counter().count());
+        Assertions.assertEquals(1, this.meterRegistry.get("auth.users.mfa.session.updates").counter().count());
+    }
+
+    @Test
+    void givenAnExpiredRefreshToken_whenCallFlush_shouldResetMfaVerified() {
+        final var aUserId = UUID.randomUUID();
+        Mockito.when(this.jdbcTemplate.batchUpdate(Mockito.anyString(), Mockito.<List<Object[]>>any()))
+                .thenReturn(new int[]{0});
+
+        this.mfaSessionUpdater.onRefreshTokenLookup(aUserId.toString(), Instant.now().minus(1, ChronoUnit.MINUTES));
+        this.mfaSessionUpdater.flush();
+
+        Mockito.verify(this.jdbcTemplate, Mockito.times(1))
+                .batchUpdate(Mockito.startsWith("UPDATE users_mfa SET mfa_verified = FALSE"), Mockito.<List<Object[]>>any());
+        // usuário sem MFA habilitado não atualiza linha, então não tem versão para subir nem cache para invalidar
+        Mockito.verify(this.jdbcTemplate, Mockito.never())
+                .batchUpdate(Mockito.startsWith("UPDATE users SET version"), Mockito.<List<Object[]>>any());
+        Mockito.verify(this.redisTemplate, Mockito.never()).delete(Mockito.<List<String>>any());
+    }
+
+    @Test
+    void givenAFailingFlush_whenCallFlush_shouldRequeueTheUpdate() {
+        Mockito.when(this.jdbcTemplate.batchUpdate(Mockito.anyString(), Mockito.<List<Object[]>>any()))
+                .thenThrow(new IllegalStateException("database down"));
+
+        this.mfaSessionUpdater.onRefreshTokenIssued(UUID.randomUUID().toString(), Instant.now().plus(1, ChronoUnit.DAYS));
+        this.mfaSessionUpdater.flush();
+
+        Assertions.assertEquals(1, this.mfaSessionUpdater.pendingCount());
+    }
+}
@@ -0,0 +1,104 @@
+package com.kaua.ecommerce.auth.infrastructure.users;
+
+import com.kaua.ecommerce.auth.domain.Fixture;
+import com.kaua.ecommerce.auth.infrastructure.AbstractCacheTest;
+import com.kaua.ecommerce.auth.infrastructure.DatabaseRepositoryTest;
+import com.kaua.ecommerce.lib.domain.utils.InstantUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+@DatabaseRepositoryTest
+class RedisMfaSessionStoreTest extends AbstractCacheTest {
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    private RedisMfaSessionStore mfaSessionStore;
+
+    @BeforeEach
+    void setUp() {
+        this.mfaSessionStore = new RedisMfaSessionStore(this.redisTemplate);
+    }
+
+    @Test
+    void givenAVerifiedSession_whenCallIsVerified_shouldBeScopedToTheAuthorization() {
+        final var aUser = Fixture.Users.randomUser(Fixture.Roles.defaultRole().getId());
+        aUser.getMfa().confirmDevice(InstantUtils.now().plus(30, ChronoUnit.MINUTES));
+
+        Assertions.assertFalse(this.mfaSessionStore.isVerified(aUser, "authorization-1"));
+
+        this.mfaSessionStore.verify(aUser, "authorization-1");
+
+        Assertions.assertTrue(this.mfaSessionStore.isVerified(aUser, "authorization-1"));
+        Assertions.assertFalse(this.mfaSessionStore.isVerified(aUser, "authorization-2"));
+    }
+
+    @Test
+    void givenAVerifiedSession_whenRefreshTokenIsIssued_shouldExtendTheTtl() {
+        final var aUser = Fixture.Users.randomUser(Fixture.Roles.defaultRole().getId());
+        final var aKey = "mfa:sessions:" + aUser.getId().value() + ":authorization-1";
+        aUser.getMfa().confirmDevice(InstantUtils.now().plus(30, ChronoUnit.MINUTES));
+        this.mfaSessionStore.verify(aUser, "authorization-1");
+
+        this.mfaSessionStore.onRefreshTokenIssued(
+                aUser.getId().value().toString(),
+                "authorization-1",
+                InstantUtils.now().plus(1, ChronoUnit.DAYS));
+
+        Assertions.assertTrue(this.redisTemplate.getExpire(aKey, TimeUnit.HOURS) > 1);
+    }
+
+    @Test
+    void givenNoVerifiedSession_whenRefreshTokenIsLookedUp_shouldNotCreateASession() {
+        final var aUser = Fixture.Users.randomUser(Fixture.Roles.defaultRole().getId());
+        aUser.getMfa().confirmDevice(InstantUtils.now().plus(30, ChronoUnit.MINUTES));
+
+        this.mfaSessionStore.onRefreshTokenLookup(
+                aUser.getId().value().toString(),
+                "authorization-1",
+                InstantUtils.now().plus(1, ChronoUnit.DAYS));
+
+        Assertions.assertFalse(this.mfaSessionStore.isVerified(aUser, "authorization-1"));
+    }
+
+    @Test
+    void givenAnExpiredRefreshToken_whenRefreshTokenIsLookedUp_shouldDropTheSession() {
+        final var aUser = Fixture.Users.randomUser(Fixture.Roles.defaultRole().getId());
+        aUser.getMfa().confirmDevice(InstantUtils.now().plus(30, ChronoUnit.MINUTES));
+        this.mfaSessionStore.verify(aUser, "authorization-1");
+
+        this.mfaSessionStore.onRefreshTokenLookup(
+                aUser.getId().value().toString(),
+                "authorization-1",
+                InstantUtils.now().minus(1, ChronoUnit.DAYS));
+
+        Assertions.assertFalse(this.mfaSessionStore.isVerified(aUser, "authorization-1"));
+    }
+
+    @Test
+    void givenASessionVerifiedBeforeTheSwitch_whenCallFindVerifiedUntil_shouldUseTheDatabaseValueAndMoveItToRedis() {
+        final var aUser = Fixture.Users.randomUser(Fixture.Roles.defaultRole().getId());
+        final var aKey = "mfa:sessions:" + aUser.getId().value() + ":authorization-1";
+        aUser.getMfa().confirmDevice(InstantUtils.now().plus(30, ChronoUnit.MINUTES));
+        // gravado em users_mfa pelo DatabaseMfaSessionStore
+        aUser.getMfa().verifyMfa();
+
+        final var aOutput = this.mfaSessionStore.findVerifiedUntil(aUser, "authorization-1");
+
+        Assertions.assertEquals(aUser.getMfa().getValidUntil(), aOutput);
+        Assertions.assertTrue(this.redisTemplate.hasKey(aKey));
+
+        this.mfaSessionStore.onRefreshTokenIssued(
+                aUser.getId().value().toString(),
+                "authorization-1",
+                InstantUtils.now().plus(1, ChronoUnit.DAYS));
+
+        Assertions.assertTrue(this.redisTemplate.getExpire(aKey, TimeUnit.HOURS) > 1);
+    }
+}
@@ -4,21 +4,42 @@ import com.kaua.ecommerce.auth.domain.Fixture;
 import com.kaua.ecommerce.auth.domain.users.*;
 import com.kaua.ecommerce.auth.infrastructure.AbstractCacheTest;
 import com.kaua.ecommerce.auth.infrastructure.DatabaseRepositoryTest;
+import com.kaua.ecommerce.auth.infrastructure.configurations.json.Json;
 import com.kaua.ecommerce.auth.infrastructure.roles.persistence.RoleJpaEntity;
 import com.kaua.ecommerce.auth.infrastructure.roles.persistence.RoleJpaEntityRepository;
 import com.kaua.ecommerce.auth.infrastructure.users.persistence.UserJpaEntity;
 import com.kaua.ecommerce.auth.infrastructure.users.persistence.UserJpaEntityRepository;
+import com.kaua.ecommerce.auth.infrastructure.users.persistence.cache.UserCacheEntity;
+import com.kaua.ecommerce.lib.domain.exceptions.DomainException;
 import com.kaua.ecommerce.lib.domain.utils.IdentifierUtils;
 import com.kaua.ecommerce.lib.domain.utils.InstantUtils;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
-
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 @DatabaseRepositoryTest
+@TestPropertySource(properties = "auth-server.users.near-cache.ttl=1m")
 class UserRepositoryImplTest extends AbstractCacheTest {
 
     @Autowired
@@ -33,6 +54,12 @@ class UserRepositoryImplTest extends AbstractCacheTest {
     @Autowired
     private RedisTemplate<String, String> redisTemplate;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @Test
     void givenAValidValues_whenCallSaveUser_thenUserIsSaved() {
         final var aDefaultRole = Fixture.Roles.defaultRole();
@@ -283,4 +310,312 @@ class UserRepositoryImplTest extends AbstractCacheTest {
         Assertions.assertEquals(aUser.getUpdatedAt(), aOutput.getUpdatedAt());
         Assertions.assertTrue(aOutput.getDeletedAt().isEmpty());
     }
+
+    @Test
+    void givenAUserInNearCache_whenRedisAndDatabaseAreCleared_thenFindByIdAndEmailReturnUser() {
+        final var aDefaultRole = Fixture.Roles.defaultRole();
+        this.roleJpaEntityRepository.saveAndFlush(RoleJpaEntity.toEntity(aDefaultRole));
+
+        final var aUser = Fixture.Users.randomUser(aDefaultRole.getId());
+
+        this.userJpaEntityRepository.saveAndFlush(UserJpaEntity.toEntity(aUser));
+
+        this.userRepositoryImpl.findById(aUser.getId().value());
+
+        this.redisTemplate.delete(List.of(
+                "users:".concat(aUser.getId().value().toString()),
+                "users:email:".concat(aUser.getEmail().value())
+        ));
+        this.userJpaEntityRepository.deleteAll();
+
+        final var aOutputById = this.userRepositoryImpl.findById(aUser.getId().value()).get();
+        final var aOutputByEmail = this.userRepositoryImpl.findByEmail(aUser.getEmail().value()).get();
+
+        Assertions.assertEquals(aUser.getId().value(), aOutputById.getId().value());
+        Assertions.assertEquals(aUser.getEmail().value(), aOutputById.getEmail().value());
+        Assertions.assertEquals(aUser.getId().value(), aOutputByEmail.getId().value());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void givenAUserInNearCache_whenCallUpdateUser_thenNextFindByIdReturnsUpdatedUser() {
+        final var aDefaultRole = Fixture.Roles.defaultRole();
+        this.roleJpaEntityRepository.saveAndFlush(RoleJpaEntity.toEntity(aDefaultRole));
+
+        final var aUser = Fixture.Users.randomUser(aDefaultRole.getId());
+
+        this.userJpaEntityRepository.saveAndFlush(UserJpaEntity.toEntity(aUser));
+
+        Assertions.assertFalse(this.userRepositoryImpl.findById(aUser.getId().value()).get()
+                .getMfa().isDeviceVerified());
+
+        aUser.getMfa().confirmDevice(InstantUtils.now().plus(30, ChronoUnit.MINUTES));
+        this.userRepositoryImpl.update(aUser);
+
+        final var aOutput = this.userRepositoryImpl.findById(aUser.getId().value()).get();
+
+        Assertions.assertTrue(aOutput.getMfa().isDeviceVerified());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void givenAnEmailRegisteredByAnotherNode_whenCallSaveUser_thenThrowDomainException() {
+        // simula o filtro desatualizado: o existsByEmail do create deixou passar e o unique barra no insert
+        final var aDefaultRole = Fixture.Roles.defaultRole();
+        this.roleJpaEntityRepository.saveAndFlush(RoleJpaEntity.toEntity(aDefaultRole));
+
+        final var aRegistered = Fixture.Users.randomUser(aDefaultRole.getId());
+        this.userJpaEntityRepository.saveAndFlush(UserJpaEntity.toEntity(aRegistered));
+
+        final var aUser = User.newUser(
+                new CustomerId(IdentifierUtils.generateNewId()),
+                new UserName("John", "Doe"),
+                new UserEmail(aRegistered.getEmail().value()),
+                new UserPassword("123456Ab*"),
+                Set.of(aDefaultRole.getId())
+        );
+
+        final var expectedErrorMessage = "Email already exists";
+
+        final var aException = Assertions.assertThrows(DomainException.class,
+                () -> this.userRepositoryImpl.save(aUser));
+
+        Assertions.assertEquals(expectedErrorMessage, aException.getMessage());
+        Assertions.assertEquals(1, this.userJpaEntityRepository.count());
+    }
+
+    @Test
+    void givenAnInvalidationFromAnotherNode_whenMessageArrives_thenNearCacheDropsTheUser() throws InterruptedException {
+        final var aDefaultRole = Fixture.Roles.defaultRole();
+        final var aUser = Fixture.Users.randomUser(aDefaultRole.getId());
+        final var aOtherNode = new UserNearCache(this.redisTemplate, Duration.ofMinutes(1), 100);
+        aOtherNode.start();
+
+        try {
+            aOtherNode.put(UserCacheEntity.toEntity(UserJpaEntity.toEntity(aUser)));
+            Assertions.assertTrue(aOtherNode.get(aUser.getId().value()).isPresent());
+
+            UserNearCache.publishInvalidation(this.redisTemplate, List.of(aUser.getId().value()));
+
+            final var aDeadline = System.currentTimeMillis() + 5_000;
+            while (aOtherNode.get(aUser.getId().value()).isPresent() && System.currentTimeMillis() < aDeadline) {
+                Thread.sleep(50);
+            }
+
+            Assertions.assertTrue(aOtherNode.get(aUser.getId().value()).isEmpty());
+            Assertions.assertTrue(aOtherNode.getByEmail(aUser.getEmail().value()).isEmpty());
+        } finally {
+            aOtherNode.stop();
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void givenConcurrentCacheMisses_whenCallFindById_thenLoadsTheUserFromDatabaseOnce() throws Exception {
+        // sem a transação do teste, as threads precisam enxergar o usuário commitado
+        final var aDefaultRole = Fixture.Roles.defaultRole();
+        this.roleJpaEntityRepository.saveAndFlush(RoleJpaEntity.toEntity(aDefaultRole));
+
+        final var aUser = Fixture.Users.randomUser(aDefaultRole.getId());
+        this.userJpaEntityRepository.saveAndFlush(UserJpaEntity.toEntity(aUser));
+
+        final var aStatistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        aStatistics.clear();
+
+        final var aCallers = 16;
+        final var aStart = new CountDownLatch(1);
+        final var aExecutor = Executors.newFixedThreadPool(aCallers);
+        try {
+            final var aResults = new ArrayList<Future<UUID>>();
+            for (int i = 0; i < aCallers; i++) {
+                aResults.add(aExecutor.submit(() -> {
+                    aStart.await();
+                    return this.userRepositoryImpl.findById(aUser.getId().value()).get().getId().value();
+                }));
+            }
+            aStart.countDown();
+
+            for (final var aResult : aResults) {
+                Assertions.assertEquals(aUser.getId().value(), aResult.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            aExecutor.shutdownNow();
+        }
+
+        Assertions.assertEquals(1, aStatistics.getEntityStatistics(UserJpaEntity.class.getName()).getLoadCount());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void givenAReaderDuringTheUpdateTransaction_whenTheUpdateCommits_thenTheCacheHoldsTheNewVersion() throws Exception {
+        final var aDefaultRole = Fixture.Roles.defaultRole();
+        this.roleJpaEntityRepository.saveAndFlush(RoleJpaEntity.toEntity(aDefaultRole));
+
+        final var aUser = Fixture.Users.randomUser(aDefaultRole.getId());
+        this.userJpaEntityRepository.saveAndFlush(UserJpaEntity.toEntity(aUser));
+        final var aId = aUser.getId().value();
+        final var aStaleUser = UserCacheEntity.toEntity(this.userJpaEntityRepository.findById(aId).get());
+
+        aUser.getMfa().confirmDevice(InstantUtils.now().plus(30, ChronoUnit.MINUTES));
+
+        final var aExecutor = Executors.newSingleThreadExecutor();
+        try {
+            new TransactionTemplate(this.transactionManager).executeWithoutResult(status -> {
+                this.userRepositoryImpl.update(aUser);
+
+                // outra requisição lê o banco antes do commit e enche o cache com a linha antiga
+                final var aDuringTransaction = get(aExecutor.submit(() -> this.userRepositoryImpl.findById(aId).get()));
+                Assertions.assertFalse(aDuringTransaction.getMfa().isDeviceVerified());
+            });
+        } finally {
+            aExecutor.shutdownNow();
+        }
+
+        Assertions.assertTrue(cachedUser(aId).getMfa().isDeviceVerified());
+        Assertions.assertTrue(this.userRepositoryImpl.findById(aId).get().getMfa().isDeviceVerified());
+
+        // um leitor que carregou a versão antiga e só grava agora não sobrescreve a nova
+        this.userRepositoryImpl.setInCache(aStaleUser);
+
+        Assertions.assertTrue(cachedUser(aId).getMfa().isDeviceVerified());
+        Assertions.assertEquals(aStaleUser.getVersion() + 1, cachedUser(aId).getVersion());
+        Assertions.assertTrue(this.userRepositoryImpl.findById(aId).get().getMfa().isDeviceVerified());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void givenAnUpdateThatRollsBack_whenCallUpdateUser_thenCacheIsNotTouched() {
+        final var aDefaultRole = Fixture.Roles.defaultRole();
+        this.roleJpaEntityRepository.saveAndFlush(RoleJpaEntity.toEntity(aDefaultRole));
+
+        final var aUser = Fixture.Users.randomUser(aDefaultRole.getId());
+        this.userJpaEntityRepository.saveAndFlush(UserJpaEntity.toEntity(aUser));
+        final var aId = aUser.getId().value();
+        this.userRepositoryImpl.findById(aId);
+
+        aUser.getMfa().confirmDevice(InstantUtils.now().plus(30, ChronoUnit.MINUTES));
+
+        new TransactionTemplate(this.transactionManager).executeWithoutResult(status -> {
+            this.userRepositoryImpl.update(aUser);
+            status.setRollbackOnly();
+        });
+
+        Assertions.assertFalse(cachedUser(aId).getMfa().isDeviceVerified());
+        Assertions.assertFalse(this.userRepositoryImpl.findById(aId).get().getMfa().isDeviceVerified());
+    }
+
+    @Test
+    void givenAnEmailChange_whenCallNearCacheGetByEmail_thenTheOldEmailIsAMiss() {
+        final var aDefaultRole = Fixture.Roles.defaultRole();
+        final var aUser = Fixture.Users.randomUser(aDefaultRole.getId());
+        final var aOldEmail = aUser.getEmail().value();
+        final var aNearCache = new UserNearCache(this.redisTemplate, Duration.ofMinutes(1), 100);
+        aNearCache.put(UserCacheEntity.toEntity(UserJpaEntity.toEntity(aUser)));
+
+        aUser.changeEmail(new UserEmail("changed." + aOldEmail));
+        aNearCache.put(UserCacheEntity.toEntity(UserJpaEntity.toEntity(aUser)));
+
+        // o email -> id antigo continua no L1 até o TTL, mas aponta para um usuário com outro email
+        Assertions.assertTrue(aNearCache.getByEmail(aOldEmail).isEmpty());
+        Assertions.assertTrue(aNearCache.peekByEmail(aOldEmail).isEmpty());
+        Assertions.assertEquals(aUser.getId().value(),
+                aNearCache.getByEmail("changed." + aOldEmail).get().getId());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void givenAnEmailChange_whenCallUpdateUser_thenTheOldEmailNoLongerResolves() {
+        final var aDefaultRole = Fixture.Roles.defaultRole();
+        this.roleJpaEntityRepository.saveAndFlush(RoleJpaEntity.toEntity(aDefaultRole));
+
+        final var aUser = Fixture.Users.randomUser(aDefaultRole.getId());
+        this.userJpaEntityRepository.saveAndFlush(UserJpaEntity.toEntity(aUser));
+        final var aOldEmail = aUser.getEmail().value();
+        this.userRepositoryImpl.findByEmail(aOldEmail);
+
+        aUser.changeEmail(new UserEmail("changed." + aOldEmail));
+        this.userRepositoryImpl.update(aUser);
+
+        Assertions.assertNull(this.redisTemplate.opsForValue().get("users:email:".concat(aOldEmail)));
+        Assertions.assertTrue(this.userRepositoryImpl.findByEmail(aOldEmail).isEmpty());
+        Assertions.assertEquals(aUser.getId().value(),
+                this.userRepositoryImpl.findByEmail("changed." + aOldEmail).get().getId().value());
+    }
+
+    @Test
+    void givenRecentlyUpdatedUsers_whenCallPreload_thenUsersAreCachedById() {
+        final var aDefaultRole = Fixture.Roles.defaultRole();
+        this.roleJpaEntityRepository.saveAndFlush(RoleJpaEntity.toEntity(aDefaultRole));
+
+        final var aUserOne = Fixture.Users.randomUser(aDefaultRole.getId());
+        final var aUserTwo = Fixture.Users.randomUser(aDefaultRole.getId());
+        this.userJpaEntityRepository.saveAllAndFlush(List.of(
+                UserJpaEntity.toEntity(aUserOne),
+                UserJpaEntity.toEntity(aUserTwo)
+        ));
+
+        final var aIds = this.userRepositoryImpl.recentlyActiveUserIds(10);
+        Assertions.assertEquals(2, aIds.size());
+
+        Assertions.assertEquals(2, this.userRepositoryImpl.preload(aIds));
+
+        Assertions.assertEquals(aUserOne.getEmail().value(), cachedUser(aUserOne.getId().value()).getEmail());
+        Assertions.assertEquals(aUserTwo.getEmail().value(), cachedUser(aUserTwo.getId().value()).getEmail());
+        Assertions.assertNotNull(this.redisTemplate.opsForValue().get("users:email:".concat(aUserOne.getEmail().value())));
+    }
+
+    @Test
+    void givenANewerVersionInCache_whenCallPreload_thenTheCachedUserIsKept() {
+        final var aDefaultRole = Fixture.Roles.defaultRole();
+        this.roleJpaEntityRepository.saveAndFlush(RoleJpaEntity.toEntity(aDefaultRole));
+
+        final var aUser = Fixture.Users.randomUser(aDefaultRole.getId());
+        this.userJpaEntityRepository.saveAndFlush(UserJpaEntity.toEntity(aUser));
+        final var aId = aUser.getId().value().toString();
+
+        // o script grava a versão como número cru, sem o serializer do template
+        this.redisTemplate.execute((RedisCallback<Object>) connection -> connection.stringCommands().set(
+                "users:version:".concat(aId).getBytes(StandardCharsets.UTF_8),
+                "99".getBytes(StandardCharsets.UTF_8)
+        ));
+
+        Assertions.assertEquals(1, this.userRepositoryImpl.preload(List.of(aUser.getId().value())));
+        Assertions.assertNull(this.redisTemplate.opsForValue().get("users:".concat(aId)));
+    }
+
+    @Test
+    void givenUsersLookedUp_whenCallHottestUserIds_thenReturnsOnlyTheUsersSeenByThisNode() {
+        final var aDefaultRole = Fixture.Roles.defaultRole();
+        this.roleJpaEntityRepository.saveAndFlush(RoleJpaEntity.toEntity(aDefaultRole));
+
+        final var aById = Fixture.Users.randomUser(aDefaultRole.getId());
+        final var aByEmail = Fixture.Users.randomUser(aDefaultRole.getId());
+        final var aNeverLookedUp = Fixture.Users.randomUser(aDefaultRole.getId());
+        this.userJpaEntityRepository.saveAllAndFlush(List.of(
+                UserJpaEntity.toEntity(aById),
+                UserJpaEntity.toEntity(aByEmail),
+                UserJpaEntity.toEntity(aNeverLookedUp)
+        ));
+
+        this.userRepositoryImpl.findById(aById.getId().value());
+        this.userRepositoryImpl.findByEmail(aByEmail.getEmail().value());
+
+        // o contexto é compartilhado, outros testes também deixam usuários no sketch
+        final var aHottest = this.userRepositoryImpl.hottestUserIds(1000);
+        Assertions.assertTrue(aHottest.contains(aById.getId().value()));
+        Assertions.assertTrue(aHottest.contains(aByEmail.getId().value()));
+        Assertions.assertFalse(aHottest.contains(aNeverLookedUp.getId().value()));
+    }
+
+    private UserCacheEntity cachedUser(final UUID id) {
+        return Json.readValue(this.redisTemplate.opsForValue().get("users:".concat(id.toString())), UserCacheEntity.class);
+    }
+
+    private static <T> T get(final Future<T> future) {
+        try {
+            return future.get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
@@ -0,0 +1,109 @@
+package com.kaua.ecommerce.auth.infrastructure.users.persistence.cache;
+
+import com.kaua.ecommerce.auth.domain.Fixture;
+import com.kaua.ecommerce.auth.domain.users.mfas.UserMfaType;
+import com.kaua.ecommerce.auth.infrastructure.UnitTest;
+import com.kaua.ecommerce.auth.infrastructure.users.persistence.UserJpaEntity;
+import com.kaua.ecommerce.lib.domain.utils.InstantUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+@UnitTest
+class UserCacheEntityCodecTest {
+
+    @SuppressWarnings("unchecked")
+    private final RedisSerializer<String> textSerializer =
+            (RedisSerializer<String>) (RedisSerializer<?>) new GenericJackson2JsonRedisSerializer();
+
+    private final UserCacheEntityCodec jsonCodec =
+            new UserCacheEntityCodec(UserCacheEntityCodec.Format.JSON, this.textSerializer);
+    private final UserCacheEntityCodec binaryCodec =
+            new UserCacheEntityCodec(UserCacheEntityCodec.Format.BINARY, this.textSerializer);
+
+    @Test
+    void givenAUserWithMfa_whenEncodeAndDecodeBinary_shouldKeepEveryField() {
+        final var aUser = Fixture.Users.randomUser(Fixture.Roles.defaultRole().getId());
+        aUser.getMfa().createMfaOnDevice("secret", "Pixel 8", UserMfaType.TOTP);
+        aUser.getMfa().confirmDevice(Instant.parse("2024-05-01T10:15:30.123456789Z"));
+        final var aEntity = UserCacheEntity.toEntity(UserJpaEntity.toEntity(aUser));
+
+        final var aData = this.binaryCodec.encode(aEntity);
+        final var aOutput = this.binaryCodec.decode(aData);
+
+        Assertions.assertEquals(UserCacheEntityCodec.BINARY_VERSION, aData[0]);
+        assertSameUser(aEntity, aOutput);
+        Assertions.assertEquals(Instant.parse("2024-05-01T10:15:30.123456789Z"), aOutput.getMfa().getValidUntil().get());
+    }
+
+    @Test
+    void givenADeletedUserWithoutOptionalMfaFields_whenEncodeAndDecodeBinary_shouldKeepTheAbsentValues() {
+        final var aUser = Fixture.Users.randomUser(Fixture.Roles.defaultRole().getId());
+        final var aJpaEntity = UserJpaEntity.toEntity(aUser);
+        aJpaEntity.setDeleted(true);
+        aJpaEntity.setDeletedAt(InstantUtils.now());
+        final var aEntity = UserCacheEntity.toEntity(aJpaEntity);
+
+        final var aOutput = this.binaryCodec.decode(this.binaryCodec.encode(aEntity));
+
+        assertSameUser(aEntity, aOutput);
+        Assertions.assertTrue(aOutput.getMfa().getMfaSecret().isEmpty());
+        Assertions.assertTrue(aOutput.getMfa().getDeviceName().isEmpty());
+        Assertions.assertTrue(aOutput.getMfa().getMfaType().isEmpty());
+        Assertions.assertTrue(aOutput.getMfa().getValidUntil().isEmpty());
+    }
+
+    @Test
+    void givenAJsonEntryWrittenBeforeTheBinaryFormat_whenDecode_shouldReadIt() {
+        final var aUser = Fixture.Users.randomUser(Fixture.Roles.defaultRole().getId());
+        aUser.getMfa().confirmDevice(InstantUtils.now().plus(30, ChronoUnit.MINUTES));
+        final var aEntity = UserCacheEntity.toEntity(UserJpaEntity.toEntity(aUser));
+
+        final var aLegacyData = this.jsonCodec.encode(aEntity);
+
+        assertSameUser(aEntity, this.binaryCodec.decode(aLegacyData));
+        assertSameUser(aEntity, this.jsonCodec.decode(this.binaryCodec.encode(aEntity)));
+    }
+
+    @Test
+    void givenAnUnknownVersion_whenDecode_shouldThrowIllegalStateException() {
+        Assertions.assertThrows(IllegalStateException.class, () -> this.binaryCodec.decode(new byte[]{9, 0, 0}));
+        Assertions.assertThrows(IllegalStateException.class, () -> this.binaryCodec.decode(new byte[0]));
+    }
+
+    @Test
+    void givenAnUnknownFormat_whenCallOf_shouldThrowIllegalArgumentException() {
+        Assertions.assertEquals(UserCacheEntityCodec.Format.BINARY, UserCacheEntityCodec.Format.of("binary"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> UserCacheEntityCodec.Format.of("protobuf"));
+    }
+
+    private static void assertSameUser(final UserCacheEntity expected, final UserCacheEntity actual) {
+        Assertions.assertEquals(expected.getId(), actual.getId());
+        Assertions.assertEquals(expected.getVersion(), actual.getVersion());
+        Assertions.assertEquals(expected.getCustomerId(), actual.getCustomerId());
+        Assertions.assertEquals(expected.getFirstName(), actual.getFirstName());
+        Assertions.assertEquals(expected.getLastName(), actual.getLastName());
+        Assertions.assertEquals(expected.getEmail(), actual.getEmail());
+        Assertions.assertEquals(expected.getPassword(), actual.getPassword());
+        Assertions.assertEquals(expected.getRoles(), actual.getRoles());
+        Assertions.assertEquals(expected.isDeleted(), actual.isDeleted());
+        Assertions.assertEquals(expected.isEmailVerified(), actual.isEmailVerified());
+        Assertions.assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        Assertions.assertEquals(expected.getUpdatedAt(), actual.getUpdatedAt());
+        Assertions.assertEquals(expected.getDeletedAt(), actual.getDeletedAt());
+        Assertions.assertEquals(expected.getMfa().getId(), actual.getMfa().getId());
+        Assertions.assertEquals(expected.getMfa().isMfaEnabled(), actual.getMfa().isMfaEnabled());
+        Assertions.assertEquals(expected.getMfa().isMfaVerified(), actual.getMfa().isMfaVerified());
+        Assertions.assertEquals(expected.getMfa().getMfaSecret(), actual.getMfa().getMfaSecret());
+        Assertions.assertEquals(expected.getMfa().getDeviceName(), actual.getMfa().getDeviceName());
+        Assertions.assertEquals(expected.getMfa().isDeviceVerified(), actual.getMfa().isDeviceVerified());
+        Assertions.assertEquals(expected.getMfa().getMfaType(), actual.getMfa().getMfaType());
+        Assertions.assertEquals(expected.getMfa().getCreatedAt(), actual.getMfa().getCreatedAt());
+        Assertions.assertEquals(expected.getMfa().getUpdatedAt(), actual.getMfa().getUpdatedAt());
+        Assertions.assertEquals(expected.getMfa().getValidUntil(), actual.getMfa().getValidUntil());
+    }
+}
@@ -0,0 +1,56 @@
+package com.kaua.ecommerce.auth.infrastructure.utils;
+
+import com.kaua.ecommerce.auth.infrastructure.UnitTest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+
+@UnitTest
+class AesGcmCipherTest {
+
+    private SecretKey key;
+
+    @BeforeEach
+    void setUp() throws NoSuchAlgorithmException {
+        final var aKeyGenerator = KeyGenerator.getInstance("AES");
+        aKeyGenerator.init(256);
+        this.key = aKeyGenerator.generateKey();
+    }
+
+    @Test
+    void givenAValue_whenCallEncryptTwice_shouldUseADifferentIvAndDecryptBoth() {
+        final var aFirst = AesGcmCipher.encrypt(this.key, "secret", null);
+        final var aSecond = AesGcmCipher.encrypt(this.key, "secret", null);
+
+        Assertions.assertNotEquals(aFirst, aSecond);
+        Assertions.assertEquals(Optional.of("secret"), AesGcmCipher.decrypt(this.key, aFirst, null));
+        Assertions.assertEquals(Optional.of("secret"), AesGcmCipher.decrypt(this.key, aSecond, null));
+    }
+
+    @Test
+    void givenAPayloadBoundToAnAad_whenCallDecryptWithAnotherAad_shouldReturnEmpty() {
+        final var aPayload = AesGcmCipher.encrypt(this.key, "secret", "key-1".getBytes(StandardCharsets.UTF_8));
+
+        Assertions.assertEquals(Optional.of("secret"),
+                AesGcmCipher.decrypt(this.key, aPayload, "key-1".getBytes(StandardCharsets.UTF_8)));
+        Assertions.assertTrue(AesGcmCipher.decrypt(this.key, aPayload, "key-2".getBytes(StandardCharsets.UTF_8)).isEmpty());
+        Assertions.assertTrue(AesGcmCipher.decrypt(this.key, aPayload, null).isEmpty());
+    }
+
+    @Test
+    void givenAnInvalidPayload_whenCallDecrypt_shouldReturnEmpty() throws NoSuchAlgorithmException {
+        final var aOtherKeyGenerator = KeyGenerator.getInstance("AES");
+        aOtherKeyGenerator.init(256);
+        final var aPayload = AesGcmCipher.encrypt(this.key, "secret", null);
+
+        Assertions.assertTrue(AesGcmCipher.decrypt(aOtherKeyGenerator.generateKey(), aPayload, null).isEmpty());
+        Assertions.assertTrue(AesGcmCipher.decrypt(this.key, "not base64!", null).isEmpty());
+        Assertions.assertTrue(AesGcmCipher.decrypt(this.key, "AAAA", null).isEmpty());
+    }
+}
@@ -0,0 +1,24 @@
+package com.kaua.ecommerce.auth.infrastructure.utils;
+
+import com.kaua.ecommerce.auth.infrastructure.UnitTest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+@UnitTest
+class HashUtilsTest {
+
+    @Test
+    void givenKnownValues_whenCallMix64_shouldMatchTheMurmur3Finalizer() {
+        Assertions.assertEquals(0L, HashUtils.mix64(0L));
+        Assertions.assertEquals(0xc433d8fc0cf0792cL, HashUtils.mix64(1L));
+        Assertions.assertEquals(0x224a0160dfe365ccL, HashUtils.mix64(42L));
+    }
+
+    @Test
+    void givenSequentialValues_whenCallMix64_shouldSpreadTheLowBits() {
+        final var aFirst = HashUtils.mix64(1L);
+        final var aSecond = HashUtils.mix64(2L);
+
+        Assertions.assertTrue(Long.bitCount(aFirst ^ aSecond) > 16);
+    }
+}